@@ -1,10 +1,20 @@
 package com.musicapp;
 
+import com.musicapp.audio.LineSink;
+import com.musicapp.audio.PlaybackEngine;
+import com.musicapp.controller.PlayerController;
+import com.musicapp.service.LibraryWatcher;
+import com.musicapp.service.LoudnessAnalyzer;
+import com.musicapp.service.MusicLibrary;
+import com.musicapp.service.WaveformCache;
 import com.musicapp.ui.MainWindow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Application entry point for Resonance Music Player.
@@ -20,9 +30,35 @@ public class App {
         System.setProperty("awt.useSystemAAFontSettings", "on");
         System.setProperty("swing.aatext", "true");
 
+        // Replay the previous session's journal, then persist on exit (window close calls System.exit)
+        MusicLibrary library = MusicLibrary.getInstance();
+        try {
+            library.openJournal();
+        } catch (IOException e) {
+            log.error("Could not open the library journal; changes will only be saved on exit", e);
+        }
+        LibraryWatcher watcher = watchMusicFolder(library);
+        // Measure loudness of songs not analysed yet, for normalization during playback
+        LoudnessAnalyzer loudness = new LoudnessAnalyzer();
+        loudness.start(library);
+        // Seek-bar waveforms, cached on disk next to the catalog
+        WaveformCache waveforms = new WaveformCache(library.getCatalogPath().toAbsolutePath().resolveSibling("waveforms"));
+        waveforms.start(library);
+
+        // Real audio output; the sound card line is only opened for the first playable file
+        PlaybackEngine engine = new PlaybackEngine(new LineSink());
+        PlayerController.getInstance().setEngine(engine);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            engine.close();
+            loudness.close();
+            waveforms.close();
+            if (watcher != null) watcher.close();
+            library.shutdown();
+        }, "library-shutdown"));
+
         SwingUtilities.invokeLater(() -> {
             try {
-                new MainWindow();
+                new MainWindow(waveforms);
                 log.info("Main window launched successfully");
             } catch (Exception e) {
                 log.error("Failed to launch application", e);
@@ -32,4 +68,22 @@ public class App {
             }
         });
     }
+
+    /**
+     * Syncs the library with the folder named by {@code -Dresonance.music=<dir>}
+     * in the background and keeps watching it; returns {@code null} if unset.
+     */
+    private static LibraryWatcher watchMusicFolder(MusicLibrary library) {
+        String folder = System.getProperty("resonance.music");
+        if (folder == null || folder.isEmpty()) return null;
+        try {
+            Path index = Paths.get(library.getCatalogPath() + ".idx");
+            LibraryWatcher watcher = new LibraryWatcher(library, Paths.get(folder), index);
+            watcher.start();
+            return watcher;
+        } catch (IOException e) {
+            log.error("Cannot watch music folder {}", folder, e);
+            return null;
+        }
+    }
 }
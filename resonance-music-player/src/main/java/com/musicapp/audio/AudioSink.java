@@ -0,0 +1,39 @@
+package com.musicapp.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Where the engine's output thread sends PCM: a sound card line in the app
+ * ({@link LineSink}), an in-memory fake in tests.
+ *
+ * <p>Mirrors the subset of {@link javax.sound.sampled.SourceDataLine} the
+ * engine needs, with the same threading contract: {@link #write} blocks while
+ * the sink's buffer is full, and {@link #stop}, {@link #flush} or
+ * {@link #close} from another thread make a blocked write return early.</p>
+ */
+public interface AudioSink extends AutoCloseable {
+
+    /** Opens the sink for {@code format} with roughly {@code bufferBytes} of device buffer; no-op if already open. */
+    void open(AudioFormat format, int bufferBytes) throws LineUnavailableException;
+
+    void start();
+
+    /** Pauses output, keeping buffered data. */
+    void stop();
+
+    /** Discards buffered data that has not been played. */
+    void flush();
+
+    /** Blocks until buffered data has been played. */
+    void drain();
+
+    /** Writes whole frames; returns the bytes accepted, fewer if stopped or flushed meanwhile. */
+    int write(byte[] b, int off, int len);
+
+    /** Frames played since the sink was opened. */
+    long getFramePosition();
+
+    @Override
+    void close();
+}
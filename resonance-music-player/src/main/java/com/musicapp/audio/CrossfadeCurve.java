@@ -0,0 +1,11 @@
+package com.musicapp.audio;
+
+/** How the outgoing and incoming tracks are weighted across a crossfade. */
+public enum CrossfadeCurve {
+
+    /** Gains add up to one; uncorrelated material dips about 3 dB mid-fade. */
+    LINEAR,
+
+    /** Quarter sine and cosine, powers add up to one: constant loudness for uncorrelated material. */
+    EQUAL_POWER
+}
@@ -0,0 +1,69 @@
+package com.musicapp.audio;
+
+/**
+ * Mixes an outgoing track into an incoming one over a fixed number of
+ * frames.  The caller reads the outgoing samples into {@link #outgoing} and
+ * the incoming ones into its own buffer, and {@link #mix} blends the first
+ * into the second in place.  Both buffers are allocated once and reused
+ * for every fade.  Gains come from a precomputed table, so the per-sample
+ * loop does no trigonometry and no allocation.
+ *
+ * <p>Not thread-safe; owned by the decoder thread.</p>
+ */
+final class CrossfadeMixer {
+
+    private static final int     STEPS  = 1024;
+    private static final float[] LINEAR = new float[STEPS + 2];   // gain at t = i / STEPS; one spare for interpolation
+    private static final float[] SINE   = new float[STEPS + 2];
+
+    static {
+        for (int i = 0; i < LINEAR.length; i++) {
+            double t = Math.min(1, (double) i / STEPS);
+            LINEAR[i] = (float) t;
+            SINE[i]   = (float) Math.sin(t * Math.PI / 2);
+        }
+    }
+
+    /** Scratch for the outgoing track's samples; {@link #mix} reads the first {@code n}. */
+    final float[] outgoing;
+
+    private final int channels;
+    private float[]   table = LINEAR;
+    private long      length;          // frames in the fade
+    private long      pos;             // frames mixed so far
+
+    CrossfadeMixer(int maxSamples, int channels) {
+        this.outgoing = new float[maxSamples];
+        this.channels = channels;
+    }
+
+    /** Starts a fade lasting {@code frames} frames. */
+    void begin(long frames, CrossfadeCurve curve) {
+        if (frames <= 0) throw new IllegalArgumentException("frames must be positive");
+        length = frames;
+        pos    = 0;
+        table  = curve == CrossfadeCurve.EQUAL_POWER ? SINE : LINEAR;
+    }
+
+    /** Whether the fade has run its full length. */
+    boolean isDone() { return pos >= length; }
+
+    /** Blends {@code outgoing[0, n)} into {@code incoming[0, n)} and advances the fade by {@code n / channels} frames. */
+    void mix(float[] incoming, int n) {
+        float[] g = table;
+        float step = (float) STEPS / length;
+        for (int i = 0, f = 0; i < n; i += channels, f++) {
+            float x = Math.min(STEPS, (pos + f) * step);
+            float in  = gain(g, x);
+            float out = gain(g, STEPS - x);
+            for (int c = i; c < i + channels; c++) incoming[c] = incoming[c] * in + outgoing[c] * out;
+        }
+        pos += n / channels;
+    }
+
+    private static float gain(float[] g, float x) {
+        int   i = (int) x;
+        float a = g[i];
+        return a + (g[i + 1] - a) * (x - i);
+    }
+}
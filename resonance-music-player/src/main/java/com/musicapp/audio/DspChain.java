@@ -0,0 +1,54 @@
+package com.musicapp.audio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ordered list of {@link DspStage}s applied to every output block.
+ *
+ * <p>The stages live in an array that is never modified: adding or removing
+ * one publishes a new array through a volatile field.  The audio thread
+ * reads that field once per block and iterates without locks or
+ * allocation.  Writers synchronize only among themselves.</p>
+ */
+public final class DspChain {
+
+    private volatile DspStage[] stages = new DspStage[0];
+
+    /** Appends {@code stage} to the end of the chain. */
+    public synchronized void add(DspStage stage) { add(stages.length, stage); }
+
+    /** Inserts {@code stage} at {@code index}, shifting later stages along. */
+    public synchronized void add(int index, DspStage stage) {
+        if (stage == null) throw new IllegalArgumentException("stage must not be null");
+        DspStage[] old = stages;
+        if (index < 0 || index > old.length) throw new IndexOutOfBoundsException("index " + index);
+        DspStage[] next = new DspStage[old.length + 1];
+        System.arraycopy(old, 0, next, 0, index);
+        next[index] = stage;
+        System.arraycopy(old, index, next, index + 1, old.length - index);
+        stages = next;
+    }
+
+    /** Removes {@code stage}; returns whether it was in the chain. */
+    public synchronized boolean remove(DspStage stage) {
+        List<DspStage> list = new ArrayList<>(Arrays.asList(stages));
+        if (!list.remove(stage)) return false;
+        stages = list.toArray(new DspStage[0]);
+        return true;
+    }
+
+    /** The stages in processing order, as of now. */
+    public List<DspStage> getStages() { return List.of(stages); }
+
+    /** Runs every stage over the first {@code n} samples of {@code block}. */
+    public void process(float[] block, int n) {
+        for (DspStage s : stages) s.process(block, n);
+    }
+
+    /** Resets every stage; audio thread only. */
+    public void reset() {
+        for (DspStage s : stages) s.reset();
+    }
+}
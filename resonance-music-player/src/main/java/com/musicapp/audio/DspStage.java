@@ -0,0 +1,20 @@
+package com.musicapp.audio;
+
+/**
+ * One step of the engine's {@link DspChain}.  Stages run on the audio
+ * output thread, one block at a time, and work in place on interleaved
+ * float samples in [-1, 1).
+ *
+ * <p>{@link #process} must not block, lock or allocate: it runs once every
+ * 10 ms between the ring buffer and the sound card.  Settings changed from
+ * other threads should be published through volatile fields and picked up
+ * at the start of the next block.</p>
+ */
+public interface DspStage {
+
+    /** Transforms the first {@code n} samples of {@code block} in place. */
+    void process(float[] block, int n);
+
+    /** Forgets any history (filter memory, ramps) after a discontinuity such as a seek; audio thread only. */
+    default void reset() { }
+}
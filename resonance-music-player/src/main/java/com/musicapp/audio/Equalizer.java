@@ -0,0 +1,166 @@
+package com.musicapp.audio;
+
+import java.util.Arrays;
+
+/**
+ * Ten-band graphic equalizer: one peaking biquad (RBJ cookbook, one octave
+ * wide) per band, in transposed direct form II with double-precision state.
+ *
+ * <p>Settings are changed from any thread.  Each change computes a fresh,
+ * immutable set of coefficients and publishes it through a volatile field.
+ * The audio thread reads that field once per block, so it never waits for a
+ * writer and never sees a half-updated band.  Bands at 0 dB are left out of
+ * the set, so a flat equalizer passes samples through untouched.</p>
+ */
+public final class Equalizer implements DspStage {
+
+    /** Centre frequencies of the bands, in Hz. */
+    private static final double[] FREQUENCIES = {31, 62, 125, 250, 500, 1_000, 2_000, 4_000, 8_000, 16_000};
+
+    public static final int    BANDS   = FREQUENCIES.length;
+    /** Largest boost or cut per band. */
+    public static final double MAX_DB  = 12;
+    private static final double Q      = Math.sqrt(2);   // one octave
+    private static final double DENORMAL = 1e-25;
+
+    /** The active bands' coefficients, normalised by a0.  Immutable once published. */
+    private static final class Coefficients {
+        final int      count;
+        final int[]    band;
+        final double[] b0, b1, b2, a1, a2;
+
+        Coefficients(int count) {
+            this.count = count;
+            band = new int[count];
+            b0 = new double[count]; b1 = new double[count]; b2 = new double[count];
+            a1 = new double[count]; a2 = new double[count];
+        }
+    }
+
+    private final float    sampleRate;
+    private final int      channels;
+    private final double[] gains = new double[BANDS];      // writers only, under this
+    private volatile Coefficients coefficients = new Coefficients(0);
+
+    // Audio thread only
+    private final double[] z1, z2;                          // [band * channels + channel]
+    private Coefficients applied = coefficients;
+
+    public Equalizer(float sampleRate, int channels) {
+        this.sampleRate = sampleRate;
+        this.channels   = channels;
+        this.z1 = new double[BANDS * channels];
+        this.z2 = new double[BANDS * channels];
+    }
+
+    public static double frequency(int band) { return FREQUENCIES[band]; }
+
+    /** Sets {@code band} to {@code db} decibels, clamped to ±{@link #MAX_DB}. */
+    public synchronized void setGain(int band, double db) {
+        if (band < 0 || band >= BANDS) throw new IndexOutOfBoundsException("band " + band);
+        gains[band] = Math.max(-MAX_DB, Math.min(MAX_DB, db));
+        publish();
+    }
+
+    /** Sets all bands at once from {@code db}, lowest band first. */
+    public synchronized void setGains(double[] db) {
+        if (db.length != BANDS) throw new IllegalArgumentException("expected " + BANDS + " gains");
+        for (int i = 0; i < BANDS; i++) gains[i] = Math.max(-MAX_DB, Math.min(MAX_DB, db[i]));
+        publish();
+    }
+
+    public synchronized double   getGain(int band) { return gains[band]; }
+    public synchronized double[] getGains()        { return gains.clone(); }
+    public boolean isFlat() { return coefficients.count == 0; }
+
+    private void publish() {
+        int count = 0;
+        for (double g : gains) if (g != 0) count++;
+        Coefficients k = new Coefficients(count);
+        for (int b = 0, j = 0; b < BANDS; b++) {
+            if (gains[b] == 0) continue;
+            double a     = Math.pow(10, gains[b] / 40);
+            double w0    = 2 * Math.PI * FREQUENCIES[b] / sampleRate;
+            double alpha = Math.sin(w0) / (2 * Q);
+            double cos   = Math.cos(w0);
+            double a0    = 1 + alpha / a;
+            k.band[j] = b;
+            k.b0[j] = (1 + alpha * a) / a0;
+            k.b1[j] = -2 * cos / a0;
+            k.b2[j] = (1 - alpha * a) / a0;
+            k.a1[j] = -2 * cos / a0;
+            k.a2[j] = (1 - alpha / a) / a0;
+            j++;
+        }
+        coefficients = k;
+    }
+
+    @Override
+    public void process(float[] block, int n) {
+        Coefficients k = coefficients;
+        if (k != applied) clearNewBands(k);
+        for (int j = 0; j < k.count; j++) {
+            if (channels == 2) stereo(block, n, k, j);
+            else for (int c = 0; c < channels; c++) channel(block, n, k, j, c);
+        }
+    }
+
+    /** One band over one channel. */
+    private void channel(float[] block, int n, Coefficients k, int j, int c) {
+        double b0 = k.b0[j], b1 = k.b1[j], b2 = k.b2[j], a1 = k.a1[j], a2 = k.a2[j];
+        int    s  = k.band[j] * channels + c;
+        double s1 = z1[s], s2 = z2[s];
+        for (int i = c; i < n; i += channels) {
+            double x = block[i];
+            double y = b0 * x + s1;
+            s1 = b1 * x - a1 * y + s2;
+            s2 = b2 * x - a2 * y;
+            block[i] = (float) y;
+        }
+        z1[s] = flush(s1);
+        z2[s] = flush(s2);
+    }
+
+    /**
+     * One band over both channels in one pass.  Each filter is bound by the
+     * latency of its own feedback, so running the two independent channels
+     * side by side roughly halves the time per sample.
+     */
+    private void stereo(float[] block, int n, Coefficients k, int j) {
+        double b0 = k.b0[j], b1 = k.b1[j], b2 = k.b2[j], a1 = k.a1[j], a2 = k.a2[j];
+        int    s  = k.band[j] * 2;
+        double l1 = z1[s], l2 = z2[s], r1 = z1[s + 1], r2 = z2[s + 1];
+        for (int i = 0; i + 1 < n; i += 2) {
+            double xl = block[i], xr = block[i + 1];
+            double yl = b0 * xl + l1, yr = b0 * xr + r1;
+            l1 = b1 * xl - a1 * yl + l2;
+            r1 = b1 * xr - a1 * yr + r2;
+            l2 = b2 * xl - a2 * yl;
+            r2 = b2 * xr - a2 * yr;
+            block[i]     = (float) yl;
+            block[i + 1] = (float) yr;
+        }
+        z1[s] = flush(l1); z2[s] = flush(l2);
+        z1[s + 1] = flush(r1); z2[s + 1] = flush(r2);
+    }
+
+    /** Keeps decaying silence out of the slow denormal range. */
+    private static double flush(double v) { return Math.abs(v) < DENORMAL ? 0 : v; }
+
+    /** Zeroes the memory of bands that were bypassed until now, so they start clean. */
+    private void clearNewBands(Coefficients k) {
+        outer:
+        for (int j = 0; j < k.count; j++) {
+            for (int i = 0; i < applied.count; i++) if (applied.band[i] == k.band[j]) continue outer;
+            Arrays.fill(z1, k.band[j] * channels, (k.band[j] + 1) * channels, 0);
+            Arrays.fill(z2, k.band[j] * channels, (k.band[j] + 1) * channels, 0);
+        }
+        applied = k;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(z1, 0);
+        Arrays.fill(z2, 0);
+    }
+}
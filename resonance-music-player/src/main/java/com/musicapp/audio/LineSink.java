@@ -0,0 +1,45 @@
+package com.musicapp.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/** {@link AudioSink} backed by the default mixer's {@link SourceDataLine}. */
+public final class LineSink implements AudioSink {
+
+    private volatile SourceDataLine line;
+
+    @Override
+    public synchronized void open(AudioFormat format, int bufferBytes) throws LineUnavailableException {
+        if (line != null) return;
+        SourceDataLine l = AudioSystem.getSourceDataLine(format);
+        l.open(format, bufferBytes);
+        line = l;
+    }
+
+    @Override public void start() { SourceDataLine l = line; if (l != null) l.start(); }
+    @Override public void stop()  { SourceDataLine l = line; if (l != null) l.stop(); }
+    @Override public void flush() { SourceDataLine l = line; if (l != null) l.flush(); }
+    @Override public void drain() { SourceDataLine l = line; if (l != null) l.drain(); }
+
+    @Override
+    public int write(byte[] b, int off, int len) {
+        SourceDataLine l = line;
+        return l == null ? 0 : l.write(b, off, len);
+    }
+
+    @Override
+    public long getFramePosition() {
+        SourceDataLine l = line;
+        return l == null ? 0 : l.getLongFramePosition();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (line != null) {
+            line.close();
+            line = null;
+        }
+    }
+}
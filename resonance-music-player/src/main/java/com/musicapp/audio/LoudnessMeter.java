@@ -0,0 +1,168 @@
+package com.musicapp.audio;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Integrated loudness and sample peak of an audio file, per EBU R128 /
+ * ITU-R BS.1770: K-weighting (high shelf, then high pass), mean square over
+ * 400 ms blocks overlapping by 75%, an absolute gate at -70 LUFS and a
+ * relative gate 10 LU below the loudness of the blocks that pass it.
+ *
+ * <p>The filter coefficients are derived for the engine's sample rate from
+ * the standard's analogue prototypes, so they match the tabulated 48 kHz
+ * values at that rate.  The peak is the largest sample, not the
+ * oversampled true peak.</p>
+ *
+ * <p>An instance holds one file's state and is reused by calling
+ * {@link #reset}; not thread-safe, use one per worker.</p>
+ */
+public final class LoudnessMeter {
+
+    /** Level normalisation aims for (ReplayGain 2.0 reference). */
+    public static final double TARGET_LUFS = -18;
+    /** Largest boost normalisation applies to quiet tracks. */
+    public static final double MAX_BOOST_DB = 12;
+
+    private static final double ABSOLUTE_GATE = -70;
+    private static final double RELATIVE_GATE = -10;
+    private static final int    CHUNK         = 4_410 * PlaybackEngine.CHANNELS;
+
+    /** What one analysis found. */
+    public static final class Result {
+        private final float lufs, peak, seconds;
+
+        Result(float lufs, float peak, float seconds) { this.lufs = lufs; this.peak = peak; this.seconds = seconds; }
+
+        /** Integrated loudness in LUFS; {@code -70} for silence. */
+        public float getLufs()    { return lufs; }
+        /** Largest absolute sample, 1 = full scale. */
+        public float getPeak()    { return peak; }
+        /** Length of the audio measured. */
+        public float getSeconds() { return seconds; }
+
+        @Override
+        public String toString() { return String.format("%.1f LUFS, peak %.3f, %.1f s", lufs, peak, seconds); }
+    }
+
+    private final int      channels = PlaybackEngine.CHANNELS;
+    private final int      quarter;                     // frames per 100 ms gating step
+    private final double[] shelf = new double[5], pass = new double[5];
+    private final double[] state = new double[4 * PlaybackEngine.CHANNELS];
+    private final float[]  buf   = new float[CHUNK];
+    private double[] steps = new double[64];            // summed channel energy per 100 ms
+    private int      stepCount, stepFrames;
+    private double   stepEnergy;
+    private float    peak;
+    private long     frames;
+
+    public LoudnessMeter() {
+        float rate = PlaybackEngine.SAMPLE_RATE;
+        quarter = Math.round(rate / 10);
+        double k = Math.tan(Math.PI * 1681.974450955533 / rate), q = 0.7071752369554196;
+        double vh = Math.pow(10, 3.999843853973347 / 20), vb = Math.pow(vh, 0.4996667741545416);
+        double a0 = 1 + k / q + k * k;
+        shelf[0] = (vh + vb * k / q + k * k) / a0;
+        shelf[1] = 2 * (k * k - vh) / a0;
+        shelf[2] = (vh - vb * k / q + k * k) / a0;
+        shelf[3] = 2 * (k * k - 1) / a0;
+        shelf[4] = (1 - k / q + k * k) / a0;
+        k = Math.tan(Math.PI * 38.13547087602444 / rate);
+        q = 0.5003270373238773;
+        a0 = 1 + k / q + k * k;
+        pass[0] = 1;
+        pass[1] = -2;
+        pass[2] = 1;
+        pass[3] = 2 * (k * k - 1) / a0;
+        pass[4] = (1 - k / q + k * k) / a0;
+    }
+
+    /** Decodes and measures {@code file}. */
+    public Result measure(Path file) throws IOException, UnsupportedAudioFileException {
+        reset();
+        try (PcmDecoder d = PcmDecoder.open(file, PlaybackEngine.FORMAT)) {
+            for (int n; (n = d.read(buf, 0, buf.length)) > 0; ) add(buf, n);
+        }
+        return result();
+    }
+
+    /** Forgets everything measured so far. */
+    public void reset() {
+        Arrays.fill(state, 0);
+        stepCount = stepFrames = 0;
+        stepEnergy = 0;
+        peak = 0;
+        frames = 0;
+    }
+
+    /** Feeds {@code n} interleaved samples. */
+    public void add(float[] samples, int n) {
+        for (int i = 0; i + channels <= n; i += channels) {
+            double energy = 0;
+            for (int c = 0; c < channels; c++) {
+                float x = samples[i + c];
+                peak = Math.max(peak, Math.abs(x));
+                double y = biquad(shelf, x, 4 * c);
+                y = biquad(pass, y, 4 * c + 2);
+                energy += y * y;
+            }
+            stepEnergy += energy;
+            if (++stepFrames == quarter) {
+                if (stepCount == steps.length) steps = Arrays.copyOf(steps, stepCount * 2);
+                steps[stepCount++] = stepEnergy / quarter;
+                stepEnergy = 0;
+                stepFrames = 0;
+            }
+        }
+        frames += n / channels;
+    }
+
+    /** One sample through biquad {@code k}, transposed direct form II with its state at {@code state[s..s+1]}. */
+    private double biquad(double[] k, double x, int s) {
+        double y = k[0] * x + state[s];
+        state[s]     = k[1] * x - k[3] * y + state[s + 1];
+        state[s + 1] = k[2] * x - k[4] * y;
+        return y;
+    }
+
+    /** Loudness of everything fed since the last {@link #reset}. */
+    public Result result() {
+        int blocks = stepCount - 3;                      // 400 ms windows, hopping 100 ms
+        double absSum = 0;
+        int absCount = 0;
+        for (int b = 0; b < blocks; b++) {
+            double e = block(b);
+            if (lufs(e) > ABSOLUTE_GATE) { absSum += e; absCount++; }
+        }
+        float seconds = frames / PlaybackEngine.SAMPLE_RATE;
+        if (absCount == 0) return new Result((float) ABSOLUTE_GATE, peak, seconds);
+        double gate = lufs(absSum / absCount) + RELATIVE_GATE;
+        double sum = 0;
+        int count = 0;
+        for (int b = 0; b < blocks; b++) {
+            double e = block(b), l = lufs(e);
+            if (l > ABSOLUTE_GATE && l > gate) { sum += e; count++; }
+        }
+        return new Result((float) lufs(sum / count), peak, seconds);
+    }
+
+    private double block(int b) { return (steps[b] + steps[b + 1] + steps[b + 2] + steps[b + 3]) / 4; }
+
+    private static double lufs(double meanSquare) { return -0.691 + 10 * Math.log10(meanSquare); }
+
+    /**
+     * Linear gain that brings a track measured at {@code lufs} with sample
+     * peak {@code peak} to {@link #TARGET_LUFS}.  The gain never pushes the
+     * peak past full scale and never boosts by more than
+     * {@link #MAX_BOOST_DB}.  It is 1 for unmeasured (NaN) tracks.
+     */
+    public static float normalizationGain(float lufs, float peak) {
+        if (Float.isNaN(lufs)) return 1f;
+        double db = Math.min(MAX_BOOST_DB, TARGET_LUFS - lufs);
+        double g  = Math.pow(10, db / 20);
+        if (peak > 0) g = Math.min(g, 1 / peak);
+        return (float) g;
+    }
+}
@@ -0,0 +1,94 @@
+package com.musicapp.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Decodes an audio file to interleaved float samples in the engine's format
+ * (16-bit signed little-endian at the engine's rate and channel count,
+ * scaled to [-1, 1)).
+ *
+ * <p>Decoding goes through {@link AudioSystem}: WAV, AIFF and AU are built
+ * in.  Other formats need a Java Sound service provider on the class path.
+ * Rate and channel conversion use the JDK's converters.</p>
+ */
+final class PcmDecoder implements AutoCloseable {
+
+    private final AudioInputStream in;
+    private final int              channels;
+    private final long             frames;     // -1 if unknown
+    private byte[] bytes = new byte[0];
+
+    private PcmDecoder(AudioInputStream in, int channels) {
+        this.in       = in;
+        this.channels = channels;
+        this.frames   = in.getFrameLength();
+    }
+
+    /** Opens {@code file}, converting to {@code target} (PCM_SIGNED, 16 bit, little-endian). */
+    static PcmDecoder open(Path file, AudioFormat target) throws IOException, UnsupportedAudioFileException {
+        InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        try {
+            AudioInputStream src = AudioSystem.getAudioInputStream(raw);
+            AudioFormat f = src.getFormat();
+            if (f.getEncoding() != AudioFormat.Encoding.PCM_SIGNED && f.getEncoding() != AudioFormat.Encoding.PCM_UNSIGNED
+                    && f.getEncoding() != AudioFormat.Encoding.PCM_FLOAT) {
+                // compressed (via an SPI): decode to PCM at the source rate first
+                AudioFormat pcm = new AudioFormat(f.getSampleRate(), 16, f.getChannels(), true, false);
+                src = AudioSystem.getAudioInputStream(pcm, src);
+            }
+            AudioInputStream out = src.getFormat().matches(target) ? src : AudioSystem.getAudioInputStream(target, src);
+            return new PcmDecoder(out, target.getChannels());
+        } catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+            raw.close();
+            throw e;
+        }
+    }
+
+    /** Length in frames, or -1 if the container does not say. */
+    long frameLength() { return frames; }
+
+    /** Skips {@code n} frames; returns the number skipped. */
+    long skipFrames(long n) throws IOException {
+        long want = n * channels * 2, done = 0;
+        while (done < want) {
+            long s = in.skip(want - done);
+            if (s <= 0) break;
+            done += s;
+        }
+        return done / (channels * 2);
+    }
+
+    /**
+     * Reads up to {@code len} samples (whole frames) into {@code dst}; returns
+     * the number read, or -1 at the end of the stream.
+     */
+    int read(float[] dst, int off, int len) throws IOException {
+        len -= len % channels;
+        int want = len * 2;
+        if (bytes.length < want) bytes = new byte[want];
+        int got = 0;
+        while (got < want) {
+            int n = in.read(bytes, got, want - got);
+            if (n < 0) break;
+            got += n;
+        }
+        got -= got % (channels * 2);      // AudioInputStream reads whole frames; guard anyway
+        if (got == 0) return -1;
+        int samples = got / 2;
+        for (int i = 0, b = 0; i < samples; i++, b += 2) {
+            dst[off + i] = (short) ((bytes[b] & 0xFF) | (bytes[b + 1] << 8)) / 32768f;
+        }
+        return samples;
+    }
+
+    @Override
+    public void close() throws IOException { in.close(); }
+}
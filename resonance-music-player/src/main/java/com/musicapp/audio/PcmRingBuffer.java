@@ -0,0 +1,87 @@
+package com.musicapp.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer / single-consumer ring of interleaved float samples.
+ *
+ * <p>Lock-free: the producer owns {@code tail}, the consumer owns
+ * {@code head}, and each publishes its index with a release store after
+ * copying, so the other side never sees a slot before its samples.  Indexes
+ * are free-running longs and the capacity is a power of two, so wrap-around
+ * is a mask.  Reads and writes move whole frames only.</p>
+ *
+ * <p>Exactly one thread may call {@link #write} and exactly one (other)
+ * thread {@link #read} and {@link #clear}.</p>
+ */
+public final class PcmRingBuffer {
+
+    private final float[] data;
+    private final int     mask;
+    private final int     channels;
+
+    private final AtomicLong head = new AtomicLong();   // next sample to read; written by the consumer only
+    private final AtomicLong tail = new AtomicLong();   // next sample to write; written by the producer only
+
+    /** A ring holding at least {@code frames} frames of {@code channels} samples. */
+    public PcmRingBuffer(int frames, int channels) {
+        if (frames < 1 || channels < 1) throw new IllegalArgumentException("frames and channels must be positive");
+        int samples = Integer.highestOneBit(Math.max(2, frames * channels - 1)) << 1;
+        this.data     = new float[samples];
+        this.mask     = samples - 1;
+        this.channels = channels;
+    }
+
+    public int capacity() { return data.length / channels; }
+    public int channels() { return channels; }
+
+    /** Frames buffered and not yet read. */
+    public int available() { return (int) (tail.get() - head.get()) / channels; }
+
+    /** Frames that can be written without overwriting unread samples. */
+    public int free() { return capacity() - available(); }
+
+    /**
+     * Producer: copies up to {@code len} samples (rounded down to whole frames)
+     * from {@code src}; returns the number of samples written, 0 when full.
+     */
+    public int write(float[] src, int off, int len) {
+        long t = tail.get();
+        int room = data.length - (int) (t - head.get());
+        int n = Math.min(len, room);
+        n -= n % channels;
+        if (n == 0) return 0;
+        int at = (int) t & mask;
+        int first = Math.min(n, data.length - at);
+        System.arraycopy(src, off, data, at, first);
+        System.arraycopy(src, off + first, data, 0, n - first);
+        tail.lazySet(t + n);
+        return n;
+    }
+
+    /**
+     * Consumer: copies up to {@code len} samples (rounded down to whole frames)
+     * into {@code dst}; returns the number of samples read, 0 when empty.
+     */
+    public int read(float[] dst, int off, int len) {
+        long h = head.get();
+        int n = Math.min(len, (int) (tail.get() - h));
+        n -= n % channels;
+        if (n == 0) return 0;
+        int at = (int) h & mask;
+        int first = Math.min(n, data.length - at);
+        System.arraycopy(data, at, dst, off, first);
+        System.arraycopy(data, 0, dst, off + first, n - first);
+        head.lazySet(h + n);
+        return n;
+    }
+
+    /** Samples written since creation: a stream position, e.g. for marking track boundaries. */
+    public long writePosition() { return tail.get(); }
+
+    /** Samples read (or cleared) since creation. */
+    public long readPosition()  { return head.get(); }
+
+    /** Consumer: discards everything buffered.  Only safe while the producer is not writing. */
+    public void clear() { head.set(tail.get()); }
+}
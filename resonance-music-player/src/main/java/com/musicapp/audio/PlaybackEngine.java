@@ -0,0 +1,716 @@
+package com.musicapp.audio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays audio files through an {@link AudioSink}.
+ *
+ * <p>Two long-lived threads share a {@link PcmRingBuffer}.  The decoder
+ * thread turns the current file into float samples and fills the ring.  The
+ * output thread drains it one period at a time, runs it through the
+ * {@link DspChain} (by default equalizer, volume ramp, soft limiter and a
+ * {@link SpectrumAnalyzer} tap for the visualizer),
+ * converts to 16-bit PCM and writes to the sink, whose blocking write paces
+ * playback.
+ * The sample path takes no locks.  Commands ({@link #play}, {@link #seek},
+ * {@link #pause}, {@link #stop}) only touch a few volatile fields under a
+ * small control monitor.</p>
+ *
+ * <p>Every play or seek starts a new <em>generation</em>.  The decoder stops
+ * writing the old one and says so.  Only then does the output thread discard
+ * what the ring and the sink still hold and let the decoder start on the
+ * new one.  Each thread therefore touches the ring only from its own
+ * side.</p>
+ *
+ * <p>Gapless: {@link #queueNext} names the track to follow.  While the ring
+ * is full the decoder thread opens it and decodes its first
+ * {@link #PREROLL_SECONDS} seconds into a side buffer.  At the end of the
+ * current file it writes that pre-roll straight after the last sample and
+ * carries on decoding the new file, so the two meet at the sample level in
+ * the ring.  The ring position of that boundary is translated into a sink
+ * frame when the output reads past it.  The position and
+ * {@link Listener#trackChanged} switch over exactly when that frame is
+ * played.</p>
+ *
+ * <p>Crossfade: with a {@linkplain #setCrossfade fade length} set, the queued
+ * track instead takes over that many frames before the current one ends,
+ * and a {@link CrossfadeMixer} blends the two as they are written to the
+ * ring.  The switch happens at the start of the fade.  This needs the
+ * length of the current file; streams that do not declare one are spliced
+ * at their end as above.  {@link #crossfadeTo} fades from whatever is
+ * playing now.  The outgoing file is reopened at the audible position, so
+ * the fade starts without waiting for the buffered audio.</p>
+ *
+ * <p>Each track can carry a <em>track gain</em>, e.g. to level its loudness
+ * with the rest of the library.  The decoder thread applies it as samples
+ * are read, before the crossfade mix, so a fade blends both tracks at their
+ * own levels and the gain switches exactly at a gapless boundary.</p>
+ *
+ * <p>An <em>underrun</em> is counted each time the output finds the ring empty
+ * mid-track, i.e. the decoder fell behind; {@link #getUnderruns()} exposes
+ * the count.  The ring size is the engine's buffer setting.</p>
+ */
+public final class PlaybackEngine implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaybackEngine.class);
+
+    public static final float       SAMPLE_RATE = 44_100f;
+    public static final int         CHANNELS    = 2;
+    /** What decoders convert to and the sink is opened with. */
+    public static final AudioFormat FORMAT      = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+
+    /** Default ring size. */
+    public static final int DEFAULT_BUFFER_MILLIS = 500;
+
+    private static final int PERIOD_FRAMES = 441;   // 10 ms per output write
+    private static final int CHUNK_SAMPLES = PERIOD_FRAMES * CHANNELS * 4;   // per decoder read
+
+    /** How much of the queued next track is decoded ahead of time. */
+    public static final int PREROLL_SECONDS = 3;
+
+    /** Bands of the {@linkplain #getSpectrum spectrum} tap. */
+    public static final int SPECTRUM_BANDS = 10;
+
+    /** Longest crossfade accepted by {@link #setCrossfade}. */
+    public static final Duration MAX_CROSSFADE = Duration.ofSeconds(12);
+
+    /** Engine events; called on the engine's threads. */
+    public interface Listener {
+        /** The current track played to its last frame. */
+        void trackEnded();
+
+        /** Reading the current track failed midway; playback has stopped. */
+        void trackFailed(Path file, Exception e);
+
+        /** The {@linkplain #queueNext queued} track started playing, straight after the previous one. */
+        default void trackChanged() { }
+    }
+
+    /** One play or seek: the file, where to start, and the generation it belongs to. */
+    private static final class Request {
+        final Path          file;
+        final PcmDecoder    decoder;
+        final long          startFrame;
+        final float         gain;
+        final int           gen;
+        final AtomicBoolean taken = new AtomicBoolean();
+        Path  fadeFrom;                // crossfade from this file ...
+        long  fadeFromFrame;           // ... starting at this frame of it ...
+        float fadeFromGain;            // ... at this track gain
+
+        Request(Path file, PcmDecoder decoder, long startFrame, float gain, int gen) {
+            this.file = file; this.decoder = decoder; this.startFrame = startFrame; this.gain = gain; this.gen = gen;
+        }
+
+        /** A track the decoder spliced in itself; nothing left to claim. */
+        static Request spliced(Path file, float gain, int gen) {
+            Request r = new Request(file, null, 0, gain, gen);
+            r.taken.set(true);
+            return r;
+        }
+
+        /** Closes the decoder unless the decoder thread has claimed it. */
+        void discard() {
+            if (taken.compareAndSet(false, true)) {
+                try { decoder.close(); } catch (IOException ignored) { }
+            }
+        }
+    }
+
+    private final AudioSink     sink;
+    private final PcmRingBuffer ring;
+    private final int           bufferMillis;
+    private final long          periodNanos = Math.round(PERIOD_FRAMES * 1e9 / SAMPLE_RATE);
+
+    private final Object     control = new Object();
+    private volatile int     generation;
+    private volatile int     producerGen;      // decoder has stopped writing anything older
+    private volatile int     consumerGen;      // output has discarded anything older
+    private volatile int     eofGen = -1;      // decoder reached the end of this generation's file
+    private volatile Request request;          // null while stopped
+    private volatile boolean paused;
+    private volatile boolean closed;
+    private volatile long    trackBase = -1;   // sink frame position where the current generation began
+    private volatile long    fadeFrames;       // 0: no crossfade
+    private volatile CrossfadeCurve fadeCurve = CrossfadeCurve.EQUAL_POWER;
+    private volatile Listener listener;
+    private final AtomicLong underruns = new AtomicLong();
+
+    // Gapless hand-over
+    private final AtomicReference<Queued> queued = new AtomicReference<>();
+    private final AtomicLong boundary = new AtomicLong(-1);   // ring sample where the spliced track starts
+    private volatile Request spliced;                         // that track, once the decoder switched to it
+    private volatile long    switchAt = -1;                   // sink frame where it becomes audible
+    private long    written;                                  // output thread: frames handed to the sink
+
+    // Decoder thread only
+    private final float[]        prerollBuf = new float[(int) SAMPLE_RATE * PREROLL_SECONDS * CHANNELS];
+    private final CrossfadeMixer mixer      = new CrossfadeMixer(CHUNK_SAMPLES, CHANNELS);
+    private Preroll    preroll;              // the next track, decoded ahead into prerollBuf
+    private int        headPos, headLen;     // prerollBuf samples of the current track not yet read
+    private PcmDecoder fadeOut;              // the track fading out, null when not crossfading
+    private float      gain = 1f, fadeGain = 1f;   // track gains of the current and the outgoing track
+
+    /** A track named by {@link #queueNext} and its track gain. */
+    private static final class Queued {
+        final Path  file;
+        final float gain;
+
+        Queued(Path file, float gain) { this.file = file; this.gain = gain; }
+    }
+
+    /** The queued next track, opened and partly decoded into {@code prerollBuf} before its turn. */
+    private static final class Preroll {
+        final Path       file;
+        final float      gain;
+        final PcmDecoder decoder;
+        int len;
+
+        Preroll(Queued q, PcmDecoder decoder) { this.file = q.file; this.gain = q.gain; this.decoder = decoder; }
+
+        boolean matches(Queued q) { return q != null && file.equals(q.file) && gain == q.gain; }
+
+        void discard() {
+            try { decoder.close(); } catch (IOException ignored) { }
+        }
+    }
+
+    private final DspChain    dsp = new DspChain();
+    private final Equalizer   equalizer;
+    private final VolumeRamp  volume;
+    private final SoftLimiter limiter = new SoftLimiter();
+    private final SpectrumAnalyzer spectrum = new SpectrumAnalyzer(SAMPLE_RATE, CHANNELS, SPECTRUM_BANDS);
+
+    private final Thread decoderThread;
+    private final Thread outputThread;
+
+    public PlaybackEngine(AudioSink sink) { this(sink, DEFAULT_BUFFER_MILLIS); }
+
+    /** An engine writing to {@code sink} with a ring of {@code bufferMillis} of audio. */
+    public PlaybackEngine(AudioSink sink, int bufferMillis) {
+        if (bufferMillis < 20) throw new IllegalArgumentException("bufferMillis must be at least 20");
+        this.sink         = sink;
+        this.bufferMillis = bufferMillis;
+        this.ring         = new PcmRingBuffer((int) (SAMPLE_RATE * bufferMillis / 1000), CHANNELS);
+        this.equalizer    = new Equalizer(SAMPLE_RATE, CHANNELS);
+        this.volume       = new VolumeRamp(SAMPLE_RATE, CHANNELS);
+        dsp.add(equalizer);
+        dsp.add(volume);
+        dsp.add(limiter);
+        dsp.add(spectrum);
+        decoderThread = new Thread(this::decodeLoop, "audio-decoder");
+        outputThread  = new Thread(this::outputLoop, "audio-output");
+        decoderThread.setDaemon(true);
+        outputThread.setDaemon(true);
+        outputThread.setPriority(Thread.MAX_PRIORITY);
+        decoderThread.start();
+        outputThread.start();
+    }
+
+    public void setListener(Listener l) { this.listener = l; }
+
+    // ── Commands ───────────────────────────────────────────────────────────────
+
+    /**
+     * Starts playing {@code file} from {@code startFrame}.  The file is opened
+     * and the sink acquired on the calling thread, so an unplayable file or a
+     * missing audio device fails here rather than later.
+     */
+    public void play(Path file, long startFrame)
+            throws IOException, UnsupportedAudioFileException, LineUnavailableException {
+        play(file, startFrame, 1f);
+    }
+
+    /** As {@link #play(Path, long)}, scaling the track's samples by {@code trackGain}. */
+    public void play(Path file, long startFrame, float trackGain)
+            throws IOException, UnsupportedAudioFileException, LineUnavailableException {
+        load(file, startFrame, trackGain, false, null);
+    }
+
+    /**
+     * Starts {@code file} from its beginning, crossfading from the track
+     * playing now.  Same as {@link #play} when no crossfade is set or nothing
+     * is playing.
+     */
+    public void crossfadeTo(Path file) throws IOException, UnsupportedAudioFileException, LineUnavailableException {
+        crossfadeTo(file, 1f);
+    }
+
+    /** As {@link #crossfadeTo(Path)}, scaling the new track's samples by {@code trackGain}. */
+    public void crossfadeTo(Path file, float trackGain)
+            throws IOException, UnsupportedAudioFileException, LineUnavailableException {
+        Request r = request;
+        if (fadeFrames == 0 || r == null || paused || !isActive()) load(file, 0, trackGain, false, null);
+        else load(file, 0, trackGain, false, r);
+    }
+
+    /** Restarts the current track at {@code frame}, keeping the paused state. */
+    public void seek(long frame) throws IOException, UnsupportedAudioFileException, LineUnavailableException {
+        Request r = request;
+        if (r != null) load(r.file, frame, r.gain, paused, null);
+    }
+
+    /** Starts a new generation; non-null {@code fadeFrom} is the request to fade out from its audible position. */
+    private void load(Path file, long startFrame, float trackGain, boolean pause, Request fadeFrom)
+            throws IOException, UnsupportedAudioFileException, LineUnavailableException {
+        long fadeFromFrame = fadeFrom == null ? 0 : getPositionFrames();
+        sink.open(FORMAT, FORMAT.getFrameSize() * Math.max(PERIOD_FRAMES * 4, (int) (SAMPLE_RATE * bufferMillis / 4000)));
+        PcmDecoder decoder = PcmDecoder.open(file, FORMAT);
+        synchronized (control) {
+            Request old = request;
+            request = new Request(file, decoder, Math.max(0, startFrame), trackGain, ++generation);
+            if (fadeFrom != null) {
+                request.fadeFrom      = fadeFrom.file;
+                request.fadeFromFrame = fadeFromFrame;
+                request.fadeFromGain  = fadeFrom.gain;
+            }
+            if (old != null) old.discard();
+            paused    = pause;
+            trackBase = -1;
+            sink.flush();
+            control.notifyAll();
+        }
+    }
+
+    public void pause() {
+        synchronized (control) {
+            paused = true;
+            sink.stop();
+            control.notifyAll();
+        }
+    }
+
+    public void resume() {
+        synchronized (control) {
+            paused = false;
+            if (request != null) sink.start();
+            control.notifyAll();
+        }
+    }
+
+    public void stop() {
+        synchronized (control) {
+            Request old = request;
+            request = null;
+            ++generation;
+            if (old != null) old.discard();
+            sink.flush();
+            control.notifyAll();
+        }
+    }
+
+    /**
+     * Names the track to play straight after the current one ends, or
+     * {@code null} for none; replaces any earlier choice not yet started.
+     */
+    public void queueNext(Path file) { queueNext(file, 1f); }
+
+    /** As {@link #queueNext(Path)}, scaling the queued track's samples by {@code trackGain}. */
+    public void queueNext(Path file, float trackGain) { queued.set(file == null ? null : new Queued(file, trackGain)); }
+
+    /**
+     * Overlaps consecutive tracks by {@code length} using {@code curve};
+     * {@link Duration#ZERO} turns crossfading off (queued tracks are then
+     * spliced gaplessly).
+     */
+    public void setCrossfade(Duration length, CrossfadeCurve curve) {
+        if (length.isNegative() || length.compareTo(MAX_CROSSFADE) > 0) {
+            throw new IllegalArgumentException("crossfade must be between 0 and " + MAX_CROSSFADE.getSeconds() + " s");
+        }
+        fadeCurve  = curve;
+        fadeFrames = Math.round(length.toNanos() * (double) SAMPLE_RATE / 1e9);
+    }
+
+    /** Linear output gain, 0 (mute) to 1 (unity); ramped, see {@link VolumeRamp}. */
+    public void setGain(float g) { volume.setGain(g); }
+
+    /** The stages every output block goes through; add or remove stages at any time. */
+    public DspChain    getDsp()       { return dsp; }
+    public Equalizer   getEqualizer() { return equalizer; }
+    public SoftLimiter getLimiter()   { return limiter; }
+    /** Band levels of what is being played, for display; see {@link SpectrumAnalyzer#read}. */
+    public SpectrumAnalyzer getSpectrum() { return spectrum; }
+
+    // ── Status ─────────────────────────────────────────────────────────────────
+
+    /** Frames of the current track played so far, counted at the sink. */
+    public long getPositionFrames() {
+        Request r = request;
+        if (r == null) return 0;
+        long base = trackBase;
+        if (base < 0 || consumerGen != r.gen) return r.startFrame;
+        long pos = sink.getFramePosition(), at = switchAt;
+        if (at >= 0 && pos >= at) return pos - at;   // the spliced track is already audible
+        return r.startFrame + (pos - base);
+    }
+
+    public double getPositionSeconds() { return getPositionFrames() / (double) SAMPLE_RATE; }
+
+    /** Times the output ran dry mid-track since the engine was created. */
+    public long    getUnderruns()   { return underruns.get(); }
+    public int     getBufferMillis() { return bufferMillis; }
+    public boolean isPaused()       { return paused; }
+    /** Whether a track is loaded (playing or paused, not yet ended or stopped). */
+    public boolean isActive()       { Request r = request; return r != null && eofGen != r.gen; }
+
+    // ── Decoder thread ─────────────────────────────────────────────────────────
+
+    private void decodeLoop() {
+        float[] buf = new float[CHUNK_SAMPLES];
+        while (!closed) {
+            Request r = awaitRequest();
+            if (r == null) continue;
+            Path       file   = r.file;
+            PcmDecoder d      = r.decoder;
+            long       frame  = r.startFrame;
+            long       length = d.frameLength();
+            headPos = headLen = 0;
+            gain    = r.gain;
+            try {
+                if (r.startFrame > 0) d.skipFrames(r.startFrame);
+                if (r.fadeFrom != null) fadeFrom(r.fadeFrom, r.fadeFromFrame, r.fadeFromGain);
+                while (generation == r.gen) {
+                    long left = length - frame, fade = fadeFrames;
+                    if (fadeOut == null && fade > 0 && length > 0 && left > 0 && left <= fade) {
+                        Preroll next = claimNext();
+                        if (next != null) {                  // crossfade: the next track takes over now
+                            fadeOut  = d;
+                            fadeGain = gain;
+                            mixer.begin(left, fadeCurve);
+                            spliceIn(next, r.gen);
+                            d = next.decoder; file = next.file; frame = 0; length = d.frameLength();
+                        }
+                    }
+                    int max = buf.length;                    // stop short of where a fade would begin
+                    if (fadeOut == null && fade > 0 && length > 0 && left > fade) max = (int) Math.min(max, (left - fade) * CHANNELS);
+                    int n = readCurrent(d, buf, max);
+                    if (n >= 0) {
+                        frame += n / CHANNELS;
+                        if (gain != 1f) scale(buf, n, gain);
+                        if (fadeOut != null) mixOut(buf, n);
+                        if (!put(buf, n, r.gen)) break;
+                        continue;
+                    }
+                    closeFadeOut();                          // incoming shorter than the fade: cut the rest
+                    Preroll next = awaitNext(r.gen);
+                    if (next == null) {
+                        if (generation == r.gen) eofGen = r.gen;
+                        break;
+                    }
+                    d.close();                               // splice: the next track follows sample for sample
+                    spliceIn(next, r.gen);
+                    d = next.decoder; file = next.file; frame = 0; length = d.frameLength();
+                }
+            } catch (IOException | RuntimeException e) {
+                if (generation == r.gen) {
+                    log.error("Decoding {} failed", file, e);
+                    eofGen = r.gen;
+                    Listener l = listener;
+                    if (l != null) l.trackFailed(file, e);
+                }
+            } finally {
+                try { d.close(); } catch (IOException ignored) { }
+                closeFadeOut();
+            }
+        }
+        if (preroll != null) preroll.discard();
+    }
+
+    /** Reads the current track: its pre-rolled samples first, then its decoder. */
+    private int readCurrent(PcmDecoder d, float[] buf, int max) throws IOException {
+        if (headPos == headLen) return d.read(buf, 0, max);
+        int n = Math.min(max, headLen - headPos);
+        System.arraycopy(prerollBuf, headPos, buf, 0, n);
+        headPos += n;
+        return n;
+    }
+
+    /** Marks where {@code next} starts in the ring and makes its pre-roll the current head. */
+    private void spliceIn(Preroll next, int gen) {
+        headPos = 0;
+        headLen = next.len;
+        gain    = next.gain;
+        spliced = Request.spliced(next.file, next.gain, gen);
+        boundary.set(ring.writePosition());
+    }
+
+    /** Reopens the track being replaced at {@code frame} and fades it out; plays without a fade if that fails. */
+    private void fadeFrom(Path file, long frame, float trackGain) {
+        try {
+            PcmDecoder d = PcmDecoder.open(file, FORMAT);
+            fadeOut  = d;
+            fadeGain = trackGain;
+            d.skipFrames(frame);
+            long left = d.frameLength() > 0 ? d.frameLength() - frame : Long.MAX_VALUE;
+            long fade = Math.min(fadeFrames, left);
+            if (fade <= 0) closeFadeOut();
+            else mixer.begin(fade, fadeCurve);
+        } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+            log.warn("Cannot fade out {}: {}", file, e.toString());
+            closeFadeOut();
+        }
+    }
+
+    /** Mixes the next {@code n} samples of the outgoing track into {@code buf}. */
+    private void mixOut(float[] buf, int n) throws IOException {
+        float[] out = mixer.outgoing;
+        int m = Math.max(0, fadeOut.read(out, 0, n));
+        if (m < n) Arrays.fill(out, m, n, 0f);
+        if (fadeGain != 1f) scale(out, m, fadeGain);
+        mixer.mix(buf, n);
+        if (m < n || mixer.isDone()) closeFadeOut();
+    }
+
+    private static void scale(float[] buf, int n, float g) {
+        for (int i = 0; i < n; i++) buf[i] *= g;
+    }
+
+    private void closeFadeOut() {
+        if (fadeOut == null) return;
+        try { fadeOut.close(); } catch (IOException ignored) { }
+        fadeOut = null;
+    }
+
+    /** Writes {@code n} samples, pre-rolling the next track while the ring is full; false if superseded. */
+    private boolean put(float[] src, int n, int gen) {
+        for (int off = 0; off < n; ) {
+            if (generation != gen) return false;
+            int w = ring.write(src, off, n - off);
+            off += w;
+            if (w == 0 && !prerollStep()) LockSupport.parkNanos(periodNanos);
+        }
+        return true;
+    }
+
+    /** Does one step of pre-rolling the queued track; false if there was nothing to do. */
+    private boolean prerollStep() {
+        if (headPos < headLen) return false;                // prerollBuf still feeds the current track
+        Queued want = queued.get();
+        if (preroll != null && !preroll.matches(want)) {
+            preroll.discard();
+            preroll = null;
+        }
+        if (want == null) return false;
+        try {
+            if (preroll == null) {
+                preroll = new Preroll(want, PcmDecoder.open(want.file, FORMAT));
+                return true;
+            }
+            Preroll p = preroll;
+            if (p.len == prerollBuf.length) return false;
+            int n = p.decoder.read(prerollBuf, p.len, Math.min(CHUNK_SAMPLES, prerollBuf.length - p.len));
+            if (n < 0) return false;                        // shorter than the pre-roll: all of it is buffered
+            p.len += n;
+            return true;
+        } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+            log.warn("Cannot prepare {} for gapless playback: {}", want.file, e.toString());
+            if (preroll != null) preroll.discard();
+            preroll = null;
+            queued.compareAndSet(want, null);
+            return false;
+        }
+    }
+
+    /** Takes the queued track, opening it now if need be; null if none is queued or a splice is still in flight. */
+    private Preroll claimNext() {
+        Queued want = queued.get();
+        if (want == null || boundary.get() >= 0 || headPos < headLen) return null;
+        if (preroll == null || !preroll.matches(want)) prerollStep();
+        Preroll p = preroll;
+        if (p == null || !p.matches(want) || !queued.compareAndSet(want, null)) return null;
+        preroll = null;
+        return p;
+    }
+
+    /**
+     * At the end of a track: claims the queued next track, pre-rolled, or
+     * returns {@code null} to end playback.  A track queued late is still
+     * taken as long as the output has audio left to play.
+     */
+    private Preroll awaitNext(int gen) {
+        while (generation == gen) {
+            Preroll p = claimNext();
+            if (p != null) return p;
+            if (queued.get() == null && boundary.get() < 0 && ring.available() <= PERIOD_FRAMES) return null;
+            LockSupport.parkNanos(periodNanos);
+        }
+        return null;
+    }
+
+    /** Blocks until there is a request the output side is ready for; acknowledges generation changes. */
+    private Request awaitRequest() {
+        synchronized (control) {
+            while (!closed) {
+                int g = generation;
+                if (producerGen != g) {
+                    producerGen = g;
+                    control.notifyAll();
+                }
+                Request r = request;
+                if (r != null && r.gen == g && consumerGen == g && r.taken.compareAndSet(false, true)) return r;
+                try {
+                    control.wait();
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+
+    // ── Output thread ──────────────────────────────────────────────────────────
+
+    private void outputLoop() {
+        float[] samples = new float[PERIOD_FRAMES * CHANNELS];
+        byte[]  bytes   = new byte[samples.length * 2];
+        int pendOff = 0, pendLen = 0, endedGen = -1;
+        boolean started = false, starving = false;
+        while (!closed) {
+            int g = generation;
+            if (consumerGen != g) {
+                if (!switchTo(g)) continue;
+                pendLen = 0;
+                started = starving = false;
+                continue;
+            }
+            if (request == null || paused || endedGen == g) {
+                idle(g, endedGen);
+                continue;
+            }
+            if (pendLen == 0) {
+                long at = ring.readPosition();
+                int n = ring.read(samples, 0, samples.length);
+                if (n == 0) {
+                    if (eofGen == g) {
+                        sink.drain();
+                        crossIfDue();
+                        if (generation == g) {
+                            endedGen = g;
+                            Listener l = listener;
+                            if (l != null) l.trackEnded();
+                        }
+                    } else {
+                        if (started && !starving) {
+                            underruns.incrementAndGet();
+                            starving = true;
+                        }
+                        LockSupport.parkNanos(periodNanos / 4);
+                    }
+                    continue;
+                }
+                long b = boundary.get();
+                if (b >= 0 && b < at + n) {                  // the spliced track starts inside this period
+                    switchAt = written + (b - at) / CHANNELS;
+                    boundary.set(-1);
+                }
+                started = true;
+                starving = false;
+                dsp.process(samples, n);
+                encode(samples, n, bytes);
+                written += n / CHANNELS;
+                pendOff = 0;
+                pendLen = n * 2;
+            }
+            sink.start();
+            int w = sink.write(bytes, pendOff, pendLen);
+            pendOff += w;
+            pendLen -= w;
+            crossIfDue();
+        }
+    }
+
+    /** Makes the spliced track current once the sink has played up to its first frame. */
+    private void crossIfDue() {
+        long at = switchAt;
+        if (at < 0 || sink.getFramePosition() < at) return;
+        synchronized (control) {
+            if (switchAt != at) return;                      // superseded by a play or seek
+            request   = spliced;
+            trackBase = at;
+            switchAt  = -1;
+            spliced   = null;
+        }
+        Listener l = listener;
+        if (l != null) l.trackChanged();
+    }
+
+    /** Discards the previous generation once the decoder has let go of it; false if not yet. */
+    private boolean switchTo(int g) {
+        synchronized (control) {
+            if (generation != g || producerGen != g) {
+                waitQuietly();
+                return false;
+            }
+            ring.clear();
+            sink.flush();
+            trackBase = sink.getFramePosition();
+            written   = trackBase;
+            boundary.set(-1);
+            switchAt  = -1;
+            spliced   = null;
+            dsp.reset();
+            consumerGen = g;
+            control.notifyAll();
+            return true;
+        }
+    }
+
+    private void idle(int g, int endedGen) {
+        synchronized (control) {
+            if (generation == g && (request == null || paused || endedGen == g)) {
+                sink.stop();
+                waitQuietly();
+            }
+        }
+    }
+
+    private void waitQuietly() {
+        try {
+            control.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void encode(float[] src, int n, byte[] dst) {
+        for (int i = 0, b = 0; i < n; i++, b += 2) {
+            int v = Math.round(src[i] * 32768f);
+            if (v > Short.MAX_VALUE) v = Short.MAX_VALUE;
+            else if (v < Short.MIN_VALUE) v = Short.MIN_VALUE;
+            dst[b]     = (byte) v;
+            dst[b + 1] = (byte) (v >> 8);
+        }
+    }
+
+    /** Stops playback, ends both threads and closes the sink. */
+    @Override
+    public void close() {
+        stop();
+        synchronized (control) {
+            closed = true;
+            control.notifyAll();
+        }
+        sink.close();
+        decoderThread.interrupt();
+        outputThread.interrupt();
+        try {
+            decoderThread.join(1000);
+            outputThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.musicapp.audio;
+
+/**
+ * Keeps peaks below full scale without hard clipping.  Samples under the
+ * threshold pass unchanged.  Above it the excess is compressed along
+ * {@code y / (1 + y)}, which meets the straight line with the same slope
+ * and approaches full scale but never reaches it.  Stateless and
+ * memoryless, so it adds no latency.
+ */
+public final class SoftLimiter implements DspStage {
+
+    /** Default threshold, about -0.5 dBFS. */
+    public static final float DEFAULT_THRESHOLD = 0.944f;
+
+    private volatile float threshold = DEFAULT_THRESHOLD;
+
+    /** Level, as a fraction of full scale, above which peaks are compressed. */
+    public void setThreshold(float t) {
+        if (!(t > 0f && t < 1f)) throw new IllegalArgumentException("threshold must be between 0 and 1");
+        threshold = t;
+    }
+
+    public float getThreshold() { return threshold; }
+
+    @Override
+    public void process(float[] block, int n) {
+        float t = threshold, knee = 1f - t;
+        for (int i = 0; i < n; i++) {
+            float x = block[i], a = Math.abs(x);
+            if (a <= t) continue;
+            float y = (a - t) / knee;
+            block[i] = Math.copySign(t + knee * y / (1f + y), x);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.musicapp.audio;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Taps the output for a spectrum display.  A pass-through {@link DspStage}:
+ * samples leave exactly as they came, so it adds no latency.
+ *
+ * <p>The stage mixes the channels to mono into a history of the last
+ * {@link #FFT_SIZE} frames.  Every {@link #HOP} frames it takes a
+ * Hann-windowed radix-2 FFT of that history.  It then reduces the
+ * magnitudes to log-spaced bands between {@link #LOW_HZ} and
+ * {@link #HIGH_HZ}, on a dB scale where {@link #FLOOR_DB} maps to 0 and
+ * full scale to 1.  A band rises at once and falls by at most
+ * {@link #DECAY_PER_SECOND}, so peaks stay readable.  Every array is
+ * allocated up front, so {@link #process} allocates nothing.</p>
+ *
+ * <p>Frames are published through a double buffer stamped with a sequence
+ * number.  The audio thread fills the buffer readers are not looking at
+ * and then bumps the sequence.  {@link #read} copies the latest frame and
+ * retries in the rare case the writer came round to that buffer meanwhile.
+ * Neither side ever blocks.</p>
+ */
+public final class SpectrumAnalyzer implements DspStage {
+
+    /** Frames per FFT, about 46 ms at 44.1 kHz. */
+    public static final int    FFT_SIZE = 2_048;
+    /** Frames between FFTs, about 23 ms at 44.1 kHz. */
+    public static final int    HOP      = FFT_SIZE / 2;
+    public static final double LOW_HZ   = 40, HIGH_HZ = 16_000;
+    /** Level shown as an empty band. */
+    public static final double FLOOR_DB = -60;
+    /** How fast a band falls, in full heights per second. */
+    public static final float  DECAY_PER_SECOND = 1.5f;
+
+    private final int   channels, bands;
+    private final int[] bandLo, bandHi;                   // FFT bins [lo, hi) per band
+    private final float decayPerHop;
+
+    // Audio thread only
+    private final float[]  history = new float[FFT_SIZE];   // mono ring, oldest at pos
+    private final float[]  window  = new float[FFT_SIZE];
+    private final double[] re = new double[FFT_SIZE], im = new double[FFT_SIZE];
+    private final double[] cos = new double[FFT_SIZE / 2], sin = new double[FFT_SIZE / 2];
+    private final int[]    reversed = new int[FFT_SIZE];
+    private final float[]  levels;
+    private int pos, sinceFft;
+
+    // Published frames
+    private final float[][] frames;
+    private volatile long   seq;                           // frames[seq & 1] is the latest
+
+    public SpectrumAnalyzer(float sampleRate, int channels, int bands) {
+        if (bands < 1) throw new IllegalArgumentException("bands must be positive");
+        this.channels = channels;
+        this.bands    = bands;
+        decayPerHop   = DECAY_PER_SECOND * HOP / sampleRate;
+        levels = new float[bands];
+        frames = new float[][]{new float[bands], new float[bands]};
+        bandLo = new int[bands];
+        bandHi = new int[bands];
+        double binHz = sampleRate / FFT_SIZE, ratio = Math.pow(HIGH_HZ / LOW_HZ, 1.0 / bands);
+        for (int b = 0; b < bands; b++) {
+            bandLo[b] = Math.max(1, (int) Math.round(LOW_HZ * Math.pow(ratio, b) / binHz));
+            bandHi[b] = Math.max(bandLo[b] + 1, (int) Math.round(LOW_HZ * Math.pow(ratio, b + 1) / binHz));
+        }
+        for (int i = 0; i < FFT_SIZE; i++) window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / FFT_SIZE));
+        for (int i = 0; i < FFT_SIZE / 2; i++) {
+            cos[i] = Math.cos(2 * Math.PI * i / FFT_SIZE);
+            sin[i] = -Math.sin(2 * Math.PI * i / FFT_SIZE);
+        }
+        int bits = Integer.numberOfTrailingZeros(FFT_SIZE);
+        for (int i = 0; i < FFT_SIZE; i++) reversed[i] = Integer.reverse(i) >>> (32 - bits);
+    }
+
+    public int getBands() { return bands; }
+
+    /** Lower edge of {@code band} in Hz. */
+    public double frequency(int band) { return LOW_HZ * Math.pow(HIGH_HZ / LOW_HZ, (double) band / bands); }
+
+    /**
+     * Copies the latest band levels, 0 to 1, into {@code dst}; any thread,
+     * never blocks.  Copies at most {@link #getBands} values.
+     */
+    public void read(float[] dst) {
+        int n = Math.min(dst.length, bands);
+        for (;;) {
+            long s = seq;
+            System.arraycopy(frames[(int) (s & 1)], 0, dst, 0, n);
+            VarHandle.acquireFence();                       // the copy completes before the re-check
+            if (seq == s) return;                           // the writer has not come back round to it
+        }
+    }
+
+    @Override
+    public void process(float[] block, int n) {
+        float scale = 1f / channels;
+        for (int i = 0; i + channels <= n; i += channels) {
+            float m = 0;
+            for (int c = 0; c < channels; c++) m += block[i + c];
+            history[pos] = m * scale;
+            pos = (pos + 1) & (FFT_SIZE - 1);
+            if (++sinceFft == HOP) {
+                sinceFft = 0;
+                analyse();
+            }
+        }
+    }
+
+    /** Drops the history and publishes silence; the bands then rise from empty. */
+    @Override
+    public void reset() {
+        Arrays.fill(history, 0f);
+        Arrays.fill(levels, 0f);
+        sinceFft = 0;
+        publish();
+    }
+
+    private void analyse() {
+        for (int i = 0; i < FFT_SIZE; i++) {
+            int j = reversed[i];
+            re[j] = history[(pos + i) & (FFT_SIZE - 1)] * window[i];
+            im[j] = 0;
+        }
+        fft();
+        double norm = 4.0 / FFT_SIZE;                       // a full-scale sine under the Hann window reads 1
+        for (int b = 0; b < bands; b++) {
+            double peak = 0;
+            for (int k = bandLo[b], hi = Math.min(bandHi[b], FFT_SIZE / 2); k < hi; k++) {
+                peak = Math.max(peak, re[k] * re[k] + im[k] * im[k]);
+            }
+            double db = 10 * Math.log10(peak * norm * norm + 1e-20);
+            float level = (float) Math.max(0, Math.min(1, 1 - db / FLOOR_DB));
+            levels[b] = Math.max(level, levels[b] - decayPerHop);
+        }
+        publish();
+    }
+
+    private void publish() {
+        long next = seq + 1;
+        VarHandle.storeStoreFence();                        // the last bump is visible before this buffer changes
+        System.arraycopy(levels, 0, frames[(int) (next & 1)], 0, bands);
+        seq = next;
+    }
+
+    /** In-place iterative radix-2 FFT of {@code re}/{@code im}, already in bit-reversed order. */
+    private void fft() {
+        for (int size = 2; size <= FFT_SIZE; size <<= 1) {
+            int half = size >> 1, step = FFT_SIZE / size;
+            for (int start = 0; start < FFT_SIZE; start += size) {
+                for (int k = 0, t = 0; k < half; k++, t += step) {
+                    int a = start + k, b = a + half;
+                    double wr = cos[t], wi = sin[t];
+                    double xr = re[b] * wr - im[b] * wi, xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.musicapp.audio;
+
+/**
+ * Output gain that glides to a new setting instead of jumping, so volume
+ * changes do not click.  The gain moves by at most full scale per
+ * {@link #RAMP_MILLIS}, linearly, sample by sample.
+ */
+public final class VolumeRamp implements DspStage {
+
+    /** Time a full-scale (0 to 1) change takes. */
+    public static final int RAMP_MILLIS = 10;
+
+    private final int   channels;
+    private final float step;              // gain change per frame
+    private volatile float target = 1f;
+    private float current = 1f;            // audio thread
+
+    public VolumeRamp(float sampleRate, int channels) {
+        this.channels = channels;
+        this.step     = 1000f / (sampleRate * RAMP_MILLIS);
+    }
+
+    /** Linear gain to move to, 0 (mute) to 1 (unity). */
+    public void  setGain(float g) { target = Math.max(0f, Math.min(1f, g)); }
+    public float getGain()        { return target; }
+
+    @Override
+    public void process(float[] block, int n) {
+        float t = target, g = current;
+        if (g == t) {
+            if (t != 1f) for (int i = 0; i < n; i++) block[i] *= t;
+            return;
+        }
+        for (int i = 0; i < n; i += channels) {
+            g = g < t ? Math.min(t, g + step) : Math.max(t, g - step);
+            for (int c = i; c < i + channels; c++) block[c] *= g;
+        }
+        current = g;
+    }
+
+    @Override
+    public void reset() { current = target; }
+}
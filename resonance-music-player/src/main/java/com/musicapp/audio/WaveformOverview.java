@@ -0,0 +1,137 @@
+package com.musicapp.audio;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Min/max outline of a whole track for drawing behind the seek bar.
+ *
+ * <p>The track is split into {@link #BUCKETS} equal buckets, each keeping
+ * its lowest and highest sample as a signed byte (127 = full scale).  Level
+ * 1 halves that by merging neighbouring buckets, level 2 halves it again,
+ * and so on down to one bucket.  All levels live in one byte array of
+ * {@link #BYTES} bytes, finest first, min then max per bucket.
+ * {@link #render} draws any width from the coarsest level that still has a
+ * bucket per pixel, without touching the audio again.</p>
+ *
+ * <p>Immutable and thread-safe.</p>
+ */
+public final class WaveformOverview {
+
+    /** Buckets of the finest level. */
+    public static final int BUCKETS = 2_048;
+    /** Number of levels: {@link #BUCKETS} down to one bucket. */
+    public static final int LEVELS  = Integer.numberOfTrailingZeros(BUCKETS) + 1;
+    /** Size of {@link #toBytes()}. */
+    public static final int BYTES   = 2 * (2 * BUCKETS - 1);
+
+    private static final int BLOCK_FRAMES = 256;           // peak resolution while decoding
+    private static final int CHUNK        = 4_410 * PlaybackEngine.CHANNELS;
+
+    private final byte[] data;
+
+    private WaveformOverview(byte[] data) { this.data = data; }
+
+    /** An overview from bytes produced by {@link #toBytes()}. */
+    public static WaveformOverview fromBytes(byte[] bytes) {
+        if (bytes.length != BYTES) throw new IllegalArgumentException("expected " + BYTES + " bytes, got " + bytes.length);
+        return new WaveformOverview(bytes.clone());
+    }
+
+    public byte[] toBytes() { return data.clone(); }
+
+    /** Decodes {@code file} and outlines it. */
+    public static WaveformOverview measure(Path file) throws IOException, UnsupportedAudioFileException {
+        int channels = PlaybackEngine.CHANNELS;
+        float[] buf = new float[CHUNK];
+        float[] lo = new float[1_024], hi = new float[1_024];
+        int blocks = 0, inBlock = 0;
+        float min = 0, max = 0;
+        try (PcmDecoder d = PcmDecoder.open(file, PlaybackEngine.FORMAT)) {
+            for (int n; (n = d.read(buf, 0, buf.length)) > 0; ) {
+                for (int i = 0; i + channels <= n; i += channels) {
+                    for (int c = 0; c < channels; c++) {
+                        float x = buf[i + c];
+                        if (x < min) min = x;
+                        if (x > max) max = x;
+                    }
+                    if (++inBlock == BLOCK_FRAMES) {
+                        if (blocks == lo.length) { lo = Arrays.copyOf(lo, blocks * 2); hi = Arrays.copyOf(hi, blocks * 2); }
+                        lo[blocks] = min; hi[blocks++] = max;
+                        min = max = 0;
+                        inBlock = 0;
+                    }
+                }
+            }
+        }
+        if (inBlock > 0) {
+            if (blocks == lo.length) { lo = Arrays.copyOf(lo, blocks + 1); hi = Arrays.copyOf(hi, blocks + 1); }
+            lo[blocks] = min; hi[blocks++] = max;
+        }
+        return of(lo, hi, blocks);
+    }
+
+    /** Outlines a track given the min and max of its first {@code n} equal-length blocks. */
+    static WaveformOverview of(float[] lo, float[] hi, int n) {
+        byte[] data = new byte[BYTES];
+        for (int b = 0; b < BUCKETS && n > 0; b++) {
+            int from = (int) ((long) b * n / BUCKETS), to = Math.max(from + 1, (int) ((long) (b + 1) * n / BUCKETS));
+            float min = 0, max = 0;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, lo[i]);
+                max = Math.max(max, hi[i]);
+            }
+            data[2 * b]     = quantize(min);
+            data[2 * b + 1] = quantize(max);
+        }
+        for (int level = 1; level < LEVELS; level++) {
+            int src = offset(level - 1), dst = offset(level);
+            for (int b = 0, count = BUCKETS >> level; b < count; b++) {
+                int a = src + 4 * b;
+                data[dst + 2 * b]     = (byte) Math.min(data[a], data[a + 2]);
+                data[dst + 2 * b + 1] = (byte) Math.max(data[a + 1], data[a + 3]);
+            }
+        }
+        return new WaveformOverview(data);
+    }
+
+    private static byte quantize(float v) { return (byte) Math.max(-127, Math.min(127, Math.round(v * 127))); }
+
+    /** Byte offset of {@code level} in {@link #data}. */
+    private static int offset(int level) { return 2 * (2 * BUCKETS - 2 * (BUCKETS >> level)); }
+
+    /** Buckets in {@code level}. */
+    public static int buckets(int level) { return BUCKETS >> level; }
+
+    /** The coarsest level with at least {@code width} buckets, or the finest if none has. */
+    public static int levelFor(int width) {
+        int level = 0;
+        while (level + 1 < LEVELS && buckets(level + 1) >= width) level++;
+        return level;
+    }
+
+    /** Lowest sample in bucket {@code b} of {@code level}, -1 to 1. */
+    public float min(int level, int b) { return data[offset(level) + 2 * b] / 127f; }
+    /** Highest sample in bucket {@code b} of {@code level}, -1 to 1. */
+    public float max(int level, int b) { return data[offset(level) + 2 * b + 1] / 127f; }
+
+    /**
+     * Fills {@code min[0..width)} and {@code max[0..width)} with the outline
+     * at one value per pixel, from the level chosen by {@link #levelFor}.
+     */
+    public void render(int width, float[] min, float[] max) {
+        int level = levelFor(width), n = buckets(level), base = offset(level);
+        for (int x = 0; x < width; x++) {
+            int from = (int) ((long) x * n / width), to = Math.max(from + 1, (int) ((long) (x + 1) * n / width));
+            int lo = 0, hi = 0;
+            for (int b = from; b < to; b++) {
+                lo = Math.min(lo, data[base + 2 * b]);
+                hi = Math.max(hi, data[base + 2 * b + 1]);
+            }
+            min[x] = lo / 127f;
+            max[x] = hi / 127f;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.musicapp.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Delivers events to listeners on one target thread (the EDT in the app),
+ * in batches.
+ *
+ * <p>Publishing never calls a listener.  It queues the event, and the first
+ * event after a delivery schedules one hop to the target, at most once per
+ * {@linkplain #getFrame frame}.  That hop delivers everything pending, in
+ * publish order.  Events on a <em>coalescing</em> topic (progress, volume)
+ * hold a single slot in the queue.  Later values overwrite the pending
+ * one, so listeners only see the latest value, however often it was
+ * published.</p>
+ *
+ * <p>Publishing and (un)subscribing are thread-safe and lock-free.  Listener
+ * exceptions are logged and do not stop the batch.  {@link #getStats}
+ * reports queue depth and publish-to-delivery latency.</p>
+ */
+public final class EventDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EventDispatcher.class);
+
+    /** Default minimum time between deliveries, one 60 Hz frame. */
+    public static final Duration DEFAULT_FRAME = Duration.ofMillis(16);
+
+    private static final Object NONE = new Object();
+
+    /** One kind of event and its listeners. */
+    public final class Topic<T> {
+        private final String name;
+        private final boolean coalesce;
+        private final CopyOnWriteArrayList<Consumer<? super T>> listeners = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Object> latest = new AtomicReference<>(NONE);   // coalescing only
+
+        private Topic(String name, boolean coalesce) { this.name = name; this.coalesce = coalesce; }
+
+        public void subscribe(Consumer<? super T> l)   { listeners.add(l); }
+        public void unsubscribe(Consumer<? super T> l) { listeners.remove(l); }
+        public boolean isCoalescing()                  { return coalesce; }
+
+        /** Queues {@code value} for the listeners; returns at once. */
+        public void publish(T value) {
+            published.incrementAndGet();
+            if (!coalesce) {
+                enqueue(new Pending(this, value, System.nanoTime()));
+            } else if (latest.getAndSet(value) == NONE) {
+                enqueue(new Pending(this, null, System.nanoTime()));
+            } else {
+                coalesced.incrementAndGet();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void deliver(Object value) {
+            for (Consumer<? super T> l : listeners) {
+                try {
+                    l.accept((T) value);
+                } catch (RuntimeException e) {
+                    log.warn("{} listener failed", name, e);
+                }
+            }
+        }
+
+        @Override
+        public String toString() { return name; }
+    }
+
+    /** A queued event; for a coalescing topic the value is read from the topic at delivery. */
+    private static final class Pending {
+        final Topic<?> topic;
+        final Object   value;
+        final long     at;
+
+        Pending(Topic<?> topic, Object value, long at) { this.topic = topic; this.value = value; this.at = at; }
+    }
+
+    /** Counters since the dispatcher was created. */
+    public static final class Stats {
+        private final long published, coalesced, delivered, batches, latencyNanos, maxLatencyNanos;
+        private final int  depth, maxDepth;
+
+        Stats(long published, long coalesced, long delivered, long batches, long latencyNanos, long maxLatencyNanos,
+              int depth, int maxDepth) {
+            this.published = published; this.coalesced = coalesced; this.delivered = delivered;
+            this.batches = batches; this.latencyNanos = latencyNanos; this.maxLatencyNanos = maxLatencyNanos;
+            this.depth = depth; this.maxDepth = maxDepth;
+        }
+
+        public long getPublished()     { return published; }
+        /** Publishes folded into a value still pending. */
+        public long getCoalesced()     { return coalesced; }
+        /** Events handed to listeners (each counted once, whatever the number of listeners). */
+        public long getDelivered()     { return delivered; }
+        /** Hops to the target thread. */
+        public long getBatches()       { return batches; }
+        /** Events waiting now. */
+        public int  getQueueDepth()    { return depth; }
+        public int  getMaxQueueDepth() { return maxDepth; }
+
+        /** Mean time from publishing an event to delivering it. */
+        public Duration getMeanLatency() { return Duration.ofNanos(delivered == 0 ? 0 : latencyNanos / delivered); }
+        public Duration getMaxLatency()  { return Duration.ofNanos(maxLatencyNanos); }
+
+        @Override
+        public String toString() {
+            return String.format("%,d published, %,d coalesced, %,d delivered in %,d batches; depth %d (max %d); "
+                                 + "latency mean %.2f ms, max %.2f ms",
+                                 published, coalesced, delivered, batches, depth, maxDepth,
+                                 getMeanLatency().toNanos() / 1e6, maxLatencyNanos / 1e6);
+        }
+    }
+
+    private final Executor                 target;
+    private final ScheduledExecutorService pacer;       // null: no pacing
+    private final long                     frameNanos;
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth     = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long lastFlush;
+    private final AtomicLong published = new AtomicLong(), coalesced = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    // Target thread only; volatile for getStats
+    private volatile long delivered, batches, latencyNanos, maxLatencyNanos;
+
+    /** Delivers on {@code target} as soon as events arrive, without pacing. */
+    public EventDispatcher(Executor target) { this(target, null, Duration.ZERO); }
+
+    /**
+     * Delivers on {@code target}, at most once per {@code frame}; a hop
+     * due sooner is delayed on {@code pacer}.
+     */
+    public EventDispatcher(Executor target, ScheduledExecutorService pacer, Duration frame) {
+        this.target     = target;
+        this.pacer      = pacer;
+        this.frameNanos = frame.toNanos();
+        this.lastFlush  = System.nanoTime() - frameNanos;
+    }
+
+    /** A topic whose listeners see every event, in order. */
+    public <T> Topic<T> topic(String name) { return new Topic<>(name, false); }
+
+    /** A topic whose listeners see only the latest value pending at each delivery. */
+    public <T> Topic<T> coalescingTopic(String name) { return new Topic<>(name, true); }
+
+    public Duration getFrame() { return Duration.ofNanos(frameNanos); }
+
+    public Stats getStats() {
+        return new Stats(published.get(), coalesced.get(), delivered, batches, latencyNanos, maxLatencyNanos,
+                         depth.get(), maxDepth.get());
+    }
+
+    private void enqueue(Pending p) {
+        queue.add(p);
+        int d = depth.incrementAndGet();
+        for (int m; d > (m = maxDepth.get()) && !maxDepth.compareAndSet(m, d); ) { }
+        if (scheduled.compareAndSet(false, true)) schedule();
+    }
+
+    private void schedule() {
+        long wait = lastFlush + frameNanos - System.nanoTime();
+        if (pacer == null || wait <= 0) target.execute(this::flush);
+        else pacer.schedule(() -> target.execute(this::flush), wait, TimeUnit.NANOSECONDS);
+    }
+
+    /** Delivers what was pending when it started; events published meanwhile go in the next batch. */
+    private void flush() {
+        long now = System.nanoTime();
+        lastFlush = now;
+        batches++;
+        for (int n = depth.get(); n > 0; n--) {
+            Pending p = queue.poll();
+            if (p == null) break;
+            depth.decrementAndGet();
+            Object value = p.topic.coalesce ? p.topic.latest.getAndSet(NONE) : p.value;
+            long lat = now - p.at;
+            delivered++;
+            latencyNanos += lat;
+            if (lat > maxLatencyNanos) maxLatencyNanos = lat;
+            p.topic.deliver(value);
+        }
+        scheduled.set(false);
+        if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) schedule();
+    }
+}
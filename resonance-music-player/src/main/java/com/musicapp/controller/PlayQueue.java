@@ -0,0 +1,273 @@
+package com.musicapp.controller;
+
+import com.musicapp.model.Song;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The play queue: a context list (the library, a playlist, search results)
+ * plus the user's edits, with the position of the song playing.
+ *
+ * <p>The context is referenced, never copied, so starting playback from a
+ * million-song view costs the same as from ten.  Edits are kept as a
+ * piece table.  The queue is a run of <em>pieces</em>, each a slice of
+ * either the context or an append-only list of inserted songs, with
+ * running end positions for binary search.  A fresh queue is one piece.
+ * {@link #get} is O(log p) and edits are O(p) for p pieces, which grows by
+ * at most two per edit.  An id-to-position index over the context is
+ * built on the second {@link #positionOf} and reused until the context
+ * changes.  The first lookup in a new context scans it instead, which is
+ * cheaper when it is the only one.</p>
+ *
+ * <p>{@link #playNext} and {@link #enqueue} insert after the current song.
+ * Songs added with {@code enqueue} play in the order they were added,
+ * after any added before them and before the rest of the context.</p>
+ *
+ * <p>Read-only as a {@link List}; the context must not change while it is
+ * queued (library and view lists are immutable snapshots).  Not
+ * thread-safe: the controller confines it to its own calls.</p>
+ */
+public final class PlayQueue extends AbstractList<Song> implements RandomAccess {
+
+    private List<Song>            context = List.of();
+    private final ArrayList<Song> inserted = new ArrayList<>();
+    private Map<Song, Integer>    contextIds;                // from the second lookup: song (by id) → first context index
+    private boolean               looked;                    // positionOf has scanned this context once
+
+    // Pieces: [start, start + len) of the context, or of inserted when fromInserted
+    private int[]     start = new int[8], len = new int[8], end = new int[8];   // end: queue position after the piece
+    private boolean[] fromInserted = new boolean[8];
+    private int       pieces, size;
+
+    private int current  = -1;                               // position of the song playing, -1: none
+    private int upNextEnd;                                   // position after the last song enqueued ahead of the context
+
+    /** Replaces the queue with {@code songs}, referenced, not copied, and no current song. */
+    public void setContext(List<Song> songs) {
+        if (songs == this) return;                           // replaying from the queue view itself
+        context    = songs;
+        contextIds = null;
+        looked     = false;
+        inserted.clear();
+        pieces = 0;
+        size   = 0;
+        if (!songs.isEmpty()) appendPiece(0, songs.size(), false);
+        current   = -1;
+        upNextEnd = 0;
+        modCount++;
+    }
+
+    public List<Song> getContext() { return context; }
+
+    /** Position of the song playing, -1 if none. */
+    public int  current()              { return current; }
+    public void setCurrent(int pos)    {
+        if (pos < -1 || pos >= size) throw new IndexOutOfBoundsException("position " + pos + ", size " + size);
+        current = pos;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public Song get(int pos) {
+        if (pos < 0 || pos >= size) throw new IndexOutOfBoundsException("position " + pos + ", size " + size);
+        int p = pieceAt(pos);
+        int i = start[p] + pos - (end[p] - len[p]);
+        return fromInserted[p] ? inserted.get(i) : context.get(i);
+    }
+
+    /**
+     * Position of {@code song} in the queue, looked up by id, or -1.  If the
+     * song is queued more than once, any one of its positions.
+     */
+    public int positionOf(Song song) {
+        if (!looked) {                                       // playing from a fresh context: one scan beats building the index
+            looked = true;
+            for (int i = 0; i < context.size(); i++) {
+                if (song.equals(context.get(i))) {
+                    int pos = locate(i, false);
+                    if (pos >= 0) return pos;
+                }
+            }
+        } else {
+            if (contextIds == null) {
+                contextIds = new HashMap<>(context.size() * 4 / 3 + 1);
+                for (int i = context.size() - 1; i >= 0; i--) contextIds.put(context.get(i), i);
+            }
+            Integer c = contextIds.get(song);
+            if (c != null) {
+                int pos = locate(c, false);
+                if (pos >= 0) return pos;
+            }
+        }
+        for (int i = inserted.size() - 1; i >= 0; i--) {     // a handful of user additions
+            if (song.equals(inserted.get(i))) {
+                int pos = locate(i, true);
+                if (pos >= 0) return pos;
+            }
+        }
+        return -1;
+    }
+
+    // ── Slots ──────────────────────────────────────────────────────────────────
+
+    /**
+     * Number of slots used so far.  A slot is a stable id for one queued
+     * entry: context index {@code i} is slot {@code i}, and each inserted
+     * song takes the next one.  Moves and removals do not change slots.
+     */
+    public int slots() { return context.size() + inserted.size(); }
+
+    /** The slot at queue position {@code pos}. */
+    public int slotAt(int pos) {
+        if (pos < 0 || pos >= size) throw new IndexOutOfBoundsException("position " + pos + ", size " + size);
+        int p = pieceAt(pos);
+        int i = start[p] + pos - (end[p] - len[p]);
+        return fromInserted[p] ? context.size() + i : i;
+    }
+
+    /** Queue position of {@code slot}, -1 if it was removed. */
+    public int positionOfSlot(int slot) {
+        int c = context.size();
+        return slot < c ? locate(slot, false) : locate(slot - c, true);
+    }
+
+    /** The song in {@code slot}, queued or not. */
+    public Song songAt(int slot) {
+        int c = context.size();
+        return slot < c ? context.get(slot) : inserted.get(slot - c);
+    }
+
+    // ── Edits ──────────────────────────────────────────────────────────────────
+
+    /** Inserts {@code song} straight after the current song. */
+    public void playNext(Song song) {
+        insert(current + 1, song);
+        upNextEnd = Math.max(upNextEnd, current + 2);
+    }
+
+    /** Inserts {@code song} after the songs already enqueued ahead of the context. */
+    public void enqueue(Song song) {
+        int pos = Math.min(size, Math.max(upNextEnd, current + 1));
+        insert(pos, song);
+        upNextEnd = pos + 1;
+    }
+
+    /** Inserts {@code song} at {@code pos}, shifting later songs back. */
+    public void insert(int pos, Song song) {
+        if (pos < 0 || pos > size) throw new IndexOutOfBoundsException("position " + pos + ", size " + size);
+        int at = inserted.size();
+        inserted.add(song);
+        int p = split(pos);
+        if (p > 0 && fromInserted[p - 1] && start[p - 1] + len[p - 1] == at) {
+            len[p - 1]++;                                    // extends the previous insertion
+            renumber(p - 1);
+        } else {
+            openPiece(p);
+            start[p] = at; len[p] = 1; fromInserted[p] = true;
+            renumber(p);
+        }
+        if (pos <= current) current++;
+        if (pos < upNextEnd) upNextEnd++;
+        modCount++;
+    }
+
+    /** Removes the song at {@code pos}; removing the current song leaves the position just before the next one. */
+    public Song removeAt(int pos) {
+        Song s = get(pos);
+        int p = split(pos);
+        if (len[p] == 1) {
+            System.arraycopy(start, p + 1, start, p, pieces - p - 1);
+            System.arraycopy(len, p + 1, len, p, pieces - p - 1);
+            System.arraycopy(fromInserted, p + 1, fromInserted, p, pieces - p - 1);
+            pieces--;
+        } else {
+            start[p]++;
+            len[p]--;
+        }
+        renumber(p);
+        if (pos <= current) current--;
+        if (pos < upNextEnd) upNextEnd--;
+        modCount++;
+        return s;
+    }
+
+    /** Moves the song at {@code from} to {@code to}; the current song stays current wherever it goes. */
+    public void move(int from, int to) {
+        if (to < 0 || to >= size) throw new IndexOutOfBoundsException("position " + to + ", size " + size);
+        if (from == to) return;
+        boolean wasCurrent = from == current;
+        Song s = removeAt(from);
+        insert(to, s);
+        if (wasCurrent) current = to;
+    }
+
+    // ── Pieces ─────────────────────────────────────────────────────────────────
+
+    /** Index of the piece holding queue position {@code pos}. */
+    private int pieceAt(int pos) {
+        int lo = 0, hi = pieces - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (end[mid] > pos) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /** Queue position of index {@code i} of the context (or of inserted), -1 if it is not queued. */
+    private int locate(int i, boolean ins) {
+        for (int p = 0; p < pieces; p++) {
+            if (fromInserted[p] == ins && i >= start[p] && i < start[p] + len[p]) return end[p] - len[p] + i - start[p];
+        }
+        return -1;
+    }
+
+    /** Makes a piece start at {@code pos} and returns its index ({@link #pieces} if {@code pos == size}). */
+    private int split(int pos) {
+        if (pos == size) return pieces;
+        int p = pieceAt(pos), first = end[p] - len[p];
+        if (first == pos) return p;
+        openPiece(p + 1);
+        int head = pos - first;
+        start[p + 1] = start[p] + head;
+        len[p + 1]   = len[p] - head;
+        fromInserted[p + 1] = fromInserted[p];
+        len[p] = head;
+        renumber(p);
+        return p + 1;
+    }
+
+    /** Shifts pieces from {@code p} on up by one, leaving slot {@code p} to be filled. */
+    private void openPiece(int p) {
+        if (pieces == start.length) {
+            int n = pieces * 2;
+            start = Arrays.copyOf(start, n); len = Arrays.copyOf(len, n);
+            end = Arrays.copyOf(end, n); fromInserted = Arrays.copyOf(fromInserted, n);
+        }
+        System.arraycopy(start, p, start, p + 1, pieces - p);
+        System.arraycopy(len, p, len, p + 1, pieces - p);
+        System.arraycopy(fromInserted, p, fromInserted, p + 1, pieces - p);
+        pieces++;
+    }
+
+    private void appendPiece(int s, int n, boolean ins) {
+        openPiece(pieces);
+        start[pieces - 1] = s; len[pieces - 1] = n; fromInserted[pieces - 1] = ins;
+        renumber(pieces - 1);
+    }
+
+    /** Recomputes end positions and the size from piece {@code p} on. */
+    private void renumber(int p) {
+        int pos = p == 0 ? 0 : end[p - 1];
+        for (int i = p; i < pieces; i++) end[i] = pos += len[i];
+        size = pos;
+    }
+}
@@ -0,0 +1,71 @@
+package com.musicapp.controller;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Playback position of the current track.
+ *
+ * <p>The position is always derived, never accumulated.  When following the
+ * audio engine it is the frames the output has played divided by the sample
+ * rate.  When simulating it is a base position plus the {@code System.nanoTime}
+ * elapsed while running.  Nothing is added per tick, so late or skipped ticks
+ * cannot make it drift, and pausing only folds the elapsed time into the
+ * base.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class PlaybackClock {
+
+    private final LongSupplier nanoTime;
+
+    private LongSupplier frames;       // null: simulated
+    private double       sampleRate;
+    private double       baseSec;
+    private long         startNanos;
+    private boolean      running;
+
+    public PlaybackClock() { this(System::nanoTime); }
+
+    /** A clock reading simulated time from {@code nanoTime} (for tests). */
+    public PlaybackClock(LongSupplier nanoTime) { this.nanoTime = nanoTime; }
+
+    /** Simulates from {@code sec}, paused until {@link #start}. */
+    public synchronized void simulate(double sec) {
+        frames  = null;
+        baseSec = sec;
+        running = false;
+    }
+
+    /** Follows {@code framesPlayed}, a frame count from the start of the track at {@code sampleRate}. */
+    public synchronized void follow(LongSupplier framesPlayed, double sampleRate) {
+        this.frames     = framesPlayed;
+        this.sampleRate = sampleRate;
+        running = false;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        startNanos = nanoTime.getAsLong();
+        running = true;
+    }
+
+    public synchronized void pause() {
+        if (!running) return;
+        baseSec = seconds();
+        running = false;
+    }
+
+    /** Moves a simulated clock to {@code sec}, keeping it running or paused. */
+    public synchronized void set(double sec) {
+        baseSec    = sec;
+        startNanos = nanoTime.getAsLong();
+    }
+
+    public synchronized boolean isRunning()   { return running; }
+    public synchronized boolean isFollowing() { return frames != null; }
+
+    public synchronized double seconds() {
+        if (frames != null) return frames.getAsLong() / sampleRate;
+        return running ? baseSec + (nanoTime.getAsLong() - startNanos) / 1e9 : baseSec;
+    }
+}
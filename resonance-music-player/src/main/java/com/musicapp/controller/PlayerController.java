@@ -1,20 +1,76 @@
 package com.musicapp.controller;
 
+import com.musicapp.audio.CrossfadeCurve;
+import com.musicapp.audio.Equalizer;
+import com.musicapp.audio.LoudnessMeter;
+import com.musicapp.audio.PlaybackEngine;
+import com.musicapp.audio.SpectrumAnalyzer;
 import com.musicapp.model.*;
 import com.musicapp.service.MusicLibrary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.EventQueue;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
  * Singleton controller that owns all playback logic.
  *
- * <p>Observer lists (stateListeners, songListeners, etc.) allow UI panels to
- * react to state changes without any direct coupling.  All listener callbacks
- * are invoked on the same thread that triggered the change; callers that need
- * Swing-thread safety must wrap with {@code SwingUtilities.invokeLater}.</p>
+ * <p>Listeners (state, song, progress, volume) allow UI panels to react to
+ * state changes without any direct coupling.  They are called on the Swing
+ * event thread through an {@link EventDispatcher}.  Changes are batched into
+ * at most one hop per frame, and progress and volume are coalesced to
+ * their latest value.  Listeners may be added and removed from any
+ * thread.</p>
+ *
+ * <p>With a {@link PlaybackEngine} installed, songs whose file exists and
+ * decodes are really played: progress comes from the engine's position and
+ * the engine reports the end of the track.  Songs without a playable file,
+ * or any song when no engine is installed, fall back to simulated playback
+ * driven by the progress timer alone.</p>
+ *
+ * <p>The position comes from a {@link PlaybackClock}: frames played by the
+ * engine, or monotonic time while simulating.  Progress is published by one
+ * periodic task on a single long-lived {@code player-clock} thread, every
+ * {@link #setProgressInterval progress interval}.  Play, pause and next only
+ * schedule and cancel that task; they never create threads.</p>
+ *
+ * <p>Controller state belongs to the Swing event thread, where the UI calls
+ * the public API.  The engine reports track changes on its audio thread and
+ * the clock thread notices the end of a simulated song; both hand the work
+ * to the event thread, which drops it if the song has changed meanwhile.
+ * Queue, shuffle and song changes, file checks and opening the next track
+ * therefore never run on the audio or clock threads.  The clock thread only
+ * writes the position (progress and seconds).</p>
+ *
+ * <p>In {@linkplain #setGapless gapless} mode the song that will follow the
+ * current one (by queue order, shuffle and repeat mode) is queued on the
+ * engine ahead of time.  The engine splices it in, and the controller only
+ * moves its state along when the engine reports the change.  With a
+ * {@linkplain #setCrossfade crossfade} set the queued song fades in over the
+ * end of the current one instead, and {@link #next} fades from the song
+ * playing now.</p>
+ *
+ * <p>With {@linkplain #setNormalization normalization} on, each song whose
+ * loudness has been analysed is played at a track gain that brings it to
+ * {@link LoudnessMeter#TARGET_LUFS}, so tracks mastered at different levels
+ * sound equally loud.</p>
+ *
+ * <p>The queue is a {@link PlayQueue}: it references the list playback was
+ * started from instead of copying it, and keeps "play next", "add to
+ * queue", removals and moves as edits on top of it.  Shuffle follows a
+ * {@link ShuffleOrder}: every song once per round, with a history that
+ * {@link #previous} walks back through.</p>
  */
 public class PlayerController {
 
@@ -30,47 +86,112 @@ public class PlayerController {
 
     // ── State ──────────────────────────────────────────────────────────────────
 
-    private Song              currentSong;
-    private final List<Song>  queue      = new ArrayList<>();
-    private int               queueIndex = -1;
+    private volatile Song     currentSong;
+    private final PlayQueue   queue      = new PlayQueue();
 
-    private PlayerState playerState = PlayerState.STOPPED;
+    private volatile PlayerState playerState = PlayerState.STOPPED;
     private RepeatMode  repeatMode  = RepeatMode.NONE;
     private boolean     shuffle     = false;
+    private boolean     spreadArtists = false;
+    private ShuffleOrder shuffleOrder;          // while shuffle is on
     private int         volume      = 70;       // 0–100
-    private double      progress    = 0.0;      // 0.0–1.0
-    private double      currentSec  = 0.0;      // seconds elapsed
-
-    private Timer progressTimer;
-
-    // ── Observer lists ─────────────────────────────────────────────────────────
-
-    private final List<Consumer<PlayerState>> stateListeners    = new ArrayList<>();
-    private final List<Consumer<Song>>        songListeners     = new ArrayList<>();
-    private final List<Consumer<Double>>      progressListeners = new ArrayList<>();
-    private final List<Consumer<Integer>>     volumeListeners   = new ArrayList<>();
+    private volatile double progress   = 0.0;   // 0.0–1.0
+    private volatile double currentSec = 0.0;   // seconds elapsed, as of the last tick
+
+    /** Default rate at which progress listeners hear about the position. */
+    public static final Duration DEFAULT_PROGRESS_INTERVAL = Duration.ofMillis(100);
+
+    private final PlaybackClock clock = new PlaybackClock();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "player-clock");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> progressTick;
+    private Duration           progressInterval = DEFAULT_PROGRESS_INTERVAL;
+
+    private PlaybackEngine engine;          // null: simulate everything
+    private volatile boolean engineDriven;  // the current song is playing through the engine
+    private boolean gapless = true;
+    private boolean normalize = true;
+    private Duration       crossfade      = Duration.ZERO;
+    private CrossfadeCurve crossfadeCurve = CrossfadeCurve.EQUAL_POWER;
+    private final double[] eqGains        = new double[Equalizer.BANDS];   // dB per band
+    private int     queuedIndex = -1;       // the song queued on the engine to follow, -1: none
+
+    // ── Observer topics ────────────────────────────────────────────────────────
+
+    /** The event thread, which owns the controller state; engine and clock callbacks are posted to it. */
+    private final Executor owner = EventQueue::invokeLater;
+
+    private final EventDispatcher events = new EventDispatcher(EventQueue::invokeLater, ticker, EventDispatcher.DEFAULT_FRAME);
+    private final EventDispatcher.Topic<PlayerState> stateEvents    = events.topic("state");
+    private final EventDispatcher.Topic<Song>        songEvents     = events.topic("song");
+    private final EventDispatcher.Topic<Double>      progressEvents = events.coalescingTopic("progress");
+    private final EventDispatcher.Topic<Integer>     volumeEvents   = events.coalescingTopic("volume");
 
     private PlayerController() { /* private */ }
 
     // ── Public API ─────────────────────────────────────────────────────────────
 
-    /** Play {@code song} using {@code newQueue} as the surrounding context. */
+    /** Installs the engine that plays real files, or {@code null} to simulate playback. */
+    public void setEngine(PlaybackEngine e) {
+        if (engine != null) {
+            engine.stop();
+            engine.setListener(null);
+        }
+        engine = e;
+        engineDriven = false;
+        if (e == null) return;
+        e.setGain(gain(volume));
+        e.setCrossfade(crossfade, crossfadeCurve);
+        e.getEqualizer().setGains(eqGains);
+        e.setListener(new PlaybackEngine.Listener() {
+            @Override public void trackEnded() { onEngine(currentSong, PlayerController.this::onSongEnd); }
+            @Override public void trackFailed(Path file, Exception ex) {
+                onEngine(currentSong, () -> {
+                    log.warn("Playback of {} failed ({}); simulating the rest", file, ex.toString());
+                    engineDriven = false;
+                    simulateFrom(clock.seconds());
+                });
+            }
+            @Override public void trackChanged() { onEngine(currentSong, PlayerController.this::onGaplessAdvance); }
+        });
+    }
+
+    /**
+     * Play {@code song} using {@code newQueue} as the surrounding context.
+     * The list is referenced, not copied, and must not change afterwards.
+     */
     public void play(Song song, List<Song> newQueue) {
         Objects.requireNonNull(song, "song must not be null");
-        stopTimer();
-        queue.clear();
-        queue.addAll(newQueue);
-        queueIndex = queue.indexOf(song);
-        if (queueIndex < 0) {
-            queue.add(0, song);
-            queueIndex = 0;
+        queue.setContext(newQueue);
+        int pos = queue.positionOf(song);
+        if (pos < 0) {
+            queue.insert(0, song);
+            pos = 0;
         }
+        queue.setCurrent(pos);
+        reshuffle();
+        playCurrent();
+    }
+
+    /**
+     * Play the song at {@code index} of {@code context}, which becomes the
+     * queue, without looking the song up: for callers that know the row.
+     * The list is referenced, not copied, and must not change afterwards.
+     */
+    public void play(List<Song> context, int index) {
+        Objects.checkIndex(index, context.size());
+        queue.setContext(context);
+        queue.setCurrent(index);
+        reshuffle();
         playCurrent();
     }
 
     /** Play {@code song} using the full library as the queue. */
     public void play(Song song) {
-        if (queue.isEmpty()) queue.addAll(MusicLibrary.getInstance().getAllSongs());
+        if (queue.isEmpty()) queue.setContext(MusicLibrary.getInstance().getAllSongs());
         play(song, queue);
     }
 
@@ -78,6 +199,7 @@ public class PlayerController {
         if (playerState == PlayerState.PLAYING) {
             playerState = PlayerState.PAUSED;
             stopTimer();
+            if (engineDriven) engine.pause();
             notifyState();
             log.debug("Paused: {}", currentSong);
         }
@@ -86,6 +208,7 @@ public class PlayerController {
     public void resume() {
         if (playerState == PlayerState.PAUSED) {
             playerState = PlayerState.PLAYING;
+            if (engineDriven) engine.resume();
             startTimer();
             notifyState();
             log.debug("Resumed: {}", currentSong);
@@ -97,13 +220,22 @@ public class PlayerController {
             case PLAYING: pause(); break;
             case PAUSED:  resume(); break;
             case STOPPED:
-                if (currentSong != null) { playerState = PlayerState.PLAYING; startTimer(); notifyState(); }
+                if (currentSong != null) {
+                    playerState = PlayerState.PLAYING;
+                    engineDriven = startEngine(currentSong, currentSec);
+                    resetClock(currentSec);
+                    startTimer();
+                    notifyState();
+                }
                 break;
         }
     }
 
     public void stop() {
         stopTimer();
+        if (engineDriven) engine.stop();
+        engineDriven = false;
+        clock.simulate(0);
         playerState = PlayerState.STOPPED;
         progress = 0; currentSec = 0;
         notifyState(); notifyProgress();
@@ -112,16 +244,27 @@ public class PlayerController {
 
     public void next() {
         if (queue.isEmpty()) return;
-        queueIndex = shuffle
-            ? randomIndex()
-            : (queueIndex + 1) % queue.size();
-        playCurrent();
+        if (shuffle) {
+            int pos = shuffledNext(true, true);
+            if (pos < 0) return;
+            queue.setCurrent(pos);
+        } else {
+            queue.setCurrent((queue.current() + 1) % queue.size());
+        }
+        playCurrent(true);
     }
 
+    /** Restarts the song, or, in its first 3 s, goes back one: in queue order, or through the shuffle history. */
     public void previous() {
         if (queue.isEmpty()) return;
-        if (currentSec > 3.0) { seek(0); return; }
-        queueIndex = (queueIndex - 1 + queue.size()) % queue.size();
+        if (getCurrentSec() > 3.0) { seek(0); return; }
+        if (shuffle) {
+            int slot = shuffleOrder.previous();
+            if (slot < 0) { seek(0); return; }
+            queue.setCurrent(queue.positionOfSlot(slot));
+        } else {
+            queue.setCurrent(Math.floorMod(queue.current() - 1, queue.size()));
+        }
         playCurrent();
     }
 
@@ -130,22 +273,109 @@ public class PlayerController {
         if (currentSong == null) return;
         progress   = Math.max(0, Math.min(1, fraction));
         currentSec = progress * currentSong.getDuration().getSeconds();
+        if (engineDriven) {
+            try {
+                engine.seek(Math.round(currentSec * PlaybackEngine.SAMPLE_RATE));
+            } catch (Exception e) {
+                log.warn("Seek in {} failed ({}); simulating the rest", currentSong, e.toString());
+                engine.stop();
+                engineDriven = false;
+                simulateFrom(currentSec);
+            }
+        } else {
+            clock.set(currentSec);
+        }
         notifyProgress();
     }
 
     public void setVolume(int vol) {
         volume = Math.max(0, Math.min(100, vol));
+        if (engine != null) engine.setGain(gain(volume));
         notifyVolume();
     }
 
-    public void toggleShuffle() { shuffle = !shuffle; log.debug("Shuffle: {}", shuffle); }
+    /**
+     * Boosts or cuts equalizer {@code band} (see {@link Equalizer#frequency})
+     * by {@code db}, clamped to ±{@link Equalizer#MAX_DB}.  Takes effect on
+     * the next audio block without interrupting playback.
+     */
+    public void setEqualizerGain(int band, double db) {
+        if (band < 0 || band >= Equalizer.BANDS) throw new IndexOutOfBoundsException("band " + band);
+        eqGains[band] = Math.max(-Equalizer.MAX_DB, Math.min(Equalizer.MAX_DB, db));
+        if (engine != null) engine.getEqualizer().setGain(band, eqGains[band]);
+    }
 
-	public void cycleRepeat() {
-		/*
-		 * repeatMode = switch (repeatMode) { case NONE -> RepeatMode.ALL; case ALL ->
-		 * RepeatMode.ONE; case ONE -> RepeatMode.NONE; }; log.debug("RepeatMode: {}",
-		 * repeatMode);
-		 */}
+    public double getEqualizerGain(int band) { return eqGains[band]; }
+
+    /** How often progress listeners are notified while playing. */
+    public synchronized void setProgressInterval(Duration interval) {
+        if (interval.isZero() || interval.isNegative()) throw new IllegalArgumentException("interval must be positive");
+        progressInterval = interval;
+        if (progressTick != null) {
+            progressTick.cancel(false);
+            scheduleTick();
+        }
+    }
+
+    /** Shuffle on or off; turning it on starts a fresh shuffled round from the song playing. */
+    public void toggleShuffle() {
+        shuffle = !shuffle;
+        reshuffle();
+        queueUpcoming();
+        log.debug("Shuffle: {}", shuffle);
+    }
+
+    /**
+     * Whether shuffle spaces each artist's songs evenly through the round
+     * instead of drawing purely at random (off by default).
+     */
+    public void setSpreadArtists(boolean on) {
+        spreadArtists = on;
+        if (shuffleOrder != null) shuffleOrder.setArtists(on ? this::artistAt : null);
+        queueUpcoming();
+    }
+
+    /**
+     * Overlaps consecutive songs by {@code length} (at most
+     * {@link PlaybackEngine#MAX_CROSSFADE}) using {@code curve};
+     * {@link Duration#ZERO} turns crossfading off.  Applies to songs played
+     * through the engine.
+     */
+    public void setCrossfade(Duration length, CrossfadeCurve curve) {
+        Objects.requireNonNull(curve, "curve must not be null");
+        if (engine != null) engine.setCrossfade(length, curve);
+        else if (length.isNegative() || length.compareTo(PlaybackEngine.MAX_CROSSFADE) > 0) {
+            throw new IllegalArgumentException("crossfade must be between 0 and " + PlaybackEngine.MAX_CROSSFADE.getSeconds() + " s");
+        }
+        crossfade      = length;
+        crossfadeCurve = curve;
+        queueUpcoming();
+    }
+
+    /**
+     * Whether analysed songs are levelled to a common loudness (on by
+     * default).  Takes effect from the next song started.
+     */
+    public void setNormalization(boolean on) {
+        normalize = on;
+        queueUpcoming();
+    }
+
+    /** Whether the next song is queued on the engine to follow without a gap (on by default). */
+    public void setGapless(boolean on) {
+        gapless = on;
+        queueUpcoming();
+    }
+
+    public void cycleRepeat() {
+        switch (repeatMode) {
+            case NONE: repeatMode = RepeatMode.ALL;  break;
+            case ALL:  repeatMode = RepeatMode.ONE;  break;
+            case ONE:  repeatMode = RepeatMode.NONE; break;
+        }
+        queueUpcoming();
+        log.debug("RepeatMode: {}", repeatMode);
+    }
 
     public void toggleFavorite() {
         if (currentSong != null) {
@@ -154,12 +384,50 @@ public class PlayerController {
         }
     }
 
+    // ── Queue editing ──────────────────────────────────────────────────────────
+
+    /** Queue {@code song} to play straight after the current one. */
+    public void playNext(Song song) {
+        queue.playNext(Objects.requireNonNull(song, "song must not be null"));
+        if (shuffleOrder != null) shuffleOrder.playNext(queue.slots() - 1);
+        queueUpcoming();
+    }
+
+    /** Queue {@code song} after the songs already added, ahead of the rest of the context. */
+    public void addToQueue(Song song) {
+        queue.enqueue(Objects.requireNonNull(song, "song must not be null"));
+        if (shuffleOrder != null) shuffleOrder.enqueue(queue.slots() - 1);
+        queueUpcoming();
+    }
+
+    /** Remove the song at queue position {@code index}; removing the current song does not stop it. */
+    public void removeFromQueue(int index) {
+        int slot = queue.slotAt(index);
+        queue.removeAt(index);
+        if (shuffleOrder != null) shuffleOrder.remove(slot);
+        queueUpcoming();
+    }
+
+    /** Move the song at queue position {@code from} to {@code to}. */
+    public void moveInQueue(int from, int to) {
+        queue.move(from, to);
+        queueUpcoming();
+    }
+
     // ── Observer registration ──────────────────────────────────────────────────
 
-    public void addStateListener(Consumer<PlayerState> l)    { stateListeners.add(l); }
-    public void addSongListener(Consumer<Song> l)            { songListeners.add(l); }
-    public void addProgressListener(Consumer<Double> l)      { progressListeners.add(l); }
-    public void addVolumeListener(Consumer<Integer> l)       { volumeListeners.add(l); }
+    public void addStateListener(Consumer<PlayerState> l)    { stateEvents.subscribe(l); }
+    public void addSongListener(Consumer<Song> l)            { songEvents.subscribe(l); }
+    public void addProgressListener(Consumer<Double> l)      { progressEvents.subscribe(l); }
+    public void addVolumeListener(Consumer<Integer> l)       { volumeEvents.subscribe(l); }
+
+    public void removeStateListener(Consumer<PlayerState> l)    { stateEvents.unsubscribe(l); }
+    public void removeSongListener(Consumer<Song> l)            { songEvents.unsubscribe(l); }
+    public void removeProgressListener(Consumer<Double> l)      { progressEvents.unsubscribe(l); }
+    public void removeVolumeListener(Consumer<Integer> l)       { volumeEvents.unsubscribe(l); }
+
+    /** Delivery metrics: queue depth, batches, publish-to-listener latency. */
+    public EventDispatcher.Stats getEventStats() { return events.getStats(); }
 
     // ── Getters ────────────────────────────────────────────────────────────────
 
@@ -167,46 +435,93 @@ public class PlayerController {
     public PlayerState getPlayerState()  { return playerState; }
     public RepeatMode  getRepeatMode()   { return repeatMode; }
     public boolean     isShuffle()       { return shuffle; }
+    public boolean     isSpreadArtists() { return spreadArtists; }
+    public boolean     isGapless()       { return gapless; }
+    public boolean     isNormalization() { return normalize; }
+    public Duration    getCrossfade()    { return crossfade; }
     public int         getVolume()       { return volume; }
     public double      getProgress()     { return progress; }
-    public double      getCurrentSec()   { return currentSec; }
-    public List<Song>  getQueue()        { return Collections.unmodifiableList(queue); }
-    public int         getQueueIndex()   { return queueIndex; }
+    public double      getCurrentSec()   { return currentSong == null ? 0 : clock.seconds(); }
+    /** The queue, read-only; it follows later edits. */
+    public List<Song>  getQueue()        { return queue; }
+    public int         getQueueIndex()   { return queue.current(); }
+
+    /** Spectrum of the song playing through the engine; {@code null} while simulating. */
+    public SpectrumAnalyzer getSpectrum() { return engine != null && engineDriven ? engine.getSpectrum() : null; }
 
     // ── Internal helpers ───────────────────────────────────────────────────────
 
-    private void playCurrent() {
+    private void playCurrent() { playCurrent(false); }
+
+    /** Starts the queue's current song; {@code fade} crossfades from the one playing, if enabled. */
+    private void playCurrent(boolean fade) {
         stopTimer();
-        currentSong = queue.get(queueIndex);
+        currentSong = queue.get(queue.current());
         progress = 0; currentSec = 0;
         currentSong.incrementPlayCount();
         playerState = PlayerState.PLAYING;
+        engineDriven = startEngine(currentSong, 0, fade && engineDriven);
+        resetClock(0);
         notifySong(); notifyState();
         startTimer();
         log.info("Now playing: {}", currentSong);
     }
 
-    private void startTimer() {
-        progressTimer = new Timer("player-tick", true);
-        progressTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                if (playerState != PlayerState.PLAYING || currentSong == null) return;
-                double total = currentSong.getDuration().getSeconds();
-                currentSec += 0.5;
-                progress = currentSec / total;
-                if (progress >= 1.0) {
-                    progress = 1.0; notifyProgress();
-                    onSongEnd();
-                } else {
-                    notifyProgress();
-                }
-            }
-        }, 500, 500);
+    /** Starts the clock and the periodic progress task. */
+    private synchronized void startTimer() {
+        clock.start();
+        if (progressTick == null) scheduleTick();
+    }
+
+    /** Pauses the clock and cancels the progress task; the ticker thread stays. */
+    private synchronized void stopTimer() {
+        clock.pause();
+        if (progressTick != null) {
+            progressTick.cancel(false);
+            progressTick = null;
+        }
     }
 
-    private void stopTimer() {
-        if (progressTimer != null) { progressTimer.cancel(); progressTimer = null; }
+    private void scheduleTick() {
+        long nanos = progressInterval.toNanos();
+        progressTick = ticker.scheduleAtFixedRate(this::tick, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Runs on the clock thread: publishes the position and hands a simulated song's end to the event thread. */
+    private void tick() {
+        try {
+            Song song = currentSong;
+            if (playerState != PlayerState.PLAYING || song == null) return;
+            currentSec = clock.seconds();
+            progress = Math.min(1.0, currentSec / song.getDuration().getSeconds());
+            notifyProgress();
+            if (!engineDriven && progress >= 1.0) owner.execute(() -> onSimulatedEnd(song));   // the engine reports its own end
+        } catch (RuntimeException e) {
+            log.error("Progress update failed", e);    // keep the periodic task alive
+        }
+    }
+
+    /** Ends {@code song} unless it has been replaced, paused or restarted since the tick that saw its end. */
+    private void onSimulatedEnd(Song song) {
+        if (song != currentSong || engineDriven || playerState != PlayerState.PLAYING) return;
+        if (clock.seconds() >= song.getDuration().getSeconds()) onSongEnd();
+    }
+
+    /** Runs {@code action} on the event thread if {@code song} is still playing through the engine by then. */
+    private void onEngine(Song song, Runnable action) {
+        owner.execute(() -> { if (engineDriven && currentSong == song) action.run(); });
+    }
+
+    /** Points the clock at the engine if it is playing the song, else at simulated time from {@code sec}. */
+    private void resetClock(double sec) {
+        if (engineDriven) clock.follow(engine::getPositionFrames, PlaybackEngine.SAMPLE_RATE);
+        else              clock.simulate(sec);
+    }
+
+    private void simulateFrom(double sec) {
+        boolean running = playerState == PlayerState.PLAYING;
+        clock.simulate(sec);
+        if (running) clock.start();
     }
 
     private void onSongEnd() {
@@ -215,27 +530,130 @@ public class PlayerController {
             case ONE:
                 progress = 0; currentSec = 0;
                 playerState = PlayerState.PLAYING;
+                engineDriven = startEngine(currentSong, 0);
+                resetClock(0);
                 startTimer();
                 break;
             case ALL:
                 next();
                 break;
             case NONE:
-                if (queueIndex < queue.size() - 1) next();
+                if (upcomingIndex() >= 0) next();
                 else { playerState = PlayerState.STOPPED; notifyState(); }
                 break;
         }
     }
 
-    private int randomIndex() {
-        if (queue.size() <= 1) return 0;
-        int idx;
-        do { idx = (int)(Math.random() * queue.size()); } while (idx == queueIndex);
-        return idx;
+    /** Starts {@code song} on the engine at {@code sec}; false if it has to be simulated. */
+    private boolean startEngine(Song song, double sec) { return startEngine(song, sec, false); }
+
+    /** As {@link #startEngine(Song, double)}, crossfading from the current song if {@code fade}. */
+    private boolean startEngine(Song song, double sec, boolean fade) {
+        if (engine == null) return false;
+        Path file = playableFile(song);
+        if (file == null) {
+            engine.stop();
+            return false;
+        }
+        try {
+            if (fade) engine.crossfadeTo(file, trackGain(song));
+            else      engine.play(file, Math.round(sec * PlaybackEngine.SAMPLE_RATE), trackGain(song));
+            engineDriven = true;
+            queueUpcoming();
+            return true;
+        } catch (Exception e) {
+            log.warn("Cannot play {} ({}); simulating", file, e.toString());
+            engine.stop();
+            return false;
+        }
+    }
+
+    /** Queues the song that follows the current one on the engine, or clears it. */
+    private void queueUpcoming() {
+        if (engine == null) return;
+        int idx = (gapless || !crossfade.isZero()) && engineDriven ? upcomingIndex() : -1;
+        Path file = idx < 0 ? null : playableFile(queue.get(idx));
+        queuedIndex = file == null ? -1 : idx;
+        engine.queueNext(file, file == null ? 1f : trackGain(queue.get(idx)));
+    }
+
+    /** Gain that levels {@code song}'s loudness; 1 if normalization is off or the song is not analysed. */
+    private float trackGain(Song song) {
+        return normalize ? LoudnessMeter.normalizationGain(song.getLoudness(), song.getPeak()) : 1f;
+    }
+
+    /** The queue index {@link #onSongEnd} would move to, or -1 if playback would stop. */
+    private int upcomingIndex() {
+        int at = queue.current();                            // -1 before the first song, or after removing it
+        if (queue.isEmpty()) return -1;
+        switch (repeatMode) {
+            case ONE: return at;
+            case ALL: return shuffle ? shuffledNext(true, false) : (at + 1) % queue.size();
+            default:
+                if (shuffle) return shuffledNext(false, false);
+                return at >= queue.size() - 1 ? -1 : at + 1;
+        }
+    }
+
+    /**
+     * Queue position of the song the shuffle order plays next, -1 once the
+     * round is over and not {@code wrap}ping into a new one; moves the order
+     * on to it if {@code advance}.
+     */
+    private int shuffledNext(boolean wrap, boolean advance) {
+        int slot = shuffleOrder.peekNext();
+        if (slot < 0 && wrap) {
+            shuffleOrder.restart(shuffleOrder.current());
+            slot = shuffleOrder.peekNext();
+        }
+        if (slot < 0) return -1;
+        if (advance) shuffleOrder.next();
+        return queue.positionOfSlot(slot);
+    }
+
+    /** A new shuffle order over the queue, starting from the current song; none while shuffle is off. */
+    private void reshuffle() {
+        if (!shuffle) { shuffleOrder = null; return; }
+        ShuffleOrder order = new ShuffleOrder(queue.slots(), new Random());
+        if (queue.size() < queue.slots()) {                  // leave out songs removed from the queue
+            boolean[] queued = new boolean[queue.slots()];
+            for (int i = 0; i < queue.size(); i++) queued[queue.slotAt(i)] = true;
+            for (int slot = 0; slot < queued.length; slot++) if (!queued[slot]) order.remove(slot);
+        }
+        order.restart(queue.current() < 0 ? -1 : queue.slotAt(queue.current()));
+        if (spreadArtists) order.setArtists(this::artistAt);
+        shuffleOrder = order;
+    }
+
+    private String artistAt(int slot) { return queue.songAt(slot).getArtist(); }
+
+    /** The engine has started the queued song straight after the last one. */
+    private void onGaplessAdvance() {
+        if (queuedIndex < 0 || queuedIndex >= queue.size()) return;
+        if (shuffle && repeatMode != RepeatMode.ONE) shuffleOrder.next();   // the slot queueUpcoming peeked
+        queue.setCurrent(queuedIndex);
+        currentSong = queue.get(queuedIndex);
+        progress = 0; currentSec = 0;
+        currentSong.incrementPlayCount();
+        notifySong(); notifyProgress();
+        queueUpcoming();
+        log.info("Now playing: {}", currentSong);
+    }
+
+    private static Path playableFile(Song song) {
+        String file = song.getFilePath();
+        if (file == null || !Files.isRegularFile(Paths.get(file))) return null;
+        return Paths.get(file);
+    }
+
+    /** Volume (0–100) to linear gain, squared as a rough loudness taper. */
+    private static float gain(int volume) {
+        float v = volume / 100f;
+        return v * v;
     }
 
-    private void notifyState()    { stateListeners.forEach(l -> l.accept(playerState)); }
-    private void notifySong()     { songListeners.forEach(l -> l.accept(currentSong)); }
-    private void notifyProgress() { progressListeners.forEach(l -> l.accept(progress)); }
-    private void notifyVolume()   { volumeListeners.forEach(l -> l.accept(volume)); }
+    private void notifyState()    { stateEvents.publish(playerState); }
+    private void notifySong()     { songEvents.publish(currentSong); }
+    private void notifyProgress() { progressEvents.publish(progress); }
+    private void notifyVolume()   { volumeEvents.publish(volume); }
 }
@@ -0,0 +1,228 @@
+package com.musicapp.controller;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Shuffled play order over a {@link PlayQueue}'s slots, with history.
+ *
+ * <p>Slots are the queue's stable song ids ({@link PlayQueue#slotAt}), so
+ * moving songs in the queue does not disturb the order.  The order is a
+ * Fisher–Yates permutation in a primitive {@code int} array, drawn one step
+ * at a time as songs are needed.  It is split in three:
+ * {@code order[0, drawn)} is fixed (songs played, the current one, and any
+ * already chosen to follow), {@code order[drawn, end)} is the pool still to
+ * draw from, and {@code where} maps each slot back to its index.  Next and
+ * previous are O(1) and replay the same history both ways.  A song added to
+ * the queue joins the pool, so it comes up at a random point of the rest of
+ * the round without reshuffling anything.  Songs queued with
+ * {@link #playNext} or {@link #enqueue} are placed in the fixed part ahead
+ * of the draw.  Removed songs are skipped.</p>
+ *
+ * <p>With an {@linkplain #setArtists artist function} set, the pool is
+ * arranged to spread each artist's songs evenly instead of drawn at random.
+ * Each artist's songs are spaced 1/m apart from a random offset with a
+ * little jitter, then all songs are sorted by position.  That costs
+ * O(n log n) per round.</p>
+ *
+ * <p>Not thread-safe: the controller confines it to its own calls.</p>
+ */
+public final class ShuffleOrder {
+
+    private static final double JITTER = 0.2;             // of one artist's spacing
+
+    private final Random rnd;
+    private int[] order, where;                           // where[slot]: index in order, -1 once removed
+    private int   drawn, end;
+    private int   cursor    = -1;                         // index of the current song
+    private int   forcedEnd = 0;                          // index after the last song enqueued ahead of the draw
+    private IntFunction<?> artistOf;                      // null: plain random draws
+
+    /** An order over slots {@code 0 .. slots-1}; call {@link #restart} to pick the first song. */
+    public ShuffleOrder(int slots, Random rnd) {
+        this.rnd = rnd;
+        order = new int[Math.max(slots, 8)];
+        where = new int[order.length];
+        for (int i = 0; i < slots; i++) order[i] = where[i] = i;
+        end = slots;
+    }
+
+    /**
+     * Spreads songs with the same {@code artistOf(slot)} apart, from the
+     * pool still to draw on; {@code null} goes back to random draws.
+     */
+    public void setArtists(IntFunction<?> artistOf) {
+        this.artistOf = artistOf;
+        if (artistOf != null) spread(drawn);
+    }
+
+    public boolean isSpreadingArtists() { return artistOf != null; }
+
+    /** Begins a new round with {@code slot} playing; every other song is drawn again and the history is dropped. */
+    public void restart(int slot) {
+        int n = 0;
+        for (int i = 0; i < end; i++) {
+            int s = order[i];
+            if (where[s] >= 0) { order[n] = s; where[s] = n++; }
+        }
+        end = n;
+        if (slot >= 0 && slot < where.length && where[slot] >= 0) {
+            swap(0, where[slot]);
+            drawn = forcedEnd = 1;
+            cursor = 0;
+        } else {
+            drawn = forcedEnd = 0;
+            cursor = -1;
+        }
+        if (artistOf != null) spread(drawn);
+    }
+
+    /** The slot playing, -1 before the first. */
+    public int current() { return cursor < 0 ? -1 : order[cursor]; }
+
+    /** The slot {@link #next} will return, chosen now if it was not yet; -1 once the round is over. */
+    public int peekNext() {
+        int i = nextLive(cursor + 1);
+        return i < 0 ? -1 : order[i];
+    }
+
+    /** Moves on to the next slot and returns it; -1, staying put, once the round is over. */
+    public int next() {
+        int i = nextLive(cursor + 1);
+        if (i < 0) return -1;
+        cursor = i;
+        return order[i];
+    }
+
+    /** Moves back to the slot played before the current one and returns it; -1, staying put, at the start. */
+    public int previous() {
+        for (int i = cursor - 1; i >= 0; i--) {
+            if (where[order[i]] >= 0) {
+                cursor = i;
+                return order[i];
+            }
+        }
+        return -1;
+    }
+
+    // ── Edits ──────────────────────────────────────────────────────────────────
+
+    /** A new slot (the next unused id) joins the pool for the rest of the round. */
+    public void add(int slot) {
+        if (slot >= where.length) where = grow(where, slot + 1);
+        if (end == order.length) order = grow(order, end + 1);
+        order[end] = slot;
+        where[slot] = end++;
+        if (artistOf != null) swap(where[slot], drawn + rnd.nextInt(end - drawn));   // keeps the spread roughly even
+    }
+
+    /** A new slot plays straight after the current one. */
+    public void playNext(int slot) {
+        add(slot);
+        place(slot, cursor + 1);
+        forcedEnd = Math.max(forcedEnd, cursor + 2);
+    }
+
+    /** A new slot plays after the slots already enqueued, ahead of the draw. */
+    public void enqueue(int slot) {
+        add(slot);
+        int at = Math.max(forcedEnd, cursor + 1);
+        place(slot, at);
+        forcedEnd = at + 1;
+    }
+
+    /** The song in {@code slot} left the queue; it will not come up again. */
+    public void remove(int slot) {
+        if (slot < 0 || slot >= where.length) return;
+        int i = where[slot];
+        if (i < 0) return;
+        if (i >= drawn) {                                 // still in the pool: the last one takes its place
+            int last = order[--end];
+            order[i] = last;
+            where[last] = i;
+        }
+        where[slot] = -1;
+    }
+
+    // ── Internals ──────────────────────────────────────────────────────────────
+
+    /** First index from {@code i} on holding a song still queued, drawing from the pool as needed; -1 if none. */
+    private int nextLive(int i) {
+        for (; ; i++) {
+            if (i == drawn) {
+                if (drawn == end) return -1;
+                swap(drawn, artistOf != null ? drawn : drawn + rnd.nextInt(end - drawn));
+                drawn++;
+            }
+            if (where[order[i]] >= 0) return i;
+        }
+    }
+
+    /** Moves {@code slot}, in the pool, into the fixed part at index {@code at} (at most {@code drawn}). */
+    private void place(int slot, int at) {
+        swap(where[slot], drawn);
+        for (int i = drawn; i > at; i--) {
+            order[i] = order[i - 1];
+            if (where[order[i]] >= 0) where[order[i]] = i;   // removed slots stay removed
+        }
+        order[at] = slot;
+        where[slot] = at;
+        drawn++;
+        if (forcedEnd > at) forcedEnd++;
+    }
+
+    /** Arranges {@code order[from, end)} so that songs by one artist are evenly spaced. */
+    private void spread(int from) {
+        int n = end - from;
+        if (n < 2) return;
+        Map<Object, Integer> ids = new HashMap<>();
+        int[] group = new int[n];
+        for (int k = 0; k < n; k++) {
+            Object artist = artistOf.apply(order[from + k]);
+            Integer g = ids.get(artist);
+            if (g == null) ids.put(artist, g = ids.size());
+            group[k] = g;
+        }
+        int groups = ids.size();
+        int[] first = new int[groups + 1];                // counting sort by artist
+        for (int k = 0; k < n; k++) first[group[k] + 1]++;
+        for (int g = 0; g < groups; g++) first[g + 1] += first[g];
+        int[] fill = Arrays.copyOf(first, groups), byArtist = new int[n];
+        for (int k = 0; k < n; k++) byArtist[fill[group[k]]++] = order[from + k];
+
+        // Each key packs a slot below its position, which is under 2: the slot takes
+        // the bits the largest slot needs, the position the rest of the 62
+        int slotBits = 32 - Integer.numberOfLeadingZeros(where.length - 1);
+        long[] keys = new long[n];
+        for (int g = 0; g < groups; g++) {
+            int lo = first[g], m = first[g + 1] - lo;
+            for (int k = m - 1; k > 0; k--) {             // random order within the artist
+                int j = rnd.nextInt(k + 1), t = byArtist[lo + k];
+                byArtist[lo + k] = byArtist[lo + j];
+                byArtist[lo + j] = t;
+            }
+            double step = 1.0 / m, offset = rnd.nextDouble() * step;
+            for (int k = 0; k < m; k++) {
+                double pos = offset + k * step + (rnd.nextDouble() - 0.5) * JITTER * step + JITTER;
+                keys[lo + k] = (long) (pos * (1L << (61 - slotBits))) << slotBits | byArtist[lo + k];
+            }
+        }
+        Arrays.sort(keys);
+        for (int k = 0; k < n; k++) {
+            int slot = (int) (keys[k] & ((1L << slotBits) - 1));
+            order[from + k] = slot;
+            where[slot] = from + k;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int a = order[i], b = order[j];
+        order[i] = b; where[b] = i;
+        order[j] = a; where[a] = j;
+    }
+
+    private static int[] grow(int[] a, int min) { return Arrays.copyOf(a, Math.max(min, a.length * 2)); }
+}
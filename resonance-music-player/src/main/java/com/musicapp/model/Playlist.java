@@ -4,14 +4,24 @@ import java.util.*;
 
 /**
  * A named, ordered collection of {@link Song} objects.
+ *
+ * <p>Edits and the query methods hold the playlist's own lock, so another
+ * thread can take a consistent {@link #copy()} while the UI edits it.  The
+ * {@link #getSongs()} view is not locked and belongs to the editing thread.</p>
  */
 public class Playlist {
 
     private final String id;
-    private String name;
-    private String description;
+    private volatile String name;
+    private volatile String description;
     private final List<Song> songs;
     private final String coverHexColor;
+    private Listener listener;
+
+    /** Notified after every change to a playlist's songs, name or description. */
+    public interface Listener {
+        void playlistChanged(Playlist playlist);
+    }
 
     public Playlist(String id, String name, String description, String coverHexColor) {
         this.id            = Objects.requireNonNull(id);
@@ -24,32 +34,69 @@ public class Playlist {
     // ── Mutation ───────────────────────────────────────────────────────────────
 
     public void addSong(Song song) {
-        if (song != null && !songs.contains(song)) songs.add(song);
+        boolean added;
+        synchronized (this) {
+            added = song != null && !songs.contains(song) && songs.add(song);
+        }
+        if (added) changed();
     }
 
-    public void removeSong(Song song)  { songs.remove(song); }
-    public void removeSong(int index)  { if (index >= 0 && index < songs.size()) songs.remove(index); }
+    public void removeSong(Song song) {
+        boolean removed;
+        synchronized (this) { removed = songs.remove(song); }
+        if (removed) changed();
+    }
+
+    public void removeSong(int index) {
+        boolean removed = false;
+        synchronized (this) {
+            if (index >= 0 && index < songs.size()) {
+                songs.remove(index);
+                removed = true;
+            }
+        }
+        if (removed) changed();
+    }
 
     public void moveSong(int from, int to) {
-        if (from >= 0 && from < songs.size() && to >= 0 && to < songs.size()) {
-            songs.add(to, songs.remove(from));
+        boolean moved = false;
+        synchronized (this) {
+            if (from >= 0 && from < songs.size() && to >= 0 && to < songs.size()) {
+                songs.add(to, songs.remove(from));
+                moved = true;
+            }
         }
+        if (moved) changed();
+    }
+
+    public void setListener(Listener listener) { this.listener = listener; }
+
+    private void changed() {
+        Listener l = listener;
+        if (l != null) l.playlistChanged(this);
     }
 
     // ── Query ──────────────────────────────────────────────────────────────────
 
-    public Song getSong(int index) {
+    public synchronized Song getSong(int index) {
         return (index >= 0 && index < songs.size()) ? songs.get(index) : null;
     }
 
-    public List<Song> getSongs()         { return Collections.unmodifiableList(songs); }
-    public int        size()             { return songs.size(); }
-    public boolean    isEmpty()          { return songs.isEmpty(); }
-    public boolean    contains(Song s)   { return songs.contains(s); }
+    public List<Song> getSongs()                    { return Collections.unmodifiableList(songs); }
+    public synchronized int     size()              { return songs.size(); }
+    public synchronized boolean isEmpty()           { return songs.isEmpty(); }
+    public synchronized boolean contains(Song s)    { return songs.contains(s); }
+
+    /** A detached copy with this playlist's fields and songs as of now, and no listener. */
+    public synchronized Playlist copy() {
+        Playlist p = new Playlist(id, name, description, coverHexColor);
+        p.songs.addAll(songs);
+        return p;
+    }
 
     /** Total duration formatted as "X hr Y min" or "Y min". */
-    public String getTotalDurationFormatted() {
-        long totalSecs = songs.stream().mapToLong(s -> s.getDuration().getSeconds()).sum();
+    public synchronized String getTotalDurationFormatted() {
+        long totalSecs = songs.stream().mapToLong(Song::getDurationSeconds).sum();
         long hours = totalSecs / 3600;
         long mins  = (totalSecs % 3600) / 60;
         return hours > 0
@@ -64,8 +111,8 @@ public class Playlist {
     public String getDescription()    { return description; }
     public String getCoverHexColor()  { return coverHexColor; }
 
-    public void setName(String name)              { this.name = Objects.requireNonNull(name); }
-    public void setDescription(String description){ this.description = description; }
+    public void setName(String name)              { this.name = Objects.requireNonNull(name); changed(); }
+    public void setDescription(String description){ this.description = description; changed(); }
 
     @Override
     public boolean equals(Object o) {
@@ -5,49 +5,75 @@ import java.util.Objects;
 
 /**
  * Immutable-ish domain object representing a single music track.
+ *
+ * <p>A {@code Song} is a lightweight view of one row of a {@link SongStore}.
+ * A freshly constructed song owns a private one-row store; adding it to the
+ * library moves its data into the library's columnar store and rebinds the
+ * view, so references held elsewhere stay valid.</p>
  */
 public class Song {
 
-    private final String id;
-    private final String title;
-    private final String artist;
-    private final String album;
-    private final String genre;
-    private final int year;
-    private final Duration duration;
-    private String filePath;
-    private boolean favorite;
-    private int playCount;
+    private SongStore     store;
+    private volatile long at;       // (generation, row) in store; written after store, read before it
 
     public Song(String id, String title, String artist, String album,
                 String genre, int year, Duration duration) {
-        this.id       = Objects.requireNonNull(id, "id must not be null");
-        this.title    = Objects.requireNonNull(title, "title must not be null");
-        this.artist   = Objects.requireNonNull(artist, "artist must not be null");
-        this.album    = album  != null ? album  : "Unknown Album";
-        this.genre    = genre  != null ? genre  : "Unknown Genre";
-        this.year     = year;
-        this.duration = Objects.requireNonNull(duration, "duration must not be null");
+        Objects.requireNonNull(id, "id must not be null");
+        Objects.requireNonNull(title, "title must not be null");
+        Objects.requireNonNull(artist, "artist must not be null");
+        Objects.requireNonNull(duration, "duration must not be null");
+        SongStore.detach(this, id, title, artist,
+                         album != null ? album : "Unknown Album",
+                         genre != null ? genre : "Unknown Genre",
+                         year, (int) duration.getSeconds());
     }
 
+    Song(SongStore store, long at) {
+        this.store = store;
+        this.at    = at;
+    }
+
+    void bind(SongStore store, long at) {
+        this.store = store;
+        this.at    = at;
+    }
+
+    SongStore store() { return store; }
+    long      at()    { return at; }
+
     // ── Getters ────────────────────────────────────────────────────────────────
 
-    public String getId()       { return id; }
-    public String getTitle()    { return title; }
-    public String getArtist()   { return artist; }
-    public String getAlbum()    { return album; }
-    public String getGenre()    { return genre; }
-    public int    getYear()     { return year; }
-    public Duration getDuration() { return duration; }
-    public String getFilePath() { return filePath; }
-    public boolean isFavorite() { return favorite; }
-    public int getPlayCount()   { return playCount; }
+    public String getId()       { return SongStore.id(this); }
+    public String getTitle()    { return SongStore.title(this); }
+    public String getArtist()   { return SongStore.artist(this); }
+    public String getAlbum()    { return SongStore.album(this); }
+    public String getGenre()    { return SongStore.genre(this); }
+    public int    getYear()     { return SongStore.year(this); }
+    public Duration getDuration() { return Duration.ofSeconds(SongStore.seconds(this)); }
+    public int    getDurationSeconds() { return SongStore.seconds(this); }
+    public String getFilePath() { return SongStore.filePath(this); }
+    public boolean isFavorite() { return SongStore.favorite(this); }
+    public int getPlayCount()   { return SongStore.plays(this); }
+    /** Integrated loudness in LUFS (EBU R128), or NaN until analysed. */
+    public float getLoudness()  { return SongStore.loudness(this); }
+    /** Sample peak as a fraction of full scale, or NaN until analysed. */
+    public float getPeak()      { return SongStore.peak(this); }
+    public boolean isLoudnessAnalyzed() { return !Float.isNaN(SongStore.loudness(this)); }
 
     // ── Mutators ───────────────────────────────────────────────────────────────
 
-    public void setFilePath(String filePath) { this.filePath = filePath; }
-    public void setFavorite(boolean favorite) { this.favorite = favorite; }
-    public void incrementPlayCount()          { this.playCount++; }
+    public void setFilePath(String filePath) { SongStore.setFilePath(this, filePath); }
+    public void setFavorite(boolean favorite) { SongStore.setFavorite(this, favorite); }
+    public void incrementPlayCount()          { SongStore.incrementPlays(this); }
+
+    /** Stores the result of a loudness analysis of the file. */
+    public void setLoudness(float lufs, float peak) { SongStore.setLoudness(this, lufs, peak); }
+
+    /** Restores a persisted play count; regular playback uses {@link #incrementPlayCount()}. */
+    public void setPlayCount(int count) {
+        if (count < 0) throw new IllegalArgumentException("count must not be negative");
+        SongStore.setPlays(this, count);
+    }
 
     // ── Helpers ────────────────────────────────────────────────────────────────
 
@@ -55,9 +81,8 @@ public class Song {
      * Returns duration formatted as m:ss (e.g. "3:45").
      */
     public String getFormattedDuration() {
-        long mins = duration.toMinutes();
-        long secs = duration.toSecondsPart();
-        return String.format("%d:%02d", mins, secs);
+        int total = SongStore.seconds(this), sec = total % 60;
+        return (total / 60) + (sec < 10 ? ":0" : ":") + sec;
     }
 
     // ── Object overrides ───────────────────────────────────────────────────────
@@ -66,12 +91,12 @@ public class Song {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Song)) return false;
-        return id.equals(((Song) o).id);
+        return SongStore.idEquals(this, (Song) o);
     }
 
     @Override
-    public int hashCode() { return id.hashCode(); }
+    public int hashCode() { return SongStore.idHash(this); }
 
     @Override
-    public String toString() { return title + " — " + artist; }
+    public String toString() { return getTitle() + " — " + getArtist(); }
 }
@@ -0,0 +1,884 @@
+package com.musicapp.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Columnar backing store for {@link Song} data.
+ *
+ * <p>Instead of one object graph per track (a {@code Song}, a {@code Duration}
+ * and five {@code String}s), each attribute lives in its own array indexed by
+ * row.  Artist, album and genre are dictionary-encoded to {@code int} ids —
+ * every track of an album shares one entry — ids and titles are packed as UTF-8
+ * into a single byte heap, and year, duration, play count, favourite flag and
+ * measured loudness are primitives.  {@link Song} instances are thin views,
+ * one per row, created on first access and cached.  Recently decoded ids and
+ * titles are kept in a small direct-mapped cache, so repeated reads of the
+ * same rows do not allocate.</p>
+ *
+ * <p><strong>Concurrency.</strong> Writers are serialised on the store's monitor;
+ * readers never lock.  A row's descriptive columns are written exactly once,
+ * before the row becomes visible, and every structural change is published as
+ * an immutable {@link State} (array references, row count, dead-row set)
+ * through a volatile field.  A reader works against the state it loaded, so a
+ * listing is an atomic snapshot: re-adding an id appends a fresh row and
+ * retires the old one in the same publication rather than editing a visible
+ * row.  Id-table slots are written with release and read with acquire
+ * semantics, and a slot is only pointed at a row after that row is published.</p>
+ *
+ * <p>Rows are append-only, so iteration order is insertion order; re-adding an
+ * existing id behaves like remove-then-add and moves it to the end.  Retired
+ * rows stay readable through any view still holding them.  Once a quarter of
+ * the rows are retired the store compacts: live rows are copied into fresh
+ * columns under a new generation and their views are rebound, while views of
+ * retired rows move to small stores of their own.  A view's binding is one
+ * volatile (generation, row) word, so a reader never pairs a row with the
+ * wrong generation's columns.</p>
+ */
+public final class SongStore {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle VIEWS = MethodHandles.arrayElementVarHandle(Song[].class);
+
+    private static final int  EMPTY    = 0;
+    private static final int  DELETED  = -1;
+    private static final byte FAVORITE = 1;
+
+    /** Generation of single-row and retired-row stores, which never compact. */
+    private static final int DETACHED    = -1;
+    private static final int GRAVE_ROWS  = 64;
+    private static final int MIN_COMPACT = 64;
+    private static final int DECODED     = 1024;
+
+    /** Left in a views slot whose array has been replaced; readers reload and retry. */
+    private static final Song SEALED = new Song(null, 0L);
+
+    /** Immutable snapshot handed to readers; arrays may be shared with later states. */
+    private static final class State {
+        final Columns  cols;
+        final byte[]   text;
+        final int[]    slots;
+        final String[] artistNames, albumNames, genreNames;
+        final BitSet   dead;        // never mutated once published
+        final int      rows, live, gen;
+
+        State(SongStore s) {
+            cols = s.cols; text = s.text; slots = s.slots;
+            artistNames = s.artists.values; albumNames = s.albums.values; genreNames = s.genres.values;
+            dead = s.dead; rows = s.rows; live = s.live; gen = s.gen;
+        }
+
+        /** {@code s} reading from {@code c}, a copy of its columns. */
+        State(State s, Columns c) {
+            cols = c; text = s.text; slots = s.slots;
+            artistNames = s.artistNames; albumNames = s.albumNames; genreNames = s.genreNames;
+            dead = s.dead; rows = s.rows; live = s.live; gen = s.gen;
+        }
+    }
+
+    /**
+     * One array per attribute, all of the same capacity.  Row {@code r}'s text is
+     * {@code text[textOff[r], textOff[r + 1])}: a varint id length, the id, the title.
+     */
+    private static final class Columns {
+        final int[]    textOff;
+        final int[]    artist, album, genre;
+        final short[]  year;
+        final int[]    seconds, plays;
+        final float[]  loudness, peak;
+        final byte[]   flags;
+        final String[] filePath;
+        final Song[]   views;
+
+        Columns(int c) {
+            textOff = new int[c + 1];
+            artist = new int[c]; album = new int[c]; genre = new int[c];
+            year = new short[c]; seconds = new int[c]; plays = new int[c];
+            loudness = new float[c]; peak = new float[c];
+            flags = new byte[c]; filePath = new String[c]; views = new Song[c];
+        }
+
+        /** A copy with capacity {@code c}; views are moved separately (see {@link #moveViews}). */
+        Columns(Columns o, int c) {
+            textOff = Arrays.copyOf(o.textOff, c + 1);
+            artist = Arrays.copyOf(o.artist, c); album = Arrays.copyOf(o.album, c); genre = Arrays.copyOf(o.genre, c);
+            year = Arrays.copyOf(o.year, c); seconds = Arrays.copyOf(o.seconds, c); plays = Arrays.copyOf(o.plays, c);
+            loudness = Arrays.copyOf(o.loudness, c); peak = Arrays.copyOf(o.peak, c);
+            flags = Arrays.copyOf(o.flags, c); filePath = Arrays.copyOf(o.filePath, c); views = new Song[c];
+        }
+
+        int capacity() { return views.length; }
+    }
+
+    /** A decoded id or title and the (generation, row) it was decoded from. */
+    private static final class Decoded {
+        final long   at;
+        final String text;
+
+        Decoded(long at, String text) { this.at = at; this.text = text; }
+    }
+
+    private volatile State state;
+    private volatile State pending;             // the next generation while compact() rebinds views
+
+    private final Decoded[] ids, titles;        // direct-mapped by row; racy but entries are immutable
+
+    // ── Writer-side working copies (guarded by this) ───────────────────────────
+
+    private Columns cols;
+    private byte[]  text = new byte[64];
+    private int     textLen;
+    private int[]   slots = new int[8];
+    private int     slotsUsed;          // occupied + deleted
+    private BitSet  dead = new BitSet();
+    private int     rows, live, gen;
+
+    /** Slot writes held back until the batch's rows are published (slot → value). */
+    private final Map<Integer, Integer> deferred = new HashMap<>();
+
+    private Observer observer;
+
+    private Pool artists = new Pool();
+    private Pool albums  = new Pool();
+    private Pool genres  = new Pool();
+
+    /**
+     * Receives in-place changes to live rows (play count, favourite flag, file
+     * path, loudness).  Called on the mutating thread while the store's monitor is held,
+     * so implementations must only hand the change off, never block.
+     */
+    public interface Observer {
+        void playCountChanged(Song song, int playCount, int previous);
+        void favoriteChanged(Song song, boolean favorite);
+        void filePathChanged(Song song, String filePath);
+        void loudnessChanged(Song song, float lufs, float peak);
+    }
+
+    /** Songs given as raw fields, for {@link #load}; read once each, in order, under the store's monitor. */
+    public interface Source {
+        int  size();
+        void read(int i, Row row);
+    }
+
+    /**
+     * One song's fields as a {@link Source} hands them over.  The id and title
+     * arrive as UTF-8 bytes and are copied straight into the text heap; the
+     * artist, album and genre strings are interned, so a source that reuses
+     * one {@code String} per distinct name decodes each name once.
+     */
+    public static final class Row {
+        private byte[]  text = new byte[64];
+        private int     idLen, titleLen;
+        private String  artist, album, genre, filePath;
+        private int     year, seconds, plays;
+        private boolean favorite;
+        private float   loudness, peak;
+
+        /** Returns a buffer to fill with the UTF-8 id at 0 and the title right after it. */
+        public byte[] text(int idLength, int titleLength) {
+            if (idLength + titleLength > text.length) text = new byte[Math.max(idLength + titleLength, text.length * 2)];
+            idLen = idLength;
+            titleLen = titleLength;
+            return text;
+        }
+
+        public void tags(String artist, String album, String genre, int year, int seconds) {
+            this.artist = artist; this.album = album; this.genre = genre;
+            this.year = year; this.seconds = seconds;
+        }
+
+        public void state(String filePath, int plays, boolean favorite, float loudness, float peak) {
+            this.filePath = filePath; this.plays = plays; this.favorite = favorite;
+            this.loudness = loudness; this.peak = peak;
+        }
+    }
+
+    public SongStore() { this(16); }
+
+    public SongStore(int capacity) { this(capacity, 0, DECODED); }
+
+    private SongStore(int capacity, int gen, int decoded) {
+        cols = new Columns(Math.max(1, capacity));
+        this.gen = gen;
+        ids = new Decoded[decoded];
+        titles = new Decoded[decoded];
+        state = new State(this);
+    }
+
+    /** Binds {@code song} to a single-row store holding a song that is not (yet) in any library. */
+    static void detach(Song song, String id, String title, String artist, String album,
+                       String genre, int year, int seconds) {
+        byte[] idUtf8 = id.getBytes(StandardCharsets.UTF_8), titleUtf8 = title.getBytes(StandardCharsets.UTF_8);
+        SongStore s = new SongStore(1, DETACHED, 1);
+        synchronized (s) {
+            s.appendText(idUtf8, 0, idUtf8.length, titleUtf8, 0, titleUtf8.length);
+            s.writeAttrs(0, artist, album, genre, year, seconds, 0, (byte) 0, null, Float.NaN, Float.NaN);
+            s.rows = s.live = 1;
+            s.bindView(song, 0);
+            s.state = new State(s);
+        }
+    }
+
+    // ── Library operations ─────────────────────────────────────────────────────
+
+    /** Adopts one song; see {@link #adoptAll}.  Returns the view of the row it replaced, or {@code null}. */
+    public Song adopt(Song song) { return adoptAll(Collections.singletonList(song)).get(0); }
+
+    /**
+     * Copies each song's data into a new row of this store, publishes the rows
+     * as one state and rebinds each song as a view of its row.  If an id is
+     * already present its old row is retired in the same publication; the
+     * result holds that row's view (or {@code null}) at the song's position, and
+     * it keeps reading its old data.  A song that is already a live view of
+     * this store stays where it is and is reported as replacing itself.  Adopt
+     * songs before sharing them with other threads.
+     */
+    public synchronized List<Song> adoptAll(List<Song> batch) {
+        List<Song> retired = new ArrayList<>(batch.size());
+        for (Song song : batch) {
+            State ss;
+            long a;
+            SongStore src;
+            do { a = song.at(); src = song.store(); ss = stateFor(src, a); } while (ss == null);
+            int sr = row(a);
+            if (src == this && !dead.get(sr)) {
+                retired.add(song);
+                continue;
+            }
+            int h = hash(ss, sr);
+            int slot = slotOf(h, ss, sr);
+            int r = rows;
+            copyRow(ss, sr);
+            // Bound before publication, so no reader can race in a view of its own for the row
+            bindView(song, r);
+            place(h, slot, r, retired);
+        }
+        publish();
+        applyDeferred();
+        maybeCompact();
+        return retired;
+    }
+
+    /**
+     * Appends every song of {@code source} as a new row, as {@link #adoptAll}
+     * would, but without building a {@link Song} (and its single-row store) per
+     * record first.  The views of the new rows are added to {@code added}; the
+     * result holds the view each one replaced, or {@code null}.
+     */
+    public synchronized List<Song> load(Source source, List<Song> added) {
+        int n = source.size();
+        if (rows + n > cols.capacity()) resize(rows + n);
+        Row row = new Row();
+        List<Song> retired = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            source.read(i, row);
+            byte[] t = row.text;
+            int h = hash(t, 0, row.idLen);
+            int slot = slotOf(h, t, row.idLen);
+            int r = rows;
+            appendText(t, 0, row.idLen, t, row.idLen, row.titleLen);
+            writeAttrs(r, row.artist, row.album, row.genre, row.year, row.seconds, row.plays,
+                       row.favorite ? FAVORITE : 0, row.filePath, row.loudness, row.peak);
+            rows++;
+            live++;
+            added.add(viewOf(r));
+            place(h, slot, r, retired);
+        }
+        publish();
+        applyDeferred();
+        maybeCompact();
+        return retired;
+    }
+
+    /** Removes the row for {@code id}; returns its (still readable) view, or {@code null}. */
+    public Song remove(String id) { return removeAll(Collections.singletonList(id)).get(0); }
+
+    /**
+     * Retires the rows of every listed id in one publication; returns their
+     * (still readable) views, with {@code null} for ids that were not present.
+     */
+    public synchronized List<Song> removeAll(Collection<String> batch) {
+        List<Song> out = new ArrayList<>(batch.size());
+        for (String id : batch) {
+            byte[] b = id.getBytes(StandardCharsets.UTF_8);
+            int slot = slotOf(hash(b, 0, b.length), b, b.length);
+            int r = slot < 0 ? -1 : current(slot);
+            if (r < 0) {
+                out.add(null);
+                continue;
+            }
+            out.add(viewOf(r));
+            retire(r);
+            writeSlot(slot, DELETED);
+        }
+        publish();
+        applyDeferred();
+        maybeCompact();
+        return out;
+    }
+
+    public Song find(String id) {
+        byte[] b = id.getBytes(StandardCharsets.UTF_8);
+        int h = hash(b, 0, b.length);
+        retry:
+        for (;;) {
+            State s = state;
+            int g = s.gen;
+            int[] sl = s.slots;
+            int mask = sl.length - 1;
+            for (int i = spread(h) & mask; ; i = (i + 1) & mask) {
+                int v = (int) SLOTS.getAcquire(sl, i);
+                if (v == EMPTY) return null;
+                if (v == DELETED) continue;
+                int r = v - 1;
+                if (r >= s.rows) {              // the slot was released after the row was published
+                    s = state;
+                    if (s.gen != g) continue retry;
+                    if (r >= s.rows) continue;
+                }
+                if (idEquals(s, r, b, b.length)) {
+                    Song view = view(s, r);
+                    if (view == null) continue retry;
+                    return view;
+                }
+            }
+        }
+    }
+
+    /** All live songs in insertion order, as one consistent snapshot. */
+    public List<Song> songs() {
+        for (;;) {
+            State s = state;
+            List<Song> out = new ArrayList<>(s.live);
+            if (collect(s, out, false)) return out;
+        }
+    }
+
+    /** Live favourite songs in insertion order. */
+    public List<Song> favorites() {
+        for (;;) {
+            List<Song> out = new ArrayList<>();
+            if (collect(state, out, true)) return out;
+        }
+    }
+
+    public int size() { return state.live; }
+
+    public synchronized void setObserver(Observer observer) { this.observer = observer; }
+
+    /** Distinct artist / album / genre strings interned since the last compaction. */
+    public synchronized int artistCount() { return artists.size; }
+    public synchronized int albumCount()  { return albums.size; }
+    public synchronized int genreCount()  { return genres.size; }
+
+    /** Releases spare capacity; worth calling after a bulk import. */
+    public synchronized void trimToSize() {
+        text = Arrays.copyOf(text, textLen);
+        artists.trimToSize(); albums.trimToSize(); genres.trimToSize();
+        resize(Math.max(1, rows));
+        state = new State(this);
+    }
+
+    // ── Row accessors (used by Song views) ─────────────────────────────────────
+
+    private interface Column<T> { T get(SongStore store, State s, int r); }
+    private interface IntColumn { int get(State s, int r); }
+
+    /** Reads one column of {@code v}'s row, reloading the binding while a compaction moves it. */
+    private static <T> T read(Song v, Column<T> c) {
+        for (;;) {
+            long a = v.at();
+            SongStore st = v.store();
+            State s = stateFor(st, a);
+            if (s != null) return c.get(st, s, row(a));
+            Thread.onSpinWait();
+        }
+    }
+
+    private static int readInt(Song v, IntColumn c) {
+        for (;;) {
+            long a = v.at();
+            State s = stateFor(v.store(), a);
+            if (s != null) return c.get(s, row(a));
+            Thread.onSpinWait();
+        }
+    }
+
+    static String  id(Song v)       { return read(v, (st, s, r) -> st.decode(st.ids, s, r, true)); }
+    static String  title(Song v)    { return read(v, (st, s, r) -> st.decode(st.titles, s, r, false)); }
+    static String  artist(Song v)   { return read(v, (st, s, r) -> s.artistNames[s.cols.artist[r]]); }
+    static String  album(Song v)    { return read(v, (st, s, r) -> s.albumNames[s.cols.album[r]]); }
+    static String  genre(Song v)    { return read(v, (st, s, r) -> s.genreNames[s.cols.genre[r]]); }
+    static String  filePath(Song v) { return read(v, (st, s, r) -> s.cols.filePath[r]); }
+    static int     year(Song v)     { return readInt(v, (s, r) -> s.cols.year[r]); }
+    static int     seconds(Song v)  { return readInt(v, (s, r) -> s.cols.seconds[r]); }
+    static int     plays(Song v)    { return readInt(v, (s, r) -> s.cols.plays[r]); }
+    static boolean favorite(Song v) { return readInt(v, (s, r) -> s.cols.flags[r] & FAVORITE) != 0; }
+    static float   loudness(Song v) { return Float.intBitsToFloat(readInt(v, (s, r) -> Float.floatToRawIntBits(s.cols.loudness[r]))); }
+    static float   peak(Song v)     { return Float.intBitsToFloat(readInt(v, (s, r) -> Float.floatToRawIntBits(s.cols.peak[r]))); }
+    static int     idHash(Song v)   { return readInt(v, SongStore::hash); }
+
+    /** Compares the ids of two views, which may belong to different stores. */
+    static boolean idEquals(Song x, Song y) {
+        for (;;) {
+            long ax = x.at(), ay = y.at();
+            State sx = stateFor(x.store(), ax), sy = stateFor(y.store(), ay);
+            if (sx != null && sy != null) {
+                int rx = row(ax), ry = row(ay);
+                int ox = idStart(sx, rx), oy = idStart(sy, ry);
+                return Arrays.equals(sx.text, ox, ox + idLength(sx, rx), sy.text, oy, oy + idLength(sy, ry));
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // Mutable columns: written in place under the monitor, read racily (single
+    // int/byte/reference writes cannot tear).
+    private interface Mutation { void apply(SongStore store, Song view, int r); }
+
+    private static void mutate(Song v, Mutation m) {
+        for (;;) {
+            SongStore st = v.store();
+            synchronized (st) {
+                if (v.store() == st) {
+                    m.apply(st, v, row(v.at()));
+                    return;
+                }
+            }
+        }
+    }
+
+    static void incrementPlays(Song v) {
+        mutate(v, (st, w, r) -> {
+            int n = ++st.cols.plays[r];
+            if (st.notifies(r)) st.observer.playCountChanged(w, n, n - 1);
+        });
+    }
+
+    static void setPlays(Song v, int n) {
+        mutate(v, (st, w, r) -> {
+            int previous = st.cols.plays[r];
+            st.cols.plays[r] = n;
+            if (st.notifies(r)) st.observer.playCountChanged(w, n, previous);
+        });
+    }
+
+    static void setFilePath(Song v, String p) {
+        mutate(v, (st, w, r) -> {
+            st.cols.filePath[r] = p;
+            if (st.notifies(r)) st.observer.filePathChanged(w, p);
+        });
+    }
+
+    static void setLoudness(Song v, float lufs, float pk) {
+        mutate(v, (st, w, r) -> {
+            st.cols.loudness[r] = lufs;
+            st.cols.peak[r] = pk;
+            if (st.notifies(r)) st.observer.loudnessChanged(w, lufs, pk);
+        });
+    }
+
+    static void setFavorite(Song v, boolean f) {
+        mutate(v, (st, w, r) -> {
+            st.cols.flags[r] = (byte) (f ? st.cols.flags[r] | FAVORITE : st.cols.flags[r] & ~FAVORITE);
+            if (st.notifies(r)) st.observer.favoriteChanged(w, f);
+        });
+    }
+
+    // ── Internals ──────────────────────────────────────────────────────────────
+
+    private static long at(int gen, int row) { return (long) gen << 32 | (row & 0xFFFFFFFFL); }
+    private static int  gen(long at)         { return (int) (at >>> 32); }
+    private static int  row(long at)         { return (int) at; }
+
+    /**
+     * The state a view bound at {@code a} reads from: the published one, or the
+     * next generation while {@link #compact()} is rebinding.  Null means the
+     * binding was read mid-move; the caller reloads it.
+     */
+    private static State stateFor(SongStore st, long a) {
+        State s = st.state;
+        if (gen(a) == s.gen) return s;
+        s = st.pending;
+        return s != null && gen(a) == s.gen ? s : null;
+    }
+
+    /** The cached view of row {@code r} in {@code s}, or null if {@code s}'s views were moved. */
+    private Song view(State s, int r) {
+        Song[] views = s.cols.views;
+        Song v = (Song) VIEWS.getAcquire(views, r);
+        if (v == null) {
+            Song created = new Song(this, at(s.gen, r));
+            v = (Song) VIEWS.compareAndExchangeRelease(views, r, null, created);
+            if (v == null) return created;
+        }
+        return v == SEALED ? null : v;
+    }
+
+    /** Writer-side view of row {@code r}. */
+    private Song viewOf(int r) {
+        Song v = (Song) VIEWS.getAcquire(cols.views, r);
+        if (v != null) return v;
+        v = new Song(this, at(gen, r));
+        Song raced = (Song) VIEWS.compareAndExchangeRelease(cols.views, r, null, v);
+        return raced != null ? raced : v;
+    }
+
+    private void bindView(Song song, int r) {
+        song.bind(this, at(gen, r));
+        VIEWS.setRelease(cols.views, r, song);
+    }
+
+    private boolean collect(State s, List<Song> out, boolean favoritesOnly) {
+        for (int r = s.dead.nextClearBit(0); r < s.rows; r = s.dead.nextClearBit(r + 1)) {
+            if (favoritesOnly && (s.cols.flags[r] & FAVORITE) == 0) continue;
+            Song v = view(s, r);
+            if (v == null) return false;
+            out.add(v);
+        }
+        return true;
+    }
+
+    private boolean notifies(int r) { return observer != null && !dead.get(r); }
+
+    private String decode(Decoded[] cache, State s, int r, boolean id) {
+        long a = at(s.gen, r);
+        int i = r & (cache.length - 1);
+        Decoded d = cache[i];
+        if (d != null && d.at == a) return d.text;
+        int start = idStart(s, r), len = idLength(s, r);
+        String text = id ? new String(s.text, start, len, StandardCharsets.UTF_8)
+                         : new String(s.text, start + len, s.cols.textOff[r + 1] - start - len, StandardCharsets.UTF_8);
+        cache[i] = new Decoded(a, text);
+        return text;
+    }
+
+    private static int idLength(State s, int r) {
+        byte[] t = s.text;
+        int p = s.cols.textOff[r], n = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = t[p++];
+            n |= (b & 0x7F) << shift;
+            if (b >= 0) return n;
+        }
+    }
+
+    private static int idStart(State s, int r) {
+        int p = s.cols.textOff[r];
+        while (s.text[p] < 0) p++;
+        return p + 1;
+    }
+
+    private static int hash(State s, int r) {
+        int o = idStart(s, r);
+        return hash(s.text, o, o + idLength(s, r));
+    }
+
+    /** {@link String#hashCode()} of the bytes; equal to the id's own hash when it is ASCII. */
+    private static int hash(byte[] b, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) h = 31 * h + (b[i] & 0xFF);
+        return h;
+    }
+
+    private static boolean idEquals(State s, int r, byte[] id, int len) {
+        int o = idStart(s, r);
+        return Arrays.equals(s.text, o, o + idLength(s, r), id, 0, len);
+    }
+
+    /**
+     * Points the id's slot (-1 if the id is new) at staged row {@code r}, retiring
+     * the row it held; adds that row's view, or {@code null}, to {@code retired}.
+     */
+    private void place(int h, int slot, int r, List<Song> retired) {
+        if (slot < 0) {
+            retired.add(null);
+            insertSlot(h, r);
+        } else {
+            int old = current(slot);
+            retired.add(viewOf(old));
+            retire(old);
+            writeSlot(slot, r);
+        }
+    }
+
+    /** Marks row {@code r} dead; the set is copied once per batch because published states share it. */
+    private void retire(int r) {
+        if (dead == state.dead) dead = (BitSet) dead.clone();
+        dead.set(r);
+        live--;
+    }
+
+    private void publish() { state = new State(this); }
+
+    /** Stages a copy of row {@code sr} of {@code src} as row {@code rows}; not visible until published. */
+    private void copyRow(State src, int sr) {
+        Columns sc = src.cols;
+        int off = sc.textOff[sr], end = sc.textOff[sr + 1];
+        appendText(src.text, off, end - off, null, 0, 0);
+        writeAttrs(rows, src.artistNames[sc.artist[sr]], src.albumNames[sc.album[sr]], src.genreNames[sc.genre[sr]],
+                   sc.year[sr], sc.seconds[sr], sc.plays[sr], sc.flags[sr], sc.filePath[sr],
+                   sc.loudness[sr], sc.peak[sr]);
+        rows++;
+        live++;
+    }
+
+    /**
+     * Appends row {@code rows}'s text.  With a title it writes the id length
+     * first; without one, {@code head} is an already encoded row.
+     */
+    private void appendText(byte[] head, int headOff, int headLen, byte[] title, int titleOff, int titleLen) {
+        if (rows == cols.capacity()) resize(rows + (rows >> 1) + 1);
+        int need = (title != null ? 5 : 0) + headLen + titleLen;
+        if (textLen + need > text.length) text = Arrays.copyOf(text, Math.max(textLen + need, text.length + (text.length >> 1)));
+        int p = textLen;
+        if (title != null) {
+            for (int n = headLen; ; n >>>= 7) {
+                if (n < 0x80) { text[p++] = (byte) n; break; }
+                text[p++] = (byte) (n | 0x80);
+            }
+        }
+        System.arraycopy(head, headOff, text, p, headLen);
+        p += headLen;
+        if (title != null) System.arraycopy(title, titleOff, text, p, titleLen);
+        cols.textOff[rows] = textLen;
+        cols.textOff[rows + 1] = textLen = p + titleLen;
+    }
+
+    private void writeAttrs(int r, String ar, String al, String ge, int y, int sec,
+                            int pc, byte flags, String path, float lufs, float pk) {
+        Columns c = cols;
+        c.artist[r] = artists.intern(ar); c.album[r] = albums.intern(al); c.genre[r] = genres.intern(ge);
+        c.year[r] = (short) y; c.seconds[r] = sec; c.plays[r] = pc;
+        c.flags[r] = flags;
+        c.filePath[r] = path;
+        c.loudness[r] = lufs; c.peak[r] = pk;
+    }
+
+    /**
+     * Grows or shrinks the columns, moving every view into the new array, and
+     * republishes the current state over them so readers that find a moved
+     * view need not wait for the batch to finish.
+     */
+    private void resize(int capacity) {
+        Columns old = cols;
+        cols = new Columns(old, capacity);
+        moveViews(old.views, rows, null);
+        state = new State(state, cols);
+    }
+
+    /**
+     * Seals {@code from}'s first {@code n} slots one by one, moving each view to
+     * its new row ({@code moved[r]}, or {@code r} itself when null).  A reader
+     * racing to create a view in the old array finds the seal and retries
+     * against the new state, so no view is left behind.
+     */
+    private void moveViews(Song[] from, int n, int[] moved) {
+        Song[] to = cols.views;
+        for (int r = 0; r < n; r++) {
+            Song v = (Song) VIEWS.getAndSet(from, r, SEALED);
+            if (v != null && v != SEALED) VIEWS.setRelease(to, moved == null ? r : moved[r], v);
+        }
+    }
+
+    // ── Compaction ─────────────────────────────────────────────────────────────
+
+    private void maybeCompact() {
+        int retired = rows - live;
+        if (gen != DETACHED && rows >= MIN_COMPACT && retired * 4 > rows) compact();
+    }
+
+    /**
+     * Copies the live rows into fresh columns, a fresh text heap, id table and
+     * dictionaries under the next generation.  That state is staged in
+     * {@link #pending} while every view is rebound to it (live rows) or to a
+     * small detached store holding a copy of its row (retired rows), and only
+     * then published.
+     */
+    private void compact() {
+        State old = state;
+        Columns oc = cols;
+        int n = live, bytes = 0;
+        for (int r = old.dead.nextClearBit(0); r < old.rows; r = old.dead.nextClearBit(r + 1)) {
+            bytes += oc.textOff[r + 1] - oc.textOff[r];
+        }
+        cols = new Columns(Math.max(1, n + (n >> 3)));
+        text = new byte[Math.max(64, bytes)];
+        textLen = 0;
+        slots = new int[Integer.highestOneBit(Math.max(8, n * 2) - 1) << 1];
+        slotsUsed = 0;
+        dead = new BitSet();
+        rows = live = 0;
+        gen++;
+        artists = new Pool(); albums = new Pool(); genres = new Pool();
+
+        int[] moved = new int[old.rows];
+        for (int r = 0; r < old.rows; r++) {
+            if (old.dead.get(r)) {
+                moved[r] = -1;
+                continue;
+            }
+            moved[r] = rows;
+            copyRow(old, r);
+            insertSlot(hash(old, r), moved[r]);
+        }
+        State next = new State(this);
+        pending = next;
+
+        SongStore grave = null;
+        Song[] views = cols.views;
+        for (int r = 0; r < old.rows; r++) {
+            Song v = (Song) VIEWS.getAndSet(oc.views, r, SEALED);
+            if (v == null || v == SEALED) continue;
+            if (moved[r] >= 0) {
+                v.bind(this, at(gen, moved[r]));
+                VIEWS.setRelease(views, moved[r], v);
+            } else {
+                if (grave == null || grave.rows == GRAVE_ROWS) grave = new SongStore(GRAVE_ROWS, DETACHED, 1);
+                grave.take(old, r, v);
+            }
+        }
+        state = next;
+        pending = null;
+    }
+
+    /** Copies row {@code r} of {@code src} into this retired-row store and binds {@code v} to it. */
+    private synchronized void take(State src, int r, Song v) {
+        int row = rows;
+        copyRow(src, r);
+        bindView(v, row);
+        publish();
+    }
+
+    // ── Id hash table (open addressing, linear probing; writer side) ───────────
+
+    /** The slot holding the id of {@code src}'s row {@code sr}, or -1. */
+    private int slotOf(int h, State src, int sr) {
+        int o = idStart(src, sr);
+        byte[] id = Arrays.copyOfRange(src.text, o, o + idLength(src, sr));
+        return slotOf(h, id, id.length);
+    }
+
+    /** The slot holding the id {@code id[0, len)}, or -1. */
+    private int slotOf(int h, byte[] id, int len) {
+        State w = writerState();
+        int mask = slots.length - 1;
+        for (int i = spread(h) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+            int r = current(i);
+            if (r >= 0 && idEquals(w, r, id, len)) return i;
+        }
+        return -1;
+    }
+
+    /** The writer's unpublished view of its own arrays, for staged rows. */
+    private State writerState() { return new State(this); }
+
+    /** The live row slot {@code i} points at once deferred writes land, or -1. */
+    private int current(int i) {
+        Integer d = deferred.isEmpty() ? null : deferred.get(i);
+        int v = d != null ? d : slots[i];
+        return v > 0 && !dead.get(v - 1) ? v - 1 : -1;
+    }
+
+    /**
+     * Points slot {@code i} at row {@code r} (or marks it deleted).  While the
+     * table is shared with the published state and the slot still points at a
+     * published live row, the write waits for {@link #applyDeferred()} so
+     * readers keep finding that row until its replacement is visible.
+     */
+    private void writeSlot(int i, int r) {
+        int v = r == DELETED ? DELETED : r + 1;
+        if (slots == state.slots && slots[i] > 0 && slots[i] <= state.rows) deferred.put(i, v);
+        else SLOTS.setRelease(slots, i, v);
+    }
+
+    private void insertSlot(int h, int r) {
+        if ((slotsUsed + 1) * 4 > slots.length * 3) rehash(live * 2);
+        int mask = slots.length - 1;
+        int i = spread(h) & mask;
+        while (slots[i] != EMPTY) i = (i + 1) & mask;
+        SLOTS.setRelease(slots, i, r + 1);
+        slotsUsed++;
+    }
+
+    private void applyDeferred() {
+        for (Map.Entry<Integer, Integer> e : deferred.entrySet()) SLOTS.setRelease(slots, e.getKey(), e.getValue());
+        deferred.clear();
+    }
+
+    /**
+     * Builds a fresh table, with any deferred writes folded in.  It stays private
+     * to the writer until the next publication; readers keep the old one.
+     */
+    private void rehash(int minCapacity) {
+        int cap = Integer.highestOneBit(Math.max(8, minCapacity) - 1) << 1;
+        int[] fresh = new int[cap];
+        State w = writerState();
+        int used = 0;
+        for (int i = 0; i < slots.length; i++) {
+            Integer d = deferred.isEmpty() ? null : deferred.get(i);
+            int s = d != null ? d : slots[i];
+            if (s > 0) {
+                int j = spread(hash(w, s - 1)) & (cap - 1);
+                while (fresh[j] != EMPTY) j = (j + 1) & (cap - 1);
+                fresh[j] = s;
+                used++;
+            }
+        }
+        deferred.clear();
+        slots = fresh;
+        slotsUsed = used;
+    }
+
+    /**
+     * Scrambles a string hash before masking.  Ids and names are often numbered
+     * ("t1", "t2", …), whose hashes are consecutive and would otherwise fill
+     * runs of adjacent slots that every linear probe has to walk.
+     */
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // ── String dictionary ──────────────────────────────────────────────────────
+
+    /**
+     * Append-only string ↔ id dictionary over an open-addressing table.  Entries
+     * below {@code size} are never rewritten, so states can share
+     * {@code values} without copying.
+     */
+    private static final class Pool {
+        String[]    values = new String[4];
+        int         size;
+        private int[] table = new int[8];   // id + 1, 0 = empty
+
+        int intern(String s) {
+            int mask = table.length - 1;
+            int i = spread(s.hashCode()) & mask;
+            for (int v; (v = table[i]) != 0; i = (i + 1) & mask) {
+                if (values[v - 1].equals(s)) return v - 1;
+            }
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size] = s;
+            table[i] = ++size;
+            if (size * 4 > table.length * 3) grow();
+            return size - 1;
+        }
+
+        void trimToSize() { values = Arrays.copyOf(values, Math.max(1, size)); }
+
+        private void grow() {
+            int[] fresh = new int[table.length * 2];
+            int mask = fresh.length - 1;
+            for (int v : table) {
+                if (v == 0) continue;
+                int i = spread(values[v - 1].hashCode()) & mask;
+                while (fresh[i] != 0) i = (i + 1) & mask;
+                fresh[i] = v;
+            }
+            table = fresh;
+        }
+    }
+}
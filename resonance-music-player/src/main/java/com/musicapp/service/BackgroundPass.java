@@ -0,0 +1,86 @@
+package com.musicapp.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A daemon thread that repeats a pass over the library: once at
+ * {@link #start}, then again after {@link #wake} or every
+ * {@link #RECHECK_INTERVAL}, until {@link #stop}.  Used by the services that
+ * keep derived data (loudness, waveforms) current in the background.
+ */
+final class BackgroundPass {
+
+    /** How often a pass looks for songs added since the last one. */
+    static final Duration RECHECK_INTERVAL = Duration.ofMinutes(1);
+
+    private final String name;
+    private final int    priority;
+    private final Object signal = new Object();
+    private volatile boolean stopped;
+    private boolean          woken;                         // guarded by signal
+    private Thread           thread;
+
+    BackgroundPass(String name, int priority) {
+        this.name     = name;
+        this.priority = priority;
+    }
+
+    /** Runs {@code pass} on a new thread, at once and then after every wake-up. */
+    synchronized void start(Runnable pass) {
+        if (thread != null) throw new IllegalStateException("already started");
+        thread = new Thread(() -> {
+            while (!stopped) {
+                pass.run();
+                awaitWake();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.setPriority(priority);
+        thread.start();
+    }
+
+    /** Starts the next pass now, or as soon as the running one ends. */
+    void wake() {
+        synchronized (signal) {
+            woken = true;
+            signal.notifyAll();
+        }
+    }
+
+    /** True once {@link #stop} was called; a long pass should check it. */
+    boolean isStopped() { return stopped; }
+
+    /** Lets the running pass finish and starts no other. */
+    void stop() {
+        stopped = true;
+        wake();
+    }
+
+    /** Waits up to a second for the thread to end after {@link #stop}. */
+    void join() {
+        Thread t;
+        synchronized (this) { t = thread; }
+        if (t == null) return;
+        try {
+            t.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitWake() {
+        long deadline = System.nanoTime() + RECHECK_INTERVAL.toNanos();
+        synchronized (signal) {
+            try {
+                for (long left; !woken && !stopped && (left = deadline - System.nanoTime()) > 0; ) {
+                    TimeUnit.NANOSECONDS.timedWait(signal, left);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped = true;
+            }
+            woken = false;
+        }
+    }
+}
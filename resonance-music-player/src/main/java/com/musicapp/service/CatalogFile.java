@@ -0,0 +1,362 @@
+package com.musicapp.service;
+
+import com.musicapp.model.Playlist;
+import com.musicapp.model.Song;
+import com.musicapp.model.SongStore;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Compact binary snapshot of the library: songs, their play counts,
+ * favourite flags and measured loudness, and playlists.
+ *
+ * <p>{@link #open(Path)} maps the file read-only and validates the header;
+ * nothing else is parsed.  Songs are fixed-width records addressed by row, ids
+ * are resolved through an on-disk open-addressing hash table, and every string
+ * lives once in a shared UTF-8 string table, so a record is only decoded when
+ * {@link #song(int)} or {@link #find(String)} asks for it.  {@link #records()}
+ * feeds every record to a {@link SongStore} without decoding ids or titles at
+ * all.</p>
+ *
+ * <p>Layout (big-endian):</p>
+ * <pre>
+ *   header    MAGIC, version, songs, strings, playlists, slots, playlist offset, length,
+ *             journal generation
+ *   records   songs × RECORD bytes: id, title, artist, album, genre, path (string
+ *             indexes, -1 = none), id hash, seconds, plays, year, flags, pad,
+ *             loudness (LUFS), peak (floats, NaN = not analysed; version 2 and later)
+ *   slots     id hash table, row + 1 per occupied slot
+ *   strings   (strings + 1) start offsets, then the UTF-8 heap
+ *   playlists id, name, description, colour (string indexes), size, song rows
+ * </pre>
+ *
+ * <p>Version 1 files, whose records stop before the loudness, are still
+ * read; {@link #write} always writes the current version.</p>
+ *
+ * <p>{@link #write} stages the file next to its destination, forces it to disk
+ * and renames it into place, so a crash leaves either the old or the new
+ * catalog, never a partial one.  An open catalog is safe for concurrent
+ * readers.</p>
+ */
+public final class CatalogFile implements AutoCloseable {
+
+    static final long MAGIC   = 0x5253_4E43_4154_3031L;   // "RSNCAT01"
+    static final int  VERSION = 2;
+
+    private static final int HEADER    = 40;
+    private static final int RECORD    = 48;
+    private static final int RECORD_V1 = 40;
+    private static final int NONE   = -1;
+    private static final byte FAVORITE = 1;
+
+    private final FileChannel channel;
+    private final ByteBuffer  buf;
+    private final int songs, strings, playlists, slots, generation, record;
+    private final int slotBase, offsetBase, heapBase, playlistBase;
+
+    private CatalogFile(FileChannel channel, ByteBuffer buf) throws IOException {
+        this.channel = channel;
+        this.buf     = buf;
+        if (buf.capacity() < HEADER || buf.getLong(0) != MAGIC) throw new IOException("Not a catalog file");
+        int version = buf.getInt(8);
+        if (version != VERSION && version != 1) throw new IOException("Unsupported catalog version " + version);
+        record       = version == 1 ? RECORD_V1 : RECORD;
+        songs        = buf.getInt(12);
+        strings      = buf.getInt(16);
+        playlists    = buf.getInt(20);
+        slots        = buf.getInt(24);
+        playlistBase = buf.getInt(28);
+        if (buf.getInt(32) != buf.capacity()) throw new IOException("Truncated catalog file");
+        generation   = buf.getInt(36);
+        long heap = HEADER + (long) songs * record + slots * 4L + (strings + 1L) * 4;
+        if (songs < 0 || strings < 0 || slots < 0 || Integer.bitCount(slots) > 1 || (slots == 0) != (songs == 0)
+                || heap > playlistBase || playlistBase > buf.capacity()) {
+            throw new IOException("Corrupt catalog header");
+        }
+        slotBase   = HEADER + songs * record;
+        offsetBase = slotBase + slots * 4;
+        heapBase   = (int) heap;
+    }
+
+    /** Maps {@code file}; only the header is read. */
+    public static CatalogFile open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException("Catalog larger than 2 GB");
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new CatalogFile(ch, map);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    // ── Reading ────────────────────────────────────────────────────────────────
+
+    public int songCount()     { return songs; }
+    public int playlistCount() { return playlists; }
+
+    /** Last {@link Journal} generation already folded into this snapshot (0 if none). */
+    public int generation()    { return generation; }
+
+    /** Decodes row {@code row} into a new, detached {@link Song}. */
+    public Song song(int row) {
+        Objects.checkIndex(row, songs);
+        int r = HEADER + row * record;
+        Song s = new Song(string(buf.getInt(r)), string(buf.getInt(r + 4)), string(buf.getInt(r + 8)),
+                          string(buf.getInt(r + 12)), string(buf.getInt(r + 16)),
+                          buf.getShort(r + 36), Duration.ofSeconds(buf.getInt(r + 28)));
+        int path = buf.getInt(r + 20);
+        if (path != NONE) s.setFilePath(string(path));
+        s.setPlayCount(buf.getInt(r + 32));
+        s.setFavorite((buf.get(r + 38) & FAVORITE) != 0);
+        if (record >= RECORD) s.setLoudness(buf.getFloat(r + 40), buf.getFloat(r + 44));
+        return s;
+    }
+
+    /** Row holding {@code id}, or {@code -1}; touches only the probed records. */
+    public int find(String id) {
+        if (slots == 0) return -1;
+        int h = id.hashCode();
+        byte[] want = id.getBytes(StandardCharsets.UTF_8);
+        int mask = slots - 1;
+        for (int i = spread(h) & mask; ; i = (i + 1) & mask) {
+            int v = buf.getInt(slotBase + i * 4);
+            if (v == 0) return -1;
+            int r = HEADER + (v - 1) * record;
+            if (buf.getInt(r + 24) == h && stringEquals(buf.getInt(r), want)) return v - 1;
+        }
+    }
+
+    /** Every song, decoded in row order. */
+    public List<Song> songs() {
+        List<Song> out = new ArrayList<>(songs);
+        for (int i = 0; i < songs; i++) out.add(song(i));
+        return out;
+    }
+
+    /**
+     * Every song as a {@link SongStore.Source}, in row order: ids and titles are
+     * copied as UTF-8 straight out of the string table, and each artist, album
+     * and genre string is decoded once however many records share it.
+     */
+    public SongStore.Source records() {
+        ByteBuffer d = buf.duplicate();
+        Map<Integer, String> names = new HashMap<>();
+        Function<Integer, String> decode = this::string;
+        return new SongStore.Source() {
+            @Override public int size() { return songs; }
+
+            @Override public void read(int i, SongStore.Row row) {
+                int r = HEADER + i * record;
+                int id = buf.getInt(r), title = buf.getInt(r + 4);
+                int idAt = start(id), idLen = start(id + 1) - idAt;
+                int titleAt = start(title), titleLen = start(title + 1) - titleAt;
+                byte[] text = row.text(idLen, titleLen);
+                d.position(heapBase + idAt);
+                d.get(text, 0, idLen);
+                d.position(heapBase + titleAt);
+                d.get(text, idLen, titleLen);
+                row.tags(names.computeIfAbsent(buf.getInt(r + 8), decode),
+                         names.computeIfAbsent(buf.getInt(r + 12), decode),
+                         names.computeIfAbsent(buf.getInt(r + 16), decode),
+                         buf.getShort(r + 36), buf.getInt(r + 28));
+                int path = buf.getInt(r + 20);
+                boolean loud = record >= RECORD;
+                row.state(path == NONE ? null : string(path), buf.getInt(r + 32), (buf.get(r + 38) & FAVORITE) != 0,
+                          loud ? buf.getFloat(r + 40) : Float.NaN, loud ? buf.getFloat(r + 44) : Float.NaN);
+            }
+        };
+    }
+
+    /**
+     * Decodes the playlists, resolving each entry's id through {@code lookup}
+     * (typically the library the songs were loaded into); unresolved entries
+     * are dropped.
+     */
+    public List<Playlist> playlists(Function<String, Song> lookup) {
+        List<Playlist> out = new ArrayList<>(playlists);
+        int p = playlistBase;
+        for (int i = 0; i < playlists; i++) {
+            Playlist pl = new Playlist(string(buf.getInt(p)), string(buf.getInt(p + 4)),
+                                       string(buf.getInt(p + 8)), string(buf.getInt(p + 12)));
+            int n = buf.getInt(p + 16);
+            p += 20;
+            for (int j = 0; j < n; j++, p += 4) {
+                Song s = lookup.apply(string(buf.getInt(HEADER + buf.getInt(p) * record)));
+                if (s != null) pl.addSong(s);
+            }
+            out.add(pl);
+        }
+        return out;
+    }
+
+    /**
+     * Closes the channel.  The mapping itself is released when the buffer is
+     * garbage-collected; songs already decoded do not reference it.
+     */
+    @Override
+    public void close() throws IOException { channel.close(); }
+
+    /** Offset of string {@code index} in the heap; {@code start(index + 1)} is its end. */
+    private int start(int index) { return buf.getInt(offsetBase + index * 4); }
+
+    private String string(int index) {
+        if (index == NONE) return null;
+        int start = start(index), end = start(index + 1);
+        byte[] b = new byte[end - start];
+        ByteBuffer d = buf.duplicate();
+        d.position(heapBase + start);
+        d.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(int index, byte[] want) {
+        int start = start(index), end = start(index + 1);
+        if (end - start != want.length) return false;
+        for (int i = 0; i < want.length; i++) {
+            if (buf.get(heapBase + start + i) != want[i]) return false;
+        }
+        return true;
+    }
+
+    private static int spread(int h) { return h ^ (h >>> 16); }
+
+    // ── Writing ────────────────────────────────────────────────────────────────
+
+    /**
+     * Writes {@code songs} and {@code playlists} to {@code file}, atomically
+     * replacing any previous catalog.  Playlist entries that are not among
+     * {@code songs} are skipped.
+     */
+    public static void write(Path file, Collection<Song> songs, Collection<Playlist> playlists) throws IOException {
+        write(file, songs, playlists, 0);
+    }
+
+    /**
+     * As {@link #write(Path, Collection, Collection)}, recording that journal
+     * segments up to and including {@code generation} are reflected in it.
+     */
+    public static void write(Path file, Collection<Song> songs, Collection<Playlist> playlists,
+                             int generation) throws IOException {
+        Strings str = new Strings();
+        Map<String, Integer> rowOf = new HashMap<>(songs.size() * 2);
+        ByteBuffer records = ByteBuffer.allocate(songs.size() * RECORD);
+        for (Song s : songs) {
+            if (rowOf.putIfAbsent(s.getId(), rowOf.size()) != null) continue;
+            records.putInt(str.add(s.getId()))
+                   .putInt(str.add(s.getTitle()))
+                   .putInt(str.shared(s.getArtist()))
+                   .putInt(str.shared(s.getAlbum()))
+                   .putInt(str.shared(s.getGenre()))
+                   .putInt(s.getFilePath() == null ? NONE : str.add(s.getFilePath()))
+                   .putInt(s.getId().hashCode())
+                   .putInt(s.getDurationSeconds())
+                   .putInt(s.getPlayCount())
+                   .putShort((short) s.getYear())
+                   .put(s.isFavorite() ? FAVORITE : 0)
+                   .put((byte) 0)
+                   .putFloat(s.getLoudness())
+                   .putFloat(s.getPeak());
+        }
+        int n = rowOf.size();
+
+        int cap = n == 0 ? 0 : Integer.highestOneBit(Math.max(4, n * 2) - 1) << 1;
+        int[] table = new int[cap];
+        for (int row = 0; row < n; row++) {
+            int i = spread(records.getInt(row * RECORD + 24)) & (cap - 1);
+            while (table[i] != 0) i = (i + 1) & (cap - 1);
+            table[i] = row + 1;
+        }
+
+        ByteArrayOutputStream pls = new ByteArrayOutputStream();
+        DataOutputStream pout = new DataOutputStream(pls);
+        for (Playlist pl : playlists) {
+            List<Integer> rows = new ArrayList<>();
+            for (Song s : pl.getSongs()) {
+                Integer row = rowOf.get(s.getId());
+                if (row != null) rows.add(row);
+            }
+            pout.writeInt(str.shared(pl.getId()));
+            pout.writeInt(str.shared(pl.getName()));
+            pout.writeInt(pl.getDescription() == null ? NONE : str.shared(pl.getDescription()));
+            pout.writeInt(str.shared(pl.getCoverHexColor()));
+            pout.writeInt(rows.size());
+            for (int row : rows) pout.writeInt(row);
+        }
+
+        long heapBase     = HEADER + (long) n * RECORD + cap * 4L + (str.count() + 1) * 4L;
+        long playlistBase = heapBase + str.heap.size();
+        long length       = playlistBase + pls.size();
+        if (length > Integer.MAX_VALUE) throw new IOException("Catalog larger than 2 GB");
+
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(str.count());
+            out.writeInt(playlists.size());
+            out.writeInt(cap);
+            out.writeInt((int) playlistBase);
+            out.writeInt((int) length);
+            out.writeInt(generation);
+            out.write(records.array(), 0, n * RECORD);
+            for (int v : table) out.writeInt(v);
+            for (int i = 0; i < str.count(); i++) out.writeInt(str.offsets[i]);
+            out.writeInt(str.heap.size());
+            str.heap.writeTo(out);
+            pls.writeTo(out);
+            out.flush();
+            ch.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** String table under construction; repeated names are stored once. */
+    private static final class Strings {
+        final ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        final Map<String, Integer>  seen = new HashMap<>();
+        int[] offsets = new int[64];
+        int   size;
+
+        int add(String s) {
+            if (size == offsets.length) offsets = Arrays.copyOf(offsets, size * 2);
+            offsets[size] = heap.size();
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            heap.write(b, 0, b.length);
+            return size++;
+        }
+
+        int shared(String s) {
+            Integer i = seen.get(s);
+            if (i != null) return i;
+            int id = add(s);
+            seen.put(s, id);
+            return id;
+        }
+
+        int count() { return size; }
+    }
+}
@@ -0,0 +1,96 @@
+package com.musicapp.service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted multiset of one song attribute (genre, artist, …): each distinct
+ * value maps to the number of songs carrying it and their summed duration.
+ *
+ * <p>Backed by a {@link ConcurrentSkipListMap}, so adding or removing a song
+ * is {@code O(log n)} in the number of distinct values, a per-value lookup is
+ * {@code O(log n)}, and the sorted distinct values come straight off the
+ * map without streaming the catalogue.  A value disappears when its last
+ * song is removed.</p>
+ *
+ * <p>Writes must be externally serialised; reads take no lock.  Writes are
+ * summed per value and applied by {@link #publish()}, once per value per
+ * batch, each replacing the value's immutable {@link Facet}; a read sees
+ * every value either before or after a concurrent batch.</p>
+ */
+public final class FacetIndex {
+
+    /** Immutable summary of one facet value. */
+    public static final class Facet {
+        private final String name;
+        private final int    songCount;
+        private final long   totalSeconds;
+
+        Facet(String name, int songCount, long totalSeconds) {
+            this.name         = name;
+            this.songCount    = songCount;
+            this.totalSeconds = totalSeconds;
+        }
+
+        public String   getName()          { return name; }
+        public int      getSongCount()     { return songCount; }
+        public Duration getTotalDuration() { return Duration.ofSeconds(totalSeconds); }
+
+        @Override
+        public String toString() { return name + " (" + songCount + ")"; }
+    }
+
+    /** Net change to one value since the last publish. */
+    private static final class Delta {
+        int  count;
+        long seconds;
+    }
+
+    private final ConcurrentSkipListMap<String, Facet> values  = new ConcurrentSkipListMap<>();
+    private final Map<String, Delta>                   pending = new HashMap<>();   // writer side
+
+    // ── Mutation ───────────────────────────────────────────────────────────────
+
+    public void add(String value, int seconds) {
+        Delta d = pending.computeIfAbsent(value, k -> new Delta());
+        d.count++;
+        d.seconds += seconds;
+    }
+
+    public void remove(String value, int seconds) {
+        Delta d = pending.computeIfAbsent(value, k -> new Delta());
+        d.count--;
+        d.seconds -= seconds;
+    }
+
+    /** Applies the writes since the last call; call once after each batch. */
+    public void publish() {
+        for (Map.Entry<String, Delta> e : pending.entrySet()) {
+            String value = e.getKey();
+            Delta d = e.getValue();
+            if (d.count == 0 && d.seconds == 0) continue;
+            Facet f = values.get(value);
+            int count = (f == null ? 0 : f.songCount) + d.count;
+            if (count <= 0) {
+                values.remove(value);
+            } else {
+                values.put(value, new Facet(value, count, (f == null ? 0 : f.totalSeconds) + d.seconds));
+            }
+        }
+        pending.clear();
+    }
+
+    // ── Query ──────────────────────────────────────────────────────────────────
+
+    /** Distinct values in natural (case-sensitive) order. */
+    public List<String> values() { return new ArrayList<>(values.keySet()); }
+
+    /** Summary for {@code value}, or {@code null} if no song carries it. */
+    public Facet get(String value) { return values.get(value); }
+
+    /** Summaries for every value, sorted by value. */
+    public List<Facet> facets() { return new ArrayList<>(values.values()); }
+
+    public int size() { return values.size(); }
+}
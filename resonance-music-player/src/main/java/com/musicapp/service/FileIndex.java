@@ -0,0 +1,135 @@
+package com.musicapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fingerprints of the audio files the library was built from: size,
+ * modification time and a hash of the file's header, keyed by absolute path
+ * (which is also the song id).
+ *
+ * <p>{@link LibraryScanner} consults the index to skip files whose size and
+ * modification time are unchanged without opening them, and to skip re-reading
+ * tags when only the timestamp moved but the header is identical (a copy or a
+ * restore).  It is a cache: losing it only costs one full tag read.</p>
+ *
+ * <p>Persisted next to the catalog as a flat binary file (big-endian):</p>
+ * <pre>
+ *   MAGIC, entries, then per entry: path (modified UTF-8), size, mtime, header hash
+ * </pre>
+ *
+ * <p>Thread-safe; scanner workers and the watcher update it concurrently.</p>
+ */
+public final class FileIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FileIndex.class);
+
+    static final long MAGIC = 0x5253_4E49_4458_3031L;   // "RSNIDX01"
+
+    /** Immutable fingerprint of one file. */
+    public static final class Fingerprint {
+        private final long size;
+        private final long modified;
+        private final int  headerHash;
+
+        public Fingerprint(long size, long modified, int headerHash) {
+            this.size       = size;
+            this.modified   = modified;
+            this.headerHash = headerHash;
+        }
+
+        public long getSize()       { return size; }
+        /** Last-modified time in epoch milliseconds. */
+        public long getModified()   { return modified; }
+        public int  getHeaderHash() { return headerHash; }
+
+        /** Whether a file with these attributes is, as far as a stat can tell, unchanged. */
+        public boolean sameStat(long size, long modified) {
+            return this.size == size && this.modified == modified;
+        }
+    }
+
+    private final Map<String, Fingerprint> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    public Fingerprint get(String path) { return entries.get(path); }
+    public int size()                   { return entries.size(); }
+    /** Whether the index changed since it was loaded or last saved. */
+    public boolean isDirty()            { return dirty; }
+
+    public void put(String path, Fingerprint fp) {
+        entries.put(path, fp);
+        dirty = true;
+    }
+
+    public void remove(String path) {
+        if (entries.remove(path) != null) dirty = true;
+    }
+
+    /** Indexed paths equal to {@code path} or inside it, when it is a directory. */
+    public List<String> under(String path) {
+        String dir = path.endsWith(File.separator) ? path : path + File.separator;
+        List<String> out = new ArrayList<>();
+        for (String p : entries.keySet()) {
+            if (p.equals(path) || p.startsWith(dir)) out.add(p);
+        }
+        return out;
+    }
+
+    // ── Persistence ────────────────────────────────────────────────────────────
+
+    /** Loads {@code file}; a missing or unreadable index yields an empty one. */
+    public static FileIndex load(Path file) {
+        FileIndex index = new FileIndex();
+        if (!Files.exists(file)) return index;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readLong() != MAGIC) throw new IOException("not a file index");
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String path = in.readUTF();
+                index.entries.put(path, new Fingerprint(in.readLong(), in.readLong(), in.readInt()));
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring file index {}: {}; every file will be re-read", file, e.toString());
+            index.entries.clear();
+        }
+        return index;
+    }
+
+    /** Writes the index atomically (temp file, force, rename). */
+    public void save(Path file) throws IOException {
+        dirty = false;
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+            List<Map.Entry<String, Fingerprint>> snapshot = new ArrayList<>(entries.entrySet());
+            out.writeLong(MAGIC);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Fingerprint> e : snapshot) {
+                Fingerprint fp = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(fp.size);
+                out.writeLong(fp.modified);
+                out.writeInt(fp.headerHash);
+            }
+            out.flush();
+            ch.force(true);
+        } catch (IOException | RuntimeException e) {
+            dirty = true;
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
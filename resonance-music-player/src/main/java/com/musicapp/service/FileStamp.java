@@ -0,0 +1,25 @@
+package com.musicapp.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Size and modification time of a file, recorded with something derived
+ * from it so a later look can tell whether the file has changed since.
+ */
+final class FileStamp {
+
+    final long size, modified;
+
+    FileStamp(long size, long modified) { this.size = size; this.modified = modified; }
+
+    /** The current stamp of {@code file}. */
+    static FileStamp of(Path file) throws IOException {
+        BasicFileAttributes a = Files.readAttributes(file, BasicFileAttributes.class);
+        return new FileStamp(a.size(), a.lastModifiedTime().toMillis());
+    }
+
+    boolean matches(FileStamp o) { return o != null && size == o.size && modified == o.modified; }
+}
@@ -0,0 +1,250 @@
+package com.musicapp.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * N-gram index over the distinct words of the {@link SearchIndex} dictionary,
+ * used for substring and typo-tolerant lookups.
+ *
+ * <p>Each word is padded as {@code ^word$} and split into trigrams, and its
+ * single letters and letter pairs are added too; every gram maps to a posting
+ * list of word ids.  The words containing a one- or two-letter token are
+ * exactly that gram's postings.  Longer tokens are checked against the words
+ * in the shortest posting list among their trigrams.  A lookup counts trigram overlap
+ * per candidate word, discards words that cannot be within the edit-distance
+ * bound (each edit destroys at most three trigrams), and only then runs a
+ * banded Levenshtein on the survivors.  Because the index is over words rather
+ * than songs, its size tracks the vocabulary, not the catalogue.</p>
+ *
+ * <p>Writes must be externally serialised; lookups take no lock.  Word ids
+ * are handed out in increasing order and never reused, so the gram postings
+ * are append-only {@link Postings} and a removed word only leaves a null
+ * behind in the word table.  Once half the ids are dead the dictionary is
+ * rebuilt and published whole through a volatile field; a lookup keeps the
+ * one it started with.  Scratch buffers are thread-local.</p>
+ */
+final class FuzzyIndex {
+
+    /** Similarity of an exact word match; typos and prefix-only matches score lower. */
+    static final float EXACT = 1.0f;
+
+    private static final int MIN_REBUILD = 64;
+
+    /** Words by id and the gram postings over them; appended to in place, replaced by a rebuild. */
+    private static final class Dict {
+        final Map<String, Postings> grams = new ConcurrentHashMap<>();
+        volatile String[] words = new String[16];   // null once removed
+        volatile int      count;                    // ids handed out; read before words
+
+        void add(String word) {
+            int id = count;
+            if (id == words.length) words = Arrays.copyOf(words, id * 2);
+            words[id] = word;
+            count = id + 1;
+            // A repeated gram finds this id already at the tail of its list
+            String padded = "^" + word + "$";
+            for (int i = 0; i + 3 <= padded.length(); i++) gram(padded.substring(i, i + 3), id);
+            for (int i = 0; i < word.length(); i++) {
+                gram(word.substring(i, i + 1), id);
+                if (i + 2 <= word.length()) gram(word.substring(i, i + 2), id);
+            }
+        }
+
+        private void gram(String g, int id) {
+            Postings p = grams.get(g);
+            if (p == null) {
+                p = new Postings();
+                grams.put(g, p);
+            }
+            p.appendIfNew(id);
+        }
+    }
+
+    private final Map<String, Integer> wordIds = new HashMap<>();   // writer side
+    private int                        deadIds;
+    private volatile Dict              dict    = new Dict();
+
+    /** Buffers reused across lookups on one thread. */
+    private static final class Scratch {
+        int[] overlap = new int[16];
+        int[] touched = new int[16];
+        int[] prevRow = new int[32];
+        int[] currRow = new int[32];
+    }
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    // ── Mutation ───────────────────────────────────────────────────────────────
+
+    void addWord(String word) {
+        if (wordIds.containsKey(word)) return;
+        Dict d = dict;
+        wordIds.put(word, d.count);
+        d.add(word);
+    }
+
+    void removeWord(String word) {
+        Integer id = wordIds.remove(word);
+        if (id == null) return;
+        Dict d = dict;
+        d.words[id] = null;
+        for (String g : grams(word)) {
+            Postings p = d.grams.get(g);
+            if (++p.dead == p.size) d.grams.remove(g);
+        }
+        if (++deadIds >= MIN_REBUILD && deadIds * 2 > d.count) rebuild(d);
+    }
+
+    /** Renumbers the live words into a fresh dictionary and publishes it. */
+    private void rebuild(Dict d) {
+        Dict next = new Dict();
+        String[] words = d.words;
+        for (int id = 0; id < d.count; id++) {
+            if (words[id] == null) continue;
+            wordIds.put(words[id], next.count);
+            next.add(words[id]);
+        }
+        deadIds = 0;
+        dict = next;
+    }
+
+    // ── Lookup ─────────────────────────────────────────────────────────────────
+
+    /** Every dictionary word that contains the lower-cased {@code token}. */
+    List<String> containing(String token) {
+        Dict d = dict;
+        List<String> out = new ArrayList<>();
+        Postings best = null;
+        if (token.length() <= 2) {
+            best = d.grams.get(token);
+        } else {
+            for (int i = 0; i + 3 <= token.length(); i++) {
+                Postings p = d.grams.get(token.substring(i, i + 3));
+                if (p == null) return out;
+                if (best == null || p.size < best.size) best = p;
+            }
+        }
+        if (best == null) return out;
+        boolean verify = token.length() > 3;
+        int n = best.size;
+        int[] ids = best.ids;
+        String[] words = d.words;
+        for (int i = 0; i < n; i++) {
+            String w = words[ids[i]];
+            if (w != null && (!verify || w.contains(token))) out.add(w);
+        }
+        return out;
+    }
+
+    /**
+     * Returns every dictionary word similar to the lower-cased {@code token},
+     * mapped to a similarity in {@code (0, 1]}.  A word matches if it is within
+     * the edit-distance bound of the whole token, or if some prefix of it is
+     * (so a partially typed word still finds its completion, at a discount).
+     */
+    Map<String, Float> match(String token) {
+        int k = maxEdits(token.length());
+        Set<String> qGrams = trigrams(token);
+        // Overlap a candidate needs: each edit can remove three trigrams, and a
+        // prefix match additionally loses the token's end-padded trigram.
+        int need = Math.max(1, qGrams.size() - 3 * k - 1);
+
+        Dict d = dict;
+        int count = d.count;                            // words added after this are skipped
+        Scratch sc = scratch.get();
+        if (sc.overlap.length < count) {
+            sc.overlap = new int[count * 2];
+            sc.touched = new int[count * 2];
+        }
+        int[] overlap = sc.overlap, touched = sc.touched;
+        int nTouched = 0;
+        for (String g : qGrams) {
+            Postings p = d.grams.get(g);
+            if (p == null) continue;
+            int n = p.size;
+            int[] ids = p.ids;
+            for (int i = 0; i < n && ids[i] < count; i++) {
+                int id = ids[i];
+                if (overlap[id]++ == 0) touched[nTouched++] = id;
+            }
+        }
+
+        String[] words = d.words;
+        Map<String, Float> out = new HashMap<>();
+        for (int i = 0; i < nTouched; i++) {
+            int id = touched[i];
+            int shared = overlap[id];
+            overlap[id] = 0;
+            if (shared < need) continue;
+            String w = words[id];
+            if (w == null || w.length() < token.length() - k) continue;
+            float sim = similarity(sc, token, w, k);
+            if (sim > 0) out.put(w, sim);
+        }
+        return out;
+    }
+
+    /** Edit budget grows with token length so short tokens stay precise. */
+    static int maxEdits(int len) {
+        return len <= 2 ? 0 : len <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Banded Levenshtein of {@code q} against {@code w} and against every prefix
+     * of {@code w}; returns 0 if neither is within {@code k}.  Only the cells
+     * with {@code |i - j| <= k} are computed: any cell further off the diagonal
+     * already costs more than {@code k} edits, so it is held at {@code k + 1}.
+     */
+    private static float similarity(Scratch sc, String q, String w, int k) {
+        int n = q.length(), m = w.length(), far = k + 1;
+        if (sc.currRow.length <= m + 1) {
+            sc.prevRow = new int[m * 2 + 2];
+            sc.currRow = new int[m * 2 + 2];
+        }
+        int[] prev = sc.prevRow, curr = sc.currRow;
+        for (int j = 0; j <= Math.min(m, far); j++) prev[j] = Math.min(j, far);
+        int lo = 1, hi = Math.min(m, k);
+        for (int i = 1; i <= n; i++) {
+            lo = Math.max(1, i - k);
+            hi = Math.min(m, i + k);
+            curr[lo - 1] = lo == 1 ? Math.min(i, far) : far;
+            int rowMin = curr[lo - 1];
+            char qc = q.charAt(i - 1);
+            for (int j = lo; j <= hi; j++) {
+                int cost = qc == w.charAt(j - 1) ? 0 : 1;
+                int v = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                curr[j] = Math.min(v, far);
+                if (v < rowMin) rowMin = v;
+            }
+            if (hi < m) curr[hi + 1] = far;             // the next row's upper neighbour
+            if (rowMin > k) return 0;
+            int[] t = prev; prev = curr; curr = t;
+        }
+        // Row n is defined on [lo - 1, hi]; the rest lies outside the band
+        int full = m >= lo - 1 && m <= hi ? prev[m] : far;
+        int prefix = far;
+        for (int j = Math.max(0, lo - 1); j <= Math.min(m - 1, hi); j++) if (prev[j] < prefix) prefix = prev[j];
+
+        if (full <= k) return EXACT - 0.2f * full;
+        if (prefix <= k) return 0.8f - 0.2f * prefix;
+        return 0;
+    }
+
+    /** The padded trigrams plus every single letter and letter pair of {@code word}. */
+    private static Set<String> grams(String word) {
+        Set<String> out = trigrams(word);
+        for (int i = 0; i < word.length(); i++) {
+            out.add(word.substring(i, i + 1));
+            if (i + 2 <= word.length()) out.add(word.substring(i, i + 2));
+        }
+        return out;
+    }
+
+    private static Set<String> trigrams(String word) {
+        String padded = "^" + word + "$";
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) out.add(padded.substring(i, i + 3));
+        return out;
+    }
+}
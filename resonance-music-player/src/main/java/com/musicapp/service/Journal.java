@@ -0,0 +1,404 @@
+package com.musicapp.service;
+
+import com.musicapp.model.Playlist;
+import com.musicapp.model.Song;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of library mutations, kept next to the
+ * {@link CatalogFile} snapshot as numbered segment files
+ * ({@code library.rcat.000007.wal}).
+ *
+ * <p>Every record states the <em>resulting</em> value (a play count, the full
+ * song list of a playlist), never a delta, so replaying a record over a
+ * snapshot that already contains it is harmless.  That is what makes
+ * compaction simple: {@link #rotate()} switches to a fresh segment, the caller
+ * writes a snapshot tagged with the closed generation, and
+ * {@link #deleteThrough(int)} drops the segments it covers.</p>
+ *
+ * <p>Appending only encodes the record and queues it; a single
+ * {@code journal-writer} thread drains whatever has accumulated, writes it
+ * with one call and forces it once (group commit).  Callers on the EDT or the
+ * playback thread therefore never wait for the disk.  Each frame carries its
+ * length and a CRC32, and replay stops at — and truncates — the first frame
+ * that is short or fails its checksum, so a crash mid-write loses at most the
+ * unforced tail and never corrupts earlier records.</p>
+ */
+public final class Journal implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(Journal.class);
+
+    private static final byte SONG_PUT        = 1;
+    private static final byte SONG_REMOVE     = 2;
+    private static final byte PLAY_COUNT      = 3;
+    private static final byte FAVORITE        = 4;
+    private static final byte FILE_PATH       = 5;
+    private static final byte PLAYLIST_PUT    = 6;
+    private static final byte PLAYLIST_REMOVE = 7;
+    private static final byte LOUDNESS        = 8;
+
+    private static final int FRAME_HEADER = 8;   // payload length, CRC32 of payload
+
+    /** Receives replayed records, oldest first. */
+    public interface Handler {
+        void putSong(Song song);
+        void removeSong(String id);
+        void playCount(String id, int count);
+        void favorite(String id, boolean favorite);
+        void filePath(String id, String path);
+        void loudness(String id, float lufs, float peak);
+        void putPlaylist(String id, String name, String description, String color, List<String> songIds);
+        void removePlaylist(String id);
+    }
+
+    private final Path     dir;
+    private final String   base;
+    private final long     rotateBytes;
+    private final Runnable onFull;
+    private final int      replayed;
+    private final Thread   writer;
+
+    // Segment state, guarded by io
+    private final Object io = new Object();
+    private FileChannel channel;
+    private int         generation;
+    private long        segmentBytes;
+    private boolean     fullSignalled;
+
+    // Pending records, guarded by this
+    private List<byte[]> pending = new ArrayList<>();
+    private long         appended;
+    private boolean      closed;
+
+    // Group-commit progress, guarded by durable
+    private final Object durable = new Object();
+    private long         durableCount;
+    private IOException  failure;
+
+    private Journal(Path catalog, int generation, int replayed, long rotateBytes, Runnable onFull) throws IOException {
+        this.dir         = catalog.toAbsolutePath().getParent();
+        this.base        = catalog.getFileName().toString();
+        this.generation  = generation;
+        this.replayed    = replayed;
+        this.rotateBytes = rotateBytes;
+        this.onFull      = onFull;
+        this.channel     = openSegment(generation);
+        this.writer      = new Thread(this::drain, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Replays every segment newer than {@code covered} (the generation the
+     * loaded snapshot already contains) into {@code handler}, deletes the older
+     * ones, and starts a new segment for appends.  {@code onFull} runs on the
+     * writer thread once the current segment exceeds {@code rotateBytes}; it
+     * should only schedule a compaction.
+     */
+    public static Journal open(Path catalog, int covered, Handler handler,
+                               long rotateBytes, Runnable onFull) throws IOException {
+        Path dir = catalog.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        String base = catalog.getFileName().toString();
+        int last = covered, count = 0;
+        for (Map.Entry<Integer, Path> seg : segments(dir, base).entrySet()) {
+            if (seg.getKey() <= covered) {
+                Files.delete(seg.getValue());
+            } else {
+                count += replay(seg.getValue(), handler);
+                last = seg.getKey();
+            }
+        }
+        return new Journal(catalog, last + 1, count, rotateBytes, onFull);
+    }
+
+    /** Number of records applied by {@link #open}. */
+    public int replayed() { return replayed; }
+
+    // ── Records ────────────────────────────────────────────────────────────────
+
+    public void putSong(Song s) {
+        append(SONG_PUT, out -> {
+            out.writeUTF(s.getId());
+            out.writeUTF(s.getTitle());
+            out.writeUTF(s.getArtist());
+            out.writeUTF(s.getAlbum());
+            out.writeUTF(s.getGenre());
+            out.writeInt(s.getYear());
+            out.writeInt(s.getDurationSeconds());
+            out.writeInt(s.getPlayCount());
+            out.writeBoolean(s.isFavorite());
+            writeNullable(out, s.getFilePath());
+        });
+        if (s.isLoudnessAnalyzed()) loudness(s.getId(), s.getLoudness(), s.getPeak());
+    }
+
+    public void removeSong(String id)                 { append(SONG_REMOVE, out -> out.writeUTF(id)); }
+    public void playCount(String id, int count)       { append(PLAY_COUNT, out -> { out.writeUTF(id); out.writeInt(count); }); }
+    public void favorite(String id, boolean favorite) { append(FAVORITE, out -> { out.writeUTF(id); out.writeBoolean(favorite); }); }
+    public void filePath(String id, String path)      { append(FILE_PATH, out -> { out.writeUTF(id); writeNullable(out, path); }); }
+    public void removePlaylist(String id)             { append(PLAYLIST_REMOVE, out -> out.writeUTF(id)); }
+
+    public void loudness(String id, float lufs, float peak) {
+        append(LOUDNESS, out -> { out.writeUTF(id); out.writeFloat(lufs); out.writeFloat(peak); });
+    }
+
+    /** Records the playlist's current state; call on the thread that mutated it. */
+    public void putPlaylist(Playlist p) {
+        List<Song> songs = p.getSongs();
+        String[] ids = new String[songs.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = songs.get(i).getId();
+        String id = p.getId(), name = p.getName(), desc = p.getDescription(), color = p.getCoverHexColor();
+        append(PLAYLIST_PUT, out -> {
+            out.writeUTF(id);
+            out.writeUTF(name);
+            writeNullable(out, desc);
+            out.writeUTF(color);
+            out.writeInt(ids.length);
+            for (String sid : ids) out.writeUTF(sid);
+        });
+    }
+
+    private interface Body { void write(DataOutputStream out) throws IOException; }
+
+    /** Encodes on the calling thread and queues; never touches the disk. */
+    private void append(byte type, Body body) {
+        byte[] frame;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            body.write(out);
+            frame = bytes.toByteArray();
+        } catch (IOException e) {
+            log.warn("Journal record {} could not be encoded and was skipped", type, e);
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(frame, FRAME_HEADER, frame.length - FRAME_HEADER);
+        ByteBuffer.wrap(frame).putInt(frame.length - FRAME_HEADER).putInt((int) crc.getValue());
+        synchronized (this) {
+            if (closed) return;
+            pending.add(frame);
+            appended++;
+            if (pending.size() == 1) notify();
+        }
+    }
+
+    // ── Durability / segments ──────────────────────────────────────────────────
+
+    /** Blocks until every record appended before this call is on disk. */
+    public void sync() throws IOException {
+        long target;
+        synchronized (this) { target = appended; }
+        synchronized (durable) {
+            while (durableCount < target && failure == null) {
+                try {
+                    durable.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for journal");
+                }
+            }
+            if (failure != null) throw new IOException("Journal write failed", failure);
+        }
+    }
+
+    /**
+     * Writes out pending records, closes the current segment and starts the
+     * next one.  Returns the closed segment's generation: a snapshot taken
+     * after this call reflects every record in it and in all earlier segments.
+     */
+    public int rotate() throws IOException {
+        sync();
+        synchronized (io) {
+            FileChannel next = openSegment(generation + 1);
+            channel.close();
+            channel = next;
+            segmentBytes = 0;
+            fullSignalled = false;
+            return generation++;
+        }
+    }
+
+    /** Deletes segments up to and including {@code gen}, once a snapshot covers them. */
+    public void deleteThrough(int gen) throws IOException {
+        for (Map.Entry<Integer, Path> seg : segments(dir, base).entrySet()) {
+            if (seg.getKey() <= gen) Files.deleteIfExists(seg.getValue());
+        }
+    }
+
+    /** Writes out everything appended so far and stops the writer; later appends are ignored. */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notify();
+        }
+        try {
+            writer.join(Duration.ofSeconds(10).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (io) { channel.close(); }
+        synchronized (durable) {
+            if (failure != null) throw new IOException("Journal write failed", failure);
+        }
+    }
+
+    /** Writer loop: one write and one force per accumulated batch. */
+    private void drain() {
+        while (true) {
+            List<byte[]> batch;
+            long upTo;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) return;
+                batch   = pending;
+                pending = new ArrayList<>();
+                upTo    = appended;
+            }
+            int size = 0;
+            for (byte[] f : batch) size += f.length;
+            ByteBuffer buf = ByteBuffer.allocate(size);
+            for (byte[] f : batch) buf.put(f);
+            buf.flip();
+
+            boolean full = false;
+            IOException error = null;
+            synchronized (io) {
+                try {
+                    while (buf.hasRemaining()) channel.write(buf);
+                    channel.force(false);
+                    segmentBytes += size;
+                    if (segmentBytes >= rotateBytes && !fullSignalled) full = fullSignalled = true;
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            if (error != null) log.error("Journal write of {} records failed", batch.size(), error);
+            synchronized (durable) {
+                if (error != null && failure == null) failure = error;
+                durableCount = upTo;
+                durable.notifyAll();
+            }
+            if (full) onFull.run();
+        }
+    }
+
+    private FileChannel openSegment(int gen) throws IOException {
+        return FileChannel.open(dir.resolve(String.format("%s.%06d.wal", base, gen)),
+                                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static SortedMap<Integer, Path> segments(Path dir, String base) throws IOException {
+        SortedMap<Integer, Path> out = new TreeMap<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, base + ".*.wal")) {
+            for (Path p : ds) {
+                String n = p.getFileName().toString();
+                String gen = n.substring(base.length() + 1, n.length() - 4);
+                try {
+                    out.put(Integer.parseInt(gen), p);
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring unexpected journal file {}", p);
+                }
+            }
+        }
+        return out;
+    }
+
+    // ── Replay ─────────────────────────────────────────────────────────────────
+
+    private static int replay(Path seg, Handler h) throws IOException {
+        byte[] data = Files.readAllBytes(seg);
+        ByteBuffer b = ByteBuffer.wrap(data);
+        int pos = 0, count = 0;
+        CRC32 crc = new CRC32();
+        while (data.length - pos >= FRAME_HEADER) {
+            int len = b.getInt(pos);
+            if (len <= 0 || len > data.length - pos - FRAME_HEADER) break;
+            crc.reset();
+            crc.update(data, pos + FRAME_HEADER, len);
+            if ((int) crc.getValue() != b.getInt(pos + 4)) break;
+            try {
+                apply(new DataInputStream(new ByteArrayInputStream(data, pos + FRAME_HEADER, len)), h);
+            } catch (IOException e) {
+                log.warn("Unreadable journal record in {} at {}", seg, pos, e);
+                break;
+            }
+            pos += FRAME_HEADER + len;
+            count++;
+        }
+        if (pos < data.length) {
+            log.warn("Discarding {} torn bytes at the end of {}", data.length - pos, seg);
+            try (FileChannel ch = FileChannel.open(seg, StandardOpenOption.WRITE)) {
+                ch.truncate(pos);
+            }
+        }
+        return count;
+    }
+
+    private static void apply(DataInputStream in, Handler h) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case SONG_PUT: {
+                Song s = new Song(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                                  in.readInt(), Duration.ofSeconds(in.readInt()));
+                s.setPlayCount(in.readInt());
+                s.setFavorite(in.readBoolean());
+                s.setFilePath(readNullable(in));
+                h.putSong(s);
+                break;
+            }
+            case SONG_REMOVE:  h.removeSong(in.readUTF()); break;
+            case PLAY_COUNT:   h.playCount(in.readUTF(), in.readInt()); break;
+            case FAVORITE:     h.favorite(in.readUTF(), in.readBoolean()); break;
+            case FILE_PATH:    h.filePath(in.readUTF(), readNullable(in)); break;
+            case LOUDNESS:     h.loudness(in.readUTF(), in.readFloat(), in.readFloat()); break;
+            case PLAYLIST_PUT: {
+                String id = in.readUTF(), name = in.readUTF(), desc = readNullable(in), color = in.readUTF();
+                int n = in.readInt();
+                List<String> ids = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) ids.add(in.readUTF());
+                h.putPlaylist(id, name, desc, color, ids);
+                break;
+            }
+            case PLAYLIST_REMOVE: h.removePlaylist(in.readUTF()); break;
+            default: throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,381 @@
+package com.musicapp.service;
+
+import com.musicapp.model.Song;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Imports audio files from a directory tree into the library.
+ *
+ * <p>The calling thread walks the tree and hands each candidate file (by
+ * extension) to a fixed pool of workers through a bounded queue; when the
+ * queue is full the walker parses the file itself, which throttles the walk
+ * to the speed of the workers instead of buffering the whole tree.  Workers
+ * read tags with a per-thread {@link TagReader} and collect songs into
+ * batches that are handed to the sink — by default
+ * {@link MusicLibrary#addSongs} — so the library's write lock is taken once
+ * per batch rather than once per file.</p>
+ *
+ * <p>A song's id is its absolute, normalised path, so scanning the same tree
+ * twice replaces rather than duplicates.  Missing tags fall back to the file
+ * name for the title and "Unknown Artist" for the artist.</p>
+ *
+ * <p>Given a {@link FileIndex} the scan is incremental.  A file whose size and
+ * modification time match its fingerprint, and whose song is still in the
+ * library, is skipped on the walker thread without being opened.  Otherwise
+ * a worker hashes the file's header first and only re-reads the tags if the
+ * size or the hash changed.  Files that have vanished from a directory the
+ * walk listed are removed from the library.  Files that fail to parse get no
+ * fingerprint, so they are retried next time (they may still have been
+ * copying).</p>
+ *
+ * <p>Removal is conservative.  Nothing is removed when the root cannot be
+ * listed, under a directory that failed to list, or when the root yields no
+ * audio files at all even though the index has entries under it.  An
+ * unmounted share usually looks like an empty mount point, so an empty root
+ * is treated as offline.</p>
+ */
+public class LibraryScanner {
+
+    private static final Logger log = LoggerFactory.getLogger(LibraryScanner.class);
+
+    /** File extensions the scanner opens; everything else is skipped unread. */
+    static final Set<String> EXTENSIONS = Set.of("wav", "wave", "aif", "aiff", "aifc", "mp3", "flac", "ogg", "oga", "opus");
+
+    static final String UNKNOWN_ARTIST = "Unknown Artist";
+
+    /** Immutable progress / result snapshot. */
+    public static final class Stats {
+        private final long filesSeen, imported, failed, unchanged, removed, bytesTotal, bytesRead, elapsedNanos;
+
+        Stats(long filesSeen, long imported, long failed, long unchanged, long removed,
+              long bytesTotal, long bytesRead, long elapsedNanos) {
+            this.filesSeen = filesSeen; this.imported = imported; this.failed = failed;
+            this.unchanged = unchanged; this.removed = removed;
+            this.bytesTotal = bytesTotal; this.bytesRead = bytesRead; this.elapsedNanos = elapsedNanos;
+        }
+
+        /** Candidate audio files found so far. */
+        public long getFilesSeen()    { return filesSeen; }
+        public long getImported()     { return imported; }
+        /** Unreadable or unrecognised files. */
+        public long getFailed()       { return failed; }
+        /** Files an incremental scan skipped because their fingerprint matched. */
+        public long getUnchanged()    { return unchanged; }
+        /** Songs removed because their file disappeared. */
+        public long getRemoved()      { return removed; }
+        /** Combined size of the processed files. */
+        public long getBytesTotal()   { return bytesTotal; }
+        /** Bytes actually read from disk (headers and tags only). */
+        public long getBytesRead()    { return bytesRead; }
+        public Duration getElapsed()  { return Duration.ofNanos(elapsedNanos); }
+
+        public double filesPerSecond() { return rate(imported + failed + unchanged); }
+        /** Throughput in MB of audio files covered per second. */
+        public double megabytesPerSecond() { return rate(bytesTotal) / (1 << 20); }
+
+        private double rate(long n) { return elapsedNanos == 0 ? 0 : n * 1e9 / elapsedNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("%,d files (%,d failed, %,d unchanged, %,d removed) in %d ms: %.0f files/s, %.1f MB/s, %,d KB read",
+                                 imported + failed + unchanged, failed, unchanged, removed, elapsedNanos / 1_000_000,
+                                 filesPerSecond(), megabytesPerSecond(), bytesRead >> 10);
+        }
+    }
+
+    /**
+     * Receives progress at most every {@code progressInterval}, and once more at
+     * the end.  Called on scanner threads; UI listeners must hop to the EDT.
+     */
+    public interface ProgressListener {
+        void progress(Stats stats);
+    }
+
+    private final Consumer<List<Song>>   sink;
+    private final Consumer<List<String>> remover;    // incremental mode only
+    private final Predicate<String>      present;    // incremental mode only
+    private final FileIndex              index;      // null: import everything, remove nothing
+    private final int      workers;
+    private final int      batchSize;
+    private final Duration progressInterval;
+    private volatile boolean        cancelled;
+    private volatile Consumer<Path> directoryListener;
+
+    /** Scans into {@code library} using one worker per available core. */
+    public LibraryScanner(MusicLibrary library) {
+        this(library, null);
+    }
+
+    /** Scans into {@code library} incrementally against {@code index} (or fully if {@code null}). */
+    public LibraryScanner(MusicLibrary library, FileIndex index) {
+        this(library::addSongs, library::removeSongs, id -> library.getSong(id) != null, index,
+             Runtime.getRuntime().availableProcessors(), 256, Duration.ofMillis(250));
+    }
+
+    /** Full scan into {@code sink}; nothing is ever removed. */
+    public LibraryScanner(Consumer<List<Song>> sink, int workers, int batchSize, Duration progressInterval) {
+        this(sink, ids -> { }, id -> false, null, workers, batchSize, progressInterval);
+    }
+
+    /**
+     * Incremental scan into any song store: {@code sink} receives new and
+     * changed songs, {@code remover} the ids of vanished files, and
+     * {@code present} tells whether a song id is still stored.
+     */
+    public LibraryScanner(Consumer<List<Song>> sink, Consumer<List<String>> remover, Predicate<String> present,
+                          FileIndex index, int workers, int batchSize, Duration progressInterval) {
+        if (workers < 1 || batchSize < 1) throw new IllegalArgumentException("workers and batchSize must be positive");
+        this.sink             = Objects.requireNonNull(sink);
+        this.remover          = Objects.requireNonNull(remover);
+        this.present          = Objects.requireNonNull(present);
+        this.index            = index;
+        this.workers          = workers;
+        this.batchSize        = batchSize;
+        this.progressInterval = Objects.requireNonNull(progressInterval);
+    }
+
+    /** Called on the walker thread for every directory entered, before its files. */
+    void setDirectoryListener(Consumer<Path> listener) { this.directoryListener = listener; }
+
+    /** Stops an in-progress {@link #scan} after the files already queued. */
+    public void cancel() { cancelled = true; }
+
+    /**
+     * Scans {@code root} (a directory, or a single file) recursively, blocking
+     * until every file is imported; returns the final stats.
+     */
+    public Stats scan(Path root, ProgressListener listener) throws IOException {
+        cancelled = false;
+        Path start = root.toAbsolutePath().normalize();
+        Run run = new Run(listener);
+        ThreadFactory tf = new ThreadFactory() {
+            private int n;
+            @Override public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "scanner-" + n++);
+                t.setDaemon(true);
+                return t;
+            }
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workers * 64), tf, new ThreadPoolExecutor.CallerRunsPolicy());
+        ThreadLocal<TagReader> readers = ThreadLocal.withInitial(() -> run.register(new TagReader()));
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    Consumer<Path> l = directoryListener;
+                    if (l != null) l.accept(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                    if (e == null) run.listed.add(dir.toString());
+                    else           run.unlisted.add(dir.toString());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (cancelled) return FileVisitResult.TERMINATE;
+                    if (!attrs.isRegularFile() || !EXTENSIONS.contains(extension(file))) return FileVisitResult.CONTINUE;
+                    run.seen.incrementAndGet();
+                    String path = file.toString();
+                    long size = attrs.size(), modified = attrs.lastModifiedTime().toMillis();
+                    FileIndex.Fingerprint fp = null;
+                    if (index != null) {
+                        run.visited.add(path);
+                        fp = index.get(path);
+                        if (fp != null && fp.sameStat(size, modified) && present.test(path)) {
+                            run.unchanged(size);
+                            return FileVisitResult.CONTINUE;
+                        }
+                    }
+                    FileIndex.Fingerprint known = fp;
+                    pool.execute(() -> run.importFile(readers.get(), file, size, modified, known));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    if (file.equals(start) && e instanceof NoSuchFileException) {
+                        run.rootMissing = true;
+                    } else {
+                        log.warn("Cannot read {}: {}", file, e.toString());
+                        run.unlisted.add(file.toString());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            pool.shutdown();
+            try {
+                while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                    run.maybeReport();
+                }
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        run.flush();
+        if (index != null && !cancelled) run.removeVanished(start);
+        Stats done = run.stats();
+        if (listener != null) listener.progress(done);
+        log.info("Scanned {}: {}", start, done);
+        return done;
+    }
+
+    /** State of one {@link #scan} call, shared by its workers. */
+    private final class Run {
+        final long             start = System.nanoTime();
+        final ProgressListener listener;
+        final AtomicLong seen = new AtomicLong(), imported = new AtomicLong(), failed = new AtomicLong(),
+                         unchanged = new AtomicLong(), removed = new AtomicLong(), bytes = new AtomicLong();
+        final List<TagReader> readers = new CopyOnWriteArrayList<>();
+        final AtomicLong lastReport = new AtomicLong(System.nanoTime());
+        private List<Song> batch = new ArrayList<>();
+
+        // Walker-thread only: what this walk proved present, for removing what is not
+        final Set<String>  visited  = new HashSet<>();
+        final Set<String>  listed   = new HashSet<>();
+        final List<String> unlisted = new ArrayList<>();
+        boolean rootMissing;
+
+        Run(ProgressListener listener) { this.listener = listener; }
+
+        TagReader register(TagReader r) { readers.add(r); return r; }
+
+        void unchanged(long size) {
+            unchanged.incrementAndGet();
+            bytes.addAndGet(size);
+        }
+
+        void importFile(TagReader reader, Path file, long size, long modified, FileIndex.Fingerprint known) {
+            String path = file.toString();
+            Song song = null;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                FileIndex.Fingerprint fp = null;
+                if (index != null) {
+                    fp = new FileIndex.Fingerprint(size, modified, reader.headerHash(ch));
+                    if (known != null && known.getSize() == size && known.getHeaderHash() == fp.getHeaderHash()
+                            && present.test(path)) {
+                        index.put(path, fp);          // touched or copied, same content: keep the song
+                        unchanged(size);
+                        return;
+                    }
+                }
+                TagReader.Tags t = reader.read(ch);
+                if (t != null) {
+                    song = toSong(file, t);
+                    if (fp != null) index.put(path, fp);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Skipping {}: {}", file, e.toString());
+            }
+            bytes.addAndGet(size);
+            if (song == null) {
+                failed.incrementAndGet();
+                return;
+            }
+            imported.incrementAndGet();
+            List<Song> full = null;
+            synchronized (this) {
+                batch.add(song);
+                if (batch.size() >= batchSize) {
+                    full = batch;
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (full != null) {
+                sink.accept(full);
+                maybeReport();
+            }
+        }
+
+        void flush() {
+            List<Song> rest;
+            synchronized (this) {
+                rest = batch;
+                batch = new ArrayList<>();
+            }
+            if (!rest.isEmpty()) sink.accept(rest);
+        }
+
+        /** Removes indexed files under {@code root} that this walk showed to be gone. */
+        void removeVanished(Path root) {
+            String rootPath = root.toString();
+            List<String> candidates = index.under(rootPath);
+            List<String> gone = new ArrayList<>();
+            if (rootMissing) {
+                Path parent = root.getParent();
+                if (parent != null && Files.isDirectory(parent)) gone.addAll(candidates);
+            } else if (visited.isEmpty() && listed.contains(rootPath) && !candidates.isEmpty()) {
+                log.warn("{} holds no audio files but {} are indexed under it; assuming it is offline",
+                         rootPath, candidates.size());
+            } else {
+                for (String p : candidates) {
+                    if (!visited.contains(p) && provenGone(p)) gone.add(p);
+                }
+            }
+            if (gone.isEmpty()) return;
+            remover.accept(gone);
+            for (String p : gone) index.remove(p);
+            removed.addAndGet(gone.size());
+        }
+
+        /** Whether this walk listed the directory that should contain {@code path}, or an ancestor it vanished from. */
+        private boolean provenGone(String path) {
+            for (String u : unlisted) {
+                if (path.equals(u) || path.startsWith(u + File.separator)) return false;
+            }
+            Path parent = Paths.get(path).getParent();
+            return listed.contains(parent.toString()) || !Files.exists(parent);
+        }
+
+        void maybeReport() {
+            if (listener == null) return;
+            long now = System.nanoTime(), last = lastReport.get();
+            if (now - last >= progressInterval.toNanos() && lastReport.compareAndSet(last, now)) {
+                listener.progress(stats());
+            }
+        }
+
+        Stats stats() {
+            long read = 0;
+            for (TagReader r : readers) read += r.bytesRead();
+            return new Stats(seen.get(), imported.get(), failed.get(), unchanged.get(), removed.get(),
+                             bytes.get(), read, System.nanoTime() - start);
+        }
+    }
+
+    static Song toSong(Path file, TagReader.Tags t) {
+        Path abs = file.toAbsolutePath().normalize();
+        String name = abs.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String title = t.title != null ? t.title : dot > 0 ? name.substring(0, dot) : name;
+        Song s = new Song(abs.toString(), title, t.artist != null ? t.artist : UNKNOWN_ARTIST,
+                          t.album, t.genre, t.year, Duration.ofMillis(Math.round(t.seconds * 1000)));
+        s.setFilePath(abs.toString());
+        return s;
+    }
+
+    static String extension(Path file) {
+        String n = file.getFileName().toString();
+        int dot = n.lastIndexOf('.');
+        return dot < 0 ? "" : n.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
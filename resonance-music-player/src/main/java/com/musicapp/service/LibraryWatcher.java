@@ -0,0 +1,163 @@
+package com.musicapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps the library in step with a music folder: an incremental
+ * {@link #sync} at startup, then live updates from a {@link WatchService}.
+ *
+ * <p>The sync walks the folder once. Only files whose fingerprint in the
+ * {@link FileIndex} changed are opened. Every directory is registered with
+ * the watch service as the walk enters it, so there is no window in which a
+ * change could slip between the two. Watch events are coalesced until the
+ * folder has been quiet for {@link #QUIET}, because a single copy fires many
+ * modify events. Each changed path is then rescanned with the same
+ * incremental scanner. It handles new, modified and deleted files, and new
+ * directories, which get registered in turn. An event overflow rescans the
+ * whole folder.</p>
+ *
+ * <p>Network shares do not report remote changes to a watch service. For
+ * them the startup sync is what keeps the library current.</p>
+ *
+ * <p>The index is saved after the startup sync and on {@link #close}. Losing
+ * it in a crash only means the files changed since then are re-read.</p>
+ */
+public final class LibraryWatcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LibraryWatcher.class);
+
+    /** How long the folder must be quiet before pending changes are applied. */
+    static final Duration QUIET = Duration.ofMillis(500);
+
+    private final Path           root;
+    private final Path           indexFile;
+    private final FileIndex      index;
+    private final LibraryScanner scanner;
+    private final WatchService   watcher;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    private volatile Thread      thread;
+    private volatile boolean     closed;
+
+    /** Watches {@code root}, keeping fingerprints in {@code indexFile}. */
+    public LibraryWatcher(MusicLibrary library, Path root, Path indexFile) throws IOException {
+        this.root      = root.toAbsolutePath().normalize();
+        this.indexFile = indexFile;
+        this.index     = FileIndex.load(indexFile);
+        this.scanner   = new LibraryScanner(library, index);
+        this.watcher   = this.root.getFileSystem().newWatchService();
+        scanner.setDirectoryListener(this::register);
+    }
+
+    FileIndex index() { return index; }
+
+    /**
+     * Brings the library up to date with the folder, blocking until done, and
+     * saves the index.  Does nothing if the folder is missing (an unmounted
+     * share must not empty the library).
+     */
+    public LibraryScanner.Stats sync(LibraryScanner.ProgressListener listener) throws IOException {
+        if (!Files.isDirectory(root)) {
+            log.warn("Music folder {} is not available; keeping the library as it is", root);
+            return null;
+        }
+        LibraryScanner.Stats stats = scanner.scan(root, listener);
+        saveIndex();
+        return stats;
+    }
+
+    /** Runs {@link #sync} and then watches for changes, on a background thread. */
+    public void start() {
+        Thread t = new Thread(this::run, "library-watcher");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    private void run() {
+        try {
+            sync(null);
+            watch();
+        } catch (ClosedWatchServiceException e) {
+            // close() was called
+        } catch (IOException | RuntimeException e) {
+            if (!closed) log.error("Library watcher for {} stopped", root, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void watch() throws IOException, InterruptedException {
+        Set<Path> pending = new LinkedHashSet<>();
+        while (!closed) {
+            WatchKey key = pending.isEmpty() ? watcher.take() : watcher.poll(QUIET.toMillis(), TimeUnit.MILLISECONDS);
+            if (key == null) {                    // quiet period over: apply what accumulated
+                List<Path> changed = new ArrayList<>(pending);
+                pending.clear();
+                for (Path p : changed) {
+                    if (closed) return;
+                    scanner.scan(p, null);
+                }
+                continue;
+            }
+            Path dir = keys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    log.info("Watch events overflowed; rescanning {}", root);
+                    pending.clear();
+                    pending.add(root);
+                } else if (dir != null && !pending.contains(root)) {
+                    pending.add(dir.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) keys.remove(key);   // directory deleted
+        }
+    }
+
+    private void register(Path dir) {
+        try {
+            keys.put(dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+        } catch (IOException | ClosedWatchServiceException e) {
+            log.warn("Cannot watch {}: {}", dir, e.toString());
+        }
+    }
+
+    private void saveIndex() {
+        if (!index.isDirty()) return;
+        try {
+            index.save(indexFile);
+        } catch (IOException e) {
+            log.error("Failed to save file index {}", indexFile, e);
+        }
+    }
+
+    /** Stops watching and saves the index. */
+    @Override
+    public void close() {
+        closed = true;
+        scanner.cancel();
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            log.warn("Closing the watch service: {}", e.toString());
+        }
+        Thread t = thread;
+        if (t != null && t != Thread.currentThread()) {
+            try {
+                t.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        saveIndex();
+    }
+}
@@ -0,0 +1,161 @@
+package com.musicapp.service;
+
+import com.musicapp.audio.LoudnessMeter;
+import com.musicapp.model.Song;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Measures the loudness of songs with a file so playback can level them.
+ *
+ * <p>Songs are analysed in parallel on a fixed pool of low-priority worker
+ * threads, one {@link LoudnessMeter} per thread.  Each result is stored on
+ * the song with {@link Song#setLoudness}, which the library journals and
+ * saves with the rest of the catalog.  A song that already has a result is
+ * skipped, so every file is decoded once.  A song whose file changed is
+ * re-imported by the scanner as a fresh song without one.  A file in a
+ * format the decoder cannot read is remembered with its size and
+ * modification time and skipped until either changes; other failures are
+ * retried on the next pass.</p>
+ *
+ * <p>{@link #start} keeps the library analysed in the background: one pass
+ * at once, then another after {@link #wake} or every minute.</p>
+ */
+public final class LoudnessAnalyzer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LoudnessAnalyzer.class);
+
+    /** Result of one {@link #analyze} pass. */
+    public static final class Stats {
+        private final long   analyzed, failed, elapsedNanos;
+        private final double audioSeconds;
+
+        Stats(long analyzed, long failed, double audioSeconds, long elapsedNanos) {
+            this.analyzed = analyzed; this.failed = failed;
+            this.audioSeconds = audioSeconds; this.elapsedNanos = elapsedNanos;
+        }
+
+        public long     getAnalyzed()    { return analyzed; }
+        /** Songs whose file could not be decoded. */
+        public long     getFailed()      { return failed; }
+        /** Combined length of the analysed tracks. */
+        public double   getAudioSeconds() { return audioSeconds; }
+        public Duration getElapsed()     { return Duration.ofNanos(elapsedNanos); }
+
+        /** Throughput in seconds of audio analysed per second of wall time. */
+        public double trackSecondsPerSecond() { return elapsedNanos == 0 ? 0 : audioSeconds * 1e9 / elapsedNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("%,d tracks (%,d failed), %,.0f s of audio in %d ms: %.0f track-s/s",
+                                 analyzed, failed, audioSeconds, elapsedNanos / 1_000_000, trackSecondsPerSecond());
+        }
+    }
+
+    private final ExecutorService             pool;
+    private final ThreadLocal<LoudnessMeter>  meters = ThreadLocal.withInitial(LoudnessMeter::new);
+    private final Map<Path, FileStamp> undecodable = new ConcurrentHashMap<>();   // not retried until they change
+    private final BackgroundPass background = new BackgroundPass("library-loudness", Thread.NORM_PRIORITY);
+
+    /** An analyzer with one worker per available core. */
+    public LoudnessAnalyzer() { this(Runtime.getRuntime().availableProcessors()); }
+
+    public LoudnessAnalyzer(int workers) {
+        if (workers < 1) throw new IllegalArgumentException("workers must be positive");
+        AtomicInteger n = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "loudness-" + n.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);   // never compete with the audio threads
+            return t;
+        });
+    }
+
+    /**
+     * Analyses every song in {@code songs} that has a readable file and no
+     * result yet; blocks until all are done.
+     */
+    public Stats analyze(Collection<Song> songs) {
+        long t0 = System.nanoTime();
+        AtomicLong  analyzed = new AtomicLong(), failed = new AtomicLong();
+        DoubleAdder seconds  = new DoubleAdder();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (Song s : songs) {
+            if (s.isLoudnessAnalyzed() || s.getFilePath() == null) continue;
+            Path file = Paths.get(s.getFilePath());
+            FileStamp stamp;
+            try {
+                if (!Files.isRegularFile(file)) continue;
+                stamp = FileStamp.of(file);
+            } catch (IOException e) {
+                continue;
+            }
+            if (stamp.matches(undecodable.get(file))) continue;
+            try {
+                tasks.add(pool.submit(() -> {
+                    if (background.isStopped()) return;
+                    try {
+                        LoudnessMeter.Result r = meters.get().measure(file);
+                        s.setLoudness(r.getLufs(), r.getPeak());
+                        seconds.add(r.getSeconds());
+                        analyzed.incrementAndGet();
+                        undecodable.remove(file);
+                    } catch (UnsupportedAudioFileException e) {
+                        undecodable.put(file, stamp);
+                        failed.incrementAndGet();
+                    } catch (Exception e) {
+                        log.debug("Cannot analyse {}: {}", file, e.toString());
+                        failed.incrementAndGet();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                break;                                  // closed meanwhile
+            }
+        }
+        for (Future<?> f : tasks) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | CancellationException e) {
+                log.warn("Loudness task failed", e);
+            }
+        }
+        return new Stats(analyzed.get(), failed.get(), seconds.sum(), System.nanoTime() - t0);
+    }
+
+    /** Keeps {@code library} analysed on a background thread until {@link #close}. */
+    public void start(MusicLibrary library) {
+        background.start(() -> {
+            Stats st = analyze(library.getAllSongs());
+            if (st.getAnalyzed() + st.getFailed() > 0) log.info("Loudness analysis: {}", st);
+        });
+    }
+
+    /** Analyses songs added since the last pass now, e.g. after a scan imported some. */
+    public void wake() { background.wake(); }
+
+    /** Stops the background pass and the workers; a file being measured is finished first. */
+    @Override
+    public void close() {
+        background.stop();
+        pool.shutdownNow();
+        background.join();
+    }
+}
@@ -2,16 +2,38 @@ package com.musicapp.service;
 
 import com.musicapp.model.Playlist;
 import com.musicapp.model.Song;
+import com.musicapp.model.SongStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 /**
  * Singleton service that acts as the central data store for songs and playlists.
  * In a production app this would delegate to a database or file-based persistence layer.
+ *
+ * <p><strong>Threading:</strong> safe for concurrent writers and readers.  Song
+ * and playlist reads ({@link #getAllSongs()}, {@link #getSong}, {@link #getFavorites()},
+ * {@link #getAllPlaylists()}, …) are lock-free: they read immutable snapshots
+ * published by {@link SongStore} and a copy-on-write playlist map.  Writers are
+ * serialised by a write lock that also keeps the indexes in step with the
+ * store, and each write batch ends by publishing the search and suggest
+ * indexes.  {@link #search}, {@link #searchFuzzy}, {@link #suggest} and the
+ * facet queries never lock: they read what the last batch published.  Only
+ * {@link #save} takes the read lock, to snapshot songs and playlists together;
+ * playlists are edited outside it, so each is copied under its own lock.</p>
  */
 public class MusicLibrary {
 
@@ -24,14 +46,216 @@ public class MusicLibrary {
 
     public static MusicLibrary getInstance() { return Holder.INSTANCE; }
 
-    private final Map<String, Song>     songs     = new LinkedHashMap<>();
-    private final Map<String, Playlist> playlists = new LinkedHashMap<>();
+    private final SongStore             songs        = new SongStore();
+    private final SearchIndex           searchIndex  = new SearchIndex();
+    private final SuggestIndex          suggestIndex = new SuggestIndex();
+    private final FacetIndex            genres       = new FacetIndex();
+    private final FacetIndex            artists      = new FacetIndex();
+    private final ReentrantReadWriteLock lock        = new ReentrantReadWriteLock();
+
+    // Copy-on-write: replaced wholesale under the write lock, never mutated once published
+    private volatile Map<String, Playlist> playlists = Collections.emptyMap();
+
+    /** Where the library persists itself; override with {@code -Dresonance.catalog=<file>}. */
+    private final Path catalogPath = Paths.get(System.getProperty("resonance.catalog",
+            Paths.get(System.getProperty("user.home"), ".resonance", "library.rcat").toString()));
+
+    /** Journal segment size that triggers a background compaction into the catalog. */
+    private static final long COMPACT_BYTES = 1 << 20;
+
+    private volatile Journal journal;          // null until openJournal()
+    private int              catalogGeneration;
+    private final AtomicBoolean   compacting = new AtomicBoolean();
+    private final ExecutorService compactor  = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "library-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Playlist.Listener playlistJournal = p -> {
+        Journal j = journal;
+        if (j != null) j.putPlaylist(p);
+    };
 
     private MusicLibrary() {
-        loadSampleData();
+        if (!loadCatalog()) loadSampleData();
+        songs.setObserver(new SongStore.Observer() {
+            @Override public void playCountChanged(Song s, int n, int previous) {
+                suggestIndex.playCountChanged(s, n - previous);
+                Journal j = journal;
+                if (j != null) j.playCount(s.getId(), n);
+            }
+            @Override public void favoriteChanged(Song s, boolean f) { Journal j = journal; if (j != null) j.favorite(s.getId(), f); }
+            @Override public void filePathChanged(Song s, String p)  { Journal j = journal; if (j != null) j.filePath(s.getId(), p); }
+            @Override public void loudnessChanged(Song s, float l, float p) {
+                Journal j = journal;
+                if (j != null) j.loudness(s.getId(), l, p);
+            }
+        });
         log.info("MusicLibrary initialised: {} songs, {} playlists", songs.size(), playlists.size());
     }
 
+    // ── Persistence ────────────────────────────────────────────────────────────
+
+    private boolean loadCatalog() {
+        if (!Files.isRegularFile(catalogPath)) return false;
+        try {
+            catalogGeneration = loadFrom(catalogPath);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read catalog {}, starting from sample data", catalogPath, e);
+            return false;
+        }
+    }
+
+    /**
+     * Adds every song and playlist in the catalog at {@code file}; songs and
+     * playlists whose id is already present are replaced.
+     */
+    public void load(Path file) throws IOException { loadFrom(file); }
+
+    private int loadFrom(Path file) throws IOException {
+        long t0 = System.nanoTime();
+        try (CatalogFile cat = CatalogFile.open(file)) {
+            loadSongs(cat.records());
+            for (Playlist p : cat.playlists(this::getSong)) addPlaylist(p);
+            log.info("Loaded {} songs, {} playlists from {} in {} ms", cat.songCount(), cat.playlistCount(),
+                     file, (System.nanoTime() - t0) / 1_000_000);
+            return cat.generation();
+        }
+    }
+
+    /** Writes the current songs and playlists to {@code file} as one consistent snapshot. */
+    public void save(Path file) throws IOException { save(file, 0); }
+
+    private void save(Path file, int generation) throws IOException {
+        List<Song> all;
+        List<Playlist> pls;
+        lock.readLock().lock();
+        try {
+            all = getAllSongs();
+            pls = new ArrayList<>();
+            for (Playlist p : playlists.values()) pls.add(p.copy());   // playlists are edited outside the library lock
+        } finally {
+            lock.readLock().unlock();
+        }
+        CatalogFile.write(file, all, pls, generation);
+        log.info("Saved {} songs, {} playlists to {}", all.size(), pls.size(), file);
+    }
+
+    /** The catalog file this library loads from and saves to. */
+    public Path getCatalogPath() { return catalogPath; }
+
+    /** Saves to the default catalog location, logging rather than throwing on failure. */
+    public void saveCatalog() {
+        try {
+            save(catalogPath);
+        } catch (IOException e) {
+            log.error("Failed to save catalog {}", catalogPath, e);
+        }
+    }
+
+    /**
+     * Replays the journal left by the previous run on top of the loaded catalog
+     * and starts recording song, favourite, play-count and playlist changes.
+     * Call once at startup, before the UI is shown.
+     */
+    public synchronized void openJournal() throws IOException {
+        if (journal != null) return;
+        Journal j = Journal.open(catalogPath, catalogGeneration, new Replay(), COMPACT_BYTES, this::compactLater);
+        journal = j;
+        log.info("Journal opened: {} records replayed", j.replayed());
+        if (j.replayed() > 0) compactLater();
+    }
+
+    /** Flushes the journal and folds it into the catalog; the last thing to call on exit. */
+    public void shutdown() {
+        Journal j = journal;
+        if (j == null) {
+            saveCatalog();
+            return;
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compact();
+        journal = null;
+        try {
+            j.close();
+        } catch (IOException e) {
+            log.error("Journal did not close cleanly", e);
+        }
+    }
+
+    private void compactLater() {
+        if (compacting.compareAndSet(false, true)) {
+            try {
+                compactor.execute(() -> {
+                    try {
+                        compact();
+                    } finally {
+                        compacting.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                compacting.set(false);   // shutting down; shutdown() compacts itself
+            }
+        }
+    }
+
+    /** Rotates the journal, snapshots the library as of the rotation and drops the covered segments. */
+    private void compact() {
+        Journal j = journal;
+        if (j == null) return;
+        try {
+            int gen = j.rotate();
+            save(catalogPath, gen);
+            j.deleteThrough(gen);
+        } catch (IOException | RuntimeException e) {
+            // Segments stay on disk and are folded in by the next compaction
+            log.warn("Journal compaction failed", e);
+        }
+    }
+
+    /** Applies replayed journal records; runs before the journal is attached, so nothing is re-recorded. */
+    private final class Replay implements Journal.Handler {
+        @Override public void putSong(Song s)        { addSong(s); }
+        @Override public void removeSong(String id)  { MusicLibrary.this.removeSong(id); }
+        @Override public void removePlaylist(String id) { MusicLibrary.this.removePlaylist(id); }
+
+        @Override public void playCount(String id, int n) {
+            Song s = getSong(id);
+            if (s != null) s.setPlayCount(n);
+        }
+
+        @Override public void favorite(String id, boolean f) {
+            Song s = getSong(id);
+            if (s != null) s.setFavorite(f);
+        }
+
+        @Override public void filePath(String id, String path) {
+            Song s = getSong(id);
+            if (s != null) s.setFilePath(path);
+        }
+
+        @Override public void loudness(String id, float lufs, float peak) {
+            Song s = getSong(id);
+            if (s != null) s.setLoudness(lufs, peak);
+        }
+
+        @Override public void putPlaylist(String id, String name, String desc, String color, List<String> songIds) {
+            Playlist p = new Playlist(id, name, desc, color);
+            for (String sid : songIds) {
+                Song s = getSong(sid);
+                if (s != null) p.addSong(s);
+            }
+            addPlaylist(p);
+        }
+    }
+
     // ── Seed data ──────────────────────────────────────────────────────────────
 
     private void loadSampleData() {
@@ -58,10 +282,10 @@ public class MusicLibrary {
             new Song("20", "Stay With Me",            "Sam Smith",                 "In the Lonely Hour",        "Pop",         2014, dur(2,52)),
         };
 
-        for (Song s : seed) songs.put(s.getId(), s);
+        for (Song s : seed) addSong(s);
 
         // Favourites
-        for (String id : new String[]{"3","6","9","11"}) songs.get(id).setFavorite(true);
+        for (String id : new String[]{"3","6","9","11"}) songs.find(id).setFavorite(true);
 
         buildPlaylists();
     }
@@ -76,7 +300,7 @@ public class MusicLibrary {
     private Playlist playlistOf(String id, String name, String desc, String color, String... ids) {
         Playlist p = new Playlist(id, name, desc, color);
         for (String sid : ids) {
-            Song s = songs.get(sid);
+            Song s = songs.find(sid);
             if (s != null) p.addSong(s);
         }
         return p;
@@ -88,43 +312,183 @@ public class MusicLibrary {
 
     // ── Song CRUD ──────────────────────────────────────────────────────────────
 
-    public List<Song> getAllSongs()   { return new ArrayList<>(songs.values()); }
-    public Song getSong(String id)    { return songs.get(id); }
-    public void addSong(Song song)    { songs.put(song.getId(), song); }
-    public void removeSong(String id) { songs.remove(id); }
+    public List<Song> getAllSongs()   { return songs.songs(); }
+    public Song getSong(String id)    { return songs.find(id); }
+
+    public void addSong(Song song) { addSongs(Collections.singletonList(song)); }
+
+    /** Adds every song under a single write-lock hold and store publication, e.g. for a scanner batch. */
+    public void addSongs(Collection<Song> batch) {
+        List<Song> added = new ArrayList<>(batch);
+        lock.writeLock().lock();
+        try {
+            indexAdded(added, songs.adoptAll(added));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Appends raw catalog records to the store directly, then indexes their views. */
+    private void loadSongs(SongStore.Source source) {
+        List<Song> added = new ArrayList<>(source.size());
+        lock.writeLock().lock();
+        try {
+            indexAdded(added, songs.load(source, added));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeSong(String id) { removeSongs(Collections.singletonList(id)); }
+
+    /** Removes every listed song under a single write-lock hold; unknown ids are ignored. */
+    public void removeSongs(Collection<String> ids) {
+        List<String> gone = new ArrayList<>(ids);
+        lock.writeLock().lock();
+        try {
+            List<Song> removed = songs.removeAll(gone);
+            for (int i = 0; i < gone.size(); i++) {
+                if (removed.get(i) != null) removed(gone.get(i), removed.get(i));
+            }
+            publishIndexes();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void indexAdded(List<Song> added, List<Song> replaced) {
+        for (int i = 0; i < added.size(); i++) added(added.get(i), replaced.get(i));
+        publishIndexes();
+    }
+
+    private void added(Song song, Song old) {
+        if (old != null) {
+            suggestIndex.remove(old);
+            untally(old);
+        }
+        searchIndex.add(song);
+        suggestIndex.add(song);
+        int secs = song.getDurationSeconds();
+        genres.add(song.getGenre(), secs);
+        artists.add(song.getArtist(), secs);
+        Journal j = journal;
+        if (j != null) j.putSong(song);
+    }
+
+    private void removed(String id, Song old) {
+        searchIndex.remove(id);
+        suggestIndex.remove(old);
+        untally(old);
+        Journal j = journal;
+        if (j != null) j.removeSong(id);
+    }
+
+    private void publishIndexes() {
+        searchIndex.publish();
+        suggestIndex.publish();
+        genres.publish();
+        artists.publish();
+    }
+
+    private void untally(Song old) {
+        int secs = old.getDurationSeconds();
+        genres.remove(old.getGenre(), secs);
+        artists.remove(old.getArtist(), secs);
+    }
 
     public List<Song> getFavorites() {
-        return songs.values().stream().filter(Song::isFavorite).collect(Collectors.toList());
+        return songs.favorites();
     }
 
     /**
      * Case-insensitive search across title, artist, album, and genre.
+     * Answered from the inverted {@link SearchIndex}; queries without any
+     * alphanumeric token fall back to {@link #searchScan(String)}.
      */
     public List<Song> search(String query) {
+        if (query == null || query.isBlank()) return getAllSongs();
+        List<Song> hits = searchIndex.search(query);
+        return hits != null ? hits : searchScan(query);
+    }
+
+    /**
+     * Reference implementation of {@link #search(String)}: a full linear scan.
+     * Kept as the fallback path and as the oracle the index is tested against.
+     */
+    public List<Song> searchScan(String query) {
         if (query == null || query.isBlank()) return getAllSongs();
         String q = query.toLowerCase(Locale.ROOT);
-        return songs.values().stream()
-            .filter(s -> s.getTitle().toLowerCase(Locale.ROOT).contains(q)
-                      || s.getArtist().toLowerCase(Locale.ROOT).contains(q)
-                      || s.getAlbum().toLowerCase(Locale.ROOT).contains(q)
-                      || s.getGenre().toLowerCase(Locale.ROOT).contains(q))
+        return songs.songs().stream()
+            .filter(s -> SearchIndex.matches(s, q))
             .collect(Collectors.toList());
     }
 
+    /**
+     * Typo-tolerant search ("Led Zepelin" finds Led Zeppelin): up to {@code limit}
+     * songs ranked by how closely their words match the query's words.
+     */
+    public List<Song> searchFuzzy(String query, int limit) {
+        if (query == null || query.isBlank()) return new ArrayList<>();
+        return searchIndex.searchFuzzy(query, limit);
+    }
+
+    /**
+     * Type-ahead completions: up to {@code limit} titles, artists or albums that
+     * start with {@code prefix}, most-played first.  Served from
+     * {@link SuggestIndex} without touching the song list or taking a lock;
+     * writers publish its keys at the end of each batch.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null) return new ArrayList<>();
+        return suggestIndex.suggest(prefix, limit);
+    }
+
     // ── Playlist CRUD ──────────────────────────────────────────────────────────
 
     public List<Playlist> getAllPlaylists()      { return new ArrayList<>(playlists.values()); }
     public Playlist getPlaylist(String id)       { return playlists.get(id); }
-    public void addPlaylist(Playlist p)          { playlists.put(p.getId(), p); }
-    public void removePlaylist(String id)        { playlists.remove(id); }
-
-    // ── Meta queries ───────────────────────────────────────────────────────────
 
-    public List<String> getAllGenres() {
-        return songs.values().stream().map(Song::getGenre).distinct().sorted().collect(Collectors.toList());
+    public void addPlaylist(Playlist p) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Playlist> next = new LinkedHashMap<>(playlists);
+            Playlist old = next.put(p.getId(), p);
+            playlists = Collections.unmodifiableMap(next);
+            if (old != null && old != p) old.setListener(null);
+            p.setListener(playlistJournal);
+            Journal j = journal;
+            if (j != null) j.putPlaylist(p);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
-    public List<String> getAllArtists() {
-        return songs.values().stream().map(Song::getArtist).distinct().sorted().collect(Collectors.toList());
+    public void removePlaylist(String id) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Playlist> next = new LinkedHashMap<>(playlists);
+            Playlist old = next.remove(id);
+            if (old == null) return;
+            playlists = Collections.unmodifiableMap(next);
+            old.setListener(null);
+            Journal j = journal;
+            if (j != null) j.removePlaylist(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
+
+    // ── Meta queries ───────────────────────────────────────────────────────────
+    // Served from incrementally maintained FacetIndexes rather than a stream
+    // over every song.
+
+    public List<String> getAllGenres()  { return genres.values(); }
+    public List<String> getAllArtists() { return artists.values(); }
+
+    /** Song count and total duration for {@code genre}, or {@code null} if unknown. */
+    public FacetIndex.Facet getGenreFacet(String genre)   { return genres.get(genre); }
+    public FacetIndex.Facet getArtistFacet(String artist) { return artists.get(artist); }
+
+    public List<FacetIndex.Facet> getGenreFacets()  { return genres.facets(); }
+    public List<FacetIndex.Facet> getArtistFacets() { return artists.facets(); }
 }
@@ -0,0 +1,41 @@
+package com.musicapp.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted, append-only int array used as a posting list by the service indexes.
+ *
+ * <p>A single writer appends ids in increasing order; readers take no lock.
+ * They load {@link #size} before {@link #ids}: the array only ever grows and
+ * its first {@code size} entries never change, so that pair is always
+ * consistent.  Deleting an id only counts it in {@link #dead}; the owning
+ * index filters retired ids on read and drops or rebuilds the list later.</p>
+ */
+final class Postings {
+
+    volatile int[] ids = new int[2];
+    volatile int   size;
+    int            dead;        // writer side: entries whose id has been retired
+
+    /** Appends {@code id}, which must be greater than every id already present. */
+    void append(int id) {
+        int n = size;
+        if (n == ids.length) ids = Arrays.copyOf(ids, n * 2);
+        ids[n] = id;
+        size = n + 1;
+    }
+
+    /** As {@link #append}, but repeating the last id is a no-op. */
+    void appendIfNew(int id) {
+        int n = size;
+        if (n == 0 || ids[n - 1] != id) append(id);
+    }
+
+    /** Sets the bit of every id below {@code bound}. */
+    void addTo(BitSet bits, int bound) {
+        int n = size;
+        int[] a = ids;
+        for (int i = 0; i < n && a[i] < bound; i++) bits.set(a[i]);
+    }
+}
@@ -0,0 +1,288 @@
+package com.musicapp.service;
+
+import com.musicapp.model.Song;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incrementally maintained inverted index over song title, artist, album and genre.
+ *
+ * <p>Every song is assigned an ordinal in insertion order; each lower-cased
+ * alphanumeric token maps to a sorted posting list of those ordinals.  A query
+ * is answered by unioning the postings of every dictionary token that contains
+ * a query token, intersecting across query tokens, and — only when the query is
+ * not a single plain token — verifying the surviving candidates with the exact
+ * substring predicate.  The containing dictionary tokens come from the n-gram
+ * postings of the {@link FuzzyIndex}, so neither the songs nor the dictionary
+ * are scanned.  Results are identical to a full scan, in the same insertion
+ * order.</p>
+ *
+ * <p>Writes must be externally serialised and made visible with
+ * {@link #publish()}; queries take no lock.  Ordinals only grow, so posting
+ * lists are append-only {@link Postings}, and a query bounds them by the
+ * ordinal count it read from the published {@link State}.  Removing a song
+ * marks its ordinal dead in a copy of the dead set taken once per batch;
+ * tokens left without songs are dropped after the publish, and once half
+ * the ordinals are dead the index is renumbered into a fresh posting map.
+ * A query racing a write therefore sees the songs of one published batch,
+ * except that a token may already have lost songs removed by a later one.
+ * Per-query scratch space is thread-local.</p>
+ */
+public final class SearchIndex {
+
+    private static final int MIN_RENUMBER = 64;
+
+    /** What queries read: the posting map and the first {@code size} ordinals, minus {@code dead}. */
+    private static final class State {
+        final Map<String, Postings> postings;
+        final Song[]                songs;
+        final int                   size;
+        final BitSet                dead;
+
+        State(Map<String, Postings> postings, Song[] songs, int size, BitSet dead) {
+            this.postings = postings;
+            this.songs    = songs;
+            this.size     = size;
+            this.dead     = dead;
+        }
+    }
+
+    private final FuzzyIndex fuzzy = new FuzzyIndex();
+
+    // Writer side; appended to in place, published by publish()
+    private final Map<String, Integer> ordinals  = new HashMap<>();
+    private Map<String, Postings>      postings  = new ConcurrentHashMap<>();
+    private Song[]                     byOrdinal = new Song[16];
+    private int                        size;
+    private final BitSet               dead      = new BitSet();
+    private int                        deadCount;
+    private boolean                    deadChanged;                   // since the last publish
+    private final Set<String>          emptied   = new HashSet<>();   // tokens that lost a song since then
+
+    private volatile State state = new State(postings, byOrdinal, 0, new BitSet());
+
+    /** Per-ordinal scratch for fuzzy scoring, reused across calls on one thread. */
+    private static final class Scratch {
+        float[] songScore = new float[0];
+        float[] tokenBest = new float[0];
+    }
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    // ── Mutation ───────────────────────────────────────────────────────────────
+
+    /**
+     * Indexes {@code song} under a new ordinal.  Re-adding an id that is already
+     * present retires its old ordinal first, mirroring {@link com.musicapp.model.SongStore}
+     * which moves a re-added song to the end.
+     */
+    public void add(Song song) {
+        remove(song.getId());
+        if (size == byOrdinal.length) byOrdinal = Arrays.copyOf(byOrdinal, size * 2);
+        int ord = size++;
+        byOrdinal[ord] = song;
+        ordinals.put(song.getId(), ord);
+        index(postings, ord, song);
+    }
+
+    /** Removes the song with {@code id}; its ordinal is retired, not reused. */
+    public void remove(String id) {
+        Integer ord = ordinals.remove(id);
+        if (ord == null) return;
+        dead.set(ord);
+        deadCount++;
+        deadChanged = true;
+        for (String token : songTokens(byOrdinal[ord])) {
+            postings.get(token).dead++;
+            emptied.add(token);
+        }
+    }
+
+    /** Makes the writes since the last call visible to queries; call once after each batch. */
+    public void publish() {
+        if (deadCount >= MIN_RENUMBER && deadCount * 2 > size) renumber();
+        State s = state;
+        if (size == s.size && postings == s.postings && !deadChanged) return;
+        state = new State(postings, byOrdinal, size, deadChanged ? (BitSet) dead.clone() : s.dead);
+        deadChanged = false;
+        for (String token : emptied) {
+            Postings p = postings.get(token);
+            if (p != null && p.dead < p.size) continue;
+            if (p != null) postings.remove(token);
+            fuzzy.removeWord(token);
+        }
+        emptied.clear();
+    }
+
+    private void index(Map<String, Postings> into, int ord, Song song) {
+        for (String token : fieldTokens(song)) {
+            Postings p = into.get(token);
+            if (p == null) {
+                p = new Postings();
+                into.put(token, p);
+                fuzzy.addWord(token);
+            }
+            p.appendIfNew(ord);
+        }
+    }
+
+    /** Moves the live songs to ordinals {@code 0..n-1} of a fresh posting map. */
+    private void renumber() {
+        Map<String, Postings> next = new ConcurrentHashMap<>();
+        Song[] songs = new Song[Math.max(16, size - deadCount)];
+        int n = 0;
+        for (int ord = dead.nextClearBit(0); ord < size; ord = dead.nextClearBit(ord + 1)) {
+            Song s = byOrdinal[ord];
+            ordinals.put(s.getId(), n);
+            songs[n] = s;
+            index(next, n++, s);
+        }
+        postings    = next;
+        byOrdinal   = songs;
+        size        = n;
+        dead.clear();
+        deadCount   = 0;
+        deadChanged = true;
+    }
+
+    // ── Query ──────────────────────────────────────────────────────────────────
+
+    /**
+     * Returns every indexed song whose title, artist, album or genre contains
+     * {@code query} (case-insensitive), in insertion order, or {@code null} when
+     * the query has no alphanumeric token the index could narrow on.
+     */
+    public List<Song> search(String query) {
+        String q = query.toLowerCase(Locale.ROOT);
+        List<String> tokens = tokenize(q);
+        if (tokens.isEmpty()) return null;
+
+        State st = state;
+        BitSet acc = null;
+        for (String token : new LinkedHashSet<>(tokens)) {
+            BitSet hits = new BitSet(st.size);
+            for (String word : fuzzy.containing(token)) {
+                Postings p = st.postings.get(word);
+                if (p != null) p.addTo(hits, st.size);
+            }
+            if (acc == null) {
+                acc = hits;
+                acc.andNot(st.dead);
+            } else {
+                acc.and(hits);
+            }
+            if (acc.isEmpty()) return new ArrayList<>();
+        }
+
+        // A single bare token is contained in a field iff it is contained in one
+        // of that field's tokens, so the candidates are already exact.
+        boolean verify = tokens.size() != 1 || !tokens.get(0).equals(q);
+        List<Song> result = new ArrayList<>(acc.cardinality());
+        for (int ord = acc.nextSetBit(0); ord >= 0; ord = acc.nextSetBit(ord + 1)) {
+            Song s = st.songs[ord];
+            if (!verify || matches(s, q)) result.add(s);
+        }
+        return result;
+    }
+
+    /**
+     * Typo-tolerant search: each query token is matched against the dictionary
+     * through the trigram {@link FuzzyIndex}, a song scores the sum over query
+     * tokens of its best-matching word's similarity, and the top {@code limit}
+     * songs are returned best first (ties: most played, then insertion order).
+     */
+    public List<Song> searchFuzzy(String query, int limit) {
+        List<String> tokens = tokenize(query.toLowerCase(Locale.ROOT));
+        if (tokens.isEmpty() || limit <= 0) return new ArrayList<>();
+
+        State st = state;
+        int n = st.size;
+        Scratch sc = scratch.get();
+        if (sc.songScore.length < n) {
+            sc.songScore = new float[n + n / 2];
+            sc.tokenBest = new float[n + n / 2];
+        }
+        float[] songScore = sc.songScore, tokenBest = sc.tokenBest;
+        BitSet scored = new BitSet(n);
+        BitSet hit    = new BitSet(n);
+        for (String token : new LinkedHashSet<>(tokens)) {
+            for (Map.Entry<String, Float> m : fuzzy.match(token).entrySet()) {
+                Postings p = st.postings.get(m.getKey());
+                if (p == null) continue;
+                float sim = m.getValue();
+                int size = p.size;
+                int[] ids = p.ids;
+                for (int i = 0; i < size && ids[i] < n; i++) {
+                    int ord = ids[i];
+                    if (st.dead.get(ord)) continue;
+                    if (sim > tokenBest[ord]) tokenBest[ord] = sim;
+                    hit.set(ord);
+                }
+            }
+            for (int ord = hit.nextSetBit(0); ord >= 0; ord = hit.nextSetBit(ord + 1)) {
+                songScore[ord] += tokenBest[ord];
+                tokenBest[ord] = 0;
+            }
+            scored.or(hit);
+            hit.clear();
+        }
+
+        Comparator<Integer> rank = (a, b) -> {
+            int c = Float.compare(songScore[b], songScore[a]);
+            if (c == 0) c = Integer.compare(st.songs[b].getPlayCount(), st.songs[a].getPlayCount());
+            return c != 0 ? c : Integer.compare(a, b);
+        };
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, rank.reversed());
+        for (int ord = scored.nextSetBit(0); ord >= 0; ord = scored.nextSetBit(ord + 1)) {
+            top.offer(ord);
+            if (top.size() > limit) top.poll();
+        }
+        List<Integer> best = new ArrayList<>(top);
+        best.sort(rank);
+        List<Song> result = new ArrayList<>(best.size());
+        for (int ord : best) result.add(st.songs[ord]);
+        for (int ord = scored.nextSetBit(0); ord >= 0; ord = scored.nextSetBit(ord + 1)) songScore[ord] = 0;
+        return result;
+    }
+
+    /** Number of distinct tokens in the dictionary as of the last {@link #publish()}. */
+    public int tokenCount() { return state.postings.size(); }
+
+    // ── Tokenisation / matching ────────────────────────────────────────────────
+
+    /** Exact predicate used by the full scan; {@code lowerQuery} must be lower-cased. */
+    static boolean matches(Song s, String lowerQuery) {
+        return s.getTitle().toLowerCase(Locale.ROOT).contains(lowerQuery)
+            || s.getArtist().toLowerCase(Locale.ROOT).contains(lowerQuery)
+            || s.getAlbum().toLowerCase(Locale.ROOT).contains(lowerQuery)
+            || s.getGenre().toLowerCase(Locale.ROOT).contains(lowerQuery);
+    }
+
+    private static Set<String> songTokens(Song s) { return new HashSet<>(fieldTokens(s)); }
+
+    /** The tokens of title, artist, album and genre, repeats included. */
+    private static List<String> fieldTokens(Song s) {
+        List<String> out = tokenize(s.getTitle().toLowerCase(Locale.ROOT));
+        out.addAll(tokenize(s.getArtist().toLowerCase(Locale.ROOT)));
+        out.addAll(tokenize(s.getAlbum().toLowerCase(Locale.ROOT)));
+        out.addAll(tokenize(s.getGenre().toLowerCase(Locale.ROOT)));
+        return out;
+    }
+
+    /** Splits already lower-cased text into maximal runs of letters/digits. */
+    static List<String> tokenize(String lower) {
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                out.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+}
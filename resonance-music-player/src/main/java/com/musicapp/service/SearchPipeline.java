@@ -0,0 +1,176 @@
+package com.musicapp.service;
+
+import com.musicapp.model.Song;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs search-as-you-type queries off the UI thread.
+ *
+ * <p>{@link #submit} only stamps the text with a new <em>generation</em> and
+ * schedules it on the {@code library-search} thread after a
+ * {@linkplain #getDebounce debounce}.  A later submit cancels it, so a burst
+ * of keystrokes runs one query, for the last text.  A query still running
+ * when the next one is submitted is interrupted, and its results are
+ * discarded.  Results hop to the delivery executor (the EDT in the app)
+ * tagged with their generation.  They are delivered only if no newer text
+ * has been submitted and {@link #cancel} was not called meanwhile, so results
+ * never arrive out of order.  The UI thread never waits on a query.</p>
+ *
+ * <p>{@link #getStats} reports first-results latency: from the first
+ * keystroke of a burst to its results reaching the listener.</p>
+ */
+public final class SearchPipeline implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchPipeline.class);
+
+    /** Default quiet time after a keystroke before the query runs. */
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(120);
+
+    /** Results of one query. */
+    public static final class Results {
+        private final long       generation;
+        private final String     query;
+        private final List<Song> songs;
+
+        Results(long generation, String query, List<Song> songs) {
+            this.generation = generation; this.query = query; this.songs = songs;
+        }
+
+        public long       getGeneration() { return generation; }
+        public String     getQuery()      { return query; }
+        public List<Song> getSongs()      { return songs; }
+    }
+
+    /** Counters since the pipeline was created. */
+    public static final class Stats {
+        private final long submitted, run, delivered, stale, latencyNanos, maxLatencyNanos;
+
+        Stats(long submitted, long run, long delivered, long stale, long latencyNanos, long maxLatencyNanos) {
+            this.submitted = submitted; this.run = run; this.delivered = delivered; this.stale = stale;
+            this.latencyNanos = latencyNanos; this.maxLatencyNanos = maxLatencyNanos;
+        }
+
+        public long getSubmitted() { return submitted; }
+        /** Queries started; the rest of the submissions were debounced away. */
+        public long getRun()       { return run; }
+        public long getDelivered() { return delivered; }
+        /** Queries whose results were dropped because newer text had come in. */
+        public long getStale()     { return stale; }
+
+        /** Mean time from the first keystroke of a burst to its results being delivered. */
+        public Duration getMeanFirstResults() { return Duration.ofNanos(delivered == 0 ? 0 : latencyNanos / delivered); }
+        public Duration getMaxFirstResults()  { return Duration.ofNanos(maxLatencyNanos); }
+
+        @Override
+        public String toString() {
+            return String.format("%,d submitted, %,d run, %,d delivered, %,d stale; first results mean %.1f ms, max %.1f ms",
+                                 submitted, run, delivered, stale,
+                                 getMeanFirstResults().toNanos() / 1e6, maxLatencyNanos / 1e6);
+        }
+    }
+
+    private final Function<String, List<Song>> query;
+    private final Executor                     deliver;
+    private final Consumer<Results>            listener;
+    private final long                         debounceNanos;
+    private final ScheduledThreadPoolExecutor  worker = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "library-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?>        pending;                     // guarded by this
+    private long             burstStart;                  // guarded by this; 0: no burst waiting for results
+    private final AtomicLong submitted = new AtomicLong(), run = new AtomicLong(), stale = new AtomicLong();
+    // Delivery thread only; volatile for getStats
+    private volatile long delivered, latencyNanos, maxLatencyNanos;
+
+    /**
+     * Runs {@code query} on its own thread and hands fresh results to
+     * {@code listener} on {@code deliver}.
+     */
+    public SearchPipeline(Function<String, List<Song>> query, Executor deliver, Duration debounce,
+                          Consumer<Results> listener) {
+        this.query         = query;
+        this.deliver       = deliver;
+        this.listener      = listener;
+        this.debounceNanos = debounce.toNanos();
+        worker.setRemoveOnCancelPolicy(true);
+    }
+
+    public Duration getDebounce() { return Duration.ofNanos(debounceNanos); }
+
+    /** Searches for {@code text} once typing pauses, superseding anything submitted before; returns at once. */
+    public synchronized long submit(String text) {
+        long gen = generation.incrementAndGet();
+        submitted.incrementAndGet();
+        if (pending != null) pending.cancel(true);
+        if (burstStart == 0) burstStart = System.nanoTime();
+        long started = burstStart;
+        pending = worker.schedule(() -> runQuery(gen, text, started), debounceNanos, TimeUnit.NANOSECONDS);
+        return gen;
+    }
+
+    /** Drops whatever is pending or running, e.g. when the view switches away from search results. */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) pending.cancel(true);
+        pending    = null;
+        burstStart = 0;
+    }
+
+    /** The latest generation handed out; results of older ones are not delivered. */
+    public long getGeneration() { return generation.get(); }
+
+    public Stats getStats() {
+        return new Stats(submitted.get(), run.get(), delivered, stale.get(), latencyNanos, maxLatencyNanos);
+    }
+
+    private void runQuery(long gen, String text, long started) {
+        if (gen != generation.get()) return;
+        run.incrementAndGet();
+        List<Song> songs;
+        try {
+            songs = query.apply(text);
+        } catch (RuntimeException e) {
+            log.warn("Search for '{}' failed", text, e);
+            return;
+        }
+        if (gen != generation.get() || Thread.interrupted()) {
+            stale.incrementAndGet();
+            return;
+        }
+        Results results = new Results(gen, text, songs);
+        deliver.execute(() -> {
+            synchronized (this) {
+                if (gen != generation.get()) {              // newer text came in during the hop
+                    stale.incrementAndGet();
+                    return;
+                }
+                burstStart = 0;
+            }
+            long lat = System.nanoTime() - started;
+            delivered++;
+            latencyNanos += lat;
+            if (lat > maxLatencyNanos) maxLatencyNanos = lat;
+            listener.accept(results);
+        });
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        worker.shutdownNow();
+    }
+}
@@ -0,0 +1,269 @@
+package com.musicapp.service;
+
+import com.musicapp.model.Song;
+
+import java.util.*;
+
+/**
+ * Type-ahead index over normalised title, artist and album keys.
+ *
+ * <p>Each key carries the summed play count of the songs that have it, kept
+ * up to date as songs are added, removed and played.  Keys are held in a
+ * few sorted runs, each at least {@value #FANOUT} times smaller than the one
+ * before it.  {@link #publish()} sorts only the keys added since the last
+ * call into a new run and merges it with the runs behind it that are not
+ * much larger, so a key is re-merged {@code O(log n)} times over its life
+ * and a burst of imports never re-sorts every key.  Each run has a max-tree
+ * over its play counts.  A prefix lookup is then two binary searches per run
+ * plus {@code O(limit log n)} steps down the trees, however many keys share
+ * the prefix.</p>
+ *
+ * <p>Writers are serialised on the index's monitor; {@link #suggest} never
+ * locks.  It reads the runs published by the last {@link #publish()}
+ * through a volatile field.  Play counts are updated in place, so a lookup
+ * racing a play may rank that one key by its old count.</p>
+ */
+public final class SuggestIndex {
+
+    private static final int FANOUT = 4;
+
+    private final Map<String, Key> keys    = new HashMap<>();
+    private final List<Key>        pending = new ArrayList<>();   // added since the last publish, not in a run yet
+    private int                    deadKeys;                      // in a run, no song left
+
+    private volatile Run[] runs = new Run[0];                     // largest first; never mutated once published
+
+    // ── Mutation ───────────────────────────────────────────────────────────────
+
+    public synchronized void add(Song song) {
+        long plays = song.getPlayCount();
+        for (String k : keysOf(song)) {
+            Key key = keys.get(k);
+            if (key == null) {
+                key = new Key(k, display(song, k));
+                keys.put(k, key);
+                pending.add(key);
+            } else if (key.songs == 0 && key.run != null) {
+                deadKeys--;
+            }
+            key.songs++;
+            setPlays(key, (key.songs == 1 ? 0 : key.plays) + plays);
+        }
+    }
+
+    public synchronized void remove(Song song) {
+        long plays = song.getPlayCount();
+        for (String k : keysOf(song)) {
+            Key key = keys.get(k);
+            if (key == null || key.songs == 0) continue;
+            if (--key.songs > 0) {
+                setPlays(key, key.plays - plays);
+            } else {
+                setPlays(key, -1);
+                if (key.run != null) deadKeys++;
+            }
+        }
+    }
+
+    /** Moves {@code song}'s keys by {@code delta} plays. */
+    public synchronized void playCountChanged(Song song, int delta) {
+        for (String k : keysOf(song)) {
+            Key key = keys.get(k);
+            if (key != null && key.songs > 0) setPlays(key, key.plays + delta);
+        }
+    }
+
+    /**
+     * Makes the keys added since the last call visible to {@link #suggest};
+     * call once after each batch of writes.
+     */
+    public synchronized void publish() {
+        boolean compact = deadKeys * 4 > keys.size();
+        if (pending.isEmpty() && !compact) return;
+        pending.sort(BY_KEY);
+        Key[] merged = merge(new Key[0], pending.toArray(new Key[0]));
+        pending.clear();
+        List<Run> next = new ArrayList<>(Arrays.asList(runs));
+        while (!next.isEmpty() && (compact || next.get(next.size() - 1).keys.length <= merged.length * FANOUT)) {
+            merged = merge(next.remove(next.size() - 1).keys, merged);
+        }
+        if (merged.length > 0) next.add(new Run(merged));
+        runs = next.toArray(new Run[0]);
+    }
+
+    // ── Query ──────────────────────────────────────────────────────────────────
+
+    /**
+     * Returns up to {@code limit} display strings whose normalised form starts
+     * with the normalised {@code prefix}, most-played first (summed over every
+     * song carrying the key), ties broken by key.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String p = normalize(prefix);
+        if (p.isEmpty() || limit <= 0) return new ArrayList<>();
+        Run[] rs = runs;
+        List<List<Key>> tops = new ArrayList<>(rs.length);
+        for (Run r : rs) tops.add(r.top(p, limit));
+        int[] at = new int[rs.length];
+        List<String> out = new ArrayList<>(limit);
+        while (out.size() < limit) {
+            int best = -1;
+            for (int i = 0; i < at.length; i++) {
+                if (at[i] < tops.get(i).size()
+                        && (best < 0 || RANK.compare(tops.get(i).get(at[i]), tops.get(best).get(at[best])) < 0)) best = i;
+            }
+            if (best < 0) break;
+            out.add(tops.get(best).get(at[best]++).display);
+        }
+        return out;
+    }
+
+    /** Number of distinct normalised keys. */
+    public synchronized int keyCount() { return keys.size() - deadKeys; }
+
+    // ── Internals ──────────────────────────────────────────────────────────────
+
+    private static final Comparator<Key> BY_KEY = Comparator.comparing(k -> k.key);
+
+    private static final Comparator<Key> RANK = (a, b) -> a.plays != b.plays
+        ? Long.compare(b.plays, a.plays)
+        : a.key.compareTo(b.key);
+
+    private void setPlays(Key key, long plays) {
+        key.plays = plays;
+        if (key.run != null) key.run.update(key.pos);
+    }
+
+    /** Sorted union of two sorted key arrays without the keys that have no song left. */
+    private Key[] merge(Key[] x, Key[] y) {
+        Key[] out = new Key[x.length + y.length];
+        int n = 0;
+        for (int i = 0, j = 0; i < x.length || j < y.length; ) {
+            Key k = j == y.length || i < x.length && x[i].key.compareTo(y[j].key) < 0 ? x[i++] : y[j++];
+            if (k.songs == 0) {
+                keys.remove(k.key);
+                if (k.run != null) deadKeys--;
+            } else {
+                out[n++] = k;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /** The distinct non-empty keys of {@code song}'s title, artist and album. */
+    private static Set<String> keysOf(Song s) {
+        Set<String> out = new HashSet<>(4);
+        for (String field : new String[]{ s.getTitle(), s.getArtist(), s.getAlbum() }) {
+            String k = normalize(field);
+            if (!k.isEmpty()) out.add(k);
+        }
+        return out;
+    }
+
+    private static String display(Song s, String key) {
+        for (String field : new String[]{ s.getTitle(), s.getArtist(), s.getAlbum() }) {
+            if (normalize(field).equals(key)) return field;
+        }
+        return key;
+    }
+
+    /** Lower-cases and collapses every run of non-alphanumerics to one space. */
+    static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean gap = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                if (gap && sb.length() > 0) sb.append(' ');
+                sb.append(c);
+                gap = false;
+            } else {
+                gap = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    /** One normalised key and the songs that carry it. */
+    private static final class Key {
+        final String  key, display;
+        volatile long plays;        // summed over the songs; -1 once none is left
+        int           songs;        // writer side
+        Run           run;          // writer side; null until published
+        int           pos;
+
+        Key(String key, String display) { this.key = key; this.display = display; }
+    }
+
+    /**
+     * Sorted keys with a tournament tree over them: {@code tree[1]} is the
+     * position of the best-ranked key, each node the better of its children.
+     * Building one moves its keys into it.
+     */
+    private static final class Run {
+        final Key[] keys;
+        final int[] tree;
+        final int   leaves;
+
+        Run(Key[] keys) {
+            this.keys = keys;
+            leaves = Integer.highestOneBit(Math.max(1, keys.length) * 2 - 1);
+            tree = new int[leaves * 2];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i].run = this;
+                keys[i].pos = i;
+            }
+            for (int i = 0; i < leaves; i++) tree[leaves + i] = i < keys.length ? i : -1;
+            for (int i = leaves - 1; i > 0; i--) tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+        }
+
+        int better(int a, int b) {
+            if (a < 0) return b;
+            if (b < 0) return a;
+            return RANK.compare(keys[a], keys[b]) <= 0 ? a : b;
+        }
+
+        /** Re-ranks the path above {@code pos} after its key's play count changed. */
+        void update(int pos) {
+            for (int i = (leaves + pos) / 2; i > 0; i /= 2) tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+        }
+
+        /** Position of the best key in {@code [lo, hi)}, or -1 if the range is empty. */
+        int best(int lo, int hi) {
+            int b = -1;
+            for (int l = lo + leaves, r = hi + leaves; l < r; l /= 2, r /= 2) {
+                if ((l & 1) == 1) b = better(b, tree[l++]);
+                if ((r & 1) == 1) b = better(b, tree[--r]);
+            }
+            return b;
+        }
+
+        /** The best {@code limit} live keys starting with {@code prefix}, best first. */
+        List<Key> top(String prefix, int limit) {
+            int lo = lowerBound(prefix), hi = lowerBound(prefix + Character.MAX_VALUE);
+            List<Key> out = new ArrayList<>(Math.min(limit, hi - lo));
+            if (lo >= hi) return out;
+            // Each entry is a range and the position of its best key; popping one splits it around that key
+            PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> RANK.compare(keys[a[2]], keys[b[2]]));
+            ranges.add(new int[]{lo, hi, best(lo, hi)});
+            while (out.size() < limit && !ranges.isEmpty()) {
+                int[] r = ranges.poll();
+                Key k = keys[r[2]];
+                if (k.plays < 0) break;                   // only keys without songs are left
+                out.add(k);
+                if (r[0] < r[2]) ranges.add(new int[]{r[0], r[2], best(r[0], r[2])});
+                if (r[2] + 1 < r[1]) ranges.add(new int[]{r[2] + 1, r[1], best(r[2] + 1, r[1])});
+            }
+            return out;
+        }
+
+        private int lowerBound(String k) {
+            int lo = 0, hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid].key.compareTo(k) < 0) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
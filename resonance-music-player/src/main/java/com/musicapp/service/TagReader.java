@@ -0,0 +1,450 @@
+package com.musicapp.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Reads duration and descriptive tags from audio file headers.
+ *
+ * <p>Supports RIFF/WAVE (including {@code LIST/INFO} and embedded ID3 chunks),
+ * AIFF/AIFC ({@code COMM}, {@code NAME}, {@code AUTH}, embedded ID3), MP3 with
+ * ID3v2.2–2.4 tags, FLAC and Ogg Vorbis/Opus (Vorbis comments).  Only headers,
+ * chunk directories and the tag frames of interest are read — audio payloads
+ * and embedded artwork are skipped by seeking — so the bytes read per file are
+ * typically a few kilobytes regardless of its size.</p>
+ *
+ * <p>One instance per thread: the read buffer is reused between files.</p>
+ */
+final class TagReader {
+
+    /** Tags found in one file; fields stay {@code null}/0 when absent. */
+    static final class Tags {
+        String title, artist, album, genre;
+        int    year;
+        double seconds;
+
+        void set(String key, String value) {
+            if (value == null || value.isEmpty()) return;
+            switch (key) {
+                case "TITLE":  if (title  == null) title  = value; break;
+                case "ARTIST": if (artist == null) artist = value; break;
+                case "ALBUM":  if (album  == null) album  = value; break;
+                case "GENRE":  if (genre  == null) genre  = id3Genre(value); break;
+                case "DATE":   if (year   == 0)    year   = parseYear(value); break;
+                default: break;
+            }
+        }
+    }
+
+    private static final int MAX_TEXT = 64 * 1024;   // cap on any single tag block we read whole
+
+    /** Leading bytes covered by {@link #headerHash}: container headers and, in practice, the tags. */
+    static final int HASH_BYTES = 16 * 1024;
+
+    private final CRC32 crc = new CRC32();
+
+    private ByteBuffer buf = ByteBuffer.allocate(16 * 1024);
+    private volatile long bytesRead;   // read by the scanner's progress reporting
+
+    /** Total bytes read from disk by this reader so far. */
+    long bytesRead() { return bytesRead; }
+
+    /** CRC-32 of the first {@link #HASH_BYTES} of {@code ch}'s file. */
+    int headerHash(FileChannel ch) throws IOException {
+        crc.reset();
+        crc.update(fill(ch, 0, HASH_BYTES, ByteOrder.BIG_ENDIAN));
+        return (int) crc.getValue();
+    }
+
+    /** Returns the tags of {@code ch}'s file, or {@code null} if the format is not recognised. */
+    Tags read(FileChannel ch) throws IOException {
+        long size = ch.size();
+        ByteBuffer b = fill(ch, 0, 12, ByteOrder.BIG_ENDIAN);
+        if (b.remaining() < 4) return null;
+        int magic = b.getInt(0);
+        Tags t = new Tags();
+        if (magic == fourcc("RIFF") && b.remaining() >= 12 && b.getInt(8) == fourcc("WAVE")) {
+            readWav(ch, size, t);
+        } else if (magic == fourcc("FORM") && b.remaining() >= 12
+                   && (b.getInt(8) == fourcc("AIFF") || b.getInt(8) == fourcc("AIFC"))) {
+            readAiff(ch, size, t);
+        } else if ((magic >>> 8) == 0x494433) {   // "ID3"
+            long audio = readId3(ch, 0, t);
+            if (t.seconds == 0) t.seconds = mpegSeconds(ch, audio, size);
+        } else if (magic == fourcc("fLaC")) {
+            readFlac(ch, t);
+        } else if (magic == fourcc("OggS")) {
+            readOgg(ch, size, t);
+        } else {
+            return null;
+        }
+        return t;
+    }
+
+    // ── RIFF / WAVE ────────────────────────────────────────────────────────────
+
+    private void readWav(FileChannel ch, long size, Tags t) throws IOException {
+        long pos = 12, dataBytes = -1;
+        int byteRate = 0;
+        while (pos + 8 <= size) {
+            ByteBuffer h = fill(ch, pos, 8, ByteOrder.LITTLE_ENDIAN);
+            if (h.remaining() < 8) break;
+            int id = h.order(ByteOrder.BIG_ENDIAN).getInt(0);
+            long len = h.order(ByteOrder.LITTLE_ENDIAN).getInt(4) & 0xFFFFFFFFL;
+            long body = pos + 8;
+            if (id == fourcc("fmt ")) {
+                ByteBuffer f = fill(ch, body, 16, ByteOrder.LITTLE_ENDIAN);
+                if (f.remaining() >= 12) byteRate = f.getInt(8);
+            } else if (id == fourcc("data")) {
+                dataBytes = Math.min(len, size - body);
+            } else if (id == fourcc("LIST") && len >= 4 && len <= MAX_TEXT) {
+                ByteBuffer l = fill(ch, body, (int) len, ByteOrder.LITTLE_ENDIAN);
+                if (l.remaining() >= 4 && l.getInt(0) == Integer.reverseBytes(fourcc("INFO"))) readInfo(l, t);
+            } else if (id == fourcc("id3 ") || id == fourcc("ID3 ")) {
+                readId3(ch, body, t);
+            }
+            pos = body + len + (len & 1);
+        }
+        if (byteRate > 0 && dataBytes > 0) t.seconds = (double) dataBytes / byteRate;
+    }
+
+    /** {@code LIST/INFO} sub-chunks: zero-terminated strings. */
+    private static void readInfo(ByteBuffer l, Tags t) {
+        int p = 4;
+        while (p + 8 <= l.limit()) {
+            int id = l.order(ByteOrder.BIG_ENDIAN).getInt(p);
+            int len = l.order(ByteOrder.LITTLE_ENDIAN).getInt(p + 4);
+            if (len < 0 || p + 8 + len > l.limit()) break;
+            String v = cString(l, p + 8, len, StandardCharsets.UTF_8);
+            if (id == fourcc("INAM"))      t.set("TITLE", v);
+            else if (id == fourcc("IART")) t.set("ARTIST", v);
+            else if (id == fourcc("IPRD")) t.set("ALBUM", v);
+            else if (id == fourcc("IGNR")) t.set("GENRE", v);
+            else if (id == fourcc("ICRD")) t.set("DATE", v);
+            p += 8 + len + (len & 1);
+        }
+    }
+
+    // ── AIFF ───────────────────────────────────────────────────────────────────
+
+    private void readAiff(FileChannel ch, long size, Tags t) throws IOException {
+        long pos = 12;
+        while (pos + 8 <= size) {
+            ByteBuffer h = fill(ch, pos, 8, ByteOrder.BIG_ENDIAN);
+            if (h.remaining() < 8) break;
+            int id = h.getInt(0);
+            long len = h.getInt(4) & 0xFFFFFFFFL;
+            long body = pos + 8;
+            if (id == fourcc("COMM")) {
+                ByteBuffer c = fill(ch, body, 18, ByteOrder.BIG_ENDIAN);
+                if (c.remaining() >= 18) {
+                    long frames = c.getInt(2) & 0xFFFFFFFFL;
+                    double rate = extended80(c, 8);
+                    if (rate > 0) t.seconds = frames / rate;
+                }
+            } else if ((id == fourcc("NAME") || id == fourcc("AUTH")) && len <= MAX_TEXT) {
+                ByteBuffer s = fill(ch, body, (int) len, ByteOrder.BIG_ENDIAN);
+                t.set(id == fourcc("NAME") ? "TITLE" : "ARTIST", cString(s, 0, s.remaining(), StandardCharsets.ISO_8859_1));
+            } else if (id == fourcc("ID3 ")) {
+                readId3(ch, body, t);
+            }
+            pos = body + len + (len & 1);
+        }
+    }
+
+    /** IEEE 754 80-bit extended (AIFF sample rate). */
+    private static double extended80(ByteBuffer b, int at) {
+        int exp = ((b.get(at) & 0x7F) << 8 | (b.get(at + 1) & 0xFF)) - 16383;
+        long mantissa = b.getLong(at + 2);
+        if (mantissa == 0) return 0;
+        return Math.scalb((double) (mantissa >>> 1), exp - 62);
+    }
+
+    // ── ID3v2 ──────────────────────────────────────────────────────────────────
+
+    /**
+     * Reads the ID3v2 tag at {@code at} frame by frame, loading only text
+     * frames of interest.  Returns the offset just past the tag.
+     */
+    private long readId3(FileChannel ch, long at, Tags t) throws IOException {
+        ByteBuffer h = fill(ch, at, 10, ByteOrder.BIG_ENDIAN);
+        if (h.remaining() < 10 || (h.getInt(0) >>> 8) != 0x494433) return at;
+        int major = h.get(3), flags = h.get(5);
+        long end = at + 10 + syncsafe(h.getInt(6));
+        if ((flags & 0x10) != 0) end += 10;   // footer
+        long pos = at + 10;
+        if ((flags & 0x40) != 0 && major >= 3) {
+            ByteBuffer x = fill(ch, pos, 4, ByteOrder.BIG_ENDIAN);
+            pos += major == 4 ? syncsafe(x.getInt(0)) : 4 + x.getInt(0);
+        }
+        int headerLen = major == 2 ? 6 : 10;
+        while (pos + headerLen <= end) {
+            ByteBuffer f = fill(ch, pos, headerLen, ByteOrder.BIG_ENDIAN);
+            if (f.remaining() < headerLen || f.get(0) == 0) break;   // padding
+            String id;
+            int len;
+            if (major == 2) {
+                id  = new String(new byte[]{f.get(0), f.get(1), f.get(2)}, StandardCharsets.ISO_8859_1);
+                len = (f.get(3) & 0xFF) << 16 | (f.get(4) & 0xFF) << 8 | (f.get(5) & 0xFF);
+            } else {
+                id  = new String(new byte[]{f.get(0), f.get(1), f.get(2), f.get(3)}, StandardCharsets.ISO_8859_1);
+                len = major == 4 ? syncsafe(f.getInt(4)) : f.getInt(4);
+            }
+            if (len <= 0) break;
+            String key = id3Key(id);
+            if (key != null && len <= MAX_TEXT) {
+                ByteBuffer v = fill(ch, pos + headerLen, len, ByteOrder.BIG_ENDIAN);
+                String text = id3Text(v);
+                if (key.equals("TLEN")) {
+                    try {
+                        if (t.seconds == 0) t.seconds = Long.parseLong(text.trim()) / 1000.0;
+                    } catch (NumberFormatException ignored) {
+                        // malformed length; the MPEG header estimate is used instead
+                    }
+                } else {
+                    t.set(key, text);
+                }
+            }
+            pos += headerLen + len;
+        }
+        return end;
+    }
+
+    private static String id3Key(String frame) {
+        switch (frame) {
+            case "TIT2": case "TT2": return "TITLE";
+            case "TPE1": case "TP1": return "ARTIST";
+            case "TALB": case "TAL": return "ALBUM";
+            case "TCON": case "TCO": return "GENRE";
+            case "TYER": case "TYE": case "TDRC": return "DATE";
+            case "TLEN": case "TLE": return "TLEN";
+            default: return null;
+        }
+    }
+
+    /** Decodes a text frame body: encoding byte, then the (first) value. */
+    private static String id3Text(ByteBuffer v) {
+        if (v.remaining() < 1) return "";
+        Charset cs;
+        switch (v.get(0)) {
+            case 1:  cs = StandardCharsets.UTF_16;   break;
+            case 2:  cs = StandardCharsets.UTF_16BE; break;
+            case 3:  cs = StandardCharsets.UTF_8;    break;
+            default: cs = StandardCharsets.ISO_8859_1;
+        }
+        int wide = cs == StandardCharsets.UTF_16 || cs == StandardCharsets.UTF_16BE ? 2 : 1;
+        int end = 1;
+        while (end + wide <= v.limit()) {
+            if (v.get(end) == 0 && (wide == 1 || v.get(end + 1) == 0)) break;
+            end += wide;
+        }
+        return decode(v, 1, end - 1, cs).trim();
+    }
+
+    private static int syncsafe(int v) {
+        return (v & 0x7F) | (v >> 8 & 0x7F) << 7 | (v >> 16 & 0x7F) << 14 | (v >> 24 & 0x7F) << 21;
+    }
+
+    private static final String[] ID3V1_GENRES = {
+        "Blues", "Classic Rock", "Country", "Dance", "Disco", "Funk", "Grunge", "Hip-Hop", "Jazz", "Metal",
+        "New Age", "Oldies", "Other", "Pop", "R&B", "Rap", "Reggae", "Rock", "Techno", "Industrial",
+        "Alternative", "Ska", "Death Metal", "Pranks", "Soundtrack", "Euro-Techno", "Ambient", "Trip-Hop",
+        "Vocal", "Jazz+Funk", "Fusion", "Trance", "Classical", "Instrumental", "Acid", "House", "Game",
+        "Sound Clip", "Gospel", "Noise", "AlternRock", "Bass", "Soul", "Punk", "Space", "Meditative",
+        "Instrumental Pop", "Instrumental Rock", "Ethnic", "Gothic", "Darkwave", "Techno-Industrial",
+        "Electronic", "Pop-Folk", "Eurodance", "Dream", "Southern Rock", "Comedy", "Cult", "Gangsta",
+        "Top 40", "Christian Rap", "Pop/Funk", "Jungle", "Native American", "Cabaret", "New Wave",
+        "Psychadelic", "Rave", "Showtunes", "Trailer", "Lo-Fi", "Tribal", "Acid Punk", "Acid Jazz",
+        "Polka", "Retro", "Musical", "Rock & Roll", "Hard Rock"
+    };
+
+    /** Resolves ID3v1 numeric genres ({@code "17"}, {@code "(17)"}) to names. */
+    static String id3Genre(String g) {
+        String s = g.startsWith("(") && g.indexOf(')') > 1 ? g.substring(1, g.indexOf(')')) : g;
+        if (!s.isEmpty() && s.length() <= 3 && s.chars().allMatch(Character::isDigit)) {
+            int n = Integer.parseInt(s);
+            if (n < ID3V1_GENRES.length) return ID3V1_GENRES[n];
+        }
+        return g;
+    }
+
+    // ── MPEG audio (duration when ID3 has no TLEN) ─────────────────────────────
+
+    private static final int[][] BITRATES = {
+        {32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},   // V1 L1
+        {32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},      // V1 L2
+        {32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},       // V1 L3
+        {32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},      // V2 L1
+        {8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},           // V2 L2/L3
+    };
+    private static final int[] SAMPLE_RATES = {44100, 48000, 32000};
+
+    /**
+     * Finds the first MPEG frame after {@code from}; uses its Xing/Info frame
+     * count when present (VBR), otherwise a constant-bitrate estimate.
+     */
+    private double mpegSeconds(FileChannel ch, long from, long size) throws IOException {
+        ByteBuffer b = fill(ch, from, 4096, ByteOrder.BIG_ENDIAN);
+        for (int i = 0; i + 4 <= b.limit(); i++) {
+            int hdr = b.getInt(i);
+            if ((hdr >>> 21) != 0x7FF) continue;
+            int ver = hdr >>> 19 & 3, layer = hdr >>> 17 & 3, bri = hdr >>> 12 & 15, sri = hdr >>> 10 & 3;
+            if (ver == 1 || layer == 0 || bri == 0 || bri == 15 || sri == 3) continue;
+            boolean v1 = ver == 3;
+            int rate = SAMPLE_RATES[sri] >> (v1 ? 0 : ver == 2 ? 1 : 2);
+            int table = v1 ? 3 - layer : layer == 3 ? 3 : 4;
+            int kbps = BITRATES[table][bri - 1];
+            int samples = layer == 3 ? 384 : layer == 2 || v1 ? 1152 : 576;
+            boolean mono = (hdr >>> 6 & 3) == 3;
+            int side = v1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+            int x = i + 4 + side;
+            if (x + 12 <= b.limit()) {
+                int tag = b.getInt(x);
+                if ((tag == fourcc("Xing") || tag == fourcc("Info")) && (b.getInt(x + 4) & 1) != 0) {
+                    long frames = b.getInt(x + 8) & 0xFFFFFFFFL;
+                    return (double) frames * samples / rate;
+                }
+            }
+            return (size - from - i) * 8.0 / (kbps * 1000.0);
+        }
+        return 0;
+    }
+
+    // ── FLAC ───────────────────────────────────────────────────────────────────
+
+    private void readFlac(FileChannel ch, Tags t) throws IOException {
+        long pos = 4;
+        while (true) {
+            ByteBuffer h = fill(ch, pos, 4, ByteOrder.BIG_ENDIAN);
+            if (h.remaining() < 4) return;
+            int head = h.getInt(0);
+            boolean last = head < 0;
+            int type = head >>> 24 & 0x7F, len = head & 0xFFFFFF;
+            if (type == 0 && len >= 18) {
+                long v = fill(ch, pos + 4 + 10, 8, ByteOrder.BIG_ENDIAN).getLong(0);
+                long rate = v >>> 44, total = v & 0xFFFFFFFFFL;
+                if (rate > 0) t.seconds = (double) total / rate;
+            } else if (type == 4 && len <= MAX_TEXT) {
+                readVorbisComments(fill(ch, pos + 4, len, ByteOrder.LITTLE_ENDIAN), 0, t);
+            }
+            if (last) return;
+            pos += 4 + len;
+        }
+    }
+
+    /** Vorbis comment block: vendor string, then {@code KEY=value} pairs (little-endian lengths). */
+    private static void readVorbisComments(ByteBuffer b, int p, Tags t) {
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        if (p + 4 > b.limit()) return;
+        p += 4 + b.getInt(p);
+        if (p < 0 || p + 4 > b.limit()) return;
+        int n = b.getInt(p);
+        p += 4;
+        for (int i = 0; i < n && p + 4 <= b.limit(); i++) {
+            int len = b.getInt(p);
+            if (len < 0 || p + 4 + len > b.limit()) return;
+            String kv = decode(b, p + 4, len, StandardCharsets.UTF_8);
+            int eq = kv.indexOf('=');
+            if (eq > 0) t.set(kv.substring(0, eq).toUpperCase(Locale.ROOT), kv.substring(eq + 1));
+            p += 4 + len;
+        }
+    }
+
+    // ── Ogg (Vorbis / Opus) ────────────────────────────────────────────────────
+
+    private void readOgg(FileChannel ch, long size, Tags t) throws IOException {
+        // The identification and comment packets sit in the first few pages.
+        ByteBuffer head = fill(ch, 0, MAX_TEXT, ByteOrder.LITTLE_ENDIAN);
+        byte[] packets = new byte[head.limit()];
+        int[] ends = new int[2];
+        int nPackets = 0, plen = 0, p = 0;
+        while (nPackets < 2 && p + 27 <= head.limit() && head.getInt(p) == Integer.reverseBytes(fourcc("OggS"))) {
+            int segs = head.get(p + 26) & 0xFF;
+            int data = p + 27 + segs;
+            for (int s = 0; s < segs && nPackets < 2; s++) {
+                int lace = head.get(p + 27 + s) & 0xFF;
+                if (data + lace > head.limit()) return;
+                for (int k = 0; k < lace; k++) packets[plen++] = head.get(data + k);
+                data += lace;
+                if (lace < 255) ends[nPackets++] = plen;
+            }
+            p = data;
+        }
+        if (nPackets < 2) return;
+        ByteBuffer pk = ByteBuffer.wrap(packets, 0, ends[1]).order(ByteOrder.LITTLE_ENDIAN);
+        boolean opus = startsWith(pk, 0, "OpusHead");
+        long rate;
+        int preSkip = 0;
+        if (opus) {
+            rate = 48000;
+            preSkip = pk.getShort(10) & 0xFFFF;
+            if (startsWith(pk, ends[0], "OpusTags")) readVorbisComments(pk, ends[0] + 8, t);
+        } else if (pk.get(0) == 1 && startsWith(pk, 1, "vorbis")) {
+            rate = pk.getInt(12) & 0xFFFFFFFFL;
+            if (pk.get(ends[0]) == 3 && startsWith(pk, ends[0] + 1, "vorbis")) readVorbisComments(pk, ends[0] + 7, t);
+        } else {
+            return;
+        }
+
+        // Duration: granule position of the last page, found by scanning the tail.
+        int tail = (int) Math.min(size, MAX_TEXT);
+        ByteBuffer end = fill(ch, size - tail, tail, ByteOrder.LITTLE_ENDIAN);
+        int oggs = Integer.reverseBytes(fourcc("OggS"));
+        for (int i = end.limit() - 27; i >= 0; i--) {
+            if (end.getInt(i) == oggs) {
+                long granule = end.getLong(i + 6);
+                if (granule > 0 && rate > 0) t.seconds = (double) (granule - preSkip) / rate;
+                break;
+            }
+        }
+    }
+
+    // ── Helpers ────────────────────────────────────────────────────────────────
+
+    /** Reads up to {@code len} bytes at {@code pos} into the shared buffer (flipped, position 0). */
+    private ByteBuffer fill(FileChannel ch, long pos, int len, ByteOrder order) throws IOException {
+        if (buf.capacity() < len) buf = ByteBuffer.allocate(Math.max(len, buf.capacity() * 2));
+        buf.clear().limit(len);
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos + buf.position());
+            if (n < 0) break;
+        }
+        bytesRead += buf.position();
+        buf.flip();
+        return buf.order(order);
+    }
+
+    private static int fourcc(String s) {
+        return s.charAt(0) << 24 | s.charAt(1) << 16 | s.charAt(2) << 8 | s.charAt(3);
+    }
+
+    private static boolean startsWith(ByteBuffer b, int at, String ascii) {
+        if (at < 0 || at + ascii.length() > b.limit()) return false;
+        for (int i = 0; i < ascii.length(); i++) if (b.get(at + i) != ascii.charAt(i)) return false;
+        return true;
+    }
+
+    private static String cString(ByteBuffer b, int at, int len, Charset cs) {
+        int end = at;
+        while (end < at + len && end < b.limit() && b.get(end) != 0) end++;
+        return decode(b, at, end - at, cs).trim();
+    }
+
+    private static String decode(ByteBuffer b, int at, int len, Charset cs) {
+        byte[] out = new byte[Math.max(0, Math.min(len, b.limit() - at))];
+        for (int i = 0; i < out.length; i++) out[i] = b.get(at + i);
+        return new String(out, cs);
+    }
+
+    static int parseYear(String s) {
+        if (s.length() < 4) return 0;
+        for (int i = 0; i < 4; i++) if (!Character.isDigit(s.charAt(i))) return 0;
+        return Integer.parseInt(s.substring(0, 4));
+    }
+}
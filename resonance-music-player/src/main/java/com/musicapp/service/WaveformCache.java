@@ -0,0 +1,211 @@
+package com.musicapp.service;
+
+import com.musicapp.audio.WaveformOverview;
+import com.musicapp.model.Song;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * On-disk cache of {@link WaveformOverview}s, one small file per audio file.
+ *
+ * <p>An entry is named after a 64-bit hash of the audio file's path and
+ * starts with that file's fingerprint: path, size and modification time.
+ * An entry whose fingerprint no longer matches is stale; it is recomputed
+ * and overwritten in place, so edited files never leave garbage
+ * behind.  Entry layout (big-endian):</p>
+ * <pre>
+ *   MAGIC, path (modified UTF-8), size, mtime, {@link WaveformOverview#BYTES} outline bytes
+ * </pre>
+ *
+ * <p>{@link #request} outlines the song about to be shown at once, on its
+ * own thread.  {@link #start} fills the cache for the whole library in the
+ * background, like {@link LoudnessAnalyzer}: one pass at once, then another
+ * after {@link #wake} or every minute.  The most recently
+ * used outlines are also kept in memory.  Thread-safe.</p>
+ */
+public final class WaveformCache implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WaveformCache.class);
+
+    static final int MAGIC = 0x5257_4631;                  // "RWF1"
+
+    private static final int MEMORY_ENTRIES = 32;
+
+    /** An outline held in memory with the fingerprint it was computed from. */
+    private static final class Cached {
+        final FileStamp        stamp;
+        final WaveformOverview overview;
+
+        Cached(FileStamp stamp, WaveformOverview overview) { this.stamp = stamp; this.overview = overview; }
+    }
+
+    private final Path dir;
+    private final Map<Path, FileStamp> onDisk      = new ConcurrentHashMap<>();   // entries known to be current
+    private final Map<Path, FileStamp> undecodable = new ConcurrentHashMap<>();   // not retried until they change
+    private final Map<Path, Cached> recent = new LinkedHashMap<Path, Cached>(16, 0.75f, true) {   // guarded by itself
+        @Override protected boolean removeEldestEntry(Map.Entry<Path, Cached> e) { return size() > MEMORY_ENTRIES; }
+    };
+    private final ExecutorService urgent = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "waveform-request");
+        t.setDaemon(true);
+        return t;
+    });
+    private final BackgroundPass background = new BackgroundPass("library-waveforms", Thread.MIN_PRIORITY);
+
+    /** A cache keeping its entries in {@code dir}, created on first write. */
+    public WaveformCache(Path dir) { this.dir = dir; }
+
+    public Path getDirectory() { return dir; }
+
+    /** The outline of {@code file} if one is cached and still current; {@code null} otherwise.  May read the disk. */
+    public WaveformOverview get(Path file) throws IOException {
+        FileStamp now = FileStamp.of(file);
+        synchronized (recent) {
+            Cached c = recent.get(file);
+            if (c != null && now.matches(c.stamp)) return c.overview;
+        }
+        WaveformOverview w = read(file, now);
+        if (w != null) remember(file, now, w);
+        return w;
+    }
+
+    /** The outline of {@code file}, computing and storing it if it is not cached; blocks. */
+    public WaveformOverview load(Path file) throws IOException, UnsupportedAudioFileException {
+        WaveformOverview w = get(file);
+        if (w != null) return w;
+        FileStamp before = FileStamp.of(file);
+        w = WaveformOverview.measure(file);
+        if (before.matches(FileStamp.of(file))) {           // not written to while we read it
+            write(file, before, w);
+            remember(file, before, w);
+        }
+        return w;
+    }
+
+    /**
+     * Loads the outline of {@code file} ahead of any background work and
+     * hands it to {@code done} on the cache's thread; {@code null} if the
+     * file cannot be decoded.
+     */
+    public void request(Path file, Consumer<WaveformOverview> done) {
+        try {
+            urgent.execute(() -> {
+                WaveformOverview w = null;
+                try {
+                    w = load(file);
+                } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+                    log.debug("No waveform for {}: {}", file, e.toString());
+                }
+                done.accept(w);
+            });
+        } catch (RejectedExecutionException e) {
+            done.accept(null);                              // closed
+        }
+    }
+
+    /** Keeps an outline of every song in {@code library} on disk until {@link #close}. */
+    public void start(MusicLibrary library) {
+        background.start(() -> {
+            int made = 0;
+            for (Song s : library.getAllSongs()) {
+                if (background.isStopped()) break;
+                if (s.getFilePath() != null && fill(Paths.get(s.getFilePath()))) made++;
+            }
+            if (made > 0) log.info("Waveform cache: {} outlines computed", made);
+        });
+    }
+
+    /** Computes and stores the outline of {@code file} unless a current one is on disk; true if it did. */
+    private boolean fill(Path file) {
+        FileStamp now = null;
+        try {
+            if (!Files.isRegularFile(file)) return false;
+            now = FileStamp.of(file);
+            if (now.matches(onDisk.get(file)) || now.matches(undecodable.get(file)) || read(file, now) != null) return false;
+            WaveformOverview w = WaveformOverview.measure(file);
+            if (!now.matches(FileStamp.of(file))) return false;
+            write(file, now, w);
+            return true;
+        } catch (UnsupportedAudioFileException e) {
+            undecodable.put(file, now);
+            return false;
+        } catch (IOException | RuntimeException e) {
+            log.debug("No waveform for {}: {}", file, e.toString());
+            return false;
+        }
+    }
+
+    /** Recomputes outlines for new or changed files now instead of at the next minute. */
+    public void wake() { background.wake(); }
+
+    @Override
+    public void close() {
+        background.stop();
+        urgent.shutdownNow();
+        background.join();
+    }
+
+    // ── Entries ────────────────────────────────────────────────────────────────
+
+    private void remember(Path file, FileStamp stamp, WaveformOverview w) {
+        synchronized (recent) { recent.put(file, new Cached(stamp, w)); }
+    }
+
+    /** Where the entry for {@code file} lives. */
+    Path entry(Path file) {
+        byte[] path = file.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8);
+        long h = 0xcbf2_9ce4_8422_2325L;                    // 64-bit FNV-1a
+        for (byte b : path) {
+            h ^= b & 0xff;
+            h *= 0x0000_0100_0000_01b3L;
+        }
+        return dir.resolve(String.format("%016x.wf", h));
+    }
+
+    /** The entry for {@code file} if it exists and matches {@code now}; null otherwise. */
+    private WaveformOverview read(Path file, FileStamp now) {
+        Path entry = entry(file);
+        if (!Files.exists(entry)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(file.toAbsolutePath().toString())) return null;
+            if (!now.matches(new FileStamp(in.readLong(), in.readLong()))) return null;
+            byte[] data = new byte[WaveformOverview.BYTES];
+            in.readFully(data);
+            onDisk.put(file, now);
+            return WaveformOverview.fromBytes(data);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Ignoring waveform entry {}: {}", entry, e.toString());
+            return null;
+        }
+    }
+
+    /** Writes the entry for {@code file} atomically (temp file, rename). */
+    private void write(Path file, FileStamp stamp, WaveformOverview w) throws IOException {
+        Files.createDirectories(dir);
+        Path entry = entry(file), tmp = Files.createTempFile(dir, entry.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(file.toAbsolutePath().toString());
+            out.writeLong(stamp.size);
+            out.writeLong(stamp.modified);
+            out.write(w.toBytes());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        onDisk.put(file, stamp);
+    }
+}
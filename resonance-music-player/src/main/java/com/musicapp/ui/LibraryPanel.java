@@ -1,13 +1,17 @@
 package com.musicapp.ui;
 
 import com.musicapp.controller.PlayerController;
-import com.musicapp.util.IconRenderer;
 import com.musicapp.model.Playlist;
 import com.musicapp.model.Song;
 import com.musicapp.service.MusicLibrary;
+import com.musicapp.service.SearchPipeline;
 import com.musicapp.util.Theme;
+import com.musicapp.ui.UIComponents.PlayerIcon;
 
 import javax.swing.*;
+import javax.swing.border.Border;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.*;
@@ -19,13 +23,20 @@ import java.util.List;
  */
 public class LibraryPanel extends JPanel {
 
-    private static final String[] COLUMNS = {"", "#", "Title", "Artist", "Album", "Genre", "Year", "Time"};
     private static final int[]    COL_W   = { 30, 40,  220,    160,      160,      100,     55,     65 };
 
+    // Shared by every cell paint
+    private static final Color  ROW_ALT     = new Color(28, 28, 46);
+    private static final Border CELL_BORDER = BorderFactory.createEmptyBorder(0, 8, 0, 8);
+
     private List<Song>         currentSongs;
     private JLabel             headerLabel;
     private JTable             table;
-    private DefaultTableModel  model;
+    private SongTableModel     model;
+    private Song               playing = PlayerController.getInstance().getCurrentSong();   // EDT only
+    private final SearchPipeline searches = new SearchPipeline(q -> MusicLibrary.getInstance().search(q),
+                                                               EventQueue::invokeLater, SearchPipeline.DEFAULT_DEBOUNCE,
+                                                               r -> populate(r.getSongs()));
 
     public LibraryPanel() {
         setBackground(Theme.BG_MEDIUM);
@@ -54,12 +65,12 @@ public class LibraryPanel extends JPanel {
         search.setBorder(BorderFactory.createCompoundBorder(
             BorderFactory.createLineBorder(Theme.BORDER, 1, true),
             BorderFactory.createEmptyBorder(6, 12, 6, 12)));
-        search.addKeyListener(new KeyAdapter() {
-            public void keyReleased(KeyEvent e) {
-                String q = search.getText().trim();
-                populate(q.isEmpty() ? MusicLibrary.getInstance().getAllSongs()
-                                     : MusicLibrary.getInstance().search(q));
-            }
+        // Queries run on the search pipeline's thread; the EDT only submits the text
+        search.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e)  { submit(); }
+            public void removeUpdate(DocumentEvent e)  { submit(); }
+            public void changedUpdate(DocumentEvent e) { }
+            private void submit() { searches.submit(search.getText().trim()); }
         });
 
         header.add(headerLabel, BorderLayout.WEST);
@@ -68,29 +79,26 @@ public class LibraryPanel extends JPanel {
     }
 
     private void buildTable() {
-        model = new DefaultTableModel(COLUMNS, 0) {
-            public boolean isCellEditable(int r, int c) { return false; }
-            public Class<?> getColumnClass(int c) { return c == 0 ? Boolean.class : String.class; }
-        };
+        model = new SongTableModel();
 
         table = new JTable(model) {
             @Override
             public Component prepareRenderer(TableCellRenderer r, int row, int col) {
                 Component c = super.prepareRenderer(r, row, col);
                 Song s = row < currentSongs.size() ? currentSongs.get(row) : null;
-                boolean sel     = isRowSelected(row);
-                boolean playing = s != null && s.equals(PlayerController.getInstance().getCurrentSong());
+                boolean sel       = isRowSelected(row);
+                boolean isPlaying = s != null && s.equals(playing);
 
-                Color bg = playing ? Theme.BG_SELECTED
-                         : sel     ? Theme.BG_HOVER
-                         : row % 2 == 0 ? Theme.BG_MEDIUM : new Color(28,28,46);
-                Color fg = playing ? Theme.ACCENT_LIGHT
-                         : sel     ? Theme.TEXT_PRIMARY
-                         : col == 1 ? Theme.TEXT_MUTED : Theme.TEXT_SECONDARY;
+                Color bg = isPlaying ? Theme.BG_SELECTED
+                         : sel       ? Theme.BG_HOVER
+                         : row % 2 == 0 ? Theme.BG_MEDIUM : ROW_ALT;
+                Color fg = isPlaying ? Theme.ACCENT_LIGHT
+                         : sel       ? Theme.TEXT_PRIMARY
+                         : col == 1  ? Theme.TEXT_MUTED : Theme.TEXT_SECONDARY;
 
                 c.setBackground(bg);
                 c.setForeground(fg);
-                if (c instanceof JLabel) ((JLabel)c).setBorder(BorderFactory.createEmptyBorder(0,8,0,8));
+                if (c instanceof JLabel) ((JLabel)c).setBorder(CELL_BORDER);
                 return c;
             }
         };
@@ -105,7 +113,10 @@ public class LibraryPanel extends JPanel {
         add(scroll, BorderLayout.CENTER);
 
         // Repaint when current song changes
-        PlayerController.getInstance().addSongListener(s -> SwingUtilities.invokeLater(table::repaint));
+        PlayerController.getInstance().addSongListener(s -> {
+            playing = s;
+            table.repaint();
+        });
     }
 
     private void styleTable() {
@@ -130,6 +141,7 @@ public class LibraryPanel extends JPanel {
 
         // Heart renderer for column 0 — pure Java2D vector, no font dependency
         table.getColumnModel().getColumn(0).setCellRenderer(new HeartCellRenderer());
+        table.setDefaultRenderer(String.class, new TextCellRenderer());
 
         // Header styling
         JTableHeader header = table.getTableHeader();
@@ -151,7 +163,7 @@ public class LibraryPanel extends JPanel {
                 Song song = currentSongs.get(row);
 
                 if (e.getClickCount() == 2) {
-                    PlayerController.getInstance().play(song, currentSongs);
+                    PlayerController.getInstance().play(currentSongs, row);
                     table.repaint();
                 } else if (col == 0) {
                     song.setFavorite(!song.isFavorite());
@@ -163,14 +175,26 @@ public class LibraryPanel extends JPanel {
         // Right-click context menu
         JPopupMenu menu = new JPopupMenu();
         menu.setBackground(Theme.BG_CARD);
-        JMenuItem playItem = styledItem("Play Now");
-        JMenuItem favItem  = styledItem("Toggle Favorite");
-        menu.add(playItem); menu.addSeparator(); menu.add(favItem);
+        JMenuItem playItem    = styledItem("Play Now");
+        JMenuItem nextItem    = styledItem("Play Next");
+        JMenuItem enqueueItem = styledItem("Add to Queue");
+        JMenuItem favItem     = styledItem("Toggle Favorite");
+        menu.add(playItem); menu.add(nextItem); menu.add(enqueueItem); menu.addSeparator(); menu.add(favItem);
 
         playItem.addActionListener(e -> {
             int r = table.getSelectedRow();
             if (r >= 0 && r < currentSongs.size())
-                PlayerController.getInstance().play(currentSongs.get(r), currentSongs);
+                PlayerController.getInstance().play(currentSongs, r);
+        });
+        nextItem.addActionListener(e -> {
+            int r = table.getSelectedRow();
+            if (r >= 0 && r < currentSongs.size())
+                PlayerController.getInstance().playNext(currentSongs.get(r));
+        });
+        enqueueItem.addActionListener(e -> {
+            int r = table.getSelectedRow();
+            if (r >= 0 && r < currentSongs.size())
+                PlayerController.getInstance().addToQueue(currentSongs.get(r));
         });
         favItem.addActionListener(e -> {
             int r = table.getSelectedRow();
@@ -195,24 +219,28 @@ public class LibraryPanel extends JPanel {
     // ── Public loaders ────────────────────────────────────────────────────────
 
     public void loadAllSongs() {
+        searches.cancel();
         List<Song> all = MusicLibrary.getInstance().getAllSongs();
         setHeader("Library — " + all.size() + " songs");
         populate(all);
     }
 
     public void loadFavorites() {
+        searches.cancel();
         List<Song> favs = MusicLibrary.getInstance().getFavorites();
         setHeader("Favorites — " + favs.size() + " songs");
         populate(favs);
     }
 
     public void loadPlaylist(Playlist pl) {
+        searches.cancel();
         setHeader(pl.getName() + "  ·  " + pl.size() + " songs  ·  " + pl.getTotalDurationFormatted());
-        populate(pl.getSongs());
+        populate(List.copyOf(pl.getSongs()));              // a snapshot: playing from it queues the list itself
     }
 
     public void loadQueue() {
-        List<Song> q = PlayerController.getInstance().getQueue();
+        searches.cancel();
+        List<Song> q = List.copyOf(PlayerController.getInstance().getQueue());   // the queue itself changes with edits
         setHeader("Queue — " + q.size() + " songs");
         populate(q);
     }
@@ -223,53 +251,59 @@ public class LibraryPanel extends JPanel {
 
     private void populate(List<Song> songs) {
         currentSongs = songs;
-        model.setRowCount(0);
-        int i = 1;
-        for (Song s : songs) {
-            model.addRow(new Object[]{
-                s.isFavorite(), String.valueOf(i++),
-                s.getTitle(), s.getArtist(), s.getAlbum(),
-                s.getGenre(), String.valueOf(s.getYear()), s.getFormattedDuration()
-            });
-        }
+        model.setSongs(songs);
     }
+    // ── TextCellRenderer ─────────────────────────────────────────────────────
+    /**
+     * The default renderer without its "text" property events: one event
+     * object per cell painted, there only to refresh HTML labels, which the
+     * table never shows.
+     */
+    private static final class TextCellRenderer extends DefaultTableCellRenderer {
+        @Override
+        protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) { }
+    }
+
     // ── HeartCellRenderer ────────────────────────────────────────────────────
     /**
      * Table cell renderer that draws a heart icon using pure Java2D — no font
-     * symbols, works identically on all platforms.
+     * symbols, works identically on all platforms.  One instance paints every
+     * cell of the column, blitting the hearts from the
+     * {@link UIComponents.IconCache}.
      */
-    private static class HeartCellRenderer extends javax.swing.table.DefaultTableCellRenderer {
+    private static final class HeartCellRenderer extends JComponent implements TableCellRenderer {
+        private static final int SIZE = 14;
+
+        private boolean       filled;
+        private Color         bg = Theme.BG_MEDIUM;
+
+        HeartCellRenderer() { setOpaque(true); }
+
         @Override
-        public java.awt.Component getTableCellRendererComponent(
+        public Component getTableCellRendererComponent(
                 JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int col) {
+            filled = Boolean.TRUE.equals(value);
+            bg     = row % 2 == 0 ? Theme.BG_MEDIUM : ROW_ALT;
+            return this;
+        }
 
-            final boolean filled = Boolean.TRUE.equals(value);
-            final Color bg = row % 2 == 0 ? Theme.BG_MEDIUM : new java.awt.Color(28, 28, 46);
-
-            return new JComponent() {
-                {
-                    setBackground(bg);
-                    setOpaque(true);
-                }
-                @Override
-                protected void paintComponent(Graphics g) {
-                    Graphics2D g2 = UIComponents.aa(g);
-                    g2.setColor(bg);
-                    g2.fillRect(0, 0, getWidth(), getHeight());
-                    int s  = 14;
-                    int ox = (getWidth()  - s) / 2;
-                    int oy = (getHeight() - s) / 2;
-                    if (filled) {
-                        g2.setColor(Theme.PINK);
-                        IconRenderer.drawHeart(g2, ox, oy, s);
-                    } else {
-                        g2.setColor(Theme.TEXT_MUTED);
-                        IconRenderer.drawHeartOutline(g2, ox, oy, s);
-                    }
-                    g2.dispose();
-                }
-            };
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setColor(bg);
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            UIComponents.IconCache.draw(g2, filled ? PlayerIcon.HEART_FILLED : PlayerIcon.HEART_OUTLINE,
+                                        (getWidth() - SIZE) / 2, (getHeight() - SIZE) / 2, SIZE,
+                                        filled ? Theme.PINK : Theme.TEXT_MUTED);
         }
+
+        // Rubber stamp: never in a hierarchy, so skip the bookkeeping (as DefaultTableCellRenderer does)
+        @Override public void invalidate() { }
+        @Override public void validate()   { }
+        @Override public void revalidate() { }
+        @Override public void repaint(long tm, int x, int y, int width, int height) { }
+        @Override public void repaint(Rectangle r) { }
+        @Override public void repaint() { }
     }
 
 }
@@ -1,5 +1,6 @@
 package com.musicapp.ui;
 
+import com.musicapp.service.WaveformCache;
 import com.musicapp.util.Theme;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,12 +18,13 @@ public class MainWindow extends JFrame {
     private final LibraryPanel library;
     private final PlayerBar    playerBar;
 
-    public MainWindow() {
+    /** The main window; {@code waveforms} supplies the seek bar's waveforms, or {@code null} for none. */
+    public MainWindow(WaveformCache waveforms) {
         super("Resonance — Music Player");
 
         sidebar   = new SidebarPanel();
         library   = new LibraryPanel();
-        playerBar = new PlayerBar();
+        playerBar = new PlayerBar(waveforms);
 
         configureFrame();
         buildLayout();
@@ -4,11 +4,15 @@ import com.musicapp.controller.PlayerController;
 import com.musicapp.model.PlayerState;
 import com.musicapp.model.RepeatMode;
 import com.musicapp.model.Song;
+import com.musicapp.service.WaveformCache;
 import com.musicapp.util.Theme;
 import com.musicapp.ui.UIComponents.*;
 
 import javax.swing.*;
 import java.awt.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Bottom player bar — album art, song info, transport controls, seek bar,
@@ -16,10 +20,14 @@ import java.awt.*;
  *
  * <p>All icons are rendered as pure Java2D vector shapes via
  * {@link com.musicapp.util.IconRenderer} — no symbol/emoji fonts required.</p>
+ *
+ * <p>The seek bar shows the waveform of the current song once the
+ * {@link WaveformCache} has it.</p>
  */
 public class PlayerBar extends JPanel {
 
     private final PlayerController player = PlayerController.getInstance();
+    private final WaveformCache    waveforms;      // null: plain seek bar
 
     // Left zone
     private AlbumArtPanel  albumArt;
@@ -37,7 +45,8 @@ public class PlayerBar extends JPanel {
     private ProgressSlider volumeSlider;
     private VectorLabel    volIcon;
 
-    public PlayerBar() {
+    public PlayerBar(WaveformCache waveforms) {
+        this.waveforms = waveforms;
         setBackground(Theme.BG_DARKEST);
         setBorder(BorderFactory.createMatteBorder(1, 0, 0, 0, Theme.BORDER_ACCENT));
         setPreferredSize(new Dimension(0, 92));
@@ -175,18 +184,20 @@ public class PlayerBar extends JPanel {
     // ── Listeners ─────────────────────────────────────────────────────────────
 
     private void wireListeners() {
-        player.addStateListener(state -> SwingUtilities.invokeLater(() -> {
+        player.addStateListener(state -> {
             boolean playing = state == PlayerState.PLAYING;
             playBtn.setIconType(playing ? PlayerIcon.PAUSE : PlayerIcon.PLAY);
             albumArt.setPlaying(playing);
+            visualizer.setSource(player.getSpectrum());
             visualizer.setActive(playing);
-        }));
+        });
 
-        player.addSongListener(song -> SwingUtilities.invokeLater(() -> {
+        player.addSongListener(song -> {
             if (song == null) return;
             titleLabel.setText(song.getTitle());
             artistLabel.setText(song.getArtist());
             timeTotal.setText(song.getFormattedDuration());
+            showWaveform(song);
 
             // Swap heart icon based on favourite state
             favIcon.setIconType(song.isFavorite() ? PlayerIcon.HEART_FILLED : PlayerIcon.HEART_OUTLINE);
@@ -198,18 +209,18 @@ public class PlayerBar extends JPanel {
                 cols[(int)(Math.random() * cols.length)],
                 cols[(int)(Math.random() * cols.length)],
                 song.getTitle().substring(0, Math.min(2, song.getTitle().length())).toUpperCase());
-        }));
+        });
 
-        player.addProgressListener(progress -> SwingUtilities.invokeLater(() -> {
+        player.addProgressListener(progress -> {
             seekBar.setValue(progress);
             Song s = player.getCurrentSong();
             if (s != null) {
                 long sec = (long)(progress * s.getDuration().getSeconds());
                 timeElapsed.setText(String.format("%d:%02d", sec / 60, sec % 60));
             }
-        }));
+        });
 
-        player.addVolumeListener(vol -> SwingUtilities.invokeLater(() -> {
+        player.addVolumeListener(vol -> {
             volumeSlider.setValue(vol / 100.0);
             // Swap volume icon based on level
             if (vol == 0) {
@@ -219,11 +230,21 @@ public class PlayerBar extends JPanel {
             } else {
                 volIcon.setIconType(PlayerIcon.VOLUME_HIGH);
             }
-        }));
+        });
     }
 
     // ── Helpers ───────────────────────────────────────────────────────────────
 
+    private void showWaveform(Song song) {
+        seekBar.setWaveform(null);
+        if (waveforms == null || song.getFilePath() == null) return;
+        Path file = Paths.get(song.getFilePath());
+        if (!Files.isRegularFile(file)) return;
+        waveforms.request(file, w -> SwingUtilities.invokeLater(() -> {
+            if (w != null && player.getCurrentSong() == song) seekBar.setWaveform(w);
+        }));
+    }
+
     private void updateRepeatBtn() {
         RepeatMode m = player.getRepeatMode();
         repeatBtn.setActive(m != RepeatMode.NONE);
@@ -0,0 +1,69 @@
+package com.musicapp.ui;
+
+import com.musicapp.model.Song;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Table model that shows a {@code List<Song>} without copying it.
+ *
+ * <p>Cells are computed when the table asks for them, which it only does for
+ * the rows it paints, so switching views costs one reference and one
+ * {@code tableDataChanged} event whatever the list's size.  The list must not
+ * change while it is shown; library and view lists are immutable
+ * snapshots.</p>
+ *
+ * <p>The text cells of the last {@value #CACHED_ROWS} rows asked for, a few
+ * screens' worth, are kept.  Repainting rows on screen, on hover or as the
+ * player moves on, then allocates nothing.  The favourite flag is read
+ * live.</p>
+ */
+public final class SongTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"", "#", "Title", "Artist", "Album", "Genre", "Year", "Time"};
+
+    private static final int CACHED_ROWS = 256;           // a power of two
+
+    private List<Song>       songs = List.of();
+    private final Object[][] cells     = new Object[CACHED_ROWS][COLUMNS.length];
+    private final int[]      cachedRow = new int[CACHED_ROWS];   // row held in each cells slot, -1: none
+
+    public SongTableModel() { Arrays.fill(cachedRow, -1); }
+
+    /** Shows {@code songs}, referenced, not copied. */
+    public void setSongs(List<Song> songs) {
+        this.songs = songs;
+        Arrays.fill(cachedRow, -1);
+        fireTableDataChanged();
+    }
+
+    public List<Song> getSongs()       { return songs; }
+    public Song       getSong(int row) { return songs.get(row); }
+
+    @Override public int      getRowCount()                { return songs.size(); }
+    @Override public int      getColumnCount()             { return COLUMNS.length; }
+    @Override public String   getColumnName(int col)       { return COLUMNS[col]; }
+    @Override public Class<?> getColumnClass(int col)      { return col == 0 ? Boolean.class : String.class; }
+    @Override public boolean  isCellEditable(int r, int c) { return false; }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        if (col == 0) return songs.get(row).isFavorite();
+        int k = row & (CACHED_ROWS - 1);
+        if (cachedRow[k] != row) {
+            Song s = songs.get(row);
+            Object[] c = cells[k];
+            c[1] = String.valueOf(row + 1);
+            c[2] = s.getTitle();
+            c[3] = s.getArtist();
+            c[4] = s.getAlbum();
+            c[5] = s.getGenre();
+            c[6] = String.valueOf(s.getYear());
+            c[7] = s.getFormattedDuration();
+            cachedRow[k] = row;
+        }
+        return cells[k][col];
+    }
+}
@@ -1,13 +1,19 @@
 package com.musicapp.ui;
 
+import com.musicapp.audio.SpectrumAnalyzer;
+import com.musicapp.audio.WaveformOverview;
 import com.musicapp.util.IconRenderer;
 import com.musicapp.util.Theme;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.Consumer;
 
 /**
@@ -16,7 +22,8 @@ import java.util.function.Consumer;
  *
  * <p><strong>Icon rendering:</strong> All icons are drawn as pure Java2D vector
  * shapes via {@link IconRenderer}.  No symbol/emoji fonts are required, so the
- * UI looks identical on Windows, macOS, and Linux.</p>
+ * UI looks identical on Windows, macOS, and Linux.  Components blit them from
+ * the {@link IconCache} rather than re-running the geometry on every paint.</p>
  */
 public final class UIComponents {
 
@@ -71,6 +78,9 @@ public final class UIComponents {
         private boolean dragging = false;
         private Consumer<Double> seekConsumer;
         private final Color trackColor, fillColor, thumbColor;
+        private WaveformOverview waveform;
+        private float[] waveMin = new float[0], waveMax = new float[0];   // waveform rendered at waveWidth
+        private int     waveWidth = -1;
 
         public ProgressSlider(Color track, Color fill, Color thumb) {
             this.trackColor = track; this.fillColor = fill; this.thumbColor = thumb;
@@ -94,15 +104,38 @@ public final class UIComponents {
         public void setValue(double v) { if (!dragging) { value = Math.max(0, Math.min(1, v)); repaint(); } }
         public void setSeekConsumer(Consumer<Double> c) { seekConsumer = c; }
 
+        /** Outline drawn behind the track, played part in the fill colour; {@code null} for none. */
+        public void setWaveform(WaveformOverview w) {
+            waveform  = w;
+            waveWidth = -1;
+            repaint();
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             Graphics2D g2 = aa(g);
             int h = 4, y = (getHeight() - h) / 2, w = getWidth(), fx = (int)(w * value), r = 7;
+            if (waveform != null) paintWaveform(g2, w, fx);
             g2.setColor(trackColor); g2.fillRoundRect(0, y, w, h, h, h);
             g2.setColor(fillColor);  g2.fillRoundRect(0, y, fx, h, h, h);
             g2.setColor(thumbColor); g2.fillOval(fx - r, getHeight() / 2 - r, r * 2, r * 2);
             g2.dispose();
         }
+
+        /** One vertical line per pixel column; the outline is re-rendered only when the width changes. */
+        private void paintWaveform(Graphics2D g2, int w, int fx) {
+            if (waveWidth != w) {
+                if (waveMin.length < w) { waveMin = new float[w]; waveMax = new float[w]; }
+                waveform.render(w, waveMin, waveMax);
+                waveWidth = w;
+            }
+            float mid = getHeight() / 2f, half = getHeight() / 2f - 1;
+            g2.setColor(fillColor);
+            for (int x = 0; x < w; x++) {
+                if (x == fx) g2.setColor(trackColor);
+                g2.drawLine(x, Math.round(mid - waveMax[x] * half), x, Math.round(mid - waveMin[x] * half));
+            }
+        }
     }
 
     // ── IconButton ────────────────────────────────────────────────────────────
@@ -112,6 +145,8 @@ public final class UIComponents {
      * No dependency on any symbol/emoji font — works on all platforms.
      */
     public static class IconButton extends JButton {
+        private static final Color HOVER_GLOW = new Color(255, 255, 255, 20);
+
         private PlayerIcon  iconType;
         private boolean hovered = false;
         private boolean active  = false;
@@ -143,18 +178,17 @@ public final class UIComponents {
 
             // Hover glow background
             if (hovered) {
-                g2.setColor(new Color(255, 255, 255, 20));
+                g2.setColor(HOVER_GLOW);
                 g2.fillRoundRect(0, 0, getWidth(), getHeight(), 8, 8);
             }
 
             // Choose icon colour
             Color fg = active ? activeFg : hovered ? Theme.TEXT_PRIMARY : Theme.TEXT_SECONDARY;
-            g2.setColor(fg);
 
             // Centre the icon in the button
             int ox = (getWidth()  - iconSize) / 2;
             int oy = (getHeight() - iconSize) / 2;
-            renderIcon(g2, iconType, ox, oy, iconSize);
+            IconCache.draw(g2, iconType, ox, oy, iconSize, fg);
 
             g2.dispose();
         }
@@ -206,10 +240,9 @@ public final class UIComponents {
         @Override
         protected void paintComponent(Graphics g) {
             Graphics2D g2 = aa(g);
-            g2.setColor(color);
             int ox = (getWidth()  - size) / 2;
             int oy = (getHeight() - size) / 2;
-            IconButton.renderIcon(g2, iconType, ox, oy, size);
+            IconCache.draw(g2, iconType, ox, oy, size, color);
             g2.dispose();
         }
     }
@@ -272,6 +305,7 @@ public final class UIComponents {
             g2.fillOval(ox - 8, oy - 8, s + 16, s + 16);
 
             // Disc (rotates)
+            AffineTransform upright = g2.getTransform();
             g2.rotate(Math.toRadians(angle), cx, cy);
             g2.setPaint(new GradientPaint(ox, oy, c1, ox + s, oy + s, c2));
             g2.fillOval(ox, oy, s, s);
@@ -282,13 +316,13 @@ public final class UIComponents {
             g2.fillOval((int)(cx - hole / 2.0), (int)(cy - hole / 2.0), hole, hole);
 
             // Reset rotation before drawing label
-            g2.rotate(-Math.toRadians(angle), cx, cy);
+            g2.setTransform(upright);
             g2.setColor(Color.WHITE);
 
             if (showNote || initials.isBlank()) {
                 // Draw vector music note centred
                 int ns = Math.max(8, s / 3);
-                IconRenderer.drawNote(g2, (int)(cx - ns / 2.0), (int)(cy - ns / 2.0), ns);
+                IconCache.draw(g2, PlayerIcon.NOTE, (int)(cx - ns / 2.0), (int)(cy - ns / 2.0), ns, Color.WHITE);
             } else {
                 // Draw text initials
                 g2.setFont(Theme.bold(Math.max(8, s / 5)));
@@ -303,9 +337,18 @@ public final class UIComponents {
 
     // ── VisualizerBar ─────────────────────────────────────────────────────────
 
+    /**
+     * Bars showing the spectrum of what is playing.  While active a Swing
+     * timer repaints about 30 times a second, and each repaint reads the
+     * latest frame from the {@link SpectrumAnalyzer}.  Without a source, or
+     * when inactive, the bars rest at the floor.
+     */
     public static class VisualizerBar extends JPanel {
+        private static final float FLOOR = 0.1f;
+
         private final float[] heights;
         private final Color   barColor;
+        private SpectrumAnalyzer source;
         private boolean active = false;
 
         public VisualizerBar(int bars, Color color) {
@@ -313,24 +356,30 @@ public final class UIComponents {
             barColor = color;
             setOpaque(false);
             setPreferredSize(new Dimension(bars * 5, 30));
-            Arrays.fill(heights, 0.1f);
-            new Timer(80, e -> {
-                if (active) {
-                    for (int i = 0; i < heights.length; i++)
-                        heights[i] = (float)(0.15 + Math.random() * 0.85);
-                    repaint();
-                }
-            }).start();
+            Arrays.fill(heights, FLOOR);
+            new Timer(33, e -> { if (active) repaint(); }).start();
+        }
+
+        /** Where the band levels come from; {@code null} for none. */
+        public void setSource(SpectrumAnalyzer s) {
+            source = s;
+            repaint();
         }
 
         public void setActive(boolean a) {
             active = a;
-            if (!a) { Arrays.fill(heights, 0.1f); }
             repaint();
         }
 
         @Override
         protected void paintComponent(Graphics g) {
+            SpectrumAnalyzer s = source;
+            if (active && s != null) {
+                s.read(heights);
+                for (int i = 0; i < heights.length; i++) heights[i] = FLOOR + (1 - FLOOR) * heights[i];
+            } else {
+                Arrays.fill(heights, FLOOR);
+            }
             Graphics2D g2 = aa(g);
             int bw = Math.max(1, getWidth() / heights.length - 2);
             for (int i = 0; i < heights.length; i++) {
@@ -342,6 +391,78 @@ public final class UIComponents {
         }
     }
 
+    // ── IconCache ─────────────────────────────────────────────────────────────
+
+    /**
+     * Icons rasterized once per icon, size, colour and device scale, then
+     * blitted.  The images are managed {@link BufferedImage}s, which Java2D
+     * copies to video memory when the pipeline accelerates them.  Past
+     * {@value #CAPACITY} entries the least recently used is dropped, and a
+     * look-and-feel change drops them all.  A rotated or sheared graphics
+     * draws the vector shape instead.  Use from the EDT only.
+     */
+    public static final class IconCache {
+        private static final int CAPACITY = 128;
+        private static final int PAD      = 2;            // logical px around the box for strokes and round caps
+
+        private static final Map<Long, BufferedImage> images = new LinkedHashMap<>(CAPACITY * 2, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> e) { return size() > CAPACITY; }
+        };
+        private static boolean enabled = true;
+        private static long    hits, misses;
+
+        static {
+            UIManager.addPropertyChangeListener(e -> { if ("lookAndFeel".equals(e.getPropertyName())) clear(); });
+        }
+
+        private IconCache() { }
+
+        /** Draws {@code icon} in {@code color} in the {@code size} box at ({@code x}, {@code y}). */
+        public static void draw(Graphics2D g, PlayerIcon icon, int x, int y, int size, Color color) {
+            AffineTransform t = g.getTransform();
+            int scale = (int) Math.round(t.getScaleX() * 100);      // percent
+            if (!enabled || size > 0xFFF || scale <= 0 || scale > 0x3FFF
+                    || (t.getType() & ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE)) != 0) {
+                g.setColor(color);
+                IconButton.renderIcon(g, icon, x, y, size);
+                return;
+            }
+            long key = (long) color.getRGB() << 32 | (long) icon.ordinal() << 26 | (long) size << 14 | scale;
+            BufferedImage img = images.get(key);
+            if (img == null) {
+                img = rasterize(icon, size, color, scale / 100.0);
+                images.put(key, img);
+                misses++;
+            } else {
+                hits++;
+            }
+            int box = size + 2 * PAD;
+            g.drawImage(img, x - PAD, y - PAD, box, box, null);
+        }
+
+        private static BufferedImage rasterize(PlayerIcon icon, int size, Color color, double scale) {
+            int box = size + 2 * PAD, px = (int) Math.ceil(box * scale);
+            BufferedImage img = new BufferedImage(px, px, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D base = img.createGraphics(), g2 = aa(base);
+            g2.scale(px / (double) box, px / (double) box);
+            g2.setColor(color);
+            IconButton.renderIcon(g2, icon, PAD, PAD, size);
+            g2.dispose();
+            base.dispose();
+            return img;
+        }
+
+        /** Drops every image, e.g. after the theme changes. */
+        public static void clear() { images.clear(); }
+
+        /** Off: every draw runs the vector geometry, for comparison. */
+        public static void setEnabled(boolean on) { enabled = on; }
+
+        public static int  size()      { return images.size(); }
+        public static long getHits()   { return hits; }
+        public static long getMisses() { return misses; }
+    }
+
     // ── Shared helpers ────────────────────────────────────────────────────────
 
     static Graphics2D aa(Graphics g) {
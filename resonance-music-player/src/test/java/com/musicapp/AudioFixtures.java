@@ -0,0 +1,292 @@
+package com.musicapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes small but structurally valid audio files for scanner tests and
+ * benchmarks.  Headers and tags are real; the audio payload is left as a
+ * sparse hole of the right length, so files report realistic sizes and
+ * durations without costing disk space.
+ */
+final class AudioFixtures {
+
+    private AudioFixtures() { }
+
+    /** Tag values written into a fixture. */
+    static final class Meta {
+        final String title, artist, album, genre;
+        final int year, seconds;
+
+        Meta(String title, String artist, String album, String genre, int year, int seconds) {
+            this.title = title; this.artist = artist; this.album = album;
+            this.genre = genre; this.year = year; this.seconds = seconds;
+        }
+    }
+
+    // ── WAV ────────────────────────────────────────────────────────────────────
+
+    static void wav(Path file, Meta m) throws IOException {
+        int rate = 44100, channels = 2, bits = 16, byteRate = rate * channels * bits / 8;
+        ByteArrayOutputStream info = new ByteArrayOutputStream();
+        info.write(ascii("INFO"));
+        infoChunk(info, "INAM", m.title);
+        infoChunk(info, "IART", m.artist);
+        infoChunk(info, "IPRD", m.album);
+        infoChunk(info, "IGNR", m.genre);
+        infoChunk(info, "ICRD", String.valueOf(m.year));
+        long data = (long) m.seconds * byteRate;
+
+        ByteBuffer b = le(12 + 24 + 8 + info.size() + 8);
+        b.put(ascii("RIFF")).putInt((int) (4 + 24 + 8 + info.size() + 8 + data)).put(ascii("WAVE"));
+        b.put(ascii("fmt ")).putInt(16).putShort((short) 1).putShort((short) channels)
+         .putInt(rate).putInt(byteRate).putShort((short) (channels * bits / 8)).putShort((short) bits);
+        b.put(ascii("LIST")).putInt(info.size()).put(info.toByteArray());
+        b.put(ascii("data")).putInt((int) data);
+        write(file, b.array(), data);
+    }
+
+    /** A plain 16-bit PCM WAV holding exactly {@code samples} (interleaved), for playback tests. */
+    static void pcmWav(Path file, int rate, int channels, short[] samples) throws IOException {
+        int byteRate = rate * channels * 2, data = samples.length * 2;
+        ByteBuffer b = le(44 + data);
+        b.put(ascii("RIFF")).putInt(36 + data).put(ascii("WAVE"));
+        b.put(ascii("fmt ")).putInt(16).putShort((short) 1).putShort((short) channels)
+         .putInt(rate).putInt(byteRate).putShort((short) (channels * 2)).putShort((short) 16);
+        b.put(ascii("data")).putInt(data);
+        for (short v : samples) b.putShort(v);
+        write(file, b.array(), 0);
+    }
+
+    /** Stereo frames whose left sample encodes the frame index and right its negation, so offsets can be checked. */
+    static short[] ramp(int frames) {
+        short[] s = new short[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            s[2 * i]     = (short) (i % 30_000);
+            s[2 * i + 1] = (short) -(i % 30_000);
+        }
+        return s;
+    }
+
+    private static void infoChunk(ByteArrayOutputStream out, String id, String value) throws IOException {
+        byte[] v = (value + "\0").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer h = le(8).put(ascii(id)).putInt(v.length);
+        out.write(h.array());
+        out.write(v);
+        if ((v.length & 1) != 0) out.write(0);
+    }
+
+    // ── AIFF (title/artist in NAME/AUTH, the rest in an embedded ID3 chunk) ────
+
+    static void aiff(Path file, Meta m) throws IOException {
+        int rate = 48000;
+        long frames = (long) m.seconds * rate;
+        byte[] name = ascii(m.title), auth = ascii(m.artist);
+        byte[] id3 = id3v23(new Meta(null, null, m.album, m.genre, m.year, 0), false);
+        long ssnd = frames * 4;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer comm = be(26).put(ascii("COMM")).putInt(18).putShort((short) 2).putInt((int) frames)
+                                .putShort((short) 16).put(extended80(rate));
+        out.write(comm.array());
+        aiffChunk(out, "NAME", name);
+        aiffChunk(out, "AUTH", auth);
+        aiffChunk(out, "ID3 ", id3);
+        out.write(be(16).put(ascii("SSND")).putInt((int) (ssnd + 8)).putInt(0).putInt(0).array());
+
+        ByteBuffer head = be(12).put(ascii("FORM")).putInt((int) (4 + out.size() + ssnd)).put(ascii("AIFF"));
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        all.write(head.array());
+        all.write(out.toByteArray());
+        write(file, all.toByteArray(), ssnd);
+    }
+
+    private static void aiffChunk(ByteArrayOutputStream out, String id, byte[] body) throws IOException {
+        out.write(be(8).put(ascii(id)).putInt(body.length).array());
+        out.write(body);
+        if ((body.length & 1) != 0) out.write(0);
+    }
+
+    private static byte[] extended80(int value) {
+        int exp = 31 - Integer.numberOfLeadingZeros(value);
+        ByteBuffer b = be(10);
+        b.putShort((short) (16383 + exp));
+        b.putLong((long) value << (63 - exp));
+        return b.array();
+    }
+
+    // ── MP3 (ID3v2.3 + CBR frame, or ID3v2.4 with TLEN) ────────────────────────
+
+    /** 128 kbps 44.1 kHz stereo CBR; duration comes from the stream length. */
+    static void mp3(Path file, Meta m) throws IOException {
+        byte[] tag = id3v23(m, true);
+        long audio = (long) m.seconds * 128_000 / 8;
+        ByteBuffer frame = be(4).putInt(0xFFFB9044);   // MPEG-1 L3, 128 kbps, 44.1 kHz, joint stereo
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(tag);
+        out.write(frame.array());
+        write(file, out.toByteArray(), audio - 4);
+    }
+
+    /** ID3v2.4 with UTF-8 text, a large skipped APIC frame and an explicit TLEN. */
+    static void mp3v24(Path file, Meta m) throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frame24(frames, "TIT2", text(3, m.title));
+        frame24(frames, "APIC", new byte[200_000]);
+        frame24(frames, "TPE1", text(3, m.artist));
+        frame24(frames, "TALB", text(3, m.album));
+        frame24(frames, "TCON", text(3, m.genre));
+        frame24(frames, "TDRC", text(3, m.year + "-05-01"));
+        frame24(frames, "TLEN", text(0, String.valueOf(m.seconds * 1000L)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(be(10).put(ascii("ID3")).put((byte) 4).put((byte) 0).put((byte) 0)
+                        .putInt(syncsafe(frames.size() + 64)).array());
+        out.write(frames.toByteArray());
+        out.write(new byte[64]);   // padding
+        write(file, out.toByteArray(), 4096);
+    }
+
+    private static byte[] id3v23(Meta m, boolean utf16) throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        int enc = utf16 ? 1 : 0;
+        if (m.title  != null) frame23(frames, "TIT2", text(enc, m.title));
+        if (m.artist != null) frame23(frames, "TPE1", text(enc, m.artist));
+        frame23(frames, "TALB", text(enc, m.album));
+        frame23(frames, "TCON", text(0, "(17)"));   // ID3v1 genre 17 = Rock
+        frame23(frames, "TYER", text(0, String.valueOf(m.year)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(be(10).put(ascii("ID3")).put((byte) 3).put((byte) 0).put((byte) 0)
+                        .putInt(syncsafe(frames.size())).array());
+        out.write(frames.toByteArray());
+        return out.toByteArray();
+    }
+
+    private static void frame23(ByteArrayOutputStream out, String id, byte[] body) throws IOException {
+        out.write(be(10).put(ascii(id)).putInt(body.length).putShort((short) 0).array());
+        out.write(body);
+    }
+
+    private static void frame24(ByteArrayOutputStream out, String id, byte[] body) throws IOException {
+        out.write(be(10).put(ascii(id)).putInt(syncsafe(body.length)).putShort((short) 0).array());
+        out.write(body);
+    }
+
+    private static byte[] text(int encoding, String s) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(encoding);
+        out.write(s.getBytes(encoding == 1 ? StandardCharsets.UTF_16 : encoding == 3 ? StandardCharsets.UTF_8
+                                                                       : StandardCharsets.ISO_8859_1));
+        return out.toByteArray();
+    }
+
+    private static int syncsafe(int v) {
+        return (v & 0x7F) | (v >> 7 & 0x7F) << 8 | (v >> 14 & 0x7F) << 16 | (v >> 21 & 0x7F) << 24;
+    }
+
+    // ── FLAC ───────────────────────────────────────────────────────────────────
+
+    static void flac(Path file, Meta m) throws IOException {
+        int rate = 96000;
+        long samples = (long) m.seconds * rate;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(ascii("fLaC"));
+        ByteBuffer si = be(34);
+        si.putShort((short) 4096).putShort((short) 4096).put(new byte[6]);
+        si.putLong((long) rate << 44 | 1L << 41 | 23L << 36 | samples);   // 2 channels, 24-bit
+        si.put(new byte[16]);
+        out.write(be(4).putInt(si.capacity()).array());
+        out.write(si.array());
+        byte[] pic = new byte[100_000];
+        out.write(be(4).putInt(6 << 24 | pic.length).array());
+        out.write(pic);
+        byte[] vc = vorbisComments(m);
+        out.write(be(4).putInt(0x80 << 24 | 4 << 24 | vc.length).array());
+        out.write(vc);
+        write(file, out.toByteArray(), samples * 6 / 2);
+    }
+
+    // ── Ogg Vorbis / Opus ──────────────────────────────────────────────────────
+
+    static void ogg(Path file, Meta m, boolean opus) throws IOException {
+        int rate = opus ? 48000 : 44100, preSkip = opus ? 312 : 0;
+        ByteBuffer id;
+        byte[] comments;
+        if (opus) {
+            id = le(19).put(ascii("OpusHead")).put((byte) 1).put((byte) 2).putShort((short) preSkip)
+                       .putInt(44100).putShort((short) 0).put((byte) 0);
+            ByteArrayOutputStream c = new ByteArrayOutputStream();
+            c.write(ascii("OpusTags"));
+            c.write(vorbisComments(m));
+            comments = c.toByteArray();
+        } else {
+            id = le(30).put((byte) 1).put(ascii("vorbis")).putInt(0).put((byte) 2).putInt(rate)
+                       .putInt(0).putInt(128_000).putInt(0).put((byte) 0xB8).put((byte) 1);
+            ByteArrayOutputStream c = new ByteArrayOutputStream();
+            c.write(3);
+            c.write(ascii("vorbis"));
+            c.write(vorbisComments(m));
+            c.write(1);   // framing bit
+            comments = c.toByteArray();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(oggPage(0, 2, id.array()));
+        out.write(oggPage(0, 0, comments));
+        long gap = (long) m.seconds * 16_000;
+        long granule = (long) m.seconds * rate + preSkip;
+        byte[] last = oggPage(granule, 4, new byte[100]);
+        write(file, out.toByteArray(), gap);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length());
+            raf.write(last);
+        }
+    }
+
+    private static byte[] oggPage(long granule, int type, byte[] packet) {
+        int segs = packet.length / 255 + 1;
+        ByteBuffer b = le(27 + segs + packet.length);
+        b.put(ascii("OggS")).put((byte) 0).put((byte) type).putLong(granule).putInt(1).putInt(0).putInt(0);
+        b.put((byte) segs);
+        for (int i = 0; i < segs - 1; i++) b.put((byte) 255);
+        b.put((byte) (packet.length % 255));
+        b.put(packet);
+        return b.array();
+    }
+
+    private static byte[] vorbisComments(Meta m) throws IOException {
+        String[] kv = {"TITLE=" + m.title, "ARTIST=" + m.artist, "ALBUM=" + m.album,
+                       "GENRE=" + m.genre, "DATE=" + m.year};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] vendor = ascii("fixture");
+        out.write(le(4).putInt(vendor.length).array());
+        out.write(vendor);
+        out.write(le(4).putInt(kv.length).array());
+        for (String s : kv) {
+            byte[] v = s.getBytes(StandardCharsets.UTF_8);
+            out.write(le(4).putInt(v.length).array());
+            out.write(v);
+        }
+        return out.toByteArray();
+    }
+
+    // ── Helpers ────────────────────────────────────────────────────────────────
+
+    /** Writes {@code head}, then extends the file by {@code hole} bytes without writing them. */
+    private static void write(Path file, byte[] head, long hole) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(0);
+            raf.write(head);
+            raf.setLength(head.length + Math.max(0, hole));
+        }
+    }
+
+    private static ByteBuffer le(int n) { return ByteBuffer.allocate(n).order(ByteOrder.LITTLE_ENDIAN); }
+    private static ByteBuffer be(int n) { return ByteBuffer.allocate(n).order(ByteOrder.BIG_ENDIAN); }
+    private static byte[] ascii(String s) { return s.getBytes(StandardCharsets.US_ASCII); }
+}
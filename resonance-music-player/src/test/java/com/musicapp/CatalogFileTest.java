@@ -0,0 +1,159 @@
+package com.musicapp;
+
+import com.musicapp.model.Playlist;
+import com.musicapp.model.Song;
+import com.musicapp.model.SongStore;
+import com.musicapp.service.CatalogFile;
+import com.musicapp.service.MusicLibrary;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CatalogFile persistence")
+class CatalogFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Songs and playlists round-trip with flags, play counts, paths and loudness")
+    void roundTrip() throws IOException {
+        Song a = new Song("a", "Ünïcødé Title", "Artist", "Album", "Pop", 1999, Duration.ofSeconds(215));
+        Song b = new Song("b", "Second", "Artist", "Album", "Pop", 2001, Duration.ofSeconds(90));
+        a.setFavorite(true);
+        a.setFilePath("/music/a.wav");
+        a.setLoudness(-9.5f, 0.98f);
+        for (int i = 0; i < 7; i++) b.incrementPlayCount();
+        Playlist pl = new Playlist("p", "Mix", "desc", "#123456");
+        pl.addSong(b);
+        pl.addSong(a);
+        pl.addSong(new Song("stray", "Not In Catalog", "X", null, null, 0, Duration.ZERO));
+
+        Path file = dir.resolve("lib.rcat");
+        CatalogFile.write(file, List.of(a, b), List.of(pl));
+
+        try (CatalogFile cat = CatalogFile.open(file)) {
+            assertEquals(2, cat.songCount());
+            Song a2 = cat.song(cat.find("a"));
+            assertEquals("Ünïcødé Title", a2.getTitle());
+            assertEquals(Duration.ofSeconds(215), a2.getDuration());
+            assertEquals(1999, a2.getYear());
+            assertTrue(a2.isFavorite());
+            assertEquals("/music/a.wav", a2.getFilePath());
+            assertEquals(-9.5f, a2.getLoudness());
+            assertEquals(0.98f, a2.getPeak());
+            Song b2 = cat.song(cat.find("b"));
+            assertEquals(7, b2.getPlayCount());
+            assertNull(b2.getFilePath());
+            assertFalse(b2.isLoudnessAnalyzed());
+            assertEquals(-1, cat.find("missing"));
+
+            Map<String, Song> byId = new HashMap<>();
+            for (Song s : cat.songs()) byId.put(s.getId(), s);
+            List<Playlist> pls = cat.playlists(byId::get);
+            assertEquals(1, pls.size());
+            assertEquals("Mix", pls.get(0).getName());
+            assertEquals("#123456", pls.get(0).getCoverHexColor());
+            assertEquals(List.of(byId.get("b"), byId.get("a")), pls.get(0).getSongs());
+        }
+    }
+
+    @Test
+    @DisplayName("Records load into a SongStore with the same fields as decoded songs")
+    void recordsLoadIntoStore() throws IOException {
+        Song a = new Song("a", "Ünïcødé Title", "Artist", "Album", "Pop", 1999, Duration.ofSeconds(215));
+        Song b = new Song("b", "Second", "Artist", "Album", "Pop", 2001, Duration.ofSeconds(90));
+        a.setFavorite(true);
+        a.setFilePath("/music/a.wav");
+        a.setLoudness(-9.5f, 0.98f);
+        b.setPlayCount(7);
+        Path file = dir.resolve("lib.rcat");
+        CatalogFile.write(file, List.of(a, b), List.of());
+
+        SongStore store = new SongStore();
+        store.adopt(new Song("b", "Old Title", "Old Artist", "Old Album", "Rock", 1980, Duration.ofSeconds(60)));
+        List<Song> added = new ArrayList<>();
+        List<Song> replaced;
+        try (CatalogFile cat = CatalogFile.open(file)) {
+            replaced = store.load(cat.records(), added);
+            assertEquals(cat.songs(), added);
+        }
+        assertEquals(2, store.size());
+        assertNull(replaced.get(0));
+        assertEquals("Old Title", replaced.get(1).getTitle());
+
+        Song a2 = store.find("a");
+        assertSame(added.get(0), a2);
+        assertEquals("Ünïcødé Title", a2.getTitle());
+        assertEquals("Album", a2.getAlbum());
+        assertEquals(215, a2.getDurationSeconds());
+        assertTrue(a2.isFavorite());
+        assertEquals("/music/a.wav", a2.getFilePath());
+        assertEquals(0.98f, a2.getPeak());
+        Song b2 = store.find("b");
+        assertEquals("Second", b2.getTitle());
+        assertEquals(7, b2.getPlayCount());
+        assertNull(b2.getFilePath());
+        assertFalse(b2.isLoudnessAnalyzed());
+    }
+
+    @Test
+    @DisplayName("The library saves a snapshot every song can be found in")
+    void librarySnapshot() throws IOException {
+        MusicLibrary lib = MusicLibrary.getInstance();
+        Path file = dir.resolve("library.rcat");
+        lib.save(file);
+        try (CatalogFile cat = CatalogFile.open(file)) {
+            assertEquals(lib.getAllSongs().size(), cat.songCount());
+            for (Song s : lib.getAllSongs()) {
+                Song t = cat.song(cat.find(s.getId()));
+                assertEquals(s.getTitle(), t.getTitle());
+                assertEquals(s.isFavorite(), t.isFavorite());
+            }
+            assertEquals(lib.getAllPlaylists().size(), cat.playlistCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Rewriting replaces the file atomically and leaves no staging files")
+    void atomicReplace() throws IOException {
+        Path file = dir.resolve("lib.rcat");
+        CatalogFile.write(file, List.of(new Song("1", "One", "A", "B", "C", 1, Duration.ofSeconds(1))), List.of());
+        CatalogFile.write(file, List.of(), List.of());
+        try (CatalogFile cat = CatalogFile.open(file)) {
+            assertEquals(0, cat.songCount());
+            assertEquals(-1, cat.find("1"));
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(file), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    @DisplayName("Truncated or foreign files are rejected")
+    void rejectsCorruptFiles() throws IOException {
+        Path file = dir.resolve("lib.rcat");
+        CatalogFile.write(file, List.of(new Song("1", "One", "A", "B", "C", 1, Duration.ofSeconds(1))), List.of());
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> CatalogFile.open(file));
+
+        Files.write(file, "not a catalog at all, just some text".getBytes());
+        assertThrows(IOException.class, () -> CatalogFile.open(file));
+    }
+}
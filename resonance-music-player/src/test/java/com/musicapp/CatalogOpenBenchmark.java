@@ -0,0 +1,89 @@
+package com.musicapp;
+
+import com.musicapp.model.Song;
+import com.musicapp.service.CatalogFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Startup cost of a one-million-song {@link CatalogFile}: time to open (map)
+ * the file and to look up songs by id afterwards.  Run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Catalog open benchmark")
+class CatalogOpenBenchmark {
+
+    private static final int SONGS = 1_000_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("opening a 1M-song catalog takes well under 50 ms")
+    void openReport() throws IOException {
+        Path file = dir.resolve("big.rcat");
+        // Songs are generated on demand so the writer, not the fixture, dominates the heap
+        List<Song> songs = new AbstractList<Song>() {
+            @Override public Song get(int i) {
+                return new Song("t" + i, "Track Title Number " + i, "Artist Name " + (i / 36),
+                                "Album Name " + (i / 12), "Genre " + (i / 36) % 40, 1970 + i % 50,
+                                Duration.ofSeconds(120 + i % 300));
+            }
+            @Override public int size() { return SONGS; }
+        };
+        long t0 = System.nanoTime();
+        CatalogFile.write(file, songs, List.of());
+        long writeMs = (System.nanoTime() - t0) / 1_000_000;
+
+        long heapBefore = usedHeap();
+        double[] openMs = new double[15];
+        CatalogFile last = null;
+        for (int i = 0; i < openMs.length; i++) {
+            if (last != null) last.close();
+            long s = System.nanoTime();
+            last = CatalogFile.open(file);
+            openMs[i] = (System.nanoTime() - s) / 1e6;
+        }
+        long heapDelta = usedHeap() - heapBefore;
+        Arrays.sort(openMs);
+
+        Random rnd = new Random(7);
+        long s = System.nanoTime();
+        int lookups = 100_000;
+        for (int i = 0; i < lookups; i++) {
+            String id = "t" + rnd.nextInt(SONGS);
+            assertEquals(id, last.song(last.find(id)).getId());
+        }
+        double lookupUs = (System.nanoTime() - s) / 1e3 / lookups;
+        last.close();
+
+        System.out.printf("catalog of %,d songs: %,d MB on disk, written in %,d ms; open median %.2f ms (max %.2f),"
+                          + " heap after open %+,d KB; find+decode %.2f us%n",
+                          SONGS, Files.size(file) >> 20, writeMs, openMs[openMs.length / 2],
+                          openMs[openMs.length - 1], heapDelta >> 10, lookupUs);
+        assertTrue(openMs[openMs.length / 2] < 50, "open took " + openMs[openMs.length / 2] + " ms");
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try { Thread.sleep(50); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
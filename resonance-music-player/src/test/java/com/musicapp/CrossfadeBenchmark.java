@@ -0,0 +1,89 @@
+package com.musicapp;
+
+import com.musicapp.audio.CrossfadeCurve;
+import com.musicapp.audio.PlaybackEngine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cost of crossfading: two 12 s tracks played back to back through an
+ * unpaced sink, spliced and with the longest crossfade (the whole of both
+ * tracks overlap).  Reports how many times faster than real time the
+ * pipeline runs and how much the decoder thread allocates per transition.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Crossfade benchmark")
+class CrossfadeBenchmark {
+
+    private static final int FRAMES = 44_100 * 12;
+    private static final int RUNS   = 5;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("mixes a 12 s equal-power crossfade faster than real time")
+    void throughput() throws Exception {
+        Path a = dir.resolve("a.wav"), b = dir.resolve("b.wav");
+        AudioFixtures.pcmWav(a, 44_100, 2, AudioFixtures.ramp(FRAMES));
+        AudioFixtures.pcmWav(b, 44_100, 2, AudioFixtures.ramp(FRAMES));
+
+        run(a, b, Duration.ZERO);                      // warm-up
+        run(a, b, PlaybackEngine.MAX_CROSSFADE);
+        double[] spliced = new double[2], faded = new double[2];
+        for (int i = 0; i < RUNS; i++) {
+            add(spliced, run(a, b, Duration.ZERO));
+            add(faded, run(a, b, PlaybackEngine.MAX_CROSSFADE));
+        }
+        System.out.printf("spliced   : %.0fx real time, %.0f KB allocated by the decoder%n", spliced[0] / RUNS, spliced[1] / RUNS / 1024);
+        System.out.printf("crossfade : %.0fx real time, %.0f KB allocated by the decoder%n", faded[0] / RUNS, faded[1] / RUNS / 1024);
+        assertTrue(faded[0] / RUNS > 4, "crossfade must leave headroom on one core");
+    }
+
+    private static void add(double[] sum, double[] run) {
+        sum[0] += run[0];
+        sum[1] += run[1];
+    }
+
+    /** Plays {@code a} into {@code b}; returns {real-time factor, bytes the decoder thread allocated}. */
+    private static double[] run(Path a, Path b, Duration fade) throws Exception {
+        FakeSink sink = new FakeSink(0);
+        CountDownLatch done = new CountDownLatch(1);
+        try (PlaybackEngine engine = new PlaybackEngine(sink, 500)) {
+            engine.setListener(new PlaybackEngine.Listener() {
+                @Override public void trackEnded() { done.countDown(); }
+                @Override public void trackFailed(Path file, Exception e) { }
+            });
+            engine.setCrossfade(fade, CrossfadeCurve.EQUAL_POWER);
+            long decoder = decoderThreadId();
+            long bytes0 = allocatedBytes(decoder), t0 = System.nanoTime();
+            engine.queueNext(b);
+            engine.play(a, 0);
+            assertTrue(done.await(60, TimeUnit.SECONDS));
+            double elapsed = (System.nanoTime() - t0) / 1e9;
+            double played  = sink.samples().length / 2 / 44_100.0;
+            return new double[]{played / elapsed, allocatedBytes(decoder) - bytes0};
+        }
+    }
+
+    private static long decoderThreadId() {
+        return Thread.getAllStackTraces().keySet().stream()
+                     .filter(t -> t.getName().equals("audio-decoder") && t.isAlive())
+                     .mapToLong(Thread::getId).max().orElseThrow();
+    }
+
+    private static long allocatedBytes(long thread) {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(thread);
+    }
+}
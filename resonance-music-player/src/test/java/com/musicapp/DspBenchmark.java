@@ -0,0 +1,75 @@
+package com.musicapp;
+
+import com.musicapp.audio.DspChain;
+import com.musicapp.audio.DspStage;
+import com.musicapp.audio.Equalizer;
+import com.musicapp.audio.SoftLimiter;
+import com.musicapp.audio.SpectrumAnalyzer;
+import com.musicapp.audio.VolumeRamp;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cost per sample of each DSP stage on the engine's 10 ms stereo blocks.
+ * Each stage is warmed up, then timed over 20 s of audio, best of five.
+ * The input is a loud sine, so the limiter really limits.  Run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("DSP benchmark")
+class DspBenchmark {
+
+    private static final int BLOCK  = 441 * 2;
+    private static final int BLOCKS = 2_000;          // 20 s of audio
+
+    @Test
+    @DisplayName("measures ns per sample for each stage and the full chain")
+    void nsPerSample() {
+        Equalizer flat = new Equalizer(44_100f, 2);
+        Equalizer eq   = new Equalizer(44_100f, 2);
+        for (int b = 0; b < Equalizer.BANDS; b++) eq.setGain(b, b % 2 == 0 ? 4 : -3);
+        VolumeRamp steady = new VolumeRamp(44_100f, 2);
+        steady.setGain(0.5f);
+        VolumeRamp ramping = new VolumeRamp(44_100f, 2);
+        SoftLimiter limiter = new SoftLimiter();
+        SpectrumAnalyzer spectrum = new SpectrumAnalyzer(44_100f, 2, 10);
+        DspChain chain = new DspChain();
+        chain.add(eq);
+        chain.add(steady);
+        chain.add(limiter);
+        chain.add(spectrum);
+
+        report("equalizer, flat      ", flat, null);
+        report("equalizer, 10 bands  ", eq, null);
+        report("volume, steady       ", steady, null);
+        report("volume, ramping      ", ramping, ramping);
+        report("soft limiter         ", limiter, null);
+        report("spectrum tap         ", spectrum, null);
+        double total = report("full chain           ", chain::process, null);
+        double budget = 1e9 / 44_100 / 2;
+        System.out.printf("chain uses %.2f%% of one core in real time%n", 100 * total / budget);
+        assertTrue(total < budget / 10, "the chain must leave headroom on one core");
+    }
+
+    /** Times {@code stage}; a non-null {@code flip} has its gain toggled every block so it never settles. */
+    private static double report(String name, DspStage stage, VolumeRamp flip) {
+        float[] src = new float[BLOCK], block = new float[BLOCK];
+        for (int i = 0; i < BLOCK; i += 2) src[i] = src[i + 1] = (float) (1.2 * Math.sin(2 * Math.PI * 440 * i / 2 / 44_100));
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < 6; run++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < BLOCKS; i++) {
+                System.arraycopy(src, 0, block, 0, BLOCK);
+                if (flip != null) flip.setGain(i % 2);
+                stage.process(block, BLOCK);
+            }
+            double ns = (double) (System.nanoTime() - t0) / BLOCKS / BLOCK;
+            if (run > 0) best = Math.min(best, ns);                      // run 0 warms up
+        }
+        System.out.printf("%s: %6.2f ns/sample%n", name, best);
+        return best;
+    }
+}
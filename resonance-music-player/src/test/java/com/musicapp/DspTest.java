@@ -0,0 +1,198 @@
+package com.musicapp;
+
+import com.musicapp.audio.DspChain;
+import com.musicapp.audio.DspStage;
+import com.musicapp.audio.Equalizer;
+import com.musicapp.audio.SoftLimiter;
+import com.musicapp.audio.SpectrumAnalyzer;
+import com.musicapp.audio.VolumeRamp;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DSP chain")
+class DspTest {
+
+    private static final float RATE  = 44_100f;
+    private static final int   BLOCK = 441 * 2;
+
+    /** A stereo sine of {@code hz} at {@code amplitude}, {@code frames} long. */
+    private static float[] sine(double hz, float amplitude, int frames) {
+        float[] s = new float[frames * 2];
+        for (int f = 0; f < frames; f++) s[2 * f] = s[2 * f + 1] = (float) (amplitude * Math.sin(2 * Math.PI * hz * f / RATE));
+        return s;
+    }
+
+    /** Runs {@code stage} over {@code s} in engine-sized blocks. */
+    private static void run(DspStage stage, float[] s) {
+        float[] block = new float[BLOCK];
+        for (int off = 0; off < s.length; off += BLOCK) {
+            int n = Math.min(BLOCK, s.length - off);
+            System.arraycopy(s, off, block, 0, n);
+            stage.process(block, n);
+            System.arraycopy(block, 0, s, off, n);
+        }
+    }
+
+    private static float peak(float[] s, int fromFrame) {
+        float p = 0;
+        for (int i = fromFrame * 2; i < s.length; i++) p = Math.max(p, Math.abs(s[i]));
+        return p;
+    }
+
+    @Test
+    @DisplayName("A flat equalizer passes samples through bit for bit")
+    void flatEqualizer() {
+        Equalizer eq = new Equalizer(RATE, 2);
+        float[] s = sine(440, 0.5f, 4_410), copy = s.clone();
+        run(eq, s);
+        assertTrue(eq.isFlat());
+        assertArrayEquals(copy, s);
+    }
+
+    @Test
+    @DisplayName("Boosting a band raises its frequency and leaves distant ones alone")
+    void equalizerBand() {
+        Equalizer eq = new Equalizer(RATE, 2);
+        eq.setGain(5, 6);                                               // 1 kHz, +6 dB
+        float[] inBand = sine(1_000, 0.25f, 44_100), farAway = sine(62, 0.25f, 44_100);
+        run(eq, inBand);
+        eq.reset();
+        run(eq, farAway);
+        assertEquals(0.5, peak(inBand, 22_050), 0.01);
+        assertEquals(0.25, peak(farAway, 22_050), 0.01);
+        eq.setGain(0, 40);
+        assertEquals(Equalizer.MAX_DB, eq.getGain(0));
+    }
+
+    @Test
+    @DisplayName("Volume changes glide instead of jumping")
+    void volumeRamp() {
+        VolumeRamp v = new VolumeRamp(RATE, 2);
+        float[] s = new float[4_410 * 2];
+        Arrays.fill(s, 1f);
+        v.setGain(0f);
+        run(v, s);
+        for (int i = 2; i < s.length; i += 2) assertTrue(s[i - 2] - s[i] <= 1f / 441 + 1e-6f, "step at frame " + i / 2);
+        assertEquals(0f, s[441 * 2]);                                   // full scale in 10 ms
+        assertTrue(s[220 * 2] > 0.4f && s[220 * 2] < 0.6f);
+    }
+
+    @Test
+    @DisplayName("The soft limiter keeps peaks below full scale and leaves quieter samples alone")
+    void softLimiter() {
+        SoftLimiter l = new SoftLimiter();
+        float[] s = {0.5f, -0.9f, 0.944f, 1.5f, -4f, 1f};
+        l.process(s, s.length);
+        assertEquals(0.5f, s[0]);
+        assertEquals(-0.9f, s[1]);
+        assertEquals(0.944f, s[2]);
+        for (int i = 3; i < s.length; i++) assertTrue(Math.abs(s[i]) < 1f && Math.abs(s[i]) > 0.944f, "sample " + s[i]);
+        assertTrue(s[3] > s[5]);
+        assertTrue(s[4] < 0);
+    }
+
+    @Test
+    @DisplayName("Stages run in order and can be added and removed")
+    void chainOrder() {
+        DspChain chain = new DspChain();
+        DspStage half = (b, n) -> { for (int i = 0; i < n; i++) b[i] *= 0.5f; };
+        DspStage plusOne = (b, n) -> { for (int i = 0; i < n; i++) b[i] += 1f; };
+        chain.add(half);
+        chain.add(plusOne);
+        float[] s = {2f, 4f};
+        chain.process(s, 2);
+        assertArrayEquals(new float[]{2f, 3f}, s);
+        chain.remove(half);
+        chain.add(0, half);
+        chain.add(0, plusOne);
+        assertEquals(List.of(plusOne, half, plusOne), chain.getStages());
+    }
+
+    @Test
+    @DisplayName("Processing a block allocates nothing, even while the UI retunes the equalizer")
+    void noAllocation() throws InterruptedException {
+        Equalizer eq = new Equalizer(RATE, 2);
+        VolumeRamp vol = new VolumeRamp(RATE, 2);
+        DspChain chain = new DspChain();
+        chain.add(eq);
+        chain.add(vol);
+        chain.add(new SoftLimiter());
+        for (int b = 0; b < Equalizer.BANDS; b++) eq.setGain(b, b - 5);
+        float[] block = sine(440, 0.9f, BLOCK / 2);
+        for (int i = 0; i < 20_000; i++) chain.process(block, BLOCK);   // warm-up: JIT
+
+        AtomicBoolean done = new AtomicBoolean();
+        Thread ui = new Thread(() -> {
+            for (int i = 0; !done.get(); i++) {
+                eq.setGain(i % Equalizer.BANDS, i % 7 - 3);
+                vol.setGain(i % 2);
+                Thread.yield();
+            }
+        });
+        ui.start();
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long me = Thread.currentThread().getId();
+        long before = mx.getThreadAllocatedBytes(me);
+        for (int i = 0; i < 10_000; i++) chain.process(block, BLOCK);
+        long allocated = mx.getThreadAllocatedBytes(me) - before;
+        done.set(true);
+        ui.join();
+        assertTrue(allocated < 1_024, allocated + " bytes allocated");
+        for (float f : block) assertTrue(Float.isFinite(f) && Math.abs(f) < 1f);
+    }
+
+    @Test
+    @DisplayName("The spectrum tap lights the band of a tone, passes samples through and decays gradually")
+    void spectrum() {
+        SpectrumAnalyzer sa = new SpectrumAnalyzer(RATE, 2, 10);
+        float[] s = sine(1_000, 0.5f, 22_050), copy = s.clone();
+        run(sa, s);
+        assertArrayEquals(copy, s);
+        float[] levels = new float[10];
+        sa.read(levels);
+        int band = 0;
+        while (band + 1 < 10 && sa.frequency(band + 1) <= 1_000) band++;
+        for (int b = 0; b < 10; b++) {
+            if (b == band) assertEquals(1 + 20 * Math.log10(0.5) / 60, levels[b], 0.03);
+            else if (Math.abs(b - band) > 1) assertTrue(levels[b] < levels[band] - 0.3, "band " + b + ": " + levels[b]);
+        }
+
+        float peak = levels[band];
+        run(sa, new float[SpectrumAnalyzer.FFT_SIZE * 2 * 2]);         // ~93 ms of silence
+        sa.read(levels);
+        assertTrue(levels[band] < peak && levels[band] > peak - 0.2f, "decayed to " + levels[band]);
+        sa.reset();
+        sa.read(levels);
+        assertEquals(0f, levels[band]);
+    }
+
+    @Test
+    @DisplayName("The spectrum tap allocates nothing while the UI reads frames")
+    void spectrumNoAllocation() throws InterruptedException {
+        SpectrumAnalyzer sa = new SpectrumAnalyzer(RATE, 2, 10);
+        float[] loud = sine(1_000, 0.9f, BLOCK / 2), quiet = new float[BLOCK];
+        for (int i = 0; i < 20_000; i++) sa.process(loud, BLOCK);      // warm-up: JIT
+
+        AtomicBoolean done = new AtomicBoolean();
+        Thread ui = new Thread(() -> {
+            float[] frame = new float[10];
+            while (!done.get()) sa.read(frame);
+        });
+        ui.start();
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long me = Thread.currentThread().getId();
+        long before = mx.getThreadAllocatedBytes(me);
+        for (int i = 0; i < 10_000; i++) sa.process(i % 50 < 25 ? loud : quiet, BLOCK);
+        long allocated = mx.getThreadAllocatedBytes(me) - before;
+        done.set(true);
+        ui.join();
+        assertTrue(allocated < 1_024, allocated + " bytes allocated");
+    }
+}
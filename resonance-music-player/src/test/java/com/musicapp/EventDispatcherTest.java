@@ -0,0 +1,121 @@
+package com.musicapp;
+
+import com.musicapp.controller.EventDispatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EventDispatcher")
+class EventDispatcherTest {
+
+    /** A target thread that runs hops only when told to. */
+    private final Queue<Runnable> hops = new ArrayDeque<>();
+    private final EventDispatcher events = new EventDispatcher(hops::add);
+
+    private void runHops() {
+        for (Runnable r; (r = hops.poll()) != null; ) r.run();
+    }
+
+    @Test
+    @DisplayName("Publishing only queues; all pending events go out in one hop, in order")
+    void batches() {
+        EventDispatcher.Topic<String> state = events.topic("state");
+        EventDispatcher.Topic<Integer> song = events.topic("song");
+        List<String> seen = new ArrayList<>();
+        state.subscribe(s -> seen.add("state " + s));
+        song.subscribe(s -> seen.add("song " + s));
+
+        state.publish("PLAYING");
+        song.publish(1);
+        state.publish("PAUSED");
+        assertTrue(seen.isEmpty());
+        assertEquals(1, hops.size());
+        assertEquals(3, events.getStats().getQueueDepth());
+
+        runHops();
+        assertEquals(List.of("state PLAYING", "song 1", "state PAUSED"), seen);
+        EventDispatcher.Stats st = events.getStats();
+        assertEquals(1, st.getBatches());
+        assertEquals(3, st.getDelivered());
+        assertEquals(0, st.getQueueDepth());
+        assertEquals(3, st.getMaxQueueDepth());
+    }
+
+    @Test
+    @DisplayName("A coalescing topic delivers only the latest value pending")
+    void coalesces() {
+        EventDispatcher.Topic<Double> progress = events.coalescingTopic("progress");
+        List<Double> seen = new ArrayList<>();
+        progress.subscribe(seen::add);
+        for (int i = 1; i <= 100; i++) progress.publish(i / 100.0);
+        assertEquals(1, events.getStats().getQueueDepth());
+        runHops();
+        assertEquals(List.of(1.0), seen);
+        progress.publish(0.5);
+        runHops();
+        assertEquals(List.of(1.0, 0.5), seen);
+        EventDispatcher.Stats st = events.getStats();
+        assertEquals(101, st.getPublished());
+        assertEquals(99, st.getCoalesced());
+        assertEquals(2, st.getDelivered());
+    }
+
+    @Test
+    @DisplayName("Events published by a listener go in the next batch, and a failing listener does not stop the rest")
+    void reentrantAndFailing() {
+        EventDispatcher.Topic<Integer> t = events.topic("t");
+        List<Integer> seen = new ArrayList<>();
+        t.subscribe(i -> { throw new IllegalStateException("boom"); });
+        t.subscribe(i -> {
+            seen.add(i);
+            if (i < 3) t.publish(i + 1);
+        });
+        t.publish(1);
+        hops.poll().run();
+        assertEquals(List.of(1), seen);
+        runHops();
+        assertEquals(List.of(1, 2, 3), seen);
+    }
+
+    @Test
+    @DisplayName("Listeners can be added and removed from other threads while events flow")
+    void concurrentRegistration() throws Exception {
+        ScheduledExecutorService target = Executors.newSingleThreadScheduledExecutor();
+        try {
+            EventDispatcher live = new EventDispatcher(target, target, EventDispatcher.DEFAULT_FRAME);
+            EventDispatcher.Topic<Integer> t = live.coalescingTopic("progress");
+            AtomicInteger last = new AtomicInteger();
+            CountDownLatch got = new CountDownLatch(1);
+            t.subscribe(i -> { last.set(i); if (i == 9_999) got.countDown(); });
+            Thread churn = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    Consumer<Integer> l = x -> { };
+                    t.subscribe(l);
+                    t.unsubscribe(l);
+                }
+            });
+            churn.start();
+            for (int i = 0; i < 10_000; i++) t.publish(i);
+            churn.join();
+            assertTrue(got.await(5, TimeUnit.SECONDS));
+            assertEquals(9_999, last.get());
+            EventDispatcher.Stats st = live.getStats();
+            assertTrue(st.getBatches() < 1_000, st.toString());
+            assertTrue(st.getMaxLatency().toMillis() < 5_000, st.toString());
+        } finally {
+            target.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.musicapp;
+
+import com.musicapp.audio.AudioSink;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless {@link AudioSink} for engine tests: records every byte "played".
+ * With a positive {@code speed} it consumes audio at that multiple of real
+ * time, like a sound card; with 0 it consumes instantly.
+ */
+final class FakeSink implements AudioSink {
+
+    private final double speed;
+    private final ByteArrayOutputStream played = new ByteArrayOutputStream();
+    private AudioFormat format;
+    private volatile boolean running;
+    private volatile long    frames;
+    private volatile int     opens;
+
+    FakeSink(double speed) { this.speed = speed; }
+
+    @Override
+    public synchronized void open(AudioFormat format, int bufferBytes) {
+        if (this.format == null) opens++;
+        this.format = format;
+    }
+
+    @Override public void start() { running = true; }
+    @Override public void stop()  { running = false; }
+    @Override public void flush() { }
+    @Override public void drain() { }
+    @Override public void close() { running = false; }
+
+    @Override
+    public int write(byte[] b, int off, int len) {
+        if (!running) return 0;
+        int frameSize = format.getFrameSize();
+        int n = len - len % frameSize;
+        synchronized (this) {
+            played.write(b, off, n);
+        }
+        frames += n / frameSize;
+        if (speed > 0) LockSupport.parkNanos((long) (n / frameSize * 1e9 / format.getSampleRate() / speed));
+        return n;
+    }
+
+    @Override public long getFramePosition() { return frames; }
+
+    int opens() { return opens; }
+
+    /** Everything played so far, as 16-bit little-endian samples. */
+    synchronized short[] samples() {
+        byte[] b = played.toByteArray();
+        short[] s = new short[b.length / 2];
+        for (int i = 0; i < s.length; i++) s[i] = (short) ((b[2 * i] & 0xFF) | (b[2 * i + 1] << 8));
+        return s;
+    }
+}
@@ -0,0 +1,111 @@
+package com.musicapp;
+
+import com.musicapp.model.Song;
+import com.musicapp.service.SearchIndex;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Latency check for fuzzy and substring search on a synthetic
+ * one-million-song catalogue.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Fuzzy search benchmark")
+class FuzzySearchBenchmark {
+
+    private static final int    SONGS  = 1_000_000;
+    private static final long   BUDGET = 10_000_000L;   // 10 ms
+    private static final String[] TYPOS = {
+        "led zepelin", "stairway to haeven", "bohemain rhapsody", "qeen", "nirvanna",
+        "blinding ligths", "beyonse", "smells like teen sprit", "rolling in teh deep", "eminen"
+    };
+
+    private static final String[] SUBSTRINGS = {"zep", "a", "ab", "rhaps", "qu", "heav", "xyz", "opera", "ee", "tair"};
+
+    private static SearchIndex index;
+
+    @BeforeAll
+    static void buildIndex() {
+        Random rnd = new Random(42);
+        String[] vocab = new String[60_000];
+        for (int i = 0; i < vocab.length; i++) vocab[i] = randomWord(rnd);
+        String[] artists = new String[40_000];
+        for (int i = 0; i < artists.length; i++) artists[i] = pick(rnd, vocab) + " " + pick(rnd, vocab);
+
+        index = new SearchIndex();
+        index.add(new Song("seed-1", "Stairway to Heaven", "Led Zeppelin", "Led Zeppelin IV", "Rock", 1971, Duration.ofMinutes(8)));
+        index.add(new Song("seed-2", "Bohemian Rhapsody", "Queen", "A Night at the Opera", "Rock", 1975, Duration.ofMinutes(6)));
+        for (int i = 0; i < SONGS; i++) {
+            String artist = artists[rnd.nextInt(artists.length)];
+            index.add(new Song("s" + i, pick(rnd, vocab) + " " + pick(rnd, vocab), artist,
+                               pick(rnd, vocab), "Genre" + rnd.nextInt(40), 1960 + rnd.nextInt(60),
+                               Duration.ofSeconds(120 + rnd.nextInt(300))));
+        }
+        index.publish();
+    }
+
+    @Test
+    @DisplayName("fuzzy queries on 1M songs stay under 10 ms (median)")
+    void fuzzyUnderBudget() {
+        for (int warm = 0; warm < 20; warm++) {
+            for (String q : TYPOS) index.searchFuzzy(q, 50);
+        }
+        long[] samples = new long[TYPOS.length * 10];
+        int n = 0;
+        for (int round = 0; round < 10; round++) {
+            for (String q : TYPOS) {
+                long t0 = System.nanoTime();
+                index.searchFuzzy(q, 50);
+                samples[n++] = System.nanoTime() - t0;
+            }
+        }
+        Arrays.sort(samples);
+        long median = samples[samples.length / 2];
+        long p95    = samples[(int) (samples.length * 0.95)];
+        System.out.printf("fuzzy search over %,d songs: median %.2f ms, p95 %.2f ms, tokens %,d%n",
+                          SONGS, median / 1e6, p95 / 1e6, index.tokenCount());
+
+        List<Song> hits = index.searchFuzzy("led zepelin", 5);
+        assertEquals("Led Zeppelin", hits.get(0).getArtist());
+        assertTrue(median < BUDGET, "median " + median / 1e6 + " ms exceeds 10 ms budget");
+    }
+
+    @Test
+    @DisplayName("substring queries on 1M songs look up the dictionary instead of scanning it")
+    void substringLookup() {
+        for (int warm = 0; warm < 5; warm++) {
+            for (String q : SUBSTRINGS) index.search(q);
+        }
+        for (String q : SUBSTRINGS) {
+            long best = Long.MAX_VALUE;
+            int hits = 0;
+            for (int round = 0; round < 5; round++) {
+                long t0 = System.nanoTime();
+                hits = index.search(q).size();
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            System.out.printf("search %-6s %,9d songs in %7.2f ms%n", "'" + q + "'", hits, best / 1e6);
+        }
+        assertEquals(1, index.search("zeppel").size());
+    }
+
+    private static String pick(Random rnd, String[] a) { return a[rnd.nextInt(a.length)]; }
+
+    private static String randomWord(Random rnd) {
+        int len = 3 + rnd.nextInt(7);
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) sb.append((char) ('a' + rnd.nextInt(26)));
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        return sb.toString();
+    }
+}
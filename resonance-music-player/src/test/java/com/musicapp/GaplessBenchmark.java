@@ -0,0 +1,134 @@
+package com.musicapp;
+
+import com.musicapp.audio.AudioSink;
+import com.musicapp.audio.PlaybackEngine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The gap between two tracks: the engine's gapless splice against stopping
+ * and starting the next file when the first one ends.  A real-time sink
+ * records when each write started and finished, so the silence is the time
+ * the "sound card" had nothing to play between the last frame of the first
+ * track and the first frame of the second.  Run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Gapless transition benchmark")
+class GaplessBenchmark {
+
+    private static final int   RUNS     = 5;
+    private static final int   A_FRAMES = 11_025;   // 0.25 s ramp, always below MARK
+    private static final short MARK     = 12_345;   // every sample of the second track
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("measures the silence between tracks, spliced and restarted")
+    void transitionGap() throws Exception {
+        Path a = dir.resolve("a.wav"), b = dir.resolve("b.wav");
+        AudioFixtures.pcmWav(a, 44_100, 2, AudioFixtures.ramp(A_FRAMES));
+        short[] mark = new short[44_100 / 4 * 2];
+        Arrays.fill(mark, MARK);
+        AudioFixtures.pcmWav(b, 44_100, 2, mark);
+
+        transition(a, b, true);                        // warm-up
+        transition(a, b, false);
+        double[] spliced = new double[RUNS], restarted = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            spliced[i]   = transition(a, b, true);
+            restarted[i] = transition(a, b, false);
+        }
+        Arrays.sort(spliced);
+        Arrays.sort(restarted);
+        System.out.printf("gapless splice : median %.2f ms, max %.2f ms of silence%n", spliced[RUNS / 2], spliced[RUNS - 1]);
+        System.out.printf("stop + restart : median %.2f ms, max %.2f ms of silence%n", restarted[RUNS / 2], restarted[RUNS - 1]);
+        assertTrue(spliced[RUNS / 2] < restarted[RUNS / 2]);
+    }
+
+    /** Plays {@code a} then {@code b}; returns the silence between them in milliseconds. */
+    private static double transition(Path a, Path b, boolean gapless) throws Exception {
+        TimingSink sink = new TimingSink();
+        CountDownLatch done = new CountDownLatch(1);
+        try (PlaybackEngine engine = new PlaybackEngine(sink, 100)) {
+            engine.setListener(new PlaybackEngine.Listener() {
+                private boolean second = gapless;
+                @Override public void trackEnded() {
+                    if (second) { done.countDown(); return; }
+                    second = true;
+                    try {
+                        engine.play(b, 0);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                @Override public void trackFailed(Path file, Exception e) { }
+            });
+            if (gapless) engine.queueNext(b);
+            engine.play(a, 0);
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+        return sink.silenceMillis();
+    }
+
+    /** Consumes audio in real time and remembers when each write happened. */
+    private static final class TimingSink implements AudioSink {
+
+        private final ByteArrayOutputStream played = new ByteArrayOutputStream();
+        private final List<long[]> writes = new ArrayList<>();   // {first frame, frames, start, end}
+        private AudioFormat format;
+        private volatile boolean running;
+        private long frames;
+
+        @Override public void open(AudioFormat format, int bufferBytes) { this.format = format; }
+        @Override public void start() { running = true; }
+        @Override public void stop()  { running = false; }
+        @Override public void flush() { }
+        @Override public void drain() { }
+        @Override public void close() { running = false; }
+
+        @Override
+        public synchronized int write(byte[] b, int off, int len) {
+            if (!running) return 0;
+            int n = len / format.getFrameSize();
+            long start = System.nanoTime();
+            played.write(b, off, n * format.getFrameSize());
+            LockSupport.parkNanos((long) (n * 1e9 / format.getSampleRate()));
+            writes.add(new long[]{frames, n, start, System.nanoTime()});
+            frames += n;
+            return n * format.getFrameSize();
+        }
+
+        @Override public synchronized long getFramePosition() { return frames; }
+
+        synchronized double silenceMillis() {
+            byte[] bytes = played.toByteArray();
+            long first = -1;
+            for (int i = 0; i + 1 < bytes.length; i += 4) {
+                if ((short) ((bytes[i] & 0xFF) | (bytes[i + 1] << 8)) == MARK) { first = i / 4; break; }
+            }
+            assertEquals(A_FRAMES, first, "frames between the tracks");
+            long[] lastOfA = null, firstOfB = null;
+            for (long[] w : writes) {
+                if (w[0] <= first - 1 && first - 1 < w[0] + w[1]) lastOfA = w;
+                if (w[0] <= first && first < w[0] + w[1]) firstOfB = w;
+            }
+            return lastOfA == firstOfB ? 0 : Math.max(0, firstOfB[2] - lastOfA[3]) / 1e6;
+        }
+    }
+}
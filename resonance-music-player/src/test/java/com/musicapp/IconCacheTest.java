@@ -0,0 +1,82 @@
+package com.musicapp;
+
+import com.musicapp.ui.UIComponents.IconCache;
+import com.musicapp.ui.UIComponents.PlayerIcon;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("IconCache")
+class IconCacheTest {
+
+    @BeforeEach
+    void fresh() {
+        IconCache.setEnabled(true);
+        IconCache.clear();
+    }
+
+    @AfterEach
+    void reset() { IconCache.clear(); }
+
+    /** {@code icon} drawn at 24 px into a 32 px canvas at {@code scale}, antialiased as the components paint. */
+    private static BufferedImage paint(PlayerIcon icon, double scale) {
+        int px = (int) (32 * scale);
+        BufferedImage img = new BufferedImage(px, px, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.scale(scale, scale);
+        IconCache.draw(g, icon, 4, 4, 24, Color.WHITE);
+        g.dispose();
+        return img;
+    }
+
+    @Test
+    @DisplayName("Each icon, size, colour and scale is rasterized once, and blits match the vector shape")
+    void rasterizedOnce() {
+        for (double scale : new double[]{1, 1.5, 2}) {
+            for (PlayerIcon icon : PlayerIcon.values()) {
+                BufferedImage first = paint(icon, scale);
+                long misses = IconCache.getMisses();
+                BufferedImage again = paint(icon, scale);
+                assertEquals(misses, IconCache.getMisses(), icon + " re-rasterized");
+
+                IconCache.setEnabled(false);
+                BufferedImage vector = paint(icon, scale);
+                IconCache.setEnabled(true);
+                assertEquals(coverage(vector), coverage(first), coverage(vector) * 0.02 + 4, icon + " @" + scale);
+                assertEquals(coverage(first), coverage(again));
+            }
+        }
+        assertEquals(PlayerIcon.values().length * 3, IconCache.size());
+    }
+
+    @Test
+    @DisplayName("Keeps only the most recently used icons")
+    void bounded() {
+        for (int size = 1; size <= 400; size++) {
+            IconCache.draw(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics(),
+                           PlayerIcon.PLAY, 0, 0, size, Color.WHITE);
+        }
+        assertTrue(IconCache.size() <= 128, IconCache.size() + " images kept");
+        long misses = IconCache.getMisses();
+        paint(PlayerIcon.PLAY, 1);                              // size 24 fell out long ago
+        assertEquals(misses + 1, IconCache.getMisses());
+    }
+
+    /** Sum of alpha over the image, in whole pixels. */
+    private static double coverage(BufferedImage img) {
+        double sum = 0;
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) sum += (img.getRGB(x, y) >>> 24) / 255.0;
+        }
+        return sum;
+    }
+}
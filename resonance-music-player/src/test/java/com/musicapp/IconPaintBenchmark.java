@@ -0,0 +1,82 @@
+package com.musicapp;
+
+import com.musicapp.ui.PlayerBar;
+import com.musicapp.ui.SidebarPanel;
+import com.musicapp.ui.UIComponents.IconCache;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JComponent;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Time to paint the player bar and the sidebar with icons blitted from the
+ * {@link IconCache} and with the vector geometry run on every paint, at
+ * 100% and 200% scale, painted offscreen (headless).
+ * Run with {@code mvn test -Pbenchmark -Dtest=IconPaintBenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Icon paint benchmark")
+class IconPaintBenchmark {
+
+    private static final int FRAMES = 3_000;
+
+    @BeforeAll
+    static void headless() { System.setProperty("java.awt.headless", "true"); }
+
+    @Test
+    @DisplayName("player bar and sidebar paint time, cached vs vector")
+    void paint() {
+        measure("player bar", new PlayerBar(null), 1_200, 92);
+        measure("sidebar",    new SidebarPanel(),  220, 600);
+    }
+
+    private static void measure(String name, JComponent panel, int width, int height) {
+        panel.setSize(width, height);
+        layout(panel);
+        for (double scale : new double[]{1, 2}) {
+            BufferedImage frame = new BufferedImage((int) (width * scale), (int) (height * scale), BufferedImage.TYPE_INT_ARGB);
+            for (int warm = 0; warm < 2; warm++) {
+                IconCache.setEnabled(false);
+                paintFrames(panel, frame, scale);
+                IconCache.setEnabled(true);
+                paintFrames(panel, frame, scale);
+            }
+            IconCache.setEnabled(false);
+            double vector = paintFrames(panel, frame, scale);
+            IconCache.setEnabled(true);
+            long misses = IconCache.getMisses();
+            double cached = paintFrames(panel, frame, scale);
+            System.out.printf("%-10s @%.0f%%: vector %,7.1f us, cached %,7.1f us per frame (%.1fx)%n",
+                              name, scale * 100, vector, cached, vector / cached);
+            assertEquals(misses, IconCache.getMisses(), "icons re-rasterized in steady state");
+        }
+    }
+
+    /** Mean microseconds per frame. */
+    private static double paintFrames(JComponent panel, BufferedImage frame, double scale) {
+        long t0 = System.nanoTime();
+        for (int f = 0; f < FRAMES; f++) {
+            Graphics2D g = frame.createGraphics();
+            g.scale(scale, scale);
+            panel.paint(g);
+            g.dispose();
+        }
+        return (System.nanoTime() - t0) / 1e3 / FRAMES;
+    }
+
+    /** Lays out the tree without a peer, which validate() would need. */
+    private static void layout(Container c) {
+        c.doLayout();
+        for (Component child : c.getComponents()) {
+            if (child instanceof Container) layout((Container) child);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.musicapp;
+
+import com.musicapp.model.Playlist;
+import com.musicapp.model.Song;
+import com.musicapp.service.CatalogFile;
+import com.musicapp.service.Journal;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Library journal")
+class JournalTest {
+
+    @TempDir
+    Path dir;
+
+    /** Handler that logs every replayed record as a line of text. */
+    private static final class Recorder implements Journal.Handler {
+        final List<String> seen = new ArrayList<>();
+        @Override public void putSong(Song s)                      { seen.add("put " + s.getId() + " " + s.getPlayCount() + " " + s.isFavorite()); }
+        @Override public void removeSong(String id)                { seen.add("remove " + id); }
+        @Override public void playCount(String id, int count)      { seen.add("plays " + id + " " + count); }
+        @Override public void favorite(String id, boolean f)       { seen.add("fav " + id + " " + f); }
+        @Override public void filePath(String id, String path)     { seen.add("path " + id + " " + path); }
+        @Override public void loudness(String id, float l, float p) { seen.add("loud " + id + " " + l + " " + p); }
+        @Override public void removePlaylist(String id)            { seen.add("drop " + id); }
+        @Override public void putPlaylist(String id, String name, String desc, String color, List<String> ids) {
+            seen.add("playlist " + id + " " + name + " " + ids);
+        }
+    }
+
+    private Path catalog() { return dir.resolve("library.rcat"); }
+
+    private Journal open(Recorder r) throws IOException {
+        return Journal.open(catalog(), 0, r, 1 << 20, () -> { });
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.filter(p -> p.toString().endsWith(".wal")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Records replay in order after a restart")
+    void replaysInOrder() throws IOException {
+        Song s = new Song("s1", "Title", "Artist", null, null, 2000, Duration.ofSeconds(60));
+        s.setFavorite(true);
+        Playlist p = new Playlist("p1", "Mix", null, null);
+        p.addSong(s);
+
+        Journal j = open(new Recorder());
+        j.putSong(s);
+        j.playCount("s1", 3);
+        j.favorite("s1", false);
+        j.filePath("s1", "/a.wav");
+        j.loudness("s1", -14.5f, 0.75f);
+        j.putPlaylist(p);
+        j.removePlaylist("p1");
+        j.removeSong("s1");
+        j.sync();
+        j.close();
+
+        Recorder r = new Recorder();
+        Journal again = open(r);
+        assertEquals(List.of("put s1 0 true", "plays s1 3", "fav s1 false", "path s1 /a.wav", "loud s1 -14.5 0.75",
+                             "playlist p1 Mix [s1]", "drop p1", "remove s1"), r.seen);
+        assertEquals(8, again.replayed());
+        again.close();
+    }
+
+    @Test
+    @DisplayName("A torn final record is discarded and truncated, earlier records survive")
+    void tornTail() throws IOException {
+        Journal j = open(new Recorder());
+        j.playCount("a", 1);
+        j.playCount("a", 2);
+        j.close();
+        Path seg = segments().get(0);
+        long good = Files.size(seg);
+        // Simulate a crash half-way through the next frame
+        Files.write(seg, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        Recorder r = new Recorder();
+        open(r).close();
+        assertEquals(List.of("plays a 1", "plays a 2"), r.seen);
+        assertEquals(good, Files.size(seg));
+    }
+
+    @Test
+    @DisplayName("A corrupted record stops replay at the corruption")
+    void checksumMismatch() throws IOException {
+        Journal j = open(new Recorder());
+        j.playCount("a", 1);
+        j.playCount("b", 2);
+        j.close();
+        Path seg = segments().get(0);
+        byte[] bytes = Files.readAllBytes(seg);
+        bytes[bytes.length - 1] ^= 0x55;
+        Files.write(seg, bytes);
+
+        Recorder r = new Recorder();
+        open(r).close();
+        assertEquals(List.of("plays a 1"), r.seen);
+    }
+
+    @Test
+    @DisplayName("Segments covered by a snapshot are skipped and deleted")
+    void compaction() throws IOException {
+        Journal j = open(new Recorder());
+        j.playCount("a", 1);
+        int covered = j.rotate();
+        j.playCount("a", 2);
+        CatalogFile.write(catalog(), List.of(), List.of(), covered);
+        j.deleteThrough(covered);
+        j.close();
+        assertEquals(1, segments().size());
+
+        int gen;
+        try (CatalogFile cat = CatalogFile.open(catalog())) {
+            gen = cat.generation();
+        }
+        Recorder r = new Recorder();
+        Journal.open(catalog(), gen, r, 1 << 20, () -> { }).close();
+        assertEquals(List.of("plays a 2"), r.seen);
+    }
+
+    @Test
+    @DisplayName("Appends from many threads are group-committed without loss")
+    void concurrentAppends() throws Exception {
+        Journal j = open(new Recorder());
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            String id = "t" + t;
+            threads[t] = new Thread(() -> { for (int i = 1; i <= 500; i++) j.playCount(id, i); });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        j.sync();
+        j.close();
+
+        Recorder r = new Recorder();
+        open(r).close();
+        assertEquals(2000, r.seen.size());
+        for (int t = 0; t < threads.length; t++) {
+            String id = "t" + t;
+            List<String> mine = r.seen.stream().filter(l -> l.startsWith("plays " + id + " ")).collect(Collectors.toList());
+            assertEquals("plays " + id + " 500", mine.get(mine.size() - 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Playlist edits notify their listener")
+    void playlistListener() {
+        Playlist p = new Playlist("p", "Name", "", "#fff");
+        Song a = new Song("a", "A", "X", null, null, 0, Duration.ZERO);
+        Song b = new Song("b", "B", "X", null, null, 0, Duration.ZERO);
+        List<String> events = new ArrayList<>();
+        p.setListener(pl -> events.add(pl.getSongs().stream().map(Song::getId).collect(Collectors.joining(","))));
+        p.addSong(a);
+        p.addSong(b);
+        p.addSong(a);          // duplicate: no change, no event
+        p.moveSong(1, 0);
+        p.removeSong(a);
+        assertEquals(List.of("a", "a,b", "b,a", "b"), events);
+    }
+}
@@ -0,0 +1,242 @@
+package com.musicapp;
+
+import com.musicapp.model.Playlist;
+import com.musicapp.model.Song;
+import com.musicapp.service.CatalogFile;
+import com.musicapp.service.MusicLibrary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress tests for {@link MusicLibrary} under concurrent writers and readers.
+ * Every song written here carries its version in both title and album, so a
+ * reader that ever sees the two disagree has observed a torn view.
+ */
+@DisplayName("MusicLibrary concurrency")
+class LibraryConcurrencyTest {
+
+    private static final int WRITERS   = 4;
+    private static final int PER_WRITER = 500;
+
+    private final MusicLibrary lib = MusicLibrary.getInstance();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void cleanUp() {
+        lib.removePlaylist("cc-pl");
+        for (Song s : lib.getAllSongs()) {
+            if (s.getId().startsWith("cc-")) lib.removeSong(s.getId());
+        }
+    }
+
+    private static Song tagged(String id, int version) {
+        return new Song(id, "Stress v" + version, "Stress Artist", "Album v" + version,
+                        "Stress", 2024, Duration.ofSeconds(180));
+    }
+
+    /** Runs {@code tasks} together from a common start line and rethrows the first failure. */
+    private static void runAll(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Callable<Void> t : tasks) {
+            futures.add(pool.submit(() -> { start.await(); return t.call(); }));
+        }
+        start.countDown();
+        try {
+            for (Future<Void> f : futures) f.get(60, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent writers lose no songs and each keeps its insertion order")
+    void noLostUpdates() throws Exception {
+        int before = lib.getAllSongs().size();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            tasks.add(() -> {
+                for (int i = 0; i < PER_WRITER; i++) lib.addSong(tagged("cc-" + writer + "-" + i, 0));
+                return null;
+            });
+        }
+        runAll(tasks);
+
+        List<Song> all = lib.getAllSongs();
+        assertEquals(before + WRITERS * PER_WRITER, all.size());
+        int[] next = new int[WRITERS];
+        for (Song s : all) {
+            if (!s.getId().startsWith("cc-")) continue;
+            String[] parts = s.getId().split("-");
+            int w = Integer.parseInt(parts[1]);
+            assertEquals(next[w]++, Integer.parseInt(parts[2]), "writer " + w + " out of order");
+        }
+        for (int w = 0; w < WRITERS; w++) assertEquals(PER_WRITER, next[w]);
+    }
+
+    @Test
+    @DisplayName("Readers never observe a torn song while it is being replaced")
+    void noTornViews() throws Exception {
+        int ids = 32;
+        for (int i = 0; i < ids; i++) lib.addSong(tagged("cc-t" + i, 0));
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            try {
+                for (int v = 1; v <= 200; v++) {
+                    for (int i = 0; i < ids; i++) lib.addSong(tagged("cc-t" + i, v));
+                }
+            } finally {
+                done.set(true);
+            }
+            return null;
+        });
+        for (int r = 0; r < 3; r++) {
+            tasks.add(() -> {
+                Map<String, Integer> seen = new HashMap<>();
+                while (!done.get() && torn.get() == null) {
+                    for (Song s : lib.getAllSongs()) {
+                        if (!s.getId().startsWith("cc-t")) continue;
+                        String v = s.getTitle().substring("Stress v".length());
+                        if (!s.getAlbum().equals("Album v" + v)) torn.set(s.getTitle() + " / " + s.getAlbum());
+                        // Versions only move forward for a given id
+                        int ver = Integer.parseInt(v);
+                        Integer prev = seen.put(s.getId(), ver);
+                        if (prev != null && prev > ver) torn.set(s.getId() + " went back to v" + ver);
+                    }
+                    Song one = lib.getSong("cc-t0");
+                    if (one == null) torn.set("cc-t0 vanished during replacement");
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+
+        assertNull(torn.get());
+        for (int i = 0; i < ids; i++) assertEquals("Stress v200", lib.getSong("cc-t" + i).getTitle());
+    }
+
+    @Test
+    @DisplayName("Concurrent play-count increments are all counted")
+    void exactPlayCount() throws Exception {
+        lib.addSong(tagged("cc-plays", 0));
+        Song s = lib.getSong("cc-plays");
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < WRITERS; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < 1000; i++) s.incrementPlayCount();
+                return null;
+            });
+        }
+        runAll(tasks);
+        assertEquals(WRITERS * 1000, lib.getSong("cc-plays").getPlayCount());
+    }
+
+    @Test
+    @DisplayName("search and suggest stay consistent while songs are added and removed")
+    void queriesDuringWrites() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            try {
+                for (int i = 0; i < 300; i++) {
+                    lib.addSong(tagged("cc-q" + i, i));
+                    if (i % 3 == 0) lib.removeSong("cc-q" + (i / 2));
+                }
+            } finally {
+                done.set(true);
+            }
+            return null;
+        });
+        for (int r = 0; r < 3; r++) {
+            tasks.add(() -> {
+                while (!done.get()) {
+                    for (Song s : lib.search("stress artist")) {
+                        assertEquals("Stress Artist", s.getArtist());
+                    }
+                    for (String t : lib.suggest("stress", 5)) {
+                        assertTrue(t.toLowerCase().startsWith("stress"), t);
+                    }
+                    lib.searchFuzzy("strss", 5);
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+
+        assertEquals(lib.searchScan("stress artist"), lib.search("stress artist"));
+    }
+
+    @Test
+    @DisplayName("Saving while a playlist is edited writes a consistent copy of it")
+    void saveDuringPlaylistEdits() throws Exception {
+        List<Song> pool = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            lib.addSong(tagged("cc-p" + i, 0));
+            pool.add(lib.getSong("cc-p" + i));
+        }
+        Playlist pl = new Playlist("cc-pl", "Edited", "", "#fff");
+        for (Song s : pool.subList(0, 1000)) pl.addSong(s);
+        lib.addPlaylist(pl);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger saves = new AtomicInteger();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(() -> {                          // the UI, editing without the library lock
+            try {
+                for (int i = 0; !done.get() && saves.get() < 50; i++) {
+                    pl.addSong(pool.get(i % pool.size()));
+                    pl.moveSong(0, pl.size() - 1);
+                    if (i % 2 == 0) pl.removeSong(0);
+                }
+            } finally {
+                done.set(true);
+            }
+            return null;
+        });
+        tasks.add(() -> {                          // what a background compaction runs
+            Path file = dir.resolve("snapshot.rcat");
+            try {
+                while (!done.get()) {
+                    lib.save(file);
+                    saves.incrementAndGet();
+                    try (CatalogFile cat = CatalogFile.open(file)) {
+                        for (Playlist p : cat.playlists(lib::getSong)) {
+                            if (!p.getId().equals("cc-pl")) continue;
+                            assertEquals(p.size(), new HashSet<>(p.getSongs()).size(), "a song saved twice");
+                        }
+                    }
+                }
+            } finally {
+                done.set(true);
+            }
+            return null;
+        });
+        runAll(tasks);
+    }
+}
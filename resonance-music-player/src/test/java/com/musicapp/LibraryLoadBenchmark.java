@@ -0,0 +1,88 @@
+package com.musicapp;
+
+import com.musicapp.model.Song;
+import com.musicapp.service.CatalogFile;
+import com.musicapp.service.MusicLibrary;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end startup cost of a one-million-song library: {@link MusicLibrary#load}
+ * of a catalog file, including the store, search, suggest and facet indexes,
+ * and the heap the loaded songs occupy.  Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Library load benchmark")
+class LibraryLoadBenchmark {
+
+    private static final int SONGS = 1_000_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("loading a 1M-song catalog into the library takes under 20 s")
+    void loadReport() throws IOException {
+        Path file = dir.resolve("big.rcat");
+        // Songs are generated on demand so the fixture does not sit on the heap being measured
+        List<Song> songs = new AbstractList<Song>() {
+            @Override public Song get(int i) {
+                Song s = new Song("load-" + i, "Track Title Number " + i, "Artist Name " + (i / 36),
+                                  "Album Name " + (i / 12), "Genre " + (i / 36) % 40, 1970 + i % 50,
+                                  Duration.ofSeconds(120 + i % 300));
+                s.setFilePath("/music/Artist Name " + (i / 36) + "/Album Name " + (i / 12) + "/" + (i % 12) + ".flac");
+                s.setPlayCount(i % 17);
+                return s;
+            }
+            @Override public int size() { return SONGS; }
+        };
+        CatalogFile.write(file, songs, List.of());
+
+        MusicLibrary lib = MusicLibrary.getInstance();
+        int before = lib.getAllSongs().size();
+        long heapBefore = usedHeap();
+        long t0 = System.nanoTime();
+        lib.load(file);
+        long loadMs = (System.nanoTime() - t0) / 1_000_000;
+        long heapDelta = usedHeap() - heapBefore;
+
+        List<String> ids = new ArrayList<>(SONGS);
+        for (int i = 0; i < SONGS; i++) ids.add("load-" + i);
+        try {
+            assertEquals(before + SONGS, lib.getAllSongs().size());
+            Song s = lib.getSong("load-123456");
+            assertEquals("Track Title Number 123456", s.getTitle());
+            assertEquals("Album Name 10288", s.getAlbum());
+            assertEquals(123456 % 17, s.getPlayCount());
+            assertEquals(List.of(s), lib.search("number 123456"));
+            assertEquals(36, lib.getArtistFacet("Artist Name 1").getSongCount());
+
+            System.out.printf("library load of %,d songs (%,d MB catalog): %,d ms, heap %+,d MB (%d B/song)%n",
+                              SONGS, Files.size(file) >> 20, loadMs, heapDelta >> 20, heapDelta / SONGS);
+            assertTrue(loadMs < 20_000, "load took " + loadMs + " ms");
+        } finally {
+            lib.removeSongs(ids);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try { Thread.sleep(50); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
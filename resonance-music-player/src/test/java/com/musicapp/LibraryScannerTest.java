@@ -0,0 +1,231 @@
+package com.musicapp;
+
+import com.musicapp.model.Song;
+import com.musicapp.service.FileIndex;
+import com.musicapp.service.LibraryScanner;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LibraryScanner")
+class LibraryScannerTest {
+
+    @TempDir
+    Path root;
+
+    private final List<List<Song>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private Map<String, Song> scan(int workers, int batchSize) throws IOException {
+        LibraryScanner scanner = new LibraryScanner(batches::add, workers, batchSize, Duration.ZERO);
+        scanner.scan(root, null);
+        Map<String, Song> byName = new HashMap<>();
+        for (List<Song> b : batches) for (Song s : b) byName.put(Path.of(s.getFilePath()).getFileName().toString(), s);
+        return byName;
+    }
+
+    private static AudioFixtures.Meta meta(String title, int seconds) {
+        return new AudioFixtures.Meta(title, "Fixture Artist", "Fixture Album", "Jazz", 1999, seconds);
+    }
+
+    @Test
+    @DisplayName("Reads tags and duration from every supported format")
+    void readsEveryFormat() throws IOException {
+        AudioFixtures.wav(root.resolve("a/wave.wav"), meta("Wave Song", 61));
+        AudioFixtures.aiff(root.resolve("a/b/aiff.aiff"), meta("Aiff Song", 62));
+        AudioFixtures.mp3(root.resolve("mp3.mp3"), meta("Mp3 Sóng", 63));
+        AudioFixtures.mp3v24(root.resolve("v24.mp3"), meta("Ünïcode v2.4", 64));
+        AudioFixtures.flac(root.resolve("c/flac.flac"), meta("Flac Song", 65));
+        AudioFixtures.ogg(root.resolve("c/vorbis.ogg"), meta("Vorbis Song", 66), false);
+        AudioFixtures.ogg(root.resolve("c/opus.opus"), meta("Opus Song", 67), true);
+
+        Map<String, Song> songs = scan(3, 2);
+        assertEquals(7, songs.size());
+        String[][] expect = {
+            {"wave.wav", "Wave Song", "61", "Jazz"},       {"aiff.aiff", "Aiff Song", "62", "Rock"},
+            {"mp3.mp3", "Mp3 Sóng", "63", "Rock"},         {"v24.mp3", "Ünïcode v2.4", "64", "Jazz"},
+            {"flac.flac", "Flac Song", "65", "Jazz"},      {"vorbis.ogg", "Vorbis Song", "66", "Jazz"},
+            {"opus.opus", "Opus Song", "67", "Jazz"},
+        };
+        for (String[] e : expect) {
+            Song s = songs.get(e[0]);
+            assertNotNull(s, e[0]);
+            assertEquals(e[1], s.getTitle(), e[0]);
+            assertEquals("Fixture Artist", s.getArtist(), e[0]);
+            assertEquals("Fixture Album", s.getAlbum(), e[0]);
+            assertEquals(e[3], s.getGenre(), e[0]);
+            assertEquals(1999, s.getYear(), e[0]);
+            assertEquals(Integer.parseInt(e[2]), s.getDurationSeconds(), e[0]);
+            assertEquals(s.getFilePath(), s.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Reads only headers and tags, not audio payloads or artwork")
+    void readsOnlyHeaders() throws IOException {
+        for (int i = 0; i < 10; i++) AudioFixtures.flac(root.resolve("f" + i + ".flac"), meta("T" + i, 600));
+        LibraryScanner scanner = new LibraryScanner(batches::add, 2, 4, Duration.ZERO);
+        LibraryScanner.Stats stats = scanner.scan(root, null);
+        assertEquals(10, stats.getImported());
+        assertTrue(stats.getBytesTotal() > 100L * stats.getBytesRead(),
+                   "read " + stats.getBytesRead() + " of " + stats.getBytesTotal());
+    }
+
+    @Test
+    @DisplayName("Unrecognised files are counted as failures, other extensions ignored")
+    void failuresAndIgnoredFiles() throws IOException {
+        AudioFixtures.wav(root.resolve("ok.wav"), meta("Ok", 10));
+        Files.write(root.resolve("garbage.mp3"), new byte[]{1, 2, 3, 4, 5});
+        Files.write(root.resolve("notes.txt"), "hello".getBytes());
+        LibraryScanner scanner = new LibraryScanner(batches::add, 1, 10, Duration.ZERO);
+        LibraryScanner.Stats stats = scanner.scan(root, null);
+        assertEquals(2, stats.getFilesSeen());
+        assertEquals(1, stats.getImported());
+        assertEquals(1, stats.getFailed());
+    }
+
+    @Test
+    @DisplayName("Songs arrive in batches and progress ends with the final totals")
+    void batchesAndProgress() throws IOException {
+        for (int i = 0; i < 25; i++) AudioFixtures.wav(root.resolve("d" + (i % 3) + "/s" + i + ".wav"), meta("S" + i, 5));
+        List<LibraryScanner.Stats> reports = Collections.synchronizedList(new ArrayList<>());
+        LibraryScanner scanner = new LibraryScanner(batches::add, 4, 10, Duration.ZERO);
+        LibraryScanner.Stats done = scanner.scan(root, reports::add);
+
+        assertEquals(25, batches.stream().mapToInt(List::size).sum());
+        assertTrue(batches.stream().allMatch(b -> b.size() <= 10));
+        assertFalse(reports.isEmpty());
+        assertEquals(25, reports.get(reports.size() - 1).getImported());
+        assertSame(done, reports.get(reports.size() - 1));
+        assertTrue(done.filesPerSecond() > 0);
+    }
+
+    @Test
+    @DisplayName("Missing tags fall back to the file name and an unknown artist")
+    void missingTags() throws IOException {
+        AudioFixtures.wav(root.resolve("Untitled Track.wav"), new AudioFixtures.Meta("", "", "", "", 0, 3));
+        Song s = scan(1, 1).get("Untitled Track.wav");
+        assertEquals("Untitled Track", s.getTitle());
+        assertEquals("Unknown Artist", s.getArtist());
+        assertEquals(3, s.getDurationSeconds());
+    }
+
+    // ── Incremental scans ──────────────────────────────────────────────────────
+
+    private final Map<String, Song> store = new ConcurrentHashMap<>();
+    private final FileIndex         index = new FileIndex();
+
+    private LibraryScanner.Stats sync() throws IOException {
+        LibraryScanner scanner = new LibraryScanner(b -> b.forEach(s -> store.put(s.getId(), s)),
+                ids -> ids.forEach(store::remove), store::containsKey, index, 2, 8, Duration.ZERO);
+        return scanner.scan(root, null);
+    }
+
+    private Path track(String name, String title) throws IOException {
+        Path file = root.resolve(name);
+        AudioFixtures.mp3(file, meta(title, 100));
+        return file;
+    }
+
+    private String id(Path file) { return file.toAbsolutePath().normalize().toString(); }
+
+    @Test
+    @DisplayName("An unchanged tree is rescanned without opening a single file")
+    void unchangedTreeIsNotRead() throws IOException {
+        for (int i = 0; i < 20; i++) track("d" + i % 4 + "/t" + i + ".mp3", "T" + i);
+        assertEquals(20, sync().getImported());
+        assertEquals(20, index.size());
+
+        LibraryScanner.Stats again = sync();
+        assertEquals(0, again.getImported());
+        assertEquals(20, again.getUnchanged());
+        assertEquals(0, again.getBytesRead());
+        assertEquals(20, store.size());
+    }
+
+    @Test
+    @DisplayName("Only files whose fingerprint changed are re-read")
+    void changedFilesAreReRead() throws IOException {
+        Path edited  = track("edited.mp3", "Before");
+        Path touched = track("touched.mp3", "Same");
+        track("other.mp3", "Other");
+        sync();
+
+        track("edited.mp3", "After the tag edit");
+        Files.setLastModifiedTime(edited, FileTime.fromMillis(Files.getLastModifiedTime(edited).toMillis() + 10_000));
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(Files.getLastModifiedTime(touched).toMillis() + 10_000));
+        LibraryScanner.Stats stats = sync();
+
+        assertEquals(1, stats.getImported());
+        assertEquals(2, stats.getUnchanged());
+        assertEquals("After the tag edit", store.get(id(edited)).getTitle());
+        // the touched file's header was hashed, its new timestamp recorded, its tags left alone
+        assertEquals(Files.getLastModifiedTime(touched).toMillis(), index.get(id(touched)).getModified());
+        assertEquals(0, sync().getBytesRead());
+    }
+
+    @Test
+    @DisplayName("A song missing from the store is re-imported even if its file is unchanged")
+    void missingSongIsReImported() throws IOException {
+        Path file = track("t.mp3", "T");
+        sync();
+        store.clear();
+        assertEquals(1, sync().getImported());
+        assertTrue(store.containsKey(id(file)));
+    }
+
+    @Test
+    @DisplayName("Deleted files and directories are removed from the store and the index")
+    void vanishedFilesAreRemoved() throws IOException {
+        Path keep = track("keep.mp3", "Keep");
+        Path gone = track("gone.mp3", "Gone");
+        Path a = track("album/a.mp3", "A"), b = track("album/b.mp3", "B");
+        sync();
+
+        Files.delete(gone);
+        Files.delete(a);
+        Files.delete(b);
+        Files.delete(root.resolve("album"));
+        LibraryScanner.Stats stats = sync();
+
+        assertEquals(3, stats.getRemoved());
+        assertEquals(Set.of(id(keep)), store.keySet());
+        assertNull(index.get(id(gone)));
+        assertNotNull(index.get(id(keep)));
+    }
+
+    @Test
+    @DisplayName("A root that turns up empty is treated as offline, not as deleted")
+    void emptyRootRemovesNothing() throws IOException {
+        Path file = track("t.mp3", "T");
+        sync();
+        Files.delete(file);
+        assertEquals(0, sync().getRemoved());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    @DisplayName("The index survives a save and reload")
+    void indexRoundTrip() throws IOException {
+        Path file = track("sub/t.mp3", "T");
+        sync();
+        Path saved = root.resolve("index.idx");
+        index.save(saved);
+        assertFalse(index.isDirty());
+
+        FileIndex loaded = FileIndex.load(saved);
+        FileIndex.Fingerprint fp = loaded.get(id(file));
+        assertEquals(Files.size(file), fp.getSize());
+        assertEquals(index.get(id(file)).getHeaderHash(), fp.getHeaderHash());
+        assertEquals(0, FileIndex.load(root.resolve("missing.idx")).size());
+    }
+}
@@ -0,0 +1,103 @@
+package com.musicapp;
+
+import com.musicapp.model.Song;
+import com.musicapp.service.FileIndex;
+import com.musicapp.service.LibraryWatcher;
+import com.musicapp.service.MusicLibrary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LibraryWatcher")
+class LibraryWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private final MusicLibrary library = MusicLibrary.getInstance();
+    private LibraryWatcher watcher;
+
+    @AfterEach
+    void cleanUp() {
+        if (watcher != null) watcher.close();
+        String prefix = dir.toAbsolutePath().normalize().toString();
+        library.getAllSongs().stream().map(Song::getId).filter(id -> id.startsWith(prefix))
+               .forEach(library::removeSong);
+    }
+
+    private Path music() { return dir.resolve("music"); }
+
+    private String id(Path file) { return file.toAbsolutePath().normalize().toString(); }
+
+    private static AudioFixtures.Meta meta(String title) {
+        return new AudioFixtures.Meta(title, "Watcher Artist", "Watcher Album", "Pop", 2020, 180);
+    }
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("timed out waiting until " + what);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    @DisplayName("Syncs on start, then follows added, edited and deleted files")
+    void followsChanges() throws Exception {
+        Path first = music().resolve("a/first.mp3");
+        AudioFixtures.mp3(first, meta("First"));
+        watcher = new LibraryWatcher(library, music(), dir.resolve("library.idx"));
+        watcher.start();
+        await(() -> library.getSong(id(first)) != null, "the startup sync imports the existing file");
+
+        Path added = music().resolve("b/added.flac");          // in a directory that is new as well
+        AudioFixtures.flac(added, meta("Added"));
+        await(() -> library.getSong(id(added)) != null, "a new file is imported");
+
+        AudioFixtures.mp3(first, meta("First, retagged"));
+        await(() -> "First, retagged".equals(library.getSong(id(first)).getTitle()), "an edited file is re-read");
+
+        Files.delete(added);
+        await(() -> library.getSong(id(added)) == null, "a deleted file is removed");
+    }
+
+    @Test
+    @DisplayName("Saves the index on close so the next sync reads nothing")
+    void persistsIndex() throws IOException {
+        for (int i = 0; i < 5; i++) AudioFixtures.wav(music().resolve("t" + i + ".wav"), meta("T" + i));
+        Path indexFile = dir.resolve("library.idx");
+        try (LibraryWatcher w = new LibraryWatcher(library, music(), indexFile)) {
+            assertEquals(5, w.sync(null).getImported());
+        }
+        assertEquals(5, FileIndex.load(indexFile).size());
+
+        watcher = new LibraryWatcher(library, music(), indexFile);
+        assertEquals(5, watcher.sync(null).getUnchanged());
+        assertEquals(0, watcher.sync(null).getBytesRead());
+    }
+
+    @Test
+    @DisplayName("A missing music folder leaves the library untouched")
+    void missingFolder() throws IOException {
+        Path file = music().resolve("t.wav");
+        AudioFixtures.wav(file, meta("T"));
+        Path indexFile = dir.resolve("library.idx");
+        try (LibraryWatcher w = new LibraryWatcher(library, music(), indexFile)) {
+            w.sync(null);
+        }
+        Files.delete(file);
+        Files.delete(music());
+
+        watcher = new LibraryWatcher(library, music(), indexFile);
+        assertNull(watcher.sync(null));
+        assertNotNull(library.getSong(id(file)));
+    }
+}
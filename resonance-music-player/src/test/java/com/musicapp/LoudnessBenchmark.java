@@ -0,0 +1,62 @@
+package com.musicapp;
+
+import com.musicapp.model.Song;
+import com.musicapp.service.LoudnessAnalyzer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput of loudness analysis: 16 tracks of 30 s each (8 minutes of
+ * audio), analysed with one worker and with one per core.  Reports seconds
+ * of audio analysed per second of wall time.  Run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Loudness benchmark")
+class LoudnessBenchmark {
+
+    private static final int TRACKS = 16;
+    private static final int FRAMES = 44_100 * 30;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("reports track-seconds analysed per wall-second")
+    void throughput() throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < TRACKS; i++) {
+            Path f = dir.resolve("t" + i + ".wav");
+            AudioFixtures.pcmWav(f, 44_100, 2, AudioFixtures.ramp(FRAMES));
+            files.add(f);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        run(files, 1);                                       // warm-up
+        LoudnessAnalyzer.Stats one = run(files, 1), all = run(files, cores);
+        System.out.printf("workers = 1 : %s%n", one);
+        System.out.printf("workers = %d : %s%n", cores, all);
+        assertEquals(TRACKS, all.getAnalyzed());
+        assertTrue(one.trackSecondsPerSecond() > 20, "analysis must run well ahead of real time");
+    }
+
+    private static LoudnessAnalyzer.Stats run(List<Path> files, int workers) {
+        List<Song> songs = new ArrayList<>();
+        for (Path f : files) {
+            Song s = new Song(f.getFileName().toString(), "T", "A", null, null, 2024, Duration.ofSeconds(30));
+            s.setFilePath(f.toString());
+            songs.add(s);
+        }
+        try (LoudnessAnalyzer analyzer = new LoudnessAnalyzer(workers)) {
+            return analyzer.analyze(songs);
+        }
+    }
+}
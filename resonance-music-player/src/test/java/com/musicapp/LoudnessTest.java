@@ -0,0 +1,126 @@
+package com.musicapp;
+
+import com.musicapp.audio.LoudnessMeter;
+import com.musicapp.model.Song;
+import com.musicapp.service.LoudnessAnalyzer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Loudness analysis")
+class LoudnessTest {
+
+    private static final float RATE = 44_100f;
+
+    @TempDir
+    Path dir;
+
+    /** A stereo 1 kHz sine at {@code amplitude}, {@code frames} long. */
+    private static float[] sine(float amplitude, int frames) {
+        float[] s = new float[frames * 2];
+        for (int f = 0; f < frames; f++) s[2 * f] = s[2 * f + 1] = (float) (amplitude * Math.sin(2 * Math.PI * 1_000 * f / RATE));
+        return s;
+    }
+
+    private Path sineWav(String name, float amplitude, int frames) throws IOException {
+        float[] f = sine(amplitude, frames);
+        short[] s = new short[f.length];
+        for (int i = 0; i < f.length; i++) s[i] = (short) Math.round(f[i] * 32767);
+        Path file = dir.resolve(name);
+        AudioFixtures.pcmWav(file, 44_100, 2, s);
+        return file;
+    }
+
+    @Test
+    @DisplayName("A 1 kHz sine at -20 dBFS in both channels measures -20 LUFS")
+    void sineLoudness() {
+        LoudnessMeter m = new LoudnessMeter();
+        float[] s = sine(0.1f, 44_100 * 5);
+        m.add(s, s.length);
+        LoudnessMeter.Result r = m.result();
+        assertEquals(-20, r.getLufs(), 0.1);
+        assertEquals(0.1f, r.getPeak(), 1e-4);
+        assertEquals(5, r.getSeconds(), 1e-3);
+    }
+
+    @Test
+    @DisplayName("Silence is gated out, so quiet gaps do not lower a track's loudness")
+    void gating() {
+        LoudnessMeter m = new LoudnessMeter();
+        float[] silence = new float[44_100 * 2 * 10];
+        m.add(silence, silence.length);
+        assertEquals(-70, m.result().getLufs());
+        float[] s = sine(0.1f, 44_100 * 5);
+        m.add(s, s.length);
+        assertEquals(-20, m.result().getLufs(), 0.2);
+        m.reset();
+        assertEquals(0, m.result().getSeconds());
+    }
+
+    @Test
+    @DisplayName("Normalization aims for the target, never clips the peak and caps the boost")
+    void normalizationGain() {
+        assertEquals(1f, LoudnessMeter.normalizationGain(-18, 0.5f), 1e-6);
+        assertEquals(Math.pow(10, -0.5), LoudnessMeter.normalizationGain(-8, 1f), 1e-6);
+        assertEquals(2f, LoudnessMeter.normalizationGain(-30, 0.5f), 1e-6);             // peak-limited
+        assertEquals(Math.pow(10, 0.6), LoudnessMeter.normalizationGain(-60, 0.01f), 1e-5);   // boost capped
+        assertEquals(1f, LoudnessMeter.normalizationGain(Float.NaN, Float.NaN));
+    }
+
+    @Test
+    @DisplayName("The analyzer measures each song with a file once and stores the result on it")
+    void analyzer() throws Exception {
+        Song loud  = new Song("loud-a", "Loud", "Test", null, null, 2024, Duration.ofSeconds(2));
+        Song quiet = new Song("loud-b", "Quiet", "Test", null, null, 2024, Duration.ofSeconds(2));
+        Song broken = new Song("loud-c", "Broken", "Test", null, null, 2024, Duration.ofSeconds(2));
+        Song none  = new Song("loud-d", "No file", "Test", null, null, 2024, Duration.ofSeconds(2));
+        loud.setFilePath(sineWav("a.wav", 0.5f, 88_200).toString());
+        quiet.setFilePath(sineWav("b.wav", 0.05f, 88_200).toString());
+        Path junk = dir.resolve("c.wav");
+        Files.write(junk, new byte[]{1, 2, 3, 4});
+        broken.setFilePath(junk.toString());
+
+        try (LoudnessAnalyzer analyzer = new LoudnessAnalyzer(2)) {
+            List<Song> songs = List.of(loud, quiet, broken, none);
+            LoudnessAnalyzer.Stats st = analyzer.analyze(songs);
+            assertEquals(2, st.getAnalyzed());
+            assertEquals(1, st.getFailed());
+            assertEquals(4, st.getAudioSeconds(), 1e-3);
+            assertTrue(st.trackSecondsPerSecond() > 0);
+            assertEquals(20 * Math.log10(0.5), loud.getLoudness(), 0.2);
+            assertEquals(20 * Math.log10(0.05), quiet.getLoudness(), 0.2);
+            assertEquals(0.5f, loud.getPeak(), 1e-3);
+            assertFalse(broken.isLoudnessAnalyzed());
+            assertFalse(none.isLoudnessAnalyzed());
+
+            assertEquals(0, analyzer.analyze(songs).getAnalyzed());     // already measured
+        }
+    }
+
+    @Test
+    @DisplayName("A file the decoder cannot read is tried once, and again only after it changes")
+    void undecodableOnce() throws Exception {
+        Song broken = new Song("loud-e", "Broken", "Test", null, null, 2024, Duration.ofSeconds(2));
+        Path junk = dir.resolve("e.mp3");
+        Files.write(junk, new byte[]{1, 2, 3, 4});
+        broken.setFilePath(junk.toString());
+
+        try (LoudnessAnalyzer analyzer = new LoudnessAnalyzer(1)) {
+            List<Song> songs = List.of(broken);
+            assertEquals(1, analyzer.analyze(songs).getFailed());
+            assertEquals(0, analyzer.analyze(songs).getFailed());    // remembered, not reopened
+
+            Files.write(junk, new byte[]{1, 2, 3, 4, 5});
+            assertEquals(1, analyzer.analyze(songs).getFailed());
+            assertFalse(broken.isLoudnessAnalyzed());
+        }
+    }
+}
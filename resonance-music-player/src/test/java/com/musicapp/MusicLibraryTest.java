@@ -2,11 +2,17 @@ package com.musicapp;
 
 import com.musicapp.model.Playlist;
 import com.musicapp.model.Song;
+import com.musicapp.service.FacetIndex;
 import com.musicapp.service.MusicLibrary;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -66,6 +72,40 @@ class MusicLibraryTest {
         }
     }
 
+    @Test
+    @DisplayName("Genre and artist lists match a distinct sort of the catalogue")
+    void facetsMatchScan() {
+        assertEquals(lib.getAllSongs().stream().map(Song::getGenre).distinct().sorted().collect(Collectors.toList()),
+                     lib.getAllGenres());
+        assertEquals(lib.getAllSongs().stream().map(Song::getArtist).distinct().sorted().collect(Collectors.toList()),
+                     lib.getAllArtists());
+    }
+
+    @Test
+    @DisplayName("Facet counts and durations follow addSong, re-add and removeSong")
+    void facetsTrackMutations() {
+        FacetIndex.Facet adele = lib.getArtistFacet("Adele");
+        assertEquals(2, adele.getSongCount());
+        assertEquals(Duration.ofSeconds(3 * 60 + 48 + 4 * 60 + 45), adele.getTotalDuration());
+        assertNull(lib.getGenreFacet("Zydeco"));
+
+        lib.addSong(new Song("facet-1", "Bayou", "Adele", "B", "Zydeco", 2001, Duration.ofSeconds(100)));
+        assertEquals(3, lib.getArtistFacet("Adele").getSongCount());
+        assertEquals(1, lib.getGenreFacet("Zydeco").getSongCount());
+        assertTrue(lib.getAllGenres().contains("Zydeco"));
+
+        // Replacing the song moves it to another artist and genre
+        lib.addSong(new Song("facet-1", "Bayou", "Nobody", "B", "Polka", 2001, Duration.ofSeconds(40)));
+        assertEquals(2, lib.getArtistFacet("Adele").getSongCount());
+        assertNull(lib.getGenreFacet("Zydeco"));
+        assertEquals(Duration.ofSeconds(40), lib.getGenreFacet("Polka").getTotalDuration());
+
+        lib.removeSong("facet-1");
+        assertNull(lib.getGenreFacet("Polka"));
+        assertFalse(lib.getAllArtists().contains("Nobody"));
+        assertEquals(adele.getTotalDuration(), lib.getArtistFacet("Adele").getTotalDuration());
+    }
+
     @Test
     @DisplayName("addPlaylist and removePlaylist work correctly")
     void addRemovePlaylist() {
@@ -79,4 +119,92 @@ class MusicLibraryTest {
         assertEquals(before, lib.getAllPlaylists().size());
         assertNull(lib.getPlaylist("test-pl"));
     }
+
+    @ParameterizedTest
+    @DisplayName("indexed search agrees with the full scan")
+    @ValueSource(strings = {"queen", "QUEEN", "ee", "adele 21", "o'mine", "hip-hop", "n rh",
+                            "rock", "eknd", "2020", "'", " - ", "zzz", "the"})
+    void searchIndexMatchesScan(String query) {
+        assertEquals(lib.searchScan(query), lib.search(query));
+    }
+
+    @Test
+    @DisplayName("addSong and removeSong keep the search index current")
+    void searchIndexTracksMutations() {
+        Song s = new Song("idx-test", "Xylophonic Dreams", "Test Artist", "Test Album",
+                          "Test", 2024, Duration.ofMinutes(3));
+        lib.addSong(s);
+        try {
+            assertEquals(List.of(s), lib.search("xylophon"));
+            assertEquals(lib.searchScan("test"), lib.search("test"));
+        } finally {
+            lib.removeSong("idx-test");
+        }
+        assertTrue(lib.search("xylophon").isEmpty());
+        assertEquals(lib.searchScan("test"), lib.search("test"));
+    }
+
+    @Test
+    @DisplayName("search stays exact after a churn large enough to renumber the index")
+    void searchIndexSurvivesRenumbering() {
+        List<Song> batch = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            batch.add(new Song("churn-" + i, "Churn Song " + i, "Churn Artist " + i % 7, "Churn Album",
+                               "Churn", 2024, Duration.ofMinutes(3)));
+            ids.add("churn-" + i);
+        }
+        lib.addSongs(batch);
+        try {
+            lib.removeSongs(ids.subList(0, 250));
+            assertEquals(50, lib.search("churn song").size());
+            assertEquals(lib.searchScan("churn artist 3"), lib.search("churn artist 3"));
+            assertEquals(lib.searchScan("queen"), lib.search("queen"));
+            assertEquals("Churn Song 299", lib.searchFuzzy("chrn sng 299", 1).get(0).getTitle());
+        } finally {
+            lib.removeSongs(ids);
+        }
+        assertTrue(lib.search("churn").isEmpty());
+        assertTrue(lib.searchFuzzy("churn", 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("suggest completes titles, artists and albums by prefix")
+    void suggestByPrefix() {
+        List<String> hits = lib.suggest("led z", 10);
+        assertTrue(hits.contains("Led Zeppelin"));
+        assertTrue(hits.contains("Led Zeppelin IV"));
+        assertTrue(lib.suggest("sweet child o mine", 5).contains("Sweet Child O'Mine"));
+        assertTrue(lib.suggest("", 5).isEmpty());
+        assertEquals(1, lib.suggest("s", 1).size());
+    }
+
+    @Test
+    @DisplayName("suggest ranks completions by play count")
+    void suggestRanksByPlayCount() {
+        Song a = new Song("sug-a", "Qwerty Alpha", "Sug Artist", "Sug Album", "Test", 2024, Duration.ofMinutes(3));
+        Song b = new Song("sug-b", "Qwerty Beta",  "Sug Artist", "Sug Album", "Test", 2024, Duration.ofMinutes(3));
+        lib.addSong(a);
+        lib.addSong(b);
+        try {
+            b.incrementPlayCount();
+            assertEquals(List.of("Qwerty Beta", "Qwerty Alpha"), lib.suggest("qwerty", 5));
+            a.incrementPlayCount(); a.incrementPlayCount();
+            assertEquals(List.of("Qwerty Alpha"), lib.suggest("QWERTY", 1));
+        } finally {
+            lib.removeSong("sug-a");
+            lib.removeSong("sug-b");
+        }
+        assertTrue(lib.suggest("qwerty", 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("searchFuzzy tolerates typos and ranks the closest match first")
+    void searchFuzzyToleratesTypos() {
+        assertEquals("Led Zeppelin", lib.searchFuzzy("Led Zepelin", 5).get(0).getArtist());
+        assertEquals("Bohemian Rhapsody", lib.searchFuzzy("bohemain rapsody", 5).get(0).getTitle());
+        assertEquals("Queen", lib.searchFuzzy("qeen", 5).get(0).getArtist());
+        assertTrue(lib.searchFuzzy("xqzvvk", 5).isEmpty());
+        assertTrue(lib.searchFuzzy("rock", 2).size() <= 2);
+    }
 }
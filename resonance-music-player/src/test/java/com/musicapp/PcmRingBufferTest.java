@@ -0,0 +1,73 @@
+package com.musicapp;
+
+import com.musicapp.audio.PcmRingBuffer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PcmRingBuffer")
+class PcmRingBufferTest {
+
+    @Test
+    @DisplayName("Capacity rounds up to a power of two and moves whole frames only")
+    void wholeFrames() {
+        PcmRingBuffer ring = new PcmRingBuffer(100, 2);
+        assertEquals(128, ring.capacity());
+        assertEquals(4, ring.write(new float[5], 0, 5));     // the odd sample is left for the next write
+        assertEquals(2, ring.available());
+        assertEquals(2, ring.read(new float[3], 0, 3));      // one frame of the two
+        assertEquals(1, ring.available());
+    }
+
+    @Test
+    @DisplayName("Writes stop when full and samples survive wrap-around in order")
+    void wrapAround() {
+        PcmRingBuffer ring = new PcmRingBuffer(8, 2);
+        float[] in = new float[12], out = new float[12];
+        for (int i = 0; i < in.length; i++) in[i] = i;
+        assertEquals(12, ring.write(in, 0, 12));
+        assertEquals(8, ring.read(out, 0, 8));
+        assertEquals(12, ring.write(in, 0, 12));             // crosses the end of the array
+        assertEquals(0, ring.write(in, 0, 12));              // full: 16 samples buffered
+        assertEquals(0, ring.free());
+        assertEquals(16, ring.read(new float[16], 0, 16));
+        ring.clear();
+        assertEquals(0, ring.available());
+    }
+
+    @Test
+    @DisplayName("A producer and a consumer thread hand over every sample in order")
+    void concurrentHandOver() throws InterruptedException {
+        PcmRingBuffer ring = new PcmRingBuffer(256, 2);
+        int total = 2_000_000;
+        Thread producer = new Thread(() -> {
+            float[] chunk = new float[94];
+            int next = 0;
+            while (next < total) {
+                int n = Math.min(chunk.length, total - next);
+                for (int i = 0; i < n; i++) chunk[i] = next + i;
+                int off = 0;
+                while (off < n) {
+                    int w = ring.write(chunk, off, n - off);
+                    if (w == 0) Thread.yield();
+                    off += w;
+                }
+                next += n;
+            }
+        });
+        producer.start();
+        float[] buf = new float[70];
+        int expected = 0;
+        while (expected < total) {
+            int n = ring.read(buf, 0, buf.length);
+            if (n == 0) Thread.yield();
+            for (int i = 0; i < n; i++) {
+                if (buf[i] != (float) expected) fail("sample " + expected + " arrived as " + buf[i]);
+                expected++;
+            }
+        }
+        producer.join();
+        assertEquals(0, ring.available());
+    }
+}
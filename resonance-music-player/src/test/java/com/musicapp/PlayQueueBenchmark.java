@@ -0,0 +1,109 @@
+package com.musicapp;
+
+import com.musicapp.controller.PlayQueue;
+import com.musicapp.model.Song;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cost of starting playback and editing the queue at 10k, 100k and 1M
+ * entries, next to the copy-and-scan the queue replaced.
+ * Run with {@code mvn test -Pbenchmark -Dtest=PlayQueueBenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Play queue benchmark")
+class PlayQueueBenchmark {
+
+    private static final int[] SIZES  = {10_000, 100_000, 1_000_000};
+    private static final int   ROUNDS = 200;
+    private static final int   EDITS  = 100;
+
+    private static volatile int sink;                   // keeps results live
+
+    @Test
+    @DisplayName("starting playback does not depend on the context size")
+    void run() {
+        Random rnd = new Random(1);
+        List<Song> extra = new ArrayList<>();
+        for (int i = 0; i < EDITS; i++) extra.add(song("e" + i));
+        for (int size : SIZES) {
+            List<Song> ctx = context(size);
+            PlayQueue q = new PlayQueue();
+
+            long copy = median(() -> {                      // what play(Song, List) used to do
+                List<Song> old = new ArrayList<>();
+                old.addAll(ctx);
+                return old.indexOf(ctx.get(size - 1));
+            });
+            long start = median(() -> {
+                q.setContext(ctx);
+                q.setCurrent(size - 1);
+                return q.current();
+            });
+            long scan = median(() -> {                      // what play(Song, List) does now
+                q.setContext(ctx);
+                return q.positionOf(ctx.get(size - 1));
+            });
+            long index = time(() -> q.positionOf(ctx.get(0)));          // the second lookup builds the id index
+            long lookup = median(() -> q.positionOf(ctx.get(size / 2)));
+
+            q.setCurrent(size / 2);
+            long t0 = System.nanoTime();
+            for (int i = 0; i < EDITS; i++) {
+                q.playNext(extra.get(i));
+                q.enqueue(extra.get((i + 1) % EDITS));
+                q.removeAt(rnd.nextInt(q.size()));
+                q.move(rnd.nextInt(q.size()), rnd.nextInt(q.size()));
+            }
+            long edit = (System.nanoTime() - t0) / (EDITS * 4);
+            long get = median(() -> q.get(rnd.nextInt(q.size())).getDuration().getNano());
+
+            System.out.printf("%,9d songs: copy+scan %,10.1f us | scan %,9.1f us | play at row %,5.2f us%n"
+                              + "                 id index %,10.1f us once, then %,5.2f us | edit %,6.2f us | get %,5.2f us%n",
+                              size, copy / 1e3, scan / 1e3, start / 1e3, index / 1e3, lookup / 1e3, edit / 1e3, get / 1e3);
+
+            assertEquals(size + EDITS, q.size());
+            assertTrue(start < 50_000, "play took " + start + " ns");
+        }
+    }
+
+    private interface Op { int run(); }
+
+    private static long time(Op op) {
+        long t0 = System.nanoTime();
+        sink = op.run();
+        return System.nanoTime() - t0;
+    }
+
+    /** Median of {@link #ROUNDS} timed runs, after as many warm-up runs. */
+    private static long median(Op op) {
+        for (int i = 0; i < ROUNDS; i++) sink = op.run();
+        long[] t = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            sink = op.run();
+            t[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(t);
+        return t[ROUNDS / 2];
+    }
+
+    private static List<Song> context(int n) {
+        List<Song> songs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) songs.add(song("s" + i));
+        return List.copyOf(songs);
+    }
+
+    private static Song song(String id) {
+        return new Song(id, "Title " + id, "Artist", "Album", "Rock", 2000, Duration.ofMinutes(3));
+    }
+}
@@ -0,0 +1,128 @@
+package com.musicapp;
+
+import com.musicapp.controller.PlayQueue;
+import com.musicapp.model.Song;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PlayQueue")
+class PlayQueueTest {
+
+    private static List<Song> songs(String prefix, int n) {
+        List<Song> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) list.add(new Song(prefix + i, "Title " + i, "Artist", "Album", "Rock", 2000, Duration.ofMinutes(3)));
+        return List.copyOf(list);
+    }
+
+    private static List<String> ids(List<Song> q) {
+        List<String> ids = new ArrayList<>();
+        for (Song s : q) ids.add(s.getId());
+        return ids;
+    }
+
+    @Test
+    @DisplayName("References the context without copying it and finds songs by id")
+    void context() {
+        List<Song> ctx = songs("s", 1_000);
+        PlayQueue q = new PlayQueue();
+        q.setContext(ctx);
+        assertSame(ctx, q.getContext());
+        assertEquals(1_000, q.size());
+        assertEquals(-1, q.current());
+        assertSame(ctx.get(500), q.get(500));
+        assertEquals(500, q.positionOf(ctx.get(500)));
+        assertEquals(-1, q.positionOf(songs("x", 1).get(0)));
+        assertThrows(UnsupportedOperationException.class, () -> q.add(ctx.get(0)));
+    }
+
+    @Test
+    @DisplayName("Play next goes straight after the current song; added songs queue up in order")
+    void playNextAndEnqueue() {
+        List<Song> ctx = songs("s", 5), extra = songs("e", 3);
+        PlayQueue q = new PlayQueue();
+        q.setContext(ctx);
+        q.setCurrent(1);
+        q.enqueue(extra.get(0));
+        q.enqueue(extra.get(1));
+        q.playNext(extra.get(2));
+        assertEquals(List.of("s0", "s1", "e2", "e0", "e1", "s2", "s3", "s4"), ids(q));
+        assertEquals(1, q.current());
+
+        q.setCurrent(2);                                      // e2 starts; later additions still go after e1
+        q.enqueue(ctx.get(0));
+        assertEquals(List.of("s0", "s1", "e2", "e0", "e1", "s0", "s2", "s3", "s4"), ids(q));
+        assertEquals(4, q.positionOf(extra.get(1)));
+    }
+
+    @Test
+    @DisplayName("Removing and moving keep the current song current")
+    void removeAndMove() {
+        List<Song> ctx = songs("s", 6);
+        PlayQueue q = new PlayQueue();
+        q.setContext(ctx);
+        q.setCurrent(3);
+        q.removeAt(0);
+        assertEquals(2, q.current());
+        assertSame(ctx.get(3), q.get(q.current()));
+
+        q.move(2, 0);
+        assertEquals(0, q.current());
+        assertEquals(List.of("s3", "s1", "s2", "s4", "s5"), ids(q));
+        q.move(4, 1);
+        assertEquals(List.of("s3", "s5", "s1", "s2", "s4"), ids(q));
+        assertEquals(0, q.current());
+
+        q.removeAt(0);                                        // the playing song: the next one follows it
+        assertEquals(-1, q.current());
+        assertEquals("s5", q.get(q.current() + 1).getId());
+        assertEquals(-1, q.positionOf(ctx.get(3)));
+        assertEquals(3, q.positionOf(ctx.get(4)));
+    }
+
+    @Test
+    @DisplayName("Random edits match the same edits on a plain list")
+    void matchesList() {
+        Random rnd = new Random(7);
+        List<Song> ctx = songs("s", 200), extra = songs("e", 50);
+        PlayQueue q = new PlayQueue();
+        q.setContext(ctx);
+        List<Song> ref = new ArrayList<>(ctx);
+        for (int op = 0; op < 2_000; op++) {
+            int kind = rnd.nextInt(3);
+            if (kind == 0 || ref.size() < 2) {
+                int at = rnd.nextInt(ref.size() + 1);
+                Song s = extra.get(rnd.nextInt(extra.size()));
+                q.insert(at, s);
+                ref.add(at, s);
+            } else if (kind == 1) {
+                int at = rnd.nextInt(ref.size());
+                assertSame(ref.remove(at), q.removeAt(at));
+            } else {
+                int from = rnd.nextInt(ref.size()), to = rnd.nextInt(ref.size());
+                q.move(from, to);
+                ref.add(to, ref.remove(from));
+            }
+            assertEquals(ref.size(), q.size());
+        }
+        assertEquals(ref, q);
+        for (Song s : ref) assertSame(s, q.get(q.positionOf(s)));
+    }
+
+    @Test
+    @DisplayName("Playing from the queue itself keeps its edits")
+    void replayFromQueue() {
+        List<Song> ctx = songs("s", 3), extra = songs("e", 1);
+        PlayQueue q = new PlayQueue();
+        q.setContext(ctx);
+        q.enqueue(extra.get(0));
+        q.setContext(q);
+        assertEquals(List.of("e0", "s0", "s1", "s2"), ids(q));
+    }
+}
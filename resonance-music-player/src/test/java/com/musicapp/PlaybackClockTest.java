@@ -0,0 +1,73 @@
+package com.musicapp;
+
+import com.musicapp.controller.PlaybackClock;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PlaybackClock")
+class PlaybackClockTest {
+
+    private final AtomicLong now = new AtomicLong(123_456_789L);
+    private final PlaybackClock clock = new PlaybackClock(now::get);
+
+    private void advance(double seconds) { now.addAndGet(Math.round(seconds * 1e9)); }
+
+    @Test
+    @DisplayName("Simulated time runs only while started")
+    void runsWhileStarted() {
+        clock.simulate(10);
+        advance(5);
+        assertEquals(10, clock.seconds(), 1e-9);
+        clock.start();
+        advance(2.5);
+        assertEquals(12.5, clock.seconds(), 1e-9);
+        clock.pause();
+        advance(100);
+        assertEquals(12.5, clock.seconds(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("An hour of play with thousands of pauses and odd tick timing drifts by under 1 ms")
+    void noDriftOverAnHour() {
+        clock.simulate(0);
+        double played = 0;
+        for (int i = 0; i < 7_200; i++) {            // 0.5 s of play, then a pause of varying length
+            clock.start();
+            advance(0.2);  clock.seconds();          // ticks landing at arbitrary moments
+            advance(0.3);  played += 0.5;
+            clock.pause();
+            advance(0.001 * (i % 17));
+        }
+        assertEquals(3_600, played, 1e-6);
+        assertEquals(3_600, clock.seconds(), 1e-3);
+    }
+
+    @Test
+    @DisplayName("Set moves the position and keeps the running state")
+    void set() {
+        clock.simulate(0);
+        clock.start();
+        advance(3);
+        clock.set(60);
+        advance(1);
+        assertEquals(61, clock.seconds(), 1e-9);
+        assertTrue(clock.isRunning());
+    }
+
+    @Test
+    @DisplayName("Following the engine, the position is frames played over the sample rate")
+    void followsFrames() {
+        AtomicLong frames = new AtomicLong();
+        clock.follow(frames::get, 44_100);
+        assertTrue(clock.isFollowing());
+        frames.set(44_100L * 3_600);
+        assertEquals(3_600, clock.seconds(), 0);
+        frames.set(22_050);
+        advance(10);                                  // wall time is irrelevant
+        assertEquals(0.5, clock.seconds(), 0);
+    }
+}
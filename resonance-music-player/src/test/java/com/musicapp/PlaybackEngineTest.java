@@ -0,0 +1,268 @@
+package com.musicapp;
+
+import com.musicapp.audio.CrossfadeCurve;
+import com.musicapp.audio.PlaybackEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PlaybackEngine")
+class PlaybackEngineTest {
+
+    @TempDir
+    Path dir;
+
+    private PlaybackEngine engine;
+    private final CountDownLatch ended = new CountDownLatch(1);
+
+    private PlaybackEngine engine(FakeSink sink, int bufferMillis) {
+        engine = new PlaybackEngine(sink, bufferMillis);
+        engine.setListener(new PlaybackEngine.Listener() {
+            @Override public void trackEnded() { ended.countDown(); }
+            @Override public void trackFailed(Path file, Exception e) { }
+        });
+        return engine;
+    }
+
+    @AfterEach
+    void close() {
+        if (engine != null) engine.close();
+    }
+
+    private Path ramp(String name, int frames) throws IOException {
+        Path file = dir.resolve(name);
+        AudioFixtures.pcmWav(file, 44_100, 2, AudioFixtures.ramp(frames));
+        return file;
+    }
+
+    @Test
+    @DisplayName("Plays every sample of a file, in order, then reports the end")
+    void playsWholeFile() throws Exception {
+        FakeSink sink = new FakeSink(0);
+        engine(sink, 50).play(ramp("a.wav", 30_000), 0);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        assertArrayEquals(AudioFixtures.ramp(30_000), sink.samples());
+        assertEquals(30_000, engine.getPositionFrames());
+        assertFalse(engine.isActive());
+    }
+
+    @Test
+    @DisplayName("Starting at a frame skips exactly the frames before it")
+    void startsAtFrame() throws Exception {
+        FakeSink sink = new FakeSink(0);
+        engine(sink, 100).play(ramp("a.wav", 20_000), 12_345);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        short[] s = sink.samples();
+        assertEquals((20_000 - 12_345) * 2, s.length);
+        assertEquals(12_345, s[0]);
+        assertEquals(-12_345, s[1]);
+    }
+
+    @Test
+    @DisplayName("Pause holds the position and resume continues to the end without underruns")
+    void pauseAndResume() throws Exception {
+        FakeSink sink = new FakeSink(1);                       // real time
+        engine(sink, 200).play(ramp("a.wav", 22_050), 0);      // 0.5 s
+        Thread.sleep(150);
+        engine.pause();
+        Thread.sleep(50);
+        long held = engine.getPositionFrames();
+        Thread.sleep(200);
+        assertEquals(held, engine.getPositionFrames());
+        assertTrue(engine.isPaused());
+        assertTrue(held > 0 && held < 22_050, "position " + held);
+
+        engine.resume();
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        assertArrayEquals(AudioFixtures.ramp(22_050), sink.samples());
+        assertEquals(0, engine.getUnderruns());
+    }
+
+    @Test
+    @DisplayName("Seeking discards buffered audio and continues from the new frame")
+    void seek() throws Exception {
+        FakeSink sink = new FakeSink(1);
+        engine(sink, 200).play(ramp("a.wav", 44_100), 0);
+        Thread.sleep(100);
+        engine.seek(40_000);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        short[] s = sink.samples();
+        int tail = (44_100 - 40_000) * 2;
+        assertEquals(40_000 % 30_000, s[s.length - tail]);
+        assertTrue(s.length < 20_000 * 2, "played " + s.length / 2 + " frames before and after the seek");
+    }
+
+    @Test
+    @DisplayName("Stop silences the sink and reports no end")
+    void stop() throws Exception {
+        FakeSink sink = new FakeSink(1);
+        engine(sink, 200).play(ramp("a.wav", 44_100), 0);
+        Thread.sleep(100);
+        engine.stop();
+        int before = sink.samples().length;
+        Thread.sleep(100);
+        assertEquals(before, sink.samples().length);
+        assertEquals(0, engine.getPositionFrames());
+        assertFalse(ended.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Unplayable files fail on the calling thread")
+    void unsupportedFile() throws IOException {
+        Path junk = dir.resolve("junk.wav");
+        Files.write(junk, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(UnsupportedAudioFileException.class, () -> engine(new FakeSink(0), 50).play(junk, 0));
+    }
+
+    @Test
+    @DisplayName("A queued track follows the current one with no sample missing or inserted")
+    void gapless() throws Exception {
+        FakeSink sink = new FakeSink(4);
+        CountDownLatch changed = new CountDownLatch(1);
+        long[] positionAtChange = {-1};
+        engine = new PlaybackEngine(sink, 100);
+        engine.setListener(new PlaybackEngine.Listener() {
+            @Override public void trackEnded() { ended.countDown(); }
+            @Override public void trackFailed(Path file, Exception e) { }
+            @Override public void trackChanged() {
+                positionAtChange[0] = engine.getPositionFrames();
+                changed.countDown();
+            }
+        });
+        Path b = ramp("b.wav", 25_000);
+        engine.queueNext(b);
+        engine.play(ramp("a.wav", 20_000), 0);
+
+        assertTrue(changed.await(10, TimeUnit.SECONDS));
+        assertTrue(positionAtChange[0] >= 0 && positionAtChange[0] < 2_000, "position " + positionAtChange[0]);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+
+        short[] a = AudioFixtures.ramp(20_000), bs = AudioFixtures.ramp(25_000);
+        short[] expected = new short[a.length + bs.length];
+        System.arraycopy(a, 0, expected, 0, a.length);
+        System.arraycopy(bs, 0, expected, a.length, bs.length);
+        assertArrayEquals(expected, sink.samples());
+        assertEquals(25_000, engine.getPositionFrames());
+    }
+
+    @Test
+    @DisplayName("Playing another track drops a pending splice")
+    void playCancelsSplice() throws Exception {
+        FakeSink sink = new FakeSink(1);
+        engine(sink, 100).queueNext(ramp("b.wav", 5_000));
+        engine.play(ramp("a.wav", 44_100), 0);
+        Thread.sleep(100);
+        engine.queueNext(null);
+        engine.play(ramp("c.wav", 4_000), 0);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        assertEquals(4_000, engine.getPositionFrames());
+    }
+
+    private Path tone(String name, int frames, short value) throws IOException {
+        short[] s = new short[frames * 2];
+        Arrays.fill(s, value);
+        Path file = dir.resolve(name);
+        AudioFixtures.pcmWav(file, 44_100, 2, s);
+        return file;
+    }
+
+    private short[] crossfade(CrossfadeCurve curve) throws Exception {
+        FakeSink sink = new FakeSink(4);
+        CountDownLatch changed = new CountDownLatch(1);
+        engine = new PlaybackEngine(sink, 100);
+        engine.setListener(new PlaybackEngine.Listener() {
+            @Override public void trackEnded() { ended.countDown(); }
+            @Override public void trackFailed(Path file, Exception e) { }
+            @Override public void trackChanged() { changed.countDown(); }
+        });
+        engine.setCrossfade(Duration.ofMillis(100), curve);            // 4 410 frames
+        engine.queueNext(tone("b.wav", 11_025, (short) 16_384));
+        engine.play(tone("a.wav", 11_025, (short) 8_192), 0);
+        assertTrue(changed.await(10, TimeUnit.SECONDS));
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        assertEquals(11_025, engine.getPositionFrames());
+        short[] s = sink.samples();
+        assertEquals((11_025 + 11_025 - 4_410) * 2, s.length);
+        assertEquals(8_192, s[2 * 6_614]);                              // last frame before the fade
+        assertEquals(16_384, s[2 * 11_025]);                            // first frame after it
+        return s;
+    }
+
+    @Test
+    @DisplayName("A linear crossfade overlaps the tracks with gains adding up to one")
+    void linearCrossfade() throws Exception {
+        short[] s = crossfade(CrossfadeCurve.LINEAR);
+        assertEquals(12_288, s[2 * (6_615 + 2_205)], 2);                // halfway: half of each
+        assertEquals(10_240, s[2 * (6_615 + 1_102)], 4);                // a quarter in
+    }
+
+    @Test
+    @DisplayName("An equal-power crossfade keeps the summed power constant")
+    void equalPowerCrossfade() throws Exception {
+        short[] s = crossfade(CrossfadeCurve.EQUAL_POWER);
+        assertEquals(Math.round((8_192 + 16_384) * Math.sqrt(0.5)), s[2 * (6_615 + 2_205)], 2);
+    }
+
+    @Test
+    @DisplayName("Crossfading on demand fades out from the audible position, not after the buffered audio")
+    void crossfadeTo() throws Exception {
+        FakeSink sink = new FakeSink(1);
+        engine(sink, 500).setCrossfade(Duration.ofMillis(200), CrossfadeCurve.LINEAR);
+        engine.play(tone("a.wav", 88_200, (short) 8_192), 0);
+        Thread.sleep(200);
+        long from = sink.samples().length / 2;
+        engine.crossfadeTo(tone("b.wav", 22_050, (short) 16_384));
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        short[] s = sink.samples();
+        int firstMixed = -1, firstB = -1;
+        for (int f = 0; f < s.length / 2; f++) {
+            if (firstMixed < 0 && s[2 * f] > 8_192) firstMixed = f;
+            if (firstB < 0 && s[2 * f] == 16_384) firstB = f;
+        }
+        assertTrue(firstMixed - from < 4_410, "fade began " + (firstMixed - from) + " frames after the request");
+        assertEquals(8_820, firstB - firstMixed, 2);                   // 200 ms of fade
+        assertEquals(22_050, s.length / 2 - firstMixed + 1, 2);        // all of the new track
+    }
+
+    @Test
+    @DisplayName("Crossfades longer than the maximum are rejected")
+    void crossfadeLimit() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> engine(new FakeSink(0), 50).setCrossfade(Duration.ofSeconds(13), CrossfadeCurve.LINEAR));
+    }
+
+    @Test
+    @DisplayName("Volume scales the samples written to the sink")
+    void gain() throws Exception {
+        FakeSink sink = new FakeSink(0);
+        engine(sink, 50).setGain(0.5f);
+        engine.play(ramp("a.wav", 1_000), 0);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        assertEquals(400, sink.samples()[2 * 800]);
+    }
+
+    @Test
+    @DisplayName("Each track plays at its own track gain, switching exactly at a gapless boundary")
+    void trackGain() throws Exception {
+        FakeSink sink = new FakeSink(0);
+        engine(sink, 50).queueNext(tone("b.wav", 2_000, (short) 8_000), 2f);
+        engine.play(tone("a.wav", 3_000, (short) 8_000), 0, 0.5f);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        short[] s = sink.samples();
+        assertEquals(5_000 * 2, s.length);
+        assertEquals(4_000, s[2 * 2_999]);
+        assertEquals(16_000, s[2 * 3_000]);
+    }
+}
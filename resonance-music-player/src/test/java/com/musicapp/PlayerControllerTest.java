@@ -1,13 +1,20 @@
 package com.musicapp;
 
+import com.musicapp.audio.PlaybackEngine;
 import com.musicapp.controller.PlayerController;
 import com.musicapp.model.*;
 import com.musicapp.service.MusicLibrary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -125,6 +132,31 @@ class PlayerControllerTest {
         assertEquals(initial, player.isShuffle());
     }
 
+    @Test
+    @DisplayName("Shuffle plays every song once per round, and previous() walks back through what played")
+    void shuffleRound() {
+        if (!player.isShuffle()) player.toggleShuffle();
+        while (player.getRepeatMode() != RepeatMode.NONE) player.cycleRepeat();
+        try {
+            player.play(songs, 0);
+            List<Song> played = new ArrayList<>(List.of(player.getCurrentSong()));
+            for (int i = 1; i < songs.size(); i++) {
+                player.next();
+                played.add(player.getCurrentSong());
+            }
+            assertEquals(songs.size(), new HashSet<>(played).size());
+
+            for (int i = played.size() - 2; i >= played.size() - 5; i--) {
+                player.previous();
+                assertSame(played.get(i), player.getCurrentSong());
+            }
+            player.next();
+            assertSame(played.get(played.size() - 4), player.getCurrentSong());
+        } finally {
+            player.toggleShuffle();
+        }
+    }
+
     @Test
     @DisplayName("toggleFavorite() toggles current song's favourite flag")
     void toggleFavorite() {
@@ -145,4 +177,108 @@ class PlayerControllerTest {
         player.play(s, songs);
         assertEquals(before + 1, s.getPlayCount());
     }
+
+    @Test
+    @DisplayName("With an engine, a playable file is really played and its end advances the queue")
+    void enginePlaysFiles(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("short.wav");
+        AudioFixtures.pcmWav(file, 44_100, 2, AudioFixtures.ramp(4_410));   // 0.1 s
+        Song real = new Song("engine-test-real", "Real", "Engine", null, null, 2024, Duration.ofSeconds(1));
+        real.setFilePath(file.toString());
+        Song simulated = new Song("engine-test-sim", "Simulated", "Engine", null, null, 2024, Duration.ofSeconds(60));
+
+        FakeSink sink = new FakeSink(0);
+        PlaybackEngine engine = new PlaybackEngine(sink, 50);
+        player.setEngine(engine);
+        player.setVolume(100);                                               // unity gain
+        try {
+            player.play(real, List.of(real, simulated));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (player.getCurrentSong() != simulated && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertSame(simulated, player.getCurrentSong());
+            assertEquals(PlayerState.PLAYING, player.getPlayerState());
+            assertArrayEquals(AudioFixtures.ramp(4_410), sink.samples());
+        } finally {
+            player.setEngine(null);
+            engine.close();
+        }
+    }
+
+    @Test
+    @DisplayName("In gapless mode the next song is spliced on and the queue follows the engine")
+    void gaplessAdvance(@TempDir Path dir) throws Exception {
+        Path a = dir.resolve("a.wav"), b = dir.resolve("b.wav");
+        AudioFixtures.pcmWav(a, 44_100, 2, AudioFixtures.ramp(4_410));
+        AudioFixtures.pcmWav(b, 44_100, 2, AudioFixtures.ramp(2_205));
+        Song first  = new Song("gapless-a", "A", "Engine", null, null, 2024, Duration.ofSeconds(1));
+        Song second = new Song("gapless-b", "B", "Engine", null, null, 2024, Duration.ofSeconds(1));
+        first.setFilePath(a.toString());
+        second.setFilePath(b.toString());
+        if (player.isShuffle()) player.toggleShuffle();
+        while (player.getRepeatMode() != RepeatMode.NONE) player.cycleRepeat();
+
+        FakeSink sink = new FakeSink(1);
+        PlaybackEngine engine = new PlaybackEngine(sink, 50);
+        player.setEngine(engine);
+        player.setVolume(100);
+        try {
+            player.play(first, List.of(first, second));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (player.getPlayerState() != PlayerState.STOPPED && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertSame(second, player.getCurrentSong());
+            assertEquals(1, player.getQueueIndex());
+            assertEquals(1, second.getPlayCount());
+
+            short[] ra = AudioFixtures.ramp(4_410), rb = AudioFixtures.ramp(2_205);
+            short[] expected = new short[ra.length + rb.length];
+            System.arraycopy(ra, 0, expected, 0, ra.length);
+            System.arraycopy(rb, 0, expected, ra.length, rb.length);
+            assertArrayEquals(expected, sink.samples());
+            assertEquals(1, sink.opens());
+        } finally {
+            player.setEngine(null);
+            engine.close();
+        }
+    }
+
+    private static long threadsNamed(String name) {
+        return Thread.getAllStackTraces().keySet().stream().filter(t -> t.getName().equals(name)).count();
+    }
+
+    @Test
+    @DisplayName("Play, pause, next and stop reuse one clock thread")
+    void noThreadChurn() {
+        player.play(songs.get(0), songs);
+        long before = Thread.activeCount();
+        for (int i = 0; i < 200; i++) {
+            player.pause();
+            player.resume();
+            player.next();
+            player.seek(0.5);
+        }
+        player.stop();
+        assertEquals(1, threadsNamed("player-clock"));
+        assertEquals(0, threadsNamed("player-tick"));
+        assertTrue(Thread.activeCount() <= before, "threads grew from " + before + " to " + Thread.activeCount());
+    }
+
+    @Test
+    @DisplayName("Progress is published at the configured rate from the clock's position")
+    void progressRate() throws InterruptedException {
+        AtomicInteger ticks = new AtomicInteger();
+        player.addProgressListener(p -> ticks.incrementAndGet());
+        player.setProgressInterval(Duration.ofMillis(10));
+        try {
+            player.play(songs.get(0), songs);
+            player.seek(0.5);
+            ticks.set(0);
+            Thread.sleep(300);
+            int n = ticks.get();
+            assertTrue(n >= 10 && n <= 40, n + " progress updates in 300 ms");
+            double expected = songs.get(0).getDuration().getSeconds() * 0.5 + 0.3;
+            assertEquals(expected, player.getCurrentSec(), 0.15);
+        } finally {
+            player.setProgressInterval(PlayerController.DEFAULT_PROGRESS_INTERVAL);
+        }
+    }
 }
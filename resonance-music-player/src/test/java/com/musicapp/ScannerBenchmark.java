@@ -0,0 +1,89 @@
+package com.musicapp;
+
+import com.musicapp.model.Song;
+import com.musicapp.service.FileIndex;
+import com.musicapp.service.LibraryScanner;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Scanner throughput over a local fixture tree of mixed formats
+ * ({@code target/scan-fixture}, generated once and reused).  Audio payloads
+ * are sparse, so the figures measure directory walking and tag parsing, not
+ * disk bandwidth.  Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Library scanner benchmark")
+class ScannerBenchmark {
+
+    private static final int  FILES = 10_000;
+    private static final Path ROOT  = Paths.get("target", "scan-fixture");
+
+    @BeforeAll
+    static void fixtureTree() throws IOException {
+        Path marker = ROOT.resolve(".complete-" + FILES);
+        if (Files.exists(marker)) return;
+        for (int i = 0; i < FILES; i++) {
+            // artist / album / track, 12 tracks per album, 3 albums per artist
+            Path dir = ROOT.resolve("Artist " + i / 36).resolve("Album " + i / 12);
+            AudioFixtures.Meta m = new AudioFixtures.Meta("Track " + i, "Artist " + i / 36, "Album " + i / 12,
+                                                          "Genre " + i % 20, 1970 + i % 50, 120 + i % 300);
+            switch (i % 5) {
+                case 0:  AudioFixtures.wav(dir.resolve(i + ".wav"), m); break;
+                case 1:  AudioFixtures.aiff(dir.resolve(i + ".aiff"), m); break;
+                case 2:  AudioFixtures.mp3(dir.resolve(i + ".mp3"), m); break;
+                case 3:  AudioFixtures.flac(dir.resolve(i + ".flac"), m); break;
+                default: AudioFixtures.ogg(dir.resolve(i + ".ogg"), m, false); break;
+            }
+        }
+        Files.createFile(marker);
+    }
+
+    @Test
+    @DisplayName("scans the fixture tree with 1 and N workers")
+    void throughput() throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        scan(cores);   // warm-up: JIT and the OS directory cache
+        LibraryScanner.Stats one = scan(1);
+        LibraryScanner.Stats many = scan(cores);
+        System.out.printf("scan 1 worker : %s%n", one);
+        System.out.printf("scan %d workers: %s%n", cores, many);
+        assertEquals(FILES, many.getImported());
+        assertEquals(0, many.getFailed());
+    }
+
+    private static LibraryScanner.Stats scan(int workers) throws IOException {
+        LibraryScanner scanner = new LibraryScanner(batch -> { }, workers, 256, Duration.ofSeconds(1));
+        return scanner.scan(ROOT, null);
+    }
+
+    @Test
+    @DisplayName("rescans an unchanged tree from its fingerprints")
+    void incrementalRescan() throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Map<String, Song> store = new ConcurrentHashMap<>();
+        FileIndex index = new FileIndex();
+        LibraryScanner scanner = new LibraryScanner(b -> b.forEach(s -> store.put(s.getId(), s)),
+                ids -> ids.forEach(store::remove), store::containsKey, index, cores, 256, Duration.ofSeconds(1));
+        LibraryScanner.Stats full = scanner.scan(ROOT, null);
+        scanner.scan(ROOT, null);   // warm-up
+        LibraryScanner.Stats again = scanner.scan(ROOT, null);
+        System.out.printf("first scan : %s%n", full);
+        System.out.printf("rescan     : %s%n", again);
+        System.out.printf("rescan is %.1fx faster%n", (double) full.getElapsed().toNanos() / again.getElapsed().toNanos());
+        assertEquals(FILES, again.getUnchanged());
+        assertEquals(0, again.getBytesRead());
+    }
+}
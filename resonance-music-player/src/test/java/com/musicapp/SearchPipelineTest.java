@@ -0,0 +1,88 @@
+package com.musicapp;
+
+import com.musicapp.model.Song;
+import com.musicapp.service.SearchPipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SearchPipeline")
+class SearchPipelineTest {
+
+    private static final Song SONG = new Song("s1", "So What", "Miles Davis", "Kind of Blue", "Jazz", 1959, Duration.ofMinutes(9));
+
+    private final ExecutorService ui = Executors.newSingleThreadExecutor();
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+
+    /** Answers {@code "slow…"} queries after 300 ms, the rest at once; records every query run. */
+    private final Function<String, List<Song>> backend = q -> {
+        queries.add(q);
+        if (q.startsWith("slow")) {
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < until) Thread.onSpinWait();   // ignores interrupts, like the index
+        }
+        return List.of(SONG);
+    };
+
+    @AfterEach
+    void stopUi() { ui.shutdownNow(); }
+
+    @Test
+    @DisplayName("A burst of keystrokes runs one query, for the last text, and reports first-results latency")
+    void debounces() throws Exception {
+        CountDownLatch got = new CountDownLatch(1);
+        List<SearchPipeline.Results> seen = new CopyOnWriteArrayList<>();
+        try (SearchPipeline p = new SearchPipeline(backend, ui, Duration.ofMillis(50), r -> { seen.add(r); got.countDown(); })) {
+            long gen = 0;
+            for (String q : new String[]{"m", "mi", "mil", "mile", "miles"}) gen = p.submit(q);
+            assertTrue(got.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(List.of("miles"), queries);
+            assertEquals(1, seen.size());
+            assertEquals(gen, seen.get(0).getGeneration());
+            assertEquals("miles", seen.get(0).getQuery());
+
+            SearchPipeline.Stats st = p.getStats();
+            assertEquals(5, st.getSubmitted());
+            assertEquals(1, st.getRun());
+            assertEquals(1, st.getDelivered());
+            assertTrue(st.getMeanFirstResults().toMillis() >= 50, st.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Results of a query overtaken by newer text are dropped, and submitting never waits on a query")
+    void dropsStale() throws Exception {
+        CountDownLatch got = new CountDownLatch(1);
+        List<String> seen = new CopyOnWriteArrayList<>();
+        try (SearchPipeline p = new SearchPipeline(backend, ui, Duration.ofMillis(10), r -> { seen.add(r.getQuery()); got.countDown(); })) {
+            p.submit("slow query");
+            while (queries.isEmpty()) Thread.sleep(1);               // the slow query is running
+            long t0 = System.nanoTime();
+            p.submit("fast");
+            assertTrue(System.nanoTime() - t0 < TimeUnit.MILLISECONDS.toNanos(50), "submit blocked");
+            assertTrue(got.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(List.of("fast"), seen);
+            assertEquals(1, p.getStats().getStale());
+
+            List<String> before = new ArrayList<>(seen);
+            p.submit("after cancel");
+            p.cancel();
+            Thread.sleep(100);
+            assertEquals(before, seen);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.musicapp;
+
+import com.musicapp.controller.ShuffleOrder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cost of starting a shuffled round, stepping through it, and spreading
+ * artists apart, on queues up to four million songs.
+ * Run with {@code mvn test -Pbenchmark -Dtest=ShuffleBenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Shuffle benchmark")
+class ShuffleBenchmark {
+
+    private static final int[] SIZES            = {10_000, 100_000, 1_000_000, 4_000_000};
+    private static final int   SONGS_PER_ARTIST = 12;
+
+    @Test
+    @DisplayName("next/previous stay O(1) and spreading stays O(n log n)")
+    void run() {
+        double firstPerNLogN = 0;
+        for (int round = 0; round < 2; round++) {                   // the first round warms up
+            for (int n : SIZES) {
+                int artists = n / SONGS_PER_ARTIST;
+
+                long t0 = System.nanoTime();
+                ShuffleOrder order = new ShuffleOrder(n, new Random(n));
+                order.restart(0);
+                long start = System.nanoTime() - t0;
+
+                t0 = System.nanoTime();
+                int steps = 0;
+                while (order.next() >= 0) steps++;
+                long next = (System.nanoTime() - t0) / steps;
+                t0 = System.nanoTime();
+                while (order.previous() >= 0) { }
+                long previous = (System.nanoTime() - t0) / steps;
+
+                ShuffleOrder spread = new ShuffleOrder(n, new Random(n));
+                spread.restart(0);
+                t0 = System.nanoTime();
+                spread.setArtists(slot -> slot % artists);
+                long spreadNanos = System.nanoTime() - t0;
+                double perNLogN = spreadNanos / (n * (Math.log(n) / Math.log(2)));
+
+                assertEquals(n - 1, steps);
+                if (round == 0) continue;
+                System.out.printf("%,9d songs: start %,8.2f ms | next %,5.1f ns | previous %,5.1f ns | "
+                                  + "spread %,8.1f ms (%.2f ns per n log n)%n",
+                                  n, start / 1e6, (double) next, (double) previous, spreadNanos / 1e6, perNLogN);
+                if (n == SIZES[1]) firstPerNLogN = perNLogN;
+                else if (n == SIZES[SIZES.length - 1]) {
+                    assertTrue(perNLogN < firstPerNLogN * 4, "spread grows faster than n log n");
+                }
+            }
+        }
+    }
+}
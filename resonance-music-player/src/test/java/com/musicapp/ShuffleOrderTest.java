@@ -0,0 +1,122 @@
+package com.musicapp;
+
+import com.musicapp.controller.ShuffleOrder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ShuffleOrder")
+class ShuffleOrderTest {
+
+    /** Plays out the rest of the round. */
+    private static List<Integer> drain(ShuffleOrder order) {
+        List<Integer> out = new ArrayList<>();
+        for (int s; (s = order.next()) >= 0; ) out.add(s);
+        return out;
+    }
+
+    @Test
+    @DisplayName("A round plays every slot once, starting from the one chosen, then ends")
+    void permutation() {
+        ShuffleOrder order = new ShuffleOrder(1_000, new Random(1));
+        order.restart(417);
+        assertEquals(417, order.current());
+        List<Integer> rest = drain(order);
+        Set<Integer> all = new HashSet<>(rest);
+        all.add(417);
+        assertEquals(999, rest.size());
+        assertEquals(1_000, all.size());
+        assertEquals(-1, order.peekNext());
+
+        order.restart(order.current());
+        assertEquals(999, drain(order).size());
+    }
+
+    @Test
+    @DisplayName("Previous and next replay the same history, and peeking commits to the next slot")
+    void history() {
+        ShuffleOrder order = new ShuffleOrder(100, new Random(2));
+        order.restart(0);
+        List<Integer> played = new ArrayList<>(List.of(0));
+        for (int i = 0; i < 10; i++) played.add(order.next());
+        for (int i = 9; i >= 0; i--) assertEquals(played.get(i), order.previous());
+        assertEquals(-1, order.previous());
+        assertEquals(0, order.current());
+        for (int i = 1; i <= 10; i++) assertEquals(played.get(i), order.next());
+
+        int peeked = order.peekNext();
+        assertEquals(peeked, order.peekNext());
+        assertEquals(peeked, order.next());
+    }
+
+    @Test
+    @DisplayName("Added slots join the rest of the round; play-next and enqueued slots come first, in order")
+    void edits() {
+        ShuffleOrder order = new ShuffleOrder(50, new Random(3));
+        order.restart(10);
+        order.remove(20);
+        order.next();
+        order.remove(order.peekNext());                     // already drawn to follow: skipped
+        order.add(50);
+        order.enqueue(51);
+        order.enqueue(52);
+        order.playNext(53);
+        assertEquals(List.of(53, 51, 52), List.of(order.next(), order.next(), order.next()));
+
+        List<Integer> rest = drain(order);
+        assertTrue(rest.contains(50));
+        assertFalse(rest.contains(20));
+        assertEquals(50 + 4 - 2 - 5, rest.size());          // 54 slots, 2 removed, 5 played
+        assertEquals(rest.size(), new HashSet<>(rest).size());
+    }
+
+    @Test
+    @DisplayName("Spreading artists keeps an artist's songs apart")
+    void spread() {
+        int artists = 10, each = 100;
+        ShuffleOrder plain  = new ShuffleOrder(artists * each, new Random(4));
+        ShuffleOrder spread = new ShuffleOrder(artists * each, new Random(4));
+        plain.restart(0);
+        spread.restart(0);
+        spread.setArtists(slot -> slot % artists);
+        assertTrue(spread.isSpreadingArtists());
+
+        int plainRepeats = repeats(plain, artists), spreadRepeats = repeats(spread, artists);
+        assertTrue(spreadRepeats <= 5, spreadRepeats + " back-to-back repeats when spread");
+        assertTrue(plainRepeats > 50, plainRepeats + " back-to-back repeats at random");
+    }
+
+    @Test
+    @DisplayName("Spreading a queue of more than 2^24 songs still plays every slot once")
+    void spreadBeyond24Bits() {
+        int slots = (1 << 24) + 16;
+        ShuffleOrder order = new ShuffleOrder(slots, new Random(5));
+        order.restart(slots - 1);
+        order.setArtists(slot -> slot & 3);
+        BitSet seen = new BitSet(slots);
+        seen.set(order.current());
+        int played = 1;
+        for (int s; (s = order.next()) >= 0; played++) {
+            assertFalse(seen.get(s), "slot " + s + " played twice");
+            seen.set(s);
+        }
+        assertEquals(slots, played);
+    }
+
+    /** Songs in the rest of the round by the same artist as the one before. */
+    private static int repeats(ShuffleOrder order, int artists) {
+        int n = 0, last = order.current() % artists;
+        for (int s; (s = order.next()) >= 0; last = s % artists) {
+            if (s % artists == last) n++;
+        }
+        return n;
+    }
+}
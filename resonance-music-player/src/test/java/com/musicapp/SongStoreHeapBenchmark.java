@@ -0,0 +1,90 @@
+package com.musicapp;
+
+import com.musicapp.model.Song;
+import com.musicapp.model.SongStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Heap-footprint report: one million tracks held as independent objects (the
+ * pre-columnar {@code Song} layout) versus the same tracks in a {@link SongStore},
+ * with a view materialised for every row as the library table does.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("SongStore heap benchmark")
+class SongStoreHeapBenchmark {
+
+    private static final int TRACKS = 1_000_000;
+
+    /** Field-for-field copy of the object-per-track Song this store replaced. */
+    @SuppressWarnings("unused")
+    private static final class ObjectSong {
+        final String id, title, artist, album, genre;
+        final int year;
+        final Duration duration;
+        String filePath;
+        boolean favorite;
+        int playCount;
+
+        ObjectSong(String id, String title, String artist, String album, String genre, int year, Duration d) {
+            this.id = id; this.title = title; this.artist = artist; this.album = album;
+            this.genre = genre; this.year = year; this.duration = d;
+        }
+    }
+
+    @Test
+    @DisplayName("columnar store uses at least 3x less heap than objects at 1M tracks, views included")
+    void heapReport() {
+        long base = usedHeap();
+        ObjectSong[] objects = new ObjectSong[TRACKS];
+        for (int i = 0; i < TRACKS; i++) {
+            // new String(...) mimics values parsed from tags: equal but not shared
+            objects[i] = new ObjectSong("t" + i, title(i), new String(artist(i)), new String(album(i)),
+                                        new String(genre(i)), 1970 + i % 50, Duration.ofSeconds(120 + i % 300));
+        }
+        long objectBytes = usedHeap() - base;
+        assertEquals(TRACKS, objects.length);
+        objects = null;
+
+        base = usedHeap();
+        SongStore store = new SongStore(TRACKS);
+        for (int i = 0; i < TRACKS; i++) {
+            store.adopt(new Song("t" + i, title(i), new String(artist(i)), new String(album(i)),
+                                 new String(genre(i)), 1970 + i % 50, Duration.ofSeconds(120 + i % 300)));
+        }
+        store.trimToSize();
+        List<Song> views = store.songs();
+        long storeBytes = usedHeap() - base;
+        assertEquals(TRACKS, views.size());
+        assertEquals(TRACKS, store.size());
+
+        double ratio = (double) objectBytes / storeBytes;
+        System.out.printf("heap for %,d tracks: objects %,d MB (%d B/track), columnar %,d MB (%d B/track), %.1fx smaller"
+                          + " [%,d artists, %,d albums, %,d genres]%n",
+                          TRACKS, objectBytes >> 20, objectBytes / TRACKS, storeBytes >> 20, storeBytes / TRACKS,
+                          ratio, store.artistCount(), store.albumCount(), store.genreCount());
+        assertTrue(ratio >= 3.0, "expected >= 3x reduction, got " + ratio);
+    }
+
+    // Roughly album-shaped data: 12 tracks per album, 3 albums per artist
+    private static String title(int i)  { return "Track Title Number " + i; }
+    private static String album(int i)  { return "Album Name " + (i / 12); }
+    private static String artist(int i) { return "Artist Name " + (i / 36); }
+    private static String genre(int i)  { return "Genre " + (i / 36) % 40; }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try { Thread.sleep(50); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
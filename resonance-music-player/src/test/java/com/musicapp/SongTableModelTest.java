@@ -0,0 +1,46 @@
+package com.musicapp;
+
+import com.musicapp.model.Song;
+import com.musicapp.ui.SongTableModel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SongTableModel")
+class SongTableModelTest {
+
+    @Test
+    @DisplayName("Shows a list without copying it, with one change event and cells computed on demand")
+    void virtual() {
+        Song song = new Song("s1", "Blue in Green", "Miles Davis", "Kind of Blue", "Jazz", 1959, Duration.ofSeconds(337));
+        List<Song> songs = Collections.nCopies(500_000, song);
+        SongTableModel model = new SongTableModel();
+        List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+
+        model.setSongs(songs);
+        assertSame(songs, model.getSongs());
+        assertEquals(1, events.size());
+        assertEquals(Integer.MAX_VALUE, events.get(0).getLastRow());    // "all rows changed"
+        assertEquals(500_000, model.getRowCount());
+        assertEquals(8, model.getColumnCount());
+
+        int last = songs.size() - 1;
+        assertEquals(Boolean.FALSE, model.getValueAt(last, 0));
+        assertEquals("500000", model.getValueAt(last, 1));
+        assertEquals("Blue in Green", model.getValueAt(last, 2));
+        assertEquals("1959", model.getValueAt(last, 6));
+        assertEquals("5:37", model.getValueAt(last, 7));
+        song.setFavorite(true);
+        assertEquals(Boolean.TRUE, model.getValueAt(0, 0));   // no stale copy
+        assertEquals(Boolean.class, model.getColumnClass(0));
+        assertFalse(model.isCellEditable(0, 2));
+    }
+}
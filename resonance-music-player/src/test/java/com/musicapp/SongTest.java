@@ -7,6 +7,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
 import java.time.Duration;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -75,4 +76,39 @@ class SongTest {
         assertThrows(NullPointerException.class,
             () -> new Song(null, "T", "A", "AL", "G", 2020, Duration.ZERO));
     }
+
+    @Test
+    @DisplayName("SongStore adopts a song as a view and keeps interned columns")
+    void storeAdoptsSong() {
+        SongStore store = new SongStore();
+        Song other = new Song("2", "Another One Bites the Dust", "Queen", "The Game", "Rock", 1980, Duration.ofMinutes(3));
+        store.adopt(song);
+        store.adopt(other);
+        song.incrementPlayCount();
+        song.setFavorite(true);
+
+        Song found = store.find("1");
+        assertEquals(song, found);
+        assertEquals(1, found.getPlayCount());
+        assertTrue(found.isFavorite());
+        assertEquals(List.of(song, other), store.songs());
+        assertEquals(1, store.artistCount());
+        assertEquals(Duration.ofMinutes(5).plusSeconds(55), song.getDuration());
+    }
+
+    @Test
+    @DisplayName("SongStore remove and replace leave held references intact")
+    void storeRemoveDetaches() {
+        SongStore store = new SongStore();
+        store.adopt(song);
+        Song replacement = new Song("1", "Bohemian Rhapsody (Live)", "Queen", "Live Aid", "Rock", 1985, Duration.ofMinutes(6));
+        store.adopt(replacement);
+        assertEquals("Bohemian Rhapsody", song.getTitle());
+        assertEquals("Bohemian Rhapsody (Live)", store.find("1").getTitle());
+
+        assertSame(replacement, store.remove("1"));
+        assertNull(store.find("1"));
+        assertEquals(0, store.size());
+        assertEquals("Live Aid", replacement.getAlbum());
+    }
 }
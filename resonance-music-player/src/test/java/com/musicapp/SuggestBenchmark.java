@@ -0,0 +1,89 @@
+package com.musicapp;
+
+import com.musicapp.model.Song;
+import com.musicapp.service.SuggestIndex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Type-ahead latency on a synthetic one-million-song catalogue, from
+ * one-letter prefixes that match most keys to selective ones, and the cost
+ * of publishing scanner-sized batches into it.
+ * Run with {@code mvn test -Pbenchmark -Dtest=SuggestBenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Suggest benchmark")
+class SuggestBenchmark {
+
+    private static final int      SONGS    = 1_000_000;
+    private static final int      BATCH    = 500;
+
+    @Test
+    @DisplayName("top-10 completions stay in microseconds however many keys share the prefix")
+    void suggest() {
+        Random rnd = new Random(7);
+        String[] vocab = new String[30_000];
+        for (int i = 0; i < vocab.length; i++) vocab[i] = word(rnd);
+        vocab[0] = "the"; vocab[1] = "love";
+        String[] prefixes = {"a", "t", "th", "the", "be", "qu", "love", vocab[2].toLowerCase().substring(0, 3)};
+        SuggestIndex index = new SuggestIndex();
+        long publishNanos = 0, maxPublish = 0;
+        List<Song> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < SONGS; i++) {
+            Song s = new Song("s" + i, phrase(rnd, vocab, 1 + rnd.nextInt(4)), phrase(rnd, vocab, 2),
+                              phrase(rnd, vocab, 2), "Rock", 2000, Duration.ofMinutes(3));
+            s.setPlayCount(rnd.nextInt(100));
+            batch.add(s);
+            if (batch.size() == BATCH) {
+                for (Song b : batch) index.add(b);
+                long t0 = System.nanoTime();
+                index.publish();
+                long t = System.nanoTime() - t0;
+                publishNanos += t;
+                maxPublish = Math.max(maxPublish, t);
+                batch.clear();
+            }
+        }
+        System.out.printf("%,d keys; publish per %d-song batch: mean %.2f ms, max %.1f ms%n",
+                          index.keyCount(), BATCH, publishNanos / 1e6 / (SONGS / BATCH), maxPublish / 1e6);
+
+        for (int warm = 0; warm < 2_000; warm++) index.suggest(prefixes[warm % prefixes.length], 10);
+        for (String p : prefixes) {
+            long best = Long.MAX_VALUE;
+            List<String> hits = null;
+            for (int round = 0; round < 200; round++) {
+                long t0 = System.nanoTime();
+                hits = index.suggest(p, 10);
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            System.out.printf("suggest %-9s %2d hits in %7.1f us%n", "'" + p + "'", hits.size(), best / 1e3);
+            assertFalse(hits.isEmpty(), p);
+        }
+    }
+
+    private static String phrase(Random rnd, String[] vocab, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            // Skewed: a few words ("the", "love") start a large share of the keys
+            sb.append(vocab[rnd.nextInt(4) == 0 ? rnd.nextInt(2) : rnd.nextInt(vocab.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String word(Random rnd) {
+        int len = 3 + rnd.nextInt(7);
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) sb.append((char) ('a' + rnd.nextInt(26)));
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.musicapp;
+
+import com.musicapp.controller.PlayerController;
+import com.musicapp.model.Song;
+import com.musicapp.ui.LibraryPanel;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JTable;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Heap allocated per frame while the library table scrolls, painted
+ * offscreen (headless) the way the viewport paints it.
+ * Run with {@code mvn test -Pbenchmark -Dtest=TableScrollBenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Table scroll benchmark")
+class TableScrollBenchmark {
+
+    private static final int SONGS  = 100_000;
+    private static final int WIDTH  = 1_000, HEIGHT = 800;   // about 19 rows
+    private static final int STEP   = 16;                    // the scroll bar's unit increment
+    private static final int FRAMES = 2_000;
+
+    @BeforeAll
+    static void headless() { System.setProperty("java.awt.headless", "true"); }
+
+    @Test
+    @DisplayName("allocations per frame, scrolling and repainting in place")
+    void scroll() {
+        List<Song> songs = new ArrayList<>(SONGS);
+        for (int i = 0; i < SONGS; i++) {
+            songs.add(new Song("s" + i, "Title " + i, "Artist " + i % 5_000, "Album " + i % 10_000,
+                               "Genre " + i % 40, 1960 + i % 60, Duration.ofSeconds(120 + i % 300)));
+        }
+        PlayerController.getInstance().play(List.copyOf(songs), 3);
+        PlayerController.getInstance().stop();
+        LibraryPanel panel = new LibraryPanel();
+        panel.loadQueue();
+        JTable table = find(panel, JTable.class);
+        table.setSize(WIDTH, table.getRowHeight() * table.getRowCount());
+        table.doLayout();
+
+        BufferedImage frame = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        for (int warm = 0; warm < 3; warm++) paintFrames(table, frame, 0, FRAMES, STEP);
+
+        long[] scrolling = paintFrames(table, frame, FRAMES * STEP, FRAMES, STEP);
+        long[] inPlace   = paintFrames(table, frame, 0, FRAMES, 0);
+        System.out.printf("scrolling:  %,8.0f bytes, %,6.1f us per frame%n", scrolling[0] / (double) FRAMES, scrolling[1] / 1e3 / FRAMES);
+        System.out.printf("in place:   %,8.0f bytes, %,6.1f us per frame%n", inPlace[0] / (double) FRAMES, inPlace[1] / 1e3 / FRAMES);
+        assertTrue(table.getRowCount() >= SONGS);
+    }
+
+    /** Paints {@code frames} viewport-sized frames from {@code y}, moving {@code step} px each; bytes allocated and nanos. */
+    private static long[] paintFrames(JTable table, BufferedImage frame, int y, int frames, int step) {
+        long bytes0 = allocated(), t0 = System.nanoTime();
+        for (int f = 0; f < frames; f++, y += step) {
+            Graphics2D g = frame.createGraphics();
+            g.translate(0, -y);
+            g.setClip(0, y, WIDTH, HEIGHT);
+            table.paint(g);
+            g.dispose();
+        }
+        return new long[]{allocated() - bytes0, System.nanoTime() - t0};
+    }
+
+    private static long allocated() {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return mx.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static <T> T find(Container c, Class<T> type) {
+        for (Component child : c.getComponents()) {
+            if (type.isInstance(child)) return type.cast(child);
+            if (child instanceof Container) {
+                T t = find((Container) child, type);
+                if (t != null) return t;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,126 @@
+package com.musicapp;
+
+import com.musicapp.audio.WaveformOverview;
+import com.musicapp.service.WaveformCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Waveform overview")
+class WaveformTest {
+
+    @TempDir
+    Path dir;
+
+    /** A stereo 440 Hz tone at {@code loud} for its first half and {@code soft} for the rest. */
+    private Path twoLevels(String name, int frames, float loud, float soft) throws IOException {
+        short[] s = new short[frames * 2];
+        for (int f = 0; f < frames; f++) {
+            float a = f < frames / 2 ? loud : soft;
+            s[2 * f] = s[2 * f + 1] = (short) Math.round(a * 32767 * Math.sin(2 * Math.PI * 440 * f / 44_100.0));
+        }
+        Path file = dir.resolve(name);
+        AudioFixtures.pcmWav(file, 44_100, 2, s);
+        return file;
+    }
+
+    @Test
+    @DisplayName("Outlines a track's peaks, and every coarser level merges the one below")
+    void levels() throws Exception {
+        WaveformOverview w = WaveformOverview.measure(twoLevels("a.wav", 44_100 * 4, 0.5f, 0.25f));
+        int n = WaveformOverview.BUCKETS;
+        assertEquals(0.5f, w.max(0, 10), 0.01);
+        assertEquals(-0.5f, w.min(0, 10), 0.01);
+        assertEquals(0.25f, w.max(0, n - 10), 0.01);
+        for (int level = 1; level < WaveformOverview.LEVELS; level++) {
+            for (int b = 0; b < WaveformOverview.buckets(level); b++) {
+                assertEquals(Math.max(w.max(level - 1, 2 * b), w.max(level - 1, 2 * b + 1)), w.max(level, b));
+                assertEquals(Math.min(w.min(level - 1, 2 * b), w.min(level - 1, 2 * b + 1)), w.min(level, b));
+            }
+        }
+        assertEquals(1, WaveformOverview.buckets(WaveformOverview.LEVELS - 1));
+        assertEquals(0.5f, w.max(WaveformOverview.LEVELS - 1, 0), 0.01);
+    }
+
+    @Test
+    @DisplayName("Any width renders from a stored level without going back to the audio")
+    void render() throws Exception {
+        WaveformOverview w = WaveformOverview.measure(twoLevels("a.wav", 44_100 * 3, 0.8f, 0.1f));
+        for (int width : new int[]{37, 300, 1_024, 5_000}) {
+            float[] min = new float[width], max = new float[width];
+            w.render(width, min, max);
+            int level = WaveformOverview.levelFor(width);
+            assertTrue(WaveformOverview.buckets(level) >= Math.min(width, WaveformOverview.BUCKETS));
+            assertEquals(0.8f, max[0], 0.01);
+            assertEquals(0.1f, max[width - 1], 0.01);
+            for (int x = 0; x < width; x++) assertTrue(min[x] <= 0 && max[x] >= 0 && max[x] <= 1);
+        }
+        float[] min = new float[1], max = new float[1];
+        w.render(1, min, max);
+        assertEquals(0.8f, max[0], 0.01);
+        assertEquals(WaveformOverview.LEVELS - 1, WaveformOverview.levelFor(1));
+        assertEquals(0, WaveformOverview.levelFor(5_000));
+    }
+
+    @Test
+    @DisplayName("Round-trips through its compact byte form")
+    void bytes() throws Exception {
+        WaveformOverview w = WaveformOverview.measure(twoLevels("a.wav", 10_000, 0.3f, 0.6f));
+        byte[] b = w.toBytes();
+        assertEquals(WaveformOverview.BYTES, b.length);
+        assertArrayEquals(b, WaveformOverview.fromBytes(b).toBytes());
+        assertThrows(IllegalArgumentException.class, () -> WaveformOverview.fromBytes(new byte[10]));
+    }
+
+    @Test
+    @DisplayName("The cache keeps one entry per file on disk and recomputes it when the file changes")
+    void cache() throws Exception {
+        Path cacheDir = dir.resolve("waveforms");
+        Path song = twoLevels("a.wav", 20_000, 0.5f, 0.5f);
+        try (WaveformCache cache = new WaveformCache(cacheDir)) {
+            assertNull(cache.get(song));
+            WaveformOverview w = cache.load(song);
+            assertSame(w, cache.get(song));
+        }
+        try (WaveformCache fresh = new WaveformCache(cacheDir)) {
+            WaveformOverview w = fresh.get(song);                       // from disk, no decoding
+            assertNotNull(w);
+            assertEquals(0.5f, w.max(0, 0), 0.01);
+
+            twoLevels("a.wav", 20_000, 0.9f, 0.9f);
+            Files.setLastModifiedTime(song, FileTime.fromMillis(Files.getLastModifiedTime(song).toMillis() + 2_000));
+            assertNull(fresh.get(song));
+
+            CompletableFuture<WaveformOverview> done = new CompletableFuture<>();
+            fresh.request(song, done::complete);
+            assertEquals(0.9f, done.get(10, TimeUnit.SECONDS).max(0, 0), 0.01);
+        }
+        List<Path> entries;
+        try (Stream<Path> s = Files.list(cacheDir)) { entries = s.collect(Collectors.toList()); }
+        assertEquals(1, entries.size(), entries.toString());
+    }
+
+    @Test
+    @DisplayName("Requests for files that cannot be decoded report null")
+    void undecodable() throws Exception {
+        Path junk = dir.resolve("junk.wav");
+        Files.write(junk, new byte[]{1, 2, 3, 4});
+        try (WaveformCache cache = new WaveformCache(dir.resolve("waveforms"))) {
+            CompletableFuture<WaveformOverview> done = new CompletableFuture<>();
+            cache.request(junk, done::complete);
+            assertNull(done.get(10, TimeUnit.SECONDS));
+        }
+    }
+}